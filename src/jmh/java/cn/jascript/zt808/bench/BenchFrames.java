@@ -0,0 +1,50 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import cn.jascript.zt808.util.CodecUtil;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * 基准用报文，统一通过 JT808TestKit 生成。
+ */
+final class BenchFrames {
+
+    static final String TERMINAL_ID = "14540756282";
+    //真实设备 0x0200 附加信息(里程/信号/IO 状态等)
+    static final String REAL_EXTRA_HEX = "0104000081AB30011C31011D6102058CF7020000EB2A000C00B2898604D91623D122154900060089FFFFFFFE000400CE058C000600C5FFFFFFFF000400B71C1D";
+    private static final int HEADER_LENGTH = 12;
+
+    private BenchFrames() {
+    }
+
+    // 0x0200 位置消息体(28 字节基本信息 + 附加信息)
+    static byte[] locationBody(boolean withExtra) {
+        var frame = JT808TestKit.locationFrame(TERMINAL_ID, 1, 0x00000001, 0x000C0003,
+                34.239449, 108.871777, 370, 800, 307, LocalDateTime.of(2025, 12, 18, 10, 30, 0));
+        var payload = JT808TestKit.unescape(frame);
+        var base = Arrays.copyOfRange(payload, 1 + HEADER_LENGTH, payload.length - 2);
+        if (!withExtra)
+            return base;
+        var extra = CodecUtil.hexToBytes(REAL_EXTRA_HEX);
+        var body = Arrays.copyOf(base, base.length + extra.length);
+        System.arraycopy(extra, 0, body, base.length, extra.length);
+        return body;
+    }
+
+    /**
+     * 完整 0x0200 帧。escaped=true 时流水号与报警位含 0x7E/0x7D，需要反转义。
+     */
+    static byte[] locationFrame(boolean escaped) {
+        var body = locationBody(true);
+        int flowId = 0x0102;
+        if (escaped) {
+            flowId = 0x7E7D;
+            body[0] = Protocol.HEADER;
+            body[1] = Protocol.ESCAPE;
+        }
+        return JT808TestKit.buildFrame(0x0200, TERMINAL_ID, flowId, body);
+    }
+}
@@ -0,0 +1,61 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.util.BcdUtil;
+import cn.jascript.zt808.util.CodecUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编解码工具：BCD 终端号、hex 转换、BCC 校验。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecUtilBenchmark {
+
+    private byte[] terminalBcd;
+    private byte[] extra;
+    private ByteBuf payload;
+
+    @Setup
+    public void setup() {
+        terminalBcd = BcdUtil.fromString(BenchFrames.TERMINAL_ID, TerminalKey.BCD_LENGTH);
+        extra = CodecUtil.hexToBytes(BenchFrames.REAL_EXTRA_HEX);
+        payload = Unpooled.wrappedBuffer(BenchFrames.locationBody(true));
+    }
+
+    @Benchmark
+    public String bcdToString() {
+        return BcdUtil.toString(terminalBcd);
+    }
+
+    @Benchmark
+    public byte[] bcdFromString() {
+        return BcdUtil.fromString(BenchFrames.TERMINAL_ID, TerminalKey.BCD_LENGTH);
+    }
+
+    @Benchmark
+    public String terminalKeyToId() {
+        return TerminalKey.toTerminalId(TerminalKey.of(terminalBcd));
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return CodecUtil.bytesToHex(extra);
+    }
+
+    @Benchmark
+    public byte calculateBcc() {
+        return CodecUtil.calculateBcc(payload, payload.readerIndex(), payload.readableBytes());
+    }
+}
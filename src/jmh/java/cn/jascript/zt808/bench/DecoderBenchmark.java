@@ -0,0 +1,63 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.model.TerminalMessage;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上行解码：融合解码器与四段式解码链，对比无转义/含转义帧。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecoderBenchmark {
+
+    @Param({"fused", "legacy"})
+    public String decoder;
+
+    @Param({"false", "true"})
+    public boolean escaped;
+
+    private byte[] frame;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        frame = BenchFrames.locationFrame(escaped);
+        if ("fused".equals(decoder)) {
+            channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder());
+        } else {
+            channel = new EmbeddedChannel(
+                    DecoderFactory.getDelimiterDecoder(),
+                    DecoderFactory.getEscapeDecoder(),
+                    DecoderFactory.getBccValidDecoder(),
+                    DecoderFactory.getMsgDecoder());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int decode() {
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+        TerminalMessage message = channel.readInbound();
+        int flowId = message.getFlowId();
+        message.getBody().release();
+        return flowId;
+    }
+}
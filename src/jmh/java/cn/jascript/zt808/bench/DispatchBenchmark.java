@@ -0,0 +1,51 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.message.parser.MsgDispatchTable;
+import cn.jascript.zt808.message.parser.MsgParserProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * msgId 分发：数组分发表与原实现(格式化十六进制键 + HashMap)对比。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+
+    private static final int[] MSG_IDS = {0x0200, 0x0002, 0x0704, 0x0001, 0x0102, 0x6006, 0x0900, 0x0200};
+
+    private MsgDispatchTable table;
+    private Map<String, MsgParserProvider> byHexKey;
+    private int i;
+
+    @Setup
+    public void setup() {
+        table = MsgDispatchTable.get();
+        byHexKey = new HashMap<>();
+        for (int msgId : MSG_IDS) {
+            var provider = table.entry(msgId).getProvider();
+            if (provider != null)
+                byHexKey.put(String.format("0x%04X", msgId), provider);
+        }
+    }
+
+    @Benchmark
+    public MsgParserProvider table() {
+        return table.entry(MSG_IDS[i++ & 7]).getProvider();
+    }
+
+    @Benchmark
+    public MsgParserProvider hashMapBaseline() {
+        return byHexKey.get(String.format("0x%04X", MSG_IDS[i++ & 7]));
+    }
+}
@@ -0,0 +1,66 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.handler.DuplicateCache;
+import cn.jascript.zt808.model.TerminalKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上行排重：无锁排重表与 Caffeine(原按连接缓存实现)对比，多线程可用 -t 指定。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DuplicateCacheBenchmark {
+
+    private static final int MAX_SIZE = 100_000;
+    private static final int TERMINALS = 10_000;
+
+    private DuplicateCache table;
+    private Cache<String, Boolean> caffeine;
+    private long[] terminalKeys;
+    private String[] terminalIds;
+
+    @Setup
+    public void setup() {
+        table = new DuplicateCache(MAX_SIZE, 60);
+        caffeine = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfterWrite(Duration.ofSeconds(60))
+                .build();
+        terminalKeys = new long[TERMINALS];
+        terminalIds = new String[TERMINALS];
+        for (int i = 0; i < TERMINALS; i++) {
+            terminalIds[i] = String.valueOf(14540000000L + i);
+            terminalKeys[i] = TerminalKey.fromString(terminalIds[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int seq;
+    }
+
+    @Benchmark
+    public boolean seen(Cursor cursor) {
+        int seq = cursor.seq++;
+        return table.seen(1, terminalKeys[seq % TERMINALS], 0x0200, seq & 0xFFFF);
+    }
+
+    @Benchmark
+    public boolean caffeineBaseline(Cursor cursor) {
+        int seq = cursor.seq++;
+        var key = terminalIds[seq % TERMINALS] + ":" + 0x0200 + ":" + (seq & 0xFFFF);
+        return caffeine.asMap().putIfAbsent(key, Boolean.TRUE) != null;
+    }
+}
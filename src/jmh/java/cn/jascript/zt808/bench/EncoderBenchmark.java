@@ -0,0 +1,63 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.codec.EncoderFactory;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.model.PlatformMessage;
+import cn.jascript.zt808.model.TerminalKey;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下行编码：以平台通用应答(0x8001)为样本。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EncoderBenchmark {
+
+    //应答流水号(含 0x7E 需转义) + 应答 msgId + 结果
+    private static final byte[] REPLY_BODY = {0x7E, 0x01, 0x02, 0x00, 0x00};
+
+    private static final long TERMINAL_KEY = TerminalKey.fromString(BenchFrames.TERMINAL_ID);
+
+    private EmbeddedChannel channel;
+    private int flowId;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(EncoderFactory.getMsgEncoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encodeGeneralReply() {
+        var msg = new PlatformMessage();
+        msg.setTerminalId(BenchFrames.TERMINAL_ID);
+        msg.setTerminalKey(TERMINAL_KEY);
+        msg.setMsgId(MsgId.PLATFORM_GENERAL_REPLY);
+        msg.setFlowId(flowId++ & 0xFFFF);
+        msg.setBody(Unpooled.wrappedBuffer(REPLY_BODY));
+        channel.writeOutbound(msg);
+        ByteBuf out = channel.readOutbound();
+        int length = out.readableBytes();
+        //消息体由编码器释放
+        ReferenceCountUtil.release(out);
+        return length;
+    }
+}
@@ -0,0 +1,113 @@
+package cn.jascript.zt808.bench;
+
+import cn.jascript.zt808.forward.DtoJsonWriter;
+import cn.jascript.zt808.message.parser.extprovider.DefaultLocationExtParserProvider;
+import cn.jascript.zt808.message.parser.extprovider.TlvCursor;
+import cn.jascript.zt808.message.parser.provider.LocationMsgParserProvider;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 0x0200 位置解析：基本信息解析(parseSingleLocation)与附加信息扩展解析(DefaultLocationExtParserProvider)，
+ * 以及池化 LocationRecord 版本(解析 + 扩展解析 + JSON 输出后回收)。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LocationParserBenchmark {
+
+    @Param({"false", "true"})
+    public boolean withExtra;
+
+    private final ExposedLocationParser parser = new ExposedLocationParser();
+    private final DefaultLocationExtParserProvider extParser = new DefaultLocationExtParserProvider();
+    private ByteBuf body;
+    private LocationDTO parsed;
+    private final TlvCursor cursor = new TlvCursor();
+    private final ByteBuf json = Unpooled.buffer(1024);
+
+    @Setup
+    public void setup() {
+        body = Unpooled.wrappedBuffer(BenchFrames.locationBody(withExtra));
+        parsed = parser.parseSingle(body.duplicate(), BenchFrames.TERMINAL_ID);
+    }
+
+    @Benchmark
+    public LocationDTO parseSingleLocation() {
+        return parser.parseSingle(body.duplicate(), BenchFrames.TERMINAL_ID);
+    }
+
+    @Benchmark
+    public LocationDTO parseExt() {
+        extParser.parse(parsed, cursor.reset(parsed.getExtra()), body);
+        return parsed;
+    }
+
+    //hex 往返版本,对照用
+    @Benchmark
+    public LocationDTO parseExtHex() {
+        extParser.parse(parsed, parsed.statusHex(), parsed.alarmHex(), parsed.extraHex(), body);
+        return parsed;
+    }
+
+    @Benchmark
+    public long parseRecord() {
+        var record = parser.parseRecord(body.duplicate(), BenchFrames.TERMINAL_ID);
+        extParser.parse(record, cursor.reset(record.extra()), body);
+        long time = record.locationTimeMillis();
+        record.recycle();
+        return time;
+    }
+
+    //DTO 版本解析 + JSON 输出,对照 recordToJson
+    @Benchmark
+    public int dtoToJson() throws IOException {
+        var dto = parser.parseSingle(body.duplicate(), BenchFrames.TERMINAL_ID);
+        extParser.parse(dto, cursor.reset(dto.getExtra()), body);
+        dto.setExtra(null);
+        json.clear();
+        DtoJsonWriter.writeNdJson(json, dto);
+        return json.readableBytes();
+    }
+
+    @Benchmark
+    public int recordToJson() throws IOException {
+        var record = parser.parseRecord(body.duplicate(), BenchFrames.TERMINAL_ID);
+        extParser.parse(record, cursor.reset(record.extra()), body);
+        record.extra(null);
+        json.clear();
+        DtoJsonWriter.writeNdJson(json, record);
+        record.recycle();
+        return json.readableBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        json.release();
+    }
+
+    //parseSingleLocation/parseSingleRecord 为 protected,通过子类暴露
+    static final class ExposedLocationParser extends LocationMsgParserProvider {
+        LocationDTO parseSingle(ByteBuf buf, String terminalId) {
+            return parseSingleLocation(buf, terminalId);
+        }
+
+        LocationRecord parseRecord(ByteBuf buf, String terminalId) {
+            return parseSingleRecord(buf, terminalId, System.currentTimeMillis());
+        }
+    }
+}
@@ -1,31 +1,53 @@
 package cn.jascript.zt808.boot;
 
 
+import cn.jascript.zt808.cluster.ClusterManager;
 import cn.jascript.zt808.codec.DecoderFactory;
 import cn.jascript.zt808.codec.EncoderFactory;
 import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.config.ConfigReloader;
+import cn.jascript.zt808.constants.DecoderMode;
+import cn.jascript.zt808.constants.TransportType;
+import cn.jascript.zt808.executor.StripedExecutor;
+import cn.jascript.zt808.forward.ForwardDispatcher;
 import cn.jascript.zt808.handler.ConnectionEventHandler;
+import cn.jascript.zt808.handler.ConnectionLimitHandler;
 import cn.jascript.zt808.handler.DataEventHandler;
 import cn.jascript.zt808.handler.IdleHandlerFactory;
 import cn.jascript.zt808.handler.MdcLogHandler;
+import cn.jascript.zt808.handler.ProtocolHealthHandler;
+import cn.jascript.zt808.handler.SplitPacketHandler;
+import cn.jascript.zt808.http.AdminRoutes;
+import cn.jascript.zt808.http.HttpApiServer;
+import cn.jascript.zt808.message.parser.MsgDispatchTable;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.metrics.MetricsJmx;
+import cn.jascript.zt808.session.SessionManager;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Objects;
+
 @Slf4j
 public class Bootstrap {
 
-    private  NioEventLoopGroup  bossGroup;
-    private   NioEventLoopGroup  workerGroup;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
     private ServerBootstrap bootstrap;
-    private DefaultEventExecutorGroup businessGroup;
+    private TransportType transport;
+    private ConnectionLimitHandler connectionLimitHandler;
+    private StripedExecutor businessExecutor;
+    private HttpApiServer httpApiServer;
+    private ConfigReloader configReloader;
 
 
     public static Bootstrap getServer(){
@@ -39,63 +61,201 @@ public class Bootstrap {
     }
 
     private void  init() {
-        log.info("server init");
-        bossGroup = new NioEventLoopGroup();
-        workerGroup  = new NioEventLoopGroup();
-        int bizThreads = AppConfig.get().getBusinessExecutor().effectiveThreads();
-        businessGroup = new DefaultEventExecutorGroup(bizThreads);
+        var serverConfig = AppConfig.get().getServer();
+        transport = TransportFactory.resolve(serverConfig.getTransport());
+        log.info("server init, transport={}, bossThreads={}, workerThreads={}, backlog={}, reusePort={}",
+                transport, serverConfig.getBossThreads(), serverConfig.getWorkerThreads(), serverConfig.getBacklog(), isReusePort());
+        bossGroup = TransportFactory.newEventLoopGroup(transport, Math.max(1, serverConfig.getBossThreads()));
+        workerGroup = TransportFactory.newEventLoopGroup(transport, serverConfig.getWorkerThreads());
+        businessExecutor = new StripedExecutor("biz", AppConfig.get().getBusinessExecutor());
+        connectionLimitHandler = new ConnectionLimitHandler(serverConfig);
+        //空闲检测:全局分桶扫描,IdleActivityHandler 在收到完整帧时刷新会话活跃时间
+        IdleHandlerFactory.getIdleReaper();
+        //msgId 分发表:启动时一次性加载全部解析器,首包不再反射
+        MsgDispatchTable.get();
+        bindMetrics();
         bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup,workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .option(ChannelOption.SO_BACKLOG,128)
+                .channel(TransportFactory.serverChannelClass(transport))
+                .option(ChannelOption.SO_BACKLOG, serverConfig.getBacklog())
+                //连接准入:子连接注册前判定,超限直接关闭
+                .handler(connectionLimitHandler)
                 .childOption(ChannelOption.SO_KEEPALIVE,true)
                 .childHandler(new LoggingHandler(LogLevel.INFO))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) throws Exception {
+                        //合并下行 flush,需位于 pipeline 头部
+                        if (AppConfig.get().getServer().isFlushConsolidation())
+                            ch.pipeline().addLast(new FlushConsolidationHandler(AppConfig.get().getServer().getFlushAfterFlushes(), true));
                         //解码器
-                        ch.pipeline()
-                                .addLast(DecoderFactory.getDelimiterDecoder())
-                                .addLast(DecoderFactory.getEscapeDecoder())
-                                .addLast(DecoderFactory.getBccValidDecoder())
-                                .addLast(DecoderFactory.getMsgDecoder());
+                        if (AppConfig.get().getServer().getDecoder() == DecoderMode.LEGACY) {
+                            ch.pipeline()
+                                    .addLast(DecoderFactory.getDelimiterDecoder())
+                                    .addLast(DecoderFactory.getEscapeDecoder())
+                                    .addLast(DecoderFactory.getBccValidDecoder())
+                                    .addLast(DecoderFactory.getMsgDecoder());
+                        } else {
+                            ch.pipeline()
+                                    .addLast(DecoderFactory.getFusedDecoder());
+                        }
+                        //活跃时间:每个完整帧(含分包中间片)刷新,空闲由 IdleReaper 回收
+                        ch.pipeline().addLast(IdleHandlerFactory.getIdleHandler());
+                        //错误帧容忍、鉴权期限与鉴权前速率检查
+                        ch.pipeline().addLast(new ProtocolHealthHandler());
+                        //分包重组
+                        ch.pipeline().addLast(new SplitPacketHandler());
                         //处理器
                         ch.pipeline()
-                                //超时
-                                .addLast(IdleHandlerFactory.getIdleHandler(AppConfig.get().getServer().getIdleSeconds()))
                                 .addLast(new MdcLogHandler())
                                 .addLast(new ConnectionEventHandler())
-                                // 业务分发放入业务线程池，避免阻塞 IO 线程
-                                .addLast(businessGroup, new DataEventHandler());
+                                // 业务处理按终端分条带提交到业务线程池，同一终端保序，避免阻塞 IO 线程
+                                .addLast(new DataEventHandler(businessExecutor));
                         //编码器
                         ch.pipeline()
                                 .addLast(EncoderFactory.getMsgEncoder());
 
                     }
                 });
+        if (isReusePort())
+            TransportFactory.enableReusePort(bootstrap, transport);
+    }
+
+    public ConnectionLimitHandler getConnectionLimitHandler() {
+        return connectionLimitHandler;
+    }
+
+    public StripedExecutor getBusinessExecutor() {
+        return businessExecutor;
+    }
 
+    //各组件已有的统计以 gauge 形式登记,采集时读取
+    private void bindMetrics() {
+        var metrics = Metrics.getInstance();
+        metrics.gauge("zt808_sessions_online", () -> SessionManager.getInstance().onlineCount());
+        metrics.gauge("zt808_channels_active", () -> SessionManager.getInstance().channelCount());
+        metrics.gauge("zt808_business_queue_depth", () -> businessExecutor.queueDepth());
+        metrics.gauge("zt808_business_in_flight", () -> businessExecutor.inFlight());
+        metrics.gauge("zt808_business_executed_total", () -> businessExecutor.executed());
+        metrics.gauge("zt808_business_failed_total", () -> businessExecutor.failed());
+        //各条带排队时间(入队到开始执行),定位被高频终端拖慢的条带
+        for (int i = 0; i < businessExecutor.stripeCount(); i++) {
+            int stripe = i;
+            var label = String.valueOf(stripe);
+            metrics.gauge("zt808_business_queue_avg_millis", "stripe", label, () -> businessExecutor.avgQueueMillis(stripe));
+            metrics.gauge("zt808_business_queue_max_millis", "stripe", label, () -> businessExecutor.maxQueueMillis(stripe));
+        }
+        metrics.gauge("zt808_connections_accepted_total", () -> connectionLimitHandler.accepted());
+        metrics.gauge("zt808_connections_rejected_total", "reason", "max_connections", () -> connectionLimitHandler.rejectedByMaxConnections());
+        metrics.gauge("zt808_connections_rejected_total", "reason", "accept_rate", () -> connectionLimitHandler.rejectedByAcceptRate());
+        metrics.gauge("zt808_connections_rejected_total", "reason", "ip_rate", () -> connectionLimitHandler.rejectedByIpRate());
+        metrics.gauge("zt808_decoder_cumulation_bytes", DecoderFactory::cumulatedBytes);
+        metrics.gauge("zt808_split_pending_bytes", SplitPacketHandler::globalPendingBytes);
+        metrics.gauge("zt808_split_completed_total", SplitPacketHandler::completed);
+        metrics.gauge("zt808_split_timed_out_total", SplitPacketHandler::timedOut);
+        ForwardDispatcher.getInstance().bindMetrics(metrics);
+        var textQueue = TextQueueManager.getInstance();
+        metrics.gauge("zt808_text_queued", textQueue::queued);
+        metrics.gauge("zt808_text_sent_total", textQueue::sent);
+        metrics.gauge("zt808_text_delivered_total", textQueue::delivered);
+        metrics.gauge("zt808_text_failed_total", textQueue::failed);
+        metrics.gauge("zt808_text_relayed_total", textQueue::relayed);
+        var idleReaper = IdleHandlerFactory.getIdleReaper();
+        metrics.gauge("zt808_idle_tracked", idleReaper::tracked);
+        metrics.gauge("zt808_idle_reaped_total", idleReaper::reaped);
+        var cluster = ClusterManager.getInstance();
+        if (cluster.isEnabled()) {
+            metrics.gauge("zt808_cluster_relayed_total", cluster::relayed);
+            metrics.gauge("zt808_cluster_relay_failed_total", cluster::relayFailed);
+            metrics.gauge("zt808_cluster_received_total", cluster::received);
+            metrics.gauge("zt808_cluster_directory_errors_total", cluster::directoryErrors);
+            metrics.gauge("zt808_cluster_relay_auth_rejected_total", cluster::relayAuthRejected);
+        }
+        if (AppConfig.get().getMetrics().isJmx())
+            MetricsJmx.register(metrics);
+    }
+
+    //内置 HTTP 接口,启动失败不影响终端接入
+    private void startHttpApi() {
+        var config = AppConfig.get().getHttpApi();
+        if (!config.isEnable())
+            return;
+        httpApiServer = new HttpApiServer(config);
+        new AdminRoutes(SessionManager.getInstance(), TextQueueManager.getInstance(), Metrics.getInstance())
+                .register(httpApiServer, config);
+        try {
+            httpApiServer.start();
+        } catch (Exception e) {
+            log.error("http api start failed, port={}", config.getPort(), e);
+        }
+    }
+
+    //外部配置文件(-Dzt808.config)热重载,校验规则与启动时一致
+    private void startConfigReloader() {
+        var file = AppConfig.configFile();
+        if (Objects.isNull(file) || !AppConfig.get().getReload().isEnable())
+            return;
+        configReloader = new ConfigReloader(file, StartupValidator::validate);
+        try {
+            configReloader.start();
+        } catch (Exception e) {
+            log.error("config reloader start failed, file={}", file, e);
+        }
+    }
+
+    //SO_REUSEPORT 仅原生传输支持
+    private boolean isReusePort() {
+        return AppConfig.get().getServer().isReusePort() && TransportFactory.supportsReusePort(transport);
     }
 
     public void start(int port,boolean closeSync){
         init();
         try {
-            var channelFuture = bootstrap.bind(port).sync();
-            log.info("server start on port:{}", port);
+            //开启 reusePort 时每个 boss 线程 bind 一次,由内核分摊 accept
+            int bindCount = (isReusePort() ? Math.max(1, AppConfig.get().getServer().getBossThreads()) : 1);
+            ChannelFuture channelFuture = null;
+            for (int i = 0; i < bindCount; i++) {
+                channelFuture = bootstrap.bind(port).sync();
+            }
+            log.info("server start on port:{}, transport={}, bindCount={}", port, transport, bindCount);
+            startCluster();
+            startHttpApi();
+            startConfigReloader();
+            //注册关闭hook,需在阻塞等待关闭前注册
+            registerShutdownHook();
             if(closeSync)
                 channelFuture.channel().closeFuture().sync();
-            //注册关闭hook
-            registerShutdownHook();
 
         }catch (InterruptedException e) {
             log.info("server exception", e);
         }
     }
 
+    //多实例模式:节点间下行转发与会话目录续期,失败时仅本地下发
+    private void startCluster() {
+        try {
+            ClusterManager.getInstance().start();
+        } catch (Exception e) {
+            log.error("cluster start failed, downlink limited to local sessions", e);
+        }
+    }
+
     public    void  close(){
         log.info("server closing");
         try {
+            if (Objects.nonNull(configReloader))
+                configReloader.stop();
+            if (Objects.nonNull(httpApiServer))
+                httpApiServer.stop();
             bossGroup.shutdownGracefully().syncUninterruptibly();
             workerGroup.shutdownGracefully().syncUninterruptibly();
+            //IO 停止后处理完已入队的业务消息
+            businessExecutor.shutdown();
+            //IO 停止后排空转发队列
+            ForwardDispatcher.getInstance().shutdown();
+            TextQueueManager.getInstance().shutdown();
+            IdleHandlerFactory.getIdleReaper().stop();
+            ClusterManager.getInstance().shutdown();
         }catch (Exception e){
             log.info("server close exception",e);
         }
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -17,8 +18,22 @@ public class StartupValidator {
     }
 
     public static void validateOrThrow() {
-        var config = AppConfig.get();
+        var errors = validate(AppConfig.get());
+        if (!errors.isEmpty()) {
+            for (var e : errors) {
+                log.error("startup validate failed: {}", e);
+            }
+            throw new IllegalStateException("startup validate failed, errors=" + errors.size());
+        }
+        log.info("startup validate ok");
+    }
 
+    /**
+     * 校验一份配置快照，启动与热重载共用。
+     *
+     * @return 错误列表，为空表示通过
+     */
+    public static List<String> validate(AppConfig config) {
         var providerFlat = config.getFlatValuesByPrefix("message.parser.provider");
         var extProviderFlat = config.getFlatValuesByPrefix("message.parser.extProvider");
         String providerSection = "message.parser.provider";
@@ -36,15 +51,26 @@ public class StartupValidator {
 
         validateProviderClasses(providerMap, MsgParserProvider.class, providerSection, errors);
         validateProviderClasses(extProviderMap, MsgExtParserProvider.class, extProviderSection, errors);
+        validateHttpApi(config.getHttpApi(), errors);
+        validateCluster(config.getCluster(), errors);
+        return errors;
+    }
 
-        if (!errors.isEmpty()) {
-            for (var e : errors) {
-                log.error("startup validate failed: {}", e);
-            }
-            throw new IllegalStateException("startup validate failed, errors=" + errors.size());
-        }
+    private static void validateHttpApi(AppConfig.HttpApiConfig httpApi, ArrayList<String> errors) {
+        if (Objects.isNull(httpApi) || !httpApi.isEnable())
+            return;
+        var basicAuth = httpApi.getBasicAuth();
+        if (Objects.nonNull(basicAuth) && basicAuth.isEnable()
+                && (Objects.isNull(basicAuth.getUser()) || basicAuth.getUser().isBlank()
+                || Objects.isNull(basicAuth.getPasswd()) || basicAuth.getPasswd().isBlank()))
+            errors.add("httpApi.basicAuth enabled but user/passwd is blank");
+    }
 
-        log.info("startup validate ok, providers={}, extProviders={}", providerMap.size(), extProviderMap.size());
+    private static void validateCluster(AppConfig.ClusterConfig cluster, ArrayList<String> errors) {
+        if (Objects.isNull(cluster) || !cluster.isEnable())
+            return;
+        if (Objects.isNull(cluster.getRelaySecret()) || cluster.getRelaySecret().isBlank())
+            errors.add("cluster enabled but relaySecret is blank");
     }
 
     private static void requireProvider(Map<String, String> map, String msgId, String name, ArrayList<String> errors) {
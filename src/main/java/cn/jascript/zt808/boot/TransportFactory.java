@@ -0,0 +1,88 @@
+package cn.jascript.zt808.boot;
+
+import cn.jascript.zt808.constants.TransportType;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+
+/**
+ * 传输层装配：按 server.transport 选择 epoll/io_uring 原生传输，不可用时回退 NIO。
+ * 原生传输系统调用开销更低，并支持 SO_REUSEPORT（多次 bind 同一端口，由内核在多个 boss 线程间分摊 accept）。
+ */
+@Slf4j
+public final class TransportFactory {
+
+    private TransportFactory() {
+    }
+
+    //将配置值解析为当前环境实际可用的传输类型
+    public static TransportType resolve(TransportType configured) {
+        var type = (Objects.isNull(configured) ? TransportType.AUTO : configured);
+        switch (type) {
+            case NIO:
+                return TransportType.NIO;
+            case EPOLL:
+                if (Epoll.isAvailable())
+                    return TransportType.EPOLL;
+                log.info("epoll transport unavailable, fallback to nio, cause={}", String.valueOf(Epoll.unavailabilityCause()));
+                return TransportType.NIO;
+            case IOURING:
+                if (IOUring.isAvailable())
+                    return TransportType.IOURING;
+                log.info("io_uring transport unavailable, fallback to nio, cause={}", String.valueOf(IOUring.unavailabilityCause()));
+                return TransportType.NIO;
+            default:
+                return (Epoll.isAvailable() ? TransportType.EPOLL : TransportType.NIO);
+        }
+    }
+
+    //threads<=0 时使用 Netty 默认线程数(2 * CPU 核心)
+    public static EventLoopGroup newEventLoopGroup(TransportType type, int threads) {
+        var nThreads = Math.max(0, threads);
+        switch (type) {
+            case EPOLL:
+                return new EpollEventLoopGroup(nThreads);
+            case IOURING:
+                return new IOUringEventLoopGroup(nThreads);
+            default:
+                return new NioEventLoopGroup(nThreads);
+        }
+    }
+
+    public static Class<? extends ServerChannel> serverChannelClass(TransportType type) {
+        switch (type) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case IOURING:
+                return IOUringServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public static boolean supportsReusePort(TransportType type) {
+        return type == TransportType.EPOLL || type == TransportType.IOURING;
+    }
+
+    //开启 SO_REUSEPORT,仅原生传输支持
+    public static void enableReusePort(ServerBootstrap bootstrap, TransportType type) {
+        if (type == TransportType.EPOLL) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        } else if (type == TransportType.IOURING) {
+            bootstrap.option(IOUringChannelOption.SO_REUSEPORT, true);
+        }
+    }
+}
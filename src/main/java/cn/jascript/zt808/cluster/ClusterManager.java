@@ -0,0 +1,367 @@
+package cn.jascript.zt808.cluster;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.message.sender.DefaultPlatformMsgSenderProvider;
+import cn.jascript.zt808.message.sender.MsgSenderProvider;
+import cn.jascript.zt808.message.sender.MsgSenderProviderFactory;
+import cn.jascript.zt808.message.sender.queue.RemoteTextSubmitter;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.session.FlowIdGenerator;
+import cn.jascript.zt808.session.Session;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.session.SessionRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 多实例模式：终端鉴权上线/下线时更新 SessionDirectory，下行消息先查本地会话，不在本节点时查目录(带近端缓存)并经 DownlinkRelay 转发到所在节点；
+ * 文本下发队列(TextQueueManager)经 RemoteTextSubmitter 把不在本节点的终端的消息转交所在节点的队列。
+ * 目录读写均在独立线程异步执行，调用线程(IO/HTTP)不阻塞；未开启时 send 只走本地会话。
+ */
+@Slf4j
+public class ClusterManager implements DownlinkRelay.Listener, RemoteTextSubmitter {
+
+    private final boolean enabled;
+    private final AppConfig.ClusterConfig config;
+    private final SessionDirectory directory;
+    private final SessionRouter sessionRouter;
+    private final FlowIdGenerator flowIdGenerator;
+    private final MsgSenderProvider sender;
+    //延迟获取,避免与 TextQueueManager 单例初始化互相依赖
+    private final Supplier<TextQueueManager> textQueue;
+    private final Cache<String, String> nearCache;
+    private final ScheduledExecutorService directoryExecutor;
+    private volatile DownlinkRelay downlinkRelay;
+    private volatile String nodeId;
+
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder relayFailed = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder directoryErrors = new LongAdder();
+
+    public static ClusterManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final ClusterManager INSTANCE = create();
+
+        private Holder() {
+        }
+
+        private static ClusterManager create() {
+            var config = AppConfig.get().getCluster();
+            var directory = config.isEnable()
+                    ? SessionDirectoryFactory.create(config, AppConfig.get().getRedis())
+                    : new InMemorySessionDirectory();
+            return new ClusterManager(config, directory, new SessionRouter(), MsgSenderProviderFactory.get());
+        }
+    }
+
+    public ClusterManager(AppConfig.ClusterConfig config, SessionDirectory directory,
+                          SessionRouter sessionRouter, MsgSenderProvider sender) {
+        this(config, directory, sessionRouter, sender, TextQueueManager::getInstance);
+    }
+
+    public ClusterManager(AppConfig.ClusterConfig config, SessionDirectory directory, SessionRouter sessionRouter,
+                          MsgSenderProvider sender, Supplier<TextQueueManager> textQueue) {
+        this.enabled = config.isEnable();
+        this.config = config;
+        this.directory = directory;
+        this.sessionRouter = sessionRouter;
+        this.flowIdGenerator = new FlowIdGenerator(sessionRouter);
+        this.sender = sender;
+        this.textQueue = textQueue;
+        this.nearCache = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(1, config.getNearCacheSeconds()), TimeUnit.SECONDS)
+                .maximumSize(Math.max(1, config.getNearCacheSize()))
+                .build();
+        this.directoryExecutor = enabled
+                ? Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("cluster-directory", true))
+                : null;
+    }
+
+    /**
+     * 启动转发服务并按 entryTtlSeconds/3 周期续期本节点在线终端。
+     */
+    public void start() throws Exception {
+        if (!enabled)
+            return;
+        var host = resolveHost();
+        downlinkRelay = new DownlinkRelay(host, config.getRelayPort(), config.getRelayTimeoutMillis(), config.getRelaySecret(), this);
+        int port = downlinkRelay.start();
+        nodeId = StringUtils.isNotBlank(config.getNodeId()) ? config.getNodeId().trim() : host + ":" + port;
+        long renewSeconds = Math.max(1, config.getEntryTtlSeconds() / 3);
+        directoryExecutor.scheduleWithFixedDelay(this::renew, renewSeconds, renewSeconds, TimeUnit.SECONDS);
+        log.info("cluster started, nodeId={}, directory={}", nodeId, directory.getClass().getSimpleName());
+    }
+
+    private String resolveHost() throws Exception {
+        if (StringUtils.isNotBlank(config.getRelayHost()))
+            return config.getRelayHost().trim();
+        return InetAddress.getLocalHost().getHostAddress();
+    }
+
+    /**
+     * 终端在本节点鉴权上线，旧节点(终端断网重连到其他节点)收到失效通知。
+     */
+    public void onBound(String terminalId) {
+        if (!isStarted() || StringUtils.isBlank(terminalId))
+            return;
+        nearCache.invalidate(terminalId);
+        directoryExecutor.execute(() -> {
+            try {
+                var previous = directory.register(terminalId, nodeId);
+                if (previous.isPresent() && !nodeId.equals(previous.get()))
+                    downlinkRelay.invalidate(previous.get(), terminalId);
+            } catch (Exception e) {
+                directoryErrors.increment();
+                log.error("session directory register failed, terminalId={}", terminalId, e);
+            }
+        });
+    }
+
+    /**
+     * 终端在本节点下线(本节点已无该终端的会话)。
+     */
+    public void onUnbound(String terminalId) {
+        if (!isStarted() || StringUtils.isBlank(terminalId))
+            return;
+        directoryExecutor.execute(() -> {
+            try {
+                directory.unregister(terminalId, nodeId);
+            } catch (Exception e) {
+                directoryErrors.increment();
+                log.error("session directory unregister failed, terminalId={}", terminalId, e);
+            }
+        });
+    }
+
+    /**
+     * 向终端下发，终端可连接在任意节点；目录查询与转发均异步完成，不阻塞调用线程。
+     *
+     * @return 本节点或所在节点已写出时为 true；终端不在线、转发失败或超时为 false
+     */
+    public CompletableFuture<Boolean> send(String terminalId, int msgId, byte[] body) {
+        byte local = sendLocal(terminalId, msgId, body);
+        if (local != RelayFrame.STATUS_NOT_FOUND || !isStarted())
+            return CompletableFuture.completedFuture(local == RelayFrame.STATUS_OK);
+        return relay(terminalId, node -> downlinkRelay.send(node, terminalId, msgId, body));
+    }
+
+    /**
+     * 文本消息转交终端所在节点的下发队列。
+     */
+    @Override
+    public CompletableFuture<Boolean> submit(String terminalId, int flag, String text) {
+        if (!isStarted() || StringUtils.isBlank(terminalId))
+            return CompletableFuture.completedFuture(false);
+        return relay(terminalId, node -> downlinkRelay.submitText(node, terminalId, flag, text));
+    }
+
+    //查所在节点并转发;对端回复不在线时近端缓存可能已过期,清除后直接查目录重试一次
+    private CompletableFuture<Boolean> relay(String terminalId, Function<String, CompletableFuture<Byte>> request) {
+        return lookupAsync(terminalId).thenCompose(owner -> {
+            if (owner.isEmpty() || nodeId.equals(owner.get()))
+                return CompletableFuture.completedFuture(false);
+            return request(owner.get(), request)
+                    .thenComposeAsync(status -> {
+                        if (status != RelayFrame.STATUS_NOT_FOUND)
+                            return CompletableFuture.completedFuture(status == RelayFrame.STATUS_OK);
+                        nearCache.invalidate(terminalId);
+                        var fresh = lookupDirectory(terminalId);
+                        if (fresh.isEmpty() || fresh.get().equals(owner.get()) || nodeId.equals(fresh.get()))
+                            return CompletableFuture.completedFuture(false);
+                        return request(fresh.get(), request).thenApply(s -> s == RelayFrame.STATUS_OK);
+                    }, directoryExecutor)
+                    .exceptionally(e -> {
+                        relayFailed.increment();
+                        nearCache.invalidate(terminalId);
+                        log.error("relay downlink failed, terminalId={}, node={}", terminalId, owner.get(), e);
+                        return false;
+                    });
+        });
+    }
+
+    private CompletableFuture<Byte> request(String node, Function<String, CompletableFuture<Byte>> request) {
+        relayed.increment();
+        return request.apply(node);
+    }
+
+    //近端缓存命中时直接返回,否则在目录线程查询
+    private CompletableFuture<Optional<String>> lookupAsync(String terminalId) {
+        lookups.increment();
+        var cached = nearCache.getIfPresent(terminalId);
+        if (Objects.nonNull(cached)) {
+            nearCacheHits.increment();
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> lookupAndCache(terminalId), directoryExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+    }
+
+    private byte sendLocal(String terminalId, int msgId, byte[] body) {
+        var channel = route(terminalId);
+        if (Objects.isNull(channel))
+            return RelayFrame.STATUS_NOT_FOUND;
+        int flowId = flowIdGenerator.nextFlowId(terminalId);
+        boolean ok = sender.sendMessage(channel, terminalId, flowId, body, Map.of(DefaultPlatformMsgSenderProvider.PARAM_MSG_ID, msgId));
+        return ok ? RelayFrame.STATUS_OK : RelayFrame.STATUS_FAILED;
+    }
+
+    private Channel route(String terminalId) {
+        return sessionRouter.routeSession(terminalId)
+                .filter(Session::isAuthorized)
+                .map(Session::getChannel)
+                .filter(ch -> Objects.nonNull(ch) && ch.isActive())
+                .orElse(null);
+    }
+
+    // 终端所在节点,先查近端缓存;未命中时同步查目录(可能有网络 IO),不在 IO 线程调用
+    public Optional<String> lookup(String terminalId) {
+        lookups.increment();
+        var cached = nearCache.getIfPresent(terminalId);
+        if (Objects.nonNull(cached)) {
+            nearCacheHits.increment();
+            return Optional.of(cached);
+        }
+        return lookupAndCache(terminalId);
+    }
+
+    private Optional<String> lookupAndCache(String terminalId) {
+        var node = lookupDirectory(terminalId);
+        node.ifPresent(n -> nearCache.put(terminalId, n));
+        return node;
+    }
+
+    private Optional<String> lookupDirectory(String terminalId) {
+        try {
+            return directory.lookup(terminalId);
+        } catch (Exception e) {
+            directoryErrors.increment();
+            log.error("session directory lookup failed, terminalId={}", terminalId, e);
+            return Optional.empty();
+        }
+    }
+
+    private void renew() {
+        var terminalIds = new ArrayList<String>();
+        for (var session : SessionManager.getInstance().terminalSessions()) {
+            if (session.isAuthorized() && Objects.nonNull(session.getTerminalId()))
+                terminalIds.add(session.getTerminalId());
+        }
+        try {
+            directory.renew(terminalIds, nodeId);
+        } catch (Exception e) {
+            directoryErrors.increment();
+            log.error("session directory renew failed, count={}", terminalIds.size(), e);
+        }
+    }
+
+    @Override
+    public byte onSend(String terminalId, int msgId, byte[] body) {
+        received.increment();
+        return sendLocal(terminalId, msgId, body);
+    }
+
+    /**
+     * 其他节点转交的文本：终端须在本节点在线，否则回复不在线由对端重新查目录或在其本地排队。
+     */
+    @Override
+    public byte onSubmitText(String terminalId, int flag, String text) {
+        received.increment();
+        if (Objects.isNull(route(terminalId)))
+            return RelayFrame.STATUS_NOT_FOUND;
+        return textQueue.get().submitLocal(terminalId, flag, text).isPresent() ? RelayFrame.STATUS_OK : RelayFrame.STATUS_FAILED;
+    }
+
+    /**
+     * 终端已在其他节点上线：清除近端缓存，关闭本地残留连接(半开连接等待空闲回收期间下行会被误投)。
+     */
+    @Override
+    public void onInvalidate(String terminalId) {
+        nearCache.invalidate(terminalId);
+        sessionRouter.routeSession(terminalId).ifPresent(session -> {
+            log.info("terminal moved to other node, close local channel, terminalId={}, remote={}", terminalId, session.getRemoteAddress());
+            session.getChannel().close();
+        });
+    }
+
+    public void shutdown() {
+        if (!enabled)
+            return;
+        if (Objects.nonNull(downlinkRelay))
+            downlinkRelay.stop();
+        directoryExecutor.shutdown();
+        try {
+            directoryExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        directory.close();
+        log.info("cluster stopped, relayed={}, relayFailed={}, received={}", relayed(), relayFailed(), received());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private boolean isStarted() {
+        return enabled && Objects.nonNull(nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long relayed() {
+        return relayed.sum();
+    }
+
+    public long relayFailed() {
+        return relayFailed.sum();
+    }
+
+    public long received() {
+        return received.sum();
+    }
+
+    public long lookups() {
+        return lookups.sum();
+    }
+
+    public long nearCacheHits() {
+        return nearCacheHits.sum();
+    }
+
+    public long directoryErrors() {
+        return directoryErrors.sum();
+    }
+
+    public long relayAuthRejected() {
+        return Objects.isNull(downlinkRelay) ? 0 : downlinkRelay.authRejected();
+    }
+}
@@ -0,0 +1,287 @@
+package cn.jascript.zt808.cluster;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 节点间下行转发：服务端接收其他节点的 SEND/SUBMIT_TEXT/INVALIDATE 交给 Listener 处理；客户端按节点复用一条长连接，请求以 requestId 匹配应答。
+ * 服务端只监听 relayHost，连接建立后首帧须为携带共享密钥的 AUTH，否则(含超时未认证)断开。
+ */
+@Slf4j
+public class DownlinkRelay {
+
+    /**
+     * 本节点收到的转发请求。
+     */
+    public interface Listener {
+
+        /**
+         * 向本地终端下发，返回 RelayFrame.STATUS_*，在转发 IO 线程调用，不可阻塞。
+         */
+        byte onSend(String terminalId, int msgId, byte[] body);
+
+        /**
+         * 文本消息转交本节点的文本下发队列，返回 RelayFrame.STATUS_*，在转发 IO 线程调用，不可阻塞。
+         */
+        byte onSubmitText(String terminalId, int flag, String text);
+
+        void onInvalidate(String terminalId);
+    }
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final byte[] secret;
+    private final Listener listener;
+    private final RelayCodec codec = new RelayCodec();
+    private final EventLoopGroup group;
+    private final Bootstrap client;
+    private final Map<String, CompletableFuture<Channel>> peers = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<Byte>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger requestId = new AtomicInteger();
+    private final LongAdder authRejected = new LongAdder();
+    private Channel serverChannel;
+
+    public DownlinkRelay(String host, int port, int timeoutMillis, String secret, Listener listener) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.listener = listener;
+        this.group = new NioEventLoopGroup(2, new DefaultThreadFactory("relay", true));
+        this.client = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, this.timeoutMillis)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(frameDecoder())
+                                .addLast(codec)
+                                .addLast(new ClientHandler());
+                    }
+                });
+    }
+
+    /**
+     * 启动转发服务端。
+     *
+     * @return 实际监听端口(配置为 0 时由系统分配)
+     */
+    public int start() throws InterruptedException {
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(frameDecoder())
+                                .addLast(codec)
+                                .addLast(new ServerHandler());
+                    }
+                })
+                .bind(host, port).sync().channel();
+        int boundPort = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        log.info("downlink relay listening on {}:{}", host, boundPort);
+        return boundPort;
+    }
+
+    /**
+     * 请求节点 node 向其本地终端下发。
+     *
+     * @return RelayFrame.STATUS_*；连接失败或超时时异常完成
+     */
+    public CompletableFuture<Byte> send(String node, String terminalId, int msgId, byte[] body) {
+        return request(node, RelayFrame.SEND, terminalId, msgId, body);
+    }
+
+    /**
+     * 请求节点 node 把文本消息放入其文本下发队列(由该节点跟踪终端应答)。
+     *
+     * @return RelayFrame.STATUS_*；连接失败或超时时异常完成
+     */
+    public CompletableFuture<Byte> submitText(String node, String terminalId, int flag, String text) {
+        return request(node, RelayFrame.SUBMIT_TEXT, terminalId, flag, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CompletableFuture<Byte> request(String node, byte type, String terminalId, int msgId, byte[] body) {
+        int id = requestId.incrementAndGet();
+        var result = new CompletableFuture<Byte>();
+        pending.put(id, result);
+        peer(node).whenComplete((channel, e) -> {
+            if (Objects.nonNull(e)) {
+                result.completeExceptionally(e);
+                return;
+            }
+            channel.writeAndFlush(new RelayFrame(type, id, (byte) 0, msgId, terminalId, body))
+                    .addListener((ChannelFutureListener) f -> {
+                        if (!f.isSuccess())
+                            result.completeExceptionally(f.cause());
+                    });
+        });
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((status, e) -> pending.remove(id));
+    }
+
+    /**
+     * 通知节点 node：终端已在其他节点上线。
+     */
+    public void invalidate(String node, String terminalId) {
+        peer(node).thenAccept(channel ->
+                channel.writeAndFlush(new RelayFrame(RelayFrame.INVALIDATE, 0, (byte) 0, 0, terminalId, null)));
+    }
+
+    //每个节点一条长连接,断开后下次请求重连;连接后先发 AUTH,后续帧按序排在其后
+    private CompletableFuture<Channel> peer(String node) {
+        var existing = peers.get(node);
+        if (Objects.nonNull(existing))
+            return existing;
+        var future = new CompletableFuture<Channel>();
+        existing = peers.putIfAbsent(node, future);
+        if (Objects.nonNull(existing))
+            return existing;
+        int idx = node.lastIndexOf(':');
+        if (idx <= 0) {
+            peers.remove(node, future);
+            future.completeExceptionally(new IllegalArgumentException("invalid node: " + node));
+            return future;
+        }
+        var host = node.substring(0, idx);
+        int nodePort = Integer.parseInt(node.substring(idx + 1));
+        client.connect(host, nodePort).addListener((ChannelFuture f) -> {
+            if (f.isSuccess()) {
+                f.channel().closeFuture().addListener(c -> peers.remove(node, future));
+                f.channel().writeAndFlush(new RelayFrame(RelayFrame.AUTH, 0, (byte) 0, 0, null, secret));
+                future.complete(f.channel());
+            } else {
+                peers.remove(node, future);
+                future.completeExceptionally(f.cause());
+            }
+        });
+        return future;
+    }
+
+    // 认证失败(密钥错误、首帧非 AUTH、超时未认证)被断开的连接数
+    public long authRejected() {
+        return authRejected.sum();
+    }
+
+    public void stop() {
+        if (Objects.nonNull(serverChannel))
+            serverChannel.close();
+        group.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private static LengthFieldBasedFrameDecoder frameDecoder() {
+        return new LengthFieldBasedFrameDecoder(RelayCodec.MAX_FRAME_LENGTH, 0, 4, 0, 4);
+    }
+
+    private final class ServerHandler extends SimpleChannelInboundHandler<RelayFrame> {
+        private boolean authenticated;
+        private ScheduledFuture<?> authTimeout;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            authTimeout = ctx.executor().schedule(() -> reject(ctx, "auth timeout"), timeoutMillis, TimeUnit.MILLISECONDS);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (Objects.nonNull(authTimeout))
+                authTimeout.cancel(false);
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RelayFrame frame) {
+            if (!authenticated) {
+                if (frame.getType() != RelayFrame.AUTH || !MessageDigest.isEqual(secret, frame.getBody())) {
+                    reject(ctx, "invalid auth");
+                    return;
+                }
+                authenticated = true;
+                authTimeout.cancel(false);
+                return;
+            }
+            if (frame.getType() == RelayFrame.INVALIDATE) {
+                listener.onInvalidate(frame.getTerminalId());
+                return;
+            }
+            if (frame.getType() != RelayFrame.SEND && frame.getType() != RelayFrame.SUBMIT_TEXT)
+                return;
+            byte status;
+            try {
+                status = frame.getType() == RelayFrame.SEND
+                        ? listener.onSend(frame.getTerminalId(), frame.getMsgId(), frame.getBody())
+                        : listener.onSubmitText(frame.getTerminalId(), frame.getMsgId(), new String(frame.getBody(), StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                log.error("relay request failed, type={}, terminalId={}", frame.getType(), frame.getTerminalId(), e);
+                status = RelayFrame.STATUS_FAILED;
+            }
+            ctx.writeAndFlush(new RelayFrame(RelayFrame.SEND_ACK, frame.getRequestId(), status, frame.getMsgId(), frame.getTerminalId(), null));
+        }
+
+        private void reject(ChannelHandlerContext ctx, String reason) {
+            if (authenticated || !ctx.channel().isActive())
+                return;
+            authRejected.increment();
+            log.info("relay connection rejected, remote={}, reason={}", ctx.channel().remoteAddress(), reason);
+            ctx.close();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.error("relay channel exception, remote={}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+
+    private final class ClientHandler extends SimpleChannelInboundHandler<RelayFrame> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RelayFrame frame) {
+            if (frame.getType() != RelayFrame.SEND_ACK)
+                return;
+            var result = pending.remove(frame.getRequestId());
+            if (Objects.nonNull(result))
+                result.complete(frame.getStatus());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.error("relay peer exception, remote={}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cn.jascript.zt808.cluster;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内目录：单节点部署或测试中多个节点共享同一实例。
+ */
+public class InMemorySessionDirectory implements SessionDirectory {
+
+    private final Map<String, String> nodes = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<String> register(String terminalId, String nodeId) {
+        return Optional.ofNullable(nodes.put(terminalId, nodeId));
+    }
+
+    @Override
+    public void unregister(String terminalId, String nodeId) {
+        nodes.remove(terminalId, nodeId);
+    }
+
+    @Override
+    public Optional<String> lookup(String terminalId) {
+        return Optional.ofNullable(nodes.get(terminalId));
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+}
@@ -0,0 +1,97 @@
+package cn.jascript.zt808.cluster;
+
+import cn.jascript.zt808.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 基于 Redis 协议的目录：键 keyPrefix + 终端号，值为节点标识，带过期时间，由在线节点定期续期。
+ * 下线使用脚本做"值仍为本节点才删除"的原子比较删除。
+ */
+@Slf4j
+public class RedisSessionDirectory implements SessionDirectory {
+
+    public static final String UNREGISTER_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    //单次续期管道的命令数上限
+    private static final int RENEW_BATCH = 500;
+
+    private final RespClient client;
+    private final String keyPrefix;
+    private final String ttlSeconds;
+
+    public RedisSessionDirectory(AppConfig.RedisConfig config, int ttlSeconds) {
+        this(new RespClient(config.getHost(), config.getPort(), config.getDb(), config.getPassword(), config.getTimeoutMillis()),
+                config.getKeyPrefix(), ttlSeconds);
+        log.info("redis session directory, address={}:{}, db={}, ttlSeconds={}", config.getHost(), config.getPort(), config.getDb(), ttlSeconds);
+    }
+
+    public RedisSessionDirectory(RespClient client, String keyPrefix, int ttlSeconds) {
+        this.client = client;
+        this.keyPrefix = keyPrefix;
+        this.ttlSeconds = String.valueOf(Math.max(1, ttlSeconds));
+    }
+
+    @Override
+    public Optional<String> register(String terminalId, String nodeId) {
+        var key = key(terminalId);
+        var replies = client.pipeline(List.of(
+                new String[]{"GETSET", key, nodeId},
+                new String[]{"EXPIRE", key, ttlSeconds}));
+        return Optional.ofNullable((String) replies.get(0));
+    }
+
+    @Override
+    public void unregister(String terminalId, String nodeId) {
+        client.execute("EVAL", UNREGISTER_SCRIPT, "1", key(terminalId), nodeId);
+    }
+
+    @Override
+    public Optional<String> lookup(String terminalId) {
+        return Optional.ofNullable((String) client.execute("GET", key(terminalId)));
+    }
+
+    @Override
+    public void renew(Collection<String> terminalIds, String nodeId) {
+        var batch = new ArrayList<String>(RENEW_BATCH);
+        for (var terminalId : terminalIds) {
+            batch.add(terminalId);
+            if (batch.size() == RENEW_BATCH) {
+                renewBatch(batch, nodeId);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            renewBatch(batch, nodeId);
+    }
+
+    //先 EXPIRE,已过期被删除的条目(返回 0)再重新写入
+    private void renewBatch(List<String> terminalIds, String nodeId) {
+        var commands = new ArrayList<String[]>(terminalIds.size());
+        for (var terminalId : terminalIds) {
+            commands.add(new String[]{"EXPIRE", key(terminalId), ttlSeconds});
+        }
+        var replies = client.pipeline(commands);
+        var missing = new ArrayList<String[]>();
+        for (int i = 0; i < replies.size(); i++) {
+            if (Long.valueOf(0).equals(replies.get(i)))
+                missing.add(new String[]{"SET", key(terminalIds.get(i)), nodeId, "EX", ttlSeconds});
+        }
+        if (!missing.isEmpty())
+            client.pipeline(missing);
+    }
+
+    private String key(String terminalId) {
+        return keyPrefix + terminalId;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
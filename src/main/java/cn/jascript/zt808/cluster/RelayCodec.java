@@ -0,0 +1,52 @@
+package cn.jascript.zt808.cluster;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 转发帧编解码：4 字节长度 | type(1) | requestId(4) | status(1) | msgId(2) | 终端号长度(1) | 终端号 | 消息体。
+ * 解码前需由 LengthFieldBasedFrameDecoder 按长度切帧并去掉长度字段。
+ */
+@ChannelHandler.Sharable
+public class RelayCodec extends MessageToMessageCodec<ByteBuf, RelayFrame> {
+
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, RelayFrame frame, List<Object> out) {
+        var terminalId = Objects.isNull(frame.getTerminalId()) ? new byte[0] : frame.getTerminalId().getBytes(StandardCharsets.US_ASCII);
+        var body = Objects.isNull(frame.getBody()) ? new byte[0] : frame.getBody();
+        int length = 1 + 4 + 1 + 2 + 1 + terminalId.length + body.length;
+        var buf = ctx.alloc().buffer(4 + length);
+        buf.writeInt(length)
+                .writeByte(frame.getType())
+                .writeInt(frame.getRequestId())
+                .writeByte(frame.getStatus())
+                .writeShort(frame.getMsgId())
+                .writeByte(terminalId.length)
+                .writeBytes(terminalId)
+                .writeBytes(body);
+        out.add(buf);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        var frame = new RelayFrame();
+        frame.setType(in.readByte());
+        frame.setRequestId(in.readInt());
+        frame.setStatus(in.readByte());
+        frame.setMsgId(in.readUnsignedShort());
+        int idLength = in.readUnsignedByte();
+        frame.setTerminalId(in.readCharSequence(idLength, StandardCharsets.US_ASCII).toString());
+        var body = new byte[in.readableBytes()];
+        in.readBytes(body);
+        frame.setBody(body);
+        out.add(frame);
+    }
+}
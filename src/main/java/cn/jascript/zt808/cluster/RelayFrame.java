@@ -0,0 +1,33 @@
+package cn.jascript.zt808.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 节点间转发帧：SEND 请求对端向其本地终端下发，SUBMIT_TEXT 请求对端把文本放入其下发队列(msgId 字段为文本标志位，消息体为 UTF-8 文本)，
+ * 对端均以 SEND_ACK 回复结果；INVALIDATE 通知旧节点终端已迁移；AUTH 为连接首帧，消息体为共享密钥。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelayFrame {
+
+    public static final byte SEND = 1;
+    public static final byte SEND_ACK = 2;
+    public static final byte INVALIDATE = 3;
+    public static final byte SUBMIT_TEXT = 4;
+    public static final byte AUTH = 5;
+
+    public static final byte STATUS_OK = 0;
+    //对端没有该终端的在线会话
+    public static final byte STATUS_NOT_FOUND = 1;
+    public static final byte STATUS_FAILED = 2;
+
+    private byte type;
+    private int requestId;
+    private byte status;
+    private int msgId;
+    private String terminalId;
+    private byte[] body;
+}
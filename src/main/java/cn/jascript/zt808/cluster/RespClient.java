@@ -0,0 +1,180 @@
+package cn.jascript.zt808.cluster;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 最小 RESP2 客户端(Redis 协议)：单连接、同步、支持管道批量，仅覆盖目录所需的命令。
+ * 连接断开时下次调用自动重连；服务端错误以 IllegalStateException 抛出。
+ */
+public final class RespClient implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String host;
+    private final int port;
+    private final int db;
+    private final String password;
+    private final int timeoutMillis;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    public RespClient(String host, int port, int db, String password, int timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.db = db;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public synchronized Object execute(String... command) {
+        return pipeline(List.<String[]>of(command)).get(0);
+    }
+
+    /**
+     * 一次写出全部命令再依次读取应答。
+     */
+    public synchronized List<Object> pipeline(List<String[]> commands) {
+        try {
+            connect();
+            return send(commands);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("redis " + host + ":" + port + " io failed", e);
+        }
+    }
+
+    private void connect() throws IOException {
+        if (Objects.nonNull(socket))
+            return;
+        var s = new Socket();
+        s.connect(new InetSocketAddress(host, port), timeoutMillis);
+        s.setSoTimeout(timeoutMillis);
+        s.setTcpNoDelay(true);
+        socket = s;
+        in = new BufferedInputStream(s.getInputStream());
+        out = new BufferedOutputStream(s.getOutputStream());
+        var init = new ArrayList<String[]>(2);
+        if (StringUtils.isNotEmpty(password))
+            init.add(new String[]{"AUTH", password});
+        if (db != 0)
+            init.add(new String[]{"SELECT", String.valueOf(db)});
+        if (!init.isEmpty())
+            send(init);
+    }
+
+    private List<Object> send(List<String[]> commands) throws IOException {
+        for (var command : commands) {
+            write(command);
+        }
+        out.flush();
+        var replies = new ArrayList<>(commands.size());
+        IllegalStateException error = null;
+        //错误应答也要读完,保证连接上的应答顺序
+        for (int i = 0; i < commands.size(); i++) {
+            var reply = read();
+            if (reply instanceof IllegalStateException && Objects.isNull(error))
+                error = (IllegalStateException) reply;
+            replies.add(reply);
+        }
+        if (Objects.nonNull(error))
+            throw error;
+        return replies;
+    }
+
+    private void write(String[] command) throws IOException {
+        out.write('*');
+        out.write(ascii(command.length));
+        out.write(CRLF);
+        for (var arg : command) {
+            var bytes = arg.getBytes(StandardCharsets.UTF_8);
+            out.write('$');
+            out.write(ascii(bytes.length));
+            out.write(CRLF);
+            out.write(bytes);
+            out.write(CRLF);
+        }
+    }
+
+    private Object read() throws IOException {
+        int type = in.read();
+        if (type < 0)
+            throw new EOFException("connection closed");
+        var line = readLine();
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                return new IllegalStateException("redis error: " + line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int len = Integer.parseInt(line);
+                if (len < 0)
+                    return null;
+                var bytes = in.readNBytes(len);
+                if (bytes.length < len)
+                    throw new EOFException("connection closed");
+                readLine();
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case '*': {
+                int len = Integer.parseInt(line);
+                if (len < 0)
+                    return null;
+                var items = new ArrayList<>(len);
+                for (int i = 0; i < len; i++) {
+                    items.add(read());
+                }
+                return items;
+            }
+            default:
+                throw new IOException("unknown reply type: " + (char) type);
+        }
+    }
+
+    private String readLine() throws IOException {
+        var sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0)
+                throw new EOFException("connection closed");
+            sb.append((char) c);
+        }
+        in.read();
+        return sb.toString();
+    }
+
+    private static byte[] ascii(int value) {
+        return Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (Objects.isNull(socket))
+            return;
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+}
@@ -0,0 +1,34 @@
+package cn.jascript.zt808.cluster;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 会话目录 SPI：记录终端当前连接在哪个节点(节点标识即其转发地址 host:port)，多实例部署时共享。
+ * 实现需线程安全；调用方在独立线程调用，实现可以阻塞。
+ */
+public interface SessionDirectory {
+
+    /**
+     * 终端在本节点鉴权上线。
+     *
+     * @return 之前记录的节点，用于通知旧节点清理
+     */
+    Optional<String> register(String terminalId, String nodeId);
+
+    /**
+     * 终端在本节点下线，仅当目录仍指向 nodeId 时删除，避免覆盖终端在其他节点的新连接。
+     */
+    void unregister(String terminalId, String nodeId);
+
+    Optional<String> lookup(String terminalId);
+
+    /**
+     * 续期本节点在线终端的目录条目，条目已失效的重新写入。无过期机制的实现可忽略。
+     */
+    default void renew(Collection<String> terminalIds, String nodeId) {
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,38 @@
+package cn.jascript.zt808.cluster;
+
+import cn.jascript.zt808.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * SessionDirectory 工厂：cluster.directory 为 memory | redis | 自定义实现类全名，缺省使用进程内目录。
+ */
+@Slf4j
+public class SessionDirectoryFactory {
+
+    private SessionDirectoryFactory() {
+    }
+
+    public static SessionDirectory create(AppConfig.ClusterConfig cluster, AppConfig.RedisConfig redis) {
+        var directory = cluster.getDirectory();
+        if (StringUtils.isBlank(directory) || "memory".equalsIgnoreCase(directory.trim())) {
+            log.info("session directory: memory");
+            return new InMemorySessionDirectory();
+        }
+        if ("redis".equalsIgnoreCase(directory.trim()))
+            return new RedisSessionDirectory(redis, cluster.getEntryTtlSeconds());
+        try {
+            var clazz = Class.forName(directory.trim());
+            var instance = clazz.getDeclaredConstructor().newInstance();
+            if (instance instanceof SessionDirectory) {
+                SessionDirectory sessionDirectory = (SessionDirectory) instance;
+                log.info("session directory loaded: {}", directory);
+                return sessionDirectory;
+            }
+            log.error("session directory {} does not implement SessionDirectory, fallback to memory", directory);
+        } catch (Exception e) {
+            log.error("load session directory {} failed, fallback to memory", directory, e);
+        }
+        return new InMemorySessionDirectory();
+    }
+}
@@ -0,0 +1,55 @@
+package cn.jascript.zt808.codec;
+
+import cn.jascript.zt808.metrics.Counter;
+import cn.jascript.zt808.metrics.Metrics;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解码器累积区(未成帧字节)的全局预算，每个连接的帧解码器持有一个实例。
+ * 读事件处理完后上报本连接累积区大小，全局合计超过上限时关闭仍在增长的连接，
+ * 慢速发送半帧或持续发送无分隔符数据的连接无法无限占用内存。
+ */
+@Slf4j
+final class CumulationBudget {
+
+    private static final AtomicLong TOTAL = new AtomicLong();
+    private static final Counter CLOSED = Metrics.getInstance().counter("zt808_connections_closed_total", "reason", "cumulation");
+
+    private final long maxBytes;
+    //本连接已计入全局合计的字节数,仅 IO 线程访问
+    private int reported;
+
+    CumulationBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    void update(ChannelHandlerContext ctx, int cumulated) {
+        if (maxBytes <= 0)
+            return;
+        int delta = cumulated - reported;
+        if (delta == 0)
+            return;
+        reported = cumulated;
+        long total = TOTAL.addAndGet(delta);
+        if (delta > 0 && total > maxBytes && ctx.channel().isActive()) {
+            CLOSED.increment();
+            log.info("cumulation budget exceeded, closing, remote={}, cumulated={}, total={}",
+                    ctx.channel().remoteAddress(), cumulated, total);
+            ctx.close();
+        }
+    }
+
+    void release() {
+        if (reported != 0) {
+            TOTAL.addAndGet(-reported);
+            reported = 0;
+        }
+    }
+
+    static long total() {
+        return TOTAL.get();
+    }
+}
@@ -1,23 +1,45 @@
 package cn.jascript.zt808.codec;
 
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.metrics.Counter;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.model.TerminalKey;
 import cn.jascript.zt808.model.TerminalMessage;
-import cn.jascript.zt808.util.BcdUtil;
 import cn.jascript.zt808.util.CodecUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
 
 import java.util.List;
+import java.util.Objects;
 
 import static cn.jascript.zt808.constants.Protocol.MAX_FRAME_LENGTH;
+import static cn.jascript.zt808.constants.Protocol.MIN_FRAME_LENGTH;
 
 public class DecoderFactory {
+
+    //解码计数:成功解析的帧,按原因区分的拒绝帧
+    private static final Counter DECODED = Metrics.getInstance().counter("zt808_frames_decoded_total");
+    private static final Counter TOO_SHORT = rejected("too_short");
+    private static final Counter TOO_LONG = rejected("too_long");
+    private static final Counter BCC_FAILED = rejected("bcc");
+    private static final Counter BODY_LENGTH = rejected("body_length");
+    //累积缓冲区比消息体大出该值时拷贝消息体,避免排队中的消息长时间占住整块累积区(与 SplitPacketHandler 一致)
+    private static final int DETACH_THRESHOLD = 1024;
+
+    private static Counter rejected(String reason) {
+        return Metrics.getInstance().counter("zt808_frames_rejected_total", "reason", reason);
+    }
+
     public static ByteToMessageDecoder getDelimiterDecoder(){
         //去掉头尾7E,且超出长度直接失败
-        return new DelimiterBasedFrameDecoder(MAX_FRAME_LENGTH,true,true,Unpooled.wrappedBuffer(new byte[] {0x7E}));
+        return new DelimiterDecoder(newBudget());
     }
 
     public static ByteToMessageDecoder getEscapeDecoder(){
@@ -32,14 +54,71 @@ public class DecoderFactory {
         return new MessageDecoder();
     }
 
+    public static ByteToMessageDecoder getFusedDecoder(){
+        return new FusedFrameDecoder(newBudget());
+    }
+
+    private static CumulationBudget newBudget() {
+        return new CumulationBudget(AppConfig.get().getServer().getGuard().getMaxCumulationBytes());
+    }
+
+    // 全部连接解码器累积区(未成帧)的字节数
+    public static long cumulatedBytes() {
+        return CumulationBudget.total();
+    }
+
+    //切帧解码器:读事件后上报累积区大小
+    static class DelimiterDecoder extends DelimiterBasedFrameDecoder {
+        private final CumulationBudget budget;
+
+        DelimiterDecoder(CumulationBudget budget) {
+            super(MAX_FRAME_LENGTH, true, true, Unpooled.wrappedBuffer(new byte[] {0x7E}));
+            this.budget = budget;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            super.channelRead(ctx, msg);
+            budget.update(ctx, internalBuffer().readableBytes());
+        }
+
+        @Override
+        protected void handlerRemoved0(ChannelHandlerContext ctx) {
+            budget.release();
+        }
+
+        //超长帧(failFast)在此抛出,计数后交由 ProtocolHealthHandler 处理,与融合解码器口径一致
+        @Override
+        protected Object decode(ChannelHandlerContext ctx, ByteBuf buffer) throws Exception {
+            try {
+                return super.decode(ctx, buffer);
+            } catch (TooLongFrameException e) {
+                TOO_LONG.increment();
+                throw e;
+            }
+        }
+    }
+
     //转义解码器
     static class EscapeDecoder extends ByteToMessageDecoder {
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
             //单包最少长度12
-            if(in.readableBytes() < 12)
+            if(in.readableBytes() < MIN_FRAME_LENGTH) {
+                TOO_SHORT.increment();
+                //丢弃整帧,连接保持时不影响下一帧
+                in.skipBytes(in.readableBytes());
                 throw new CorruptedFrameException("frame too short");
-            ByteBuf decoded = Unpooled.buffer();
+            }
+            int escapeIndex = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) Protocol.ESCAPE);
+            //绝大多数帧不含 0x7D,无需反转义：直接透传 retainedSlice,避免分配与拷贝
+            if (escapeIndex < 0) {
+                out.add(in.readRetainedSlice(in.readableBytes()));
+                return;
+            }
+            ByteBuf decoded = ctx.alloc().buffer(in.readableBytes());
+            //第一个 0x7D 之前的字节无需处理,批量拷贝
+            decoded.writeBytes(in, escapeIndex - in.readerIndex());
             while (in.readableBytes() > 0) {
                 byte b = in.readByte();
                 if (b == 0x7D) {
@@ -73,8 +152,11 @@ public class DecoderFactory {
             for (int i = 0; i < len - 1; i++) {
                 calculatedBcc ^= in.getByte(i);
             }
-            if (calculatedBcc != receivedBcc)
+            if (calculatedBcc != receivedBcc) {
+                BCC_FAILED.increment();
+                in.skipBytes(len);
                 throw new CorruptedFrameException("BCC check failed");
+            }
             //输出时不包含校验位
             ByteBuf withoutBccBuf = in.slice(0, len - 1).retain();
             out.add(withoutBccBuf);
@@ -87,31 +169,168 @@ public class DecoderFactory {
     static class MessageDecoder extends ByteToMessageDecoder {
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-            // 读取消息头
-            in.markReaderIndex();
-            short msgId = in.readShort();
-            short attr = in.readShort();
-            //取低10位为长度
-            var bodyLen = CodecUtil.getLowTenBitValue(attr);
-            byte[] terminalBytes = new byte[6];
-            in.readBytes(terminalBytes);
-            String terminalId = BcdUtil.replaceLeftZeroString(terminalBytes);
-            int flowId = in.readShort();
-            // 判断是否分包：bit 13 是否为1
-            boolean isSplit = ((attr >> 13) & 0x01) == 1;
-            //分包先跳过4字节,避免消息体异常
-            var totalPackets = 0;
-            var packetSeq = 0;
-            if(isSplit) {
-                totalPackets = in.readShort(); // 倒数第4~3字节
-                packetSeq = in.readShort();     // 倒数第2~1字节
-                //包含分包的数据，暂时计入无法处理的数据里
+            try {
+                out.add(readMessage(in, true));
+            } catch (RuntimeException e) {
+                in.skipBytes(in.readableBytes());
+                throw e;
+            }
+        }
+    }
+
+    //融合解码器：一次遍历完成 0x7E 切帧、0x7D 反转义、BCC 校验与消息头解析，
+    //含转义的帧反转义到池化 buffer，不含转义的帧直接切片，避免四段式解码链的 Handler 跳转与多次拷贝
+    static class FusedFrameDecoder extends ByteToMessageDecoder {
+
+        private final CumulationBudget budget;
+        //超长帧丢弃中：直到下一个 0x7E 为止的字节全部丢弃
+        private boolean discarding;
+
+        FusedFrameDecoder(CumulationBudget budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            super.channelRead(ctx, msg);
+            budget.update(ctx, internalBuffer().readableBytes());
+        }
+
+        @Override
+        protected void handlerRemoved0(ChannelHandlerContext ctx) {
+            budget.release();
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            while (in.isReadable()) {
+                int start = in.readerIndex();
+                int end = in.indexOf(start, in.writerIndex(), (byte) Protocol.HEADER);
+                if (end < 0) {
+                    //未找到分隔符且已超长,直接丢弃(fail-fast)
+                    if (in.readableBytes() > MAX_FRAME_LENGTH) {
+                        in.skipBytes(in.readableBytes());
+                        if (!discarding) {
+                            discarding = true;
+                            TOO_LONG.increment();
+                            ctx.fireExceptionCaught(new TooLongFrameException("frame length exceeds " + MAX_FRAME_LENGTH));
+                        }
+                    }
+                    if (discarding)
+                        in.skipBytes(in.readableBytes());
+                    return;
+                }
+                //先越过分隔符,解析失败时也不会重复处理同一帧
+                in.readerIndex(end + 1);
+                if (discarding) {
+                    discarding = false;
+                    continue;
+                }
+                int frameLength = end - start;
+                //连续的 0x7E(上一帧尾 + 本帧头)
+                if (frameLength == 0)
+                    continue;
+                if (frameLength > MAX_FRAME_LENGTH) {
+                    TOO_LONG.increment();
+                    ctx.fireExceptionCaught(new TooLongFrameException("frame length exceeds " + MAX_FRAME_LENGTH));
+                    continue;
+                }
+                //错误帧只丢弃本帧并上报异常,同一批数据中的后续帧继续解码(是否断开由 ProtocolHealthHandler 决定)
+                try {
+                    out.add(decodeFrame(ctx, in, start, frameLength));
+                } catch (DecoderException e) {
+                    ctx.fireExceptionCaught(e);
+                } catch (RuntimeException e) {
+                    ctx.fireExceptionCaught(new CorruptedFrameException("malformed frame", e));
+                }
             }
-            //
-            var bodyByteBuf = in.readBytes(bodyLen);
-            var message = new TerminalMessage(terminalId, msgId, flowId, bodyLen, bodyByteBuf);
-            out.add(message);
         }
+
+        private TerminalMessage decodeFrame(ChannelHandlerContext ctx, ByteBuf in, int index, int length) {
+            if (length < MIN_FRAME_LENGTH) {
+                TOO_SHORT.increment();
+                throw new CorruptedFrameException("frame too short");
+            }
+            //无 0x7D 的帧无需反转义：原地校验 BCC,消息体直接切片(见 detach)
+            if (in.indexOf(index, index + length, (byte) Protocol.ESCAPE) < 0) {
+                if (CodecUtil.calculateBcc(in, index, length) != 0) {
+                    BCC_FAILED.increment();
+                    throw new CorruptedFrameException("BCC check failed");
+                }
+                return readMessage(in.slice(index, length - 1), false);
+            }
+            ByteBuf frame = ctx.alloc().buffer(length);
+            try {
+                //BCC 为除校验位外所有字节异或,因此包含校验位在内的异或结果应为 0
+                byte bcc = 0;
+                int end = index + length;
+                for (int i = index; i < end; i++) {
+                    byte b = in.getByte(i);
+                    if (b == Protocol.ESCAPE && i + 1 < end) {
+                        byte next = in.getByte(i + 1);
+                        if (next == Protocol.ESCAPE_FOR_ESCAPE) {
+                            b = Protocol.ESCAPE;
+                            i++;
+                        } else if (next == Protocol.ESCAPE_FOR_HEADER) {
+                            b = Protocol.HEADER;
+                            i++;
+                        }
+                        //非标准序列(如 0x7D 0x40)与 EscapeDecoder 保持一致：按字面保留 0x7D 与其后继字节
+                    }
+                    frame.writeByte(b);
+                    bcc ^= b;
+                }
+                if (bcc != 0) {
+                    BCC_FAILED.increment();
+                    throw new CorruptedFrameException("BCC check failed");
+                }
+                //输出时不包含校验位
+                frame.writerIndex(frame.writerIndex() - 1);
+                return readMessage(frame, false);
+            } finally {
+                frame.release();
+            }
+        }
+    }
+
+    //解析消息头+消息体；copyBody=false 时消息体为 retainedSlice,与 in 共享内存(底层缓冲区远大于消息体时改为拷贝)
+    private static TerminalMessage readMessage(ByteBuf in, boolean copyBody) {
+        // 读取消息头
+        short msgId = in.readShort();
+        short attr = in.readShort();
+        //取低10位为长度
+        var bodyLen = CodecUtil.getLowTenBitValue(attr);
+        //终端号按 long 读取,字符串走缓存,同一终端不重复分配
+        long terminalKey = TerminalKey.read(in);
+        String terminalId = TerminalKey.toTerminalId(terminalKey);
+        int flowId = in.readUnsignedShort();
+        // 判断是否分包：bit 13 是否为1
+        boolean isSplit = ((attr >> 13) & 0x01) == 1;
+        //分包项:总包数 + 包序号,由 SplitPacketHandler 重组
+        var totalPackets = 0;
+        var packetSeq = 0;
+        if(isSplit) {
+            totalPackets = in.readUnsignedShort();
+            packetSeq = in.readUnsignedShort();
+        }
+        if (in.readableBytes() < bodyLen) {
+            BODY_LENGTH.increment();
+            throw new CorruptedFrameException("body length mismatch");
+        }
+        var bodyByteBuf = (copyBody ? in.readBytes(bodyLen) : detach(in.readRetainedSlice(bodyLen)));
+        DECODED.increment();
+        return new TerminalMessage(terminalId, terminalKey, msgId, flowId, bodyLen, bodyByteBuf, totalPackets, packetSeq);
+    }
+
+    //消息体只是大块缓冲区中的一小段时拷贝到等长的池化 buffer,业务队列积压期间只占用消息体本身大小
+    private static ByteBuf detach(ByteBuf body) {
+        var parent = body.unwrap();
+        if (Objects.isNull(parent) || parent.capacity() - body.readableBytes() <= DETACH_THRESHOLD)
+            return body;
+        var copy = body.alloc().buffer(body.readableBytes());
+        copy.writeBytes(body);
+        body.release();
+        return copy;
     }
 
 
@@ -1,8 +1,9 @@
 package cn.jascript.zt808.codec;
 
+import cn.jascript.zt808.constants.MsgId;
 import cn.jascript.zt808.constants.Protocol;
 import cn.jascript.zt808.model.PlatformMessage;
-import cn.jascript.zt808.util.BcdUtil;
+import cn.jascript.zt808.model.TerminalKey;
 import cn.jascript.zt808.util.CodecUtil;
 import cn.jascript.zt808.util.HexUtil;
 import io.netty.buffer.ByteBuf;
@@ -16,7 +17,13 @@ import java.util.Objects;
 @Slf4j
 public class EncoderFactory {
 
-    private static final int PHONE_LENGTH_BYTES = 6;
+    //消息头:msgId(2) + 属性(2) + 终端号(6) + 流水号(2)
+    private static final int HEADER_LENGTH = 12;
+    private static final int GENERAL_REPLY_BODY_LENGTH = 5;
+    //通用应答消息头模板:msgId 0x8001 + 属性(消息体长度 5)
+    private static final int GENERAL_REPLY_HEAD = (MsgId.PLATFORM_GENERAL_REPLY << 16) | GENERAL_REPLY_BODY_LENGTH;
+    private static final int GENERAL_REPLY_HEAD_BCC = (GENERAL_REPLY_HEAD >>> 24) ^ ((GENERAL_REPLY_HEAD >>> 16) & 0xFF)
+            ^ ((GENERAL_REPLY_HEAD >>> 8) & 0xFF) ^ (GENERAL_REPLY_HEAD & 0xFF);
 
     private EncoderFactory() {
     }
@@ -28,36 +35,33 @@ public class EncoderFactory {
 
     @ChannelHandler.Sharable
     private static class MsgEncoder extends MessageToByteEncoder<PlatformMessage> {
+
+        @Override
+        protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, PlatformMessage msg, boolean preferDirect) {
+            //按全部转义的最大长度一次分配,编码过程中不扩容
+            int bodyLength = (Objects.isNull(msg.getBody()) ? 0 : msg.getBody().readableBytes());
+            int capacity = 2 + (HEADER_LENGTH + bodyLength + 1) * 2;
+            return preferDirect ? ctx.alloc().ioBuffer(capacity) : ctx.alloc().heapBuffer(capacity);
+        }
+
         @Override
         protected void encode(ChannelHandlerContext ctx, PlatformMessage msg, ByteBuf out) {
             if (Objects.isNull(msg)) {
                 return;
             }
             int startIndex = out.writerIndex();
-            ByteBuf frame = ctx.alloc().buffer();
-            try {
-                //组装消息头和消息体
-                writeHeaderAndBody(frame, msg);
-                //计算BCC校验
-                byte bcc = CodecUtil.calculateBcc(frame);
-                //首尾固定0x7E,中间内容需要转义
-                out.writeByte(Protocol.HEADER);
-                writeEscaped(out, frame);
-                writeEscaped(out, bcc);
-                out.writeByte(Protocol.TAIL);
-
-                if (log.isDebugEnabled()) {
-                    int endIndex = out.writerIndex();
-                    int len = endIndex - startIndex;
-                    if (len > 0) {
-                        byte[] bytes = new byte[len];
-                        out.getBytes(startIndex, bytes);
-                        log.debug("downlink encoded, terminalId={}, msgId=0x{}, flowId={}, hex={}",
-                                msg.getTerminalId(), Integer.toHexString(msg.getMsgId()), msg.getFlowId(), HexUtil.toUpperHex(bytes));
-                    }
-                }
-            } finally {
-                frame.release();
+            //首尾固定0x7E,中间内容边写边转义并累计BCC
+            out.writeByte(Protocol.HEADER);
+            int bcc = writeHeaderAndBody(out, msg);
+            writeEscaped(out, (byte) bcc);
+            out.writeByte(Protocol.TAIL);
+
+            if (log.isDebugEnabled()) {
+                int len = out.writerIndex() - startIndex;
+                byte[] bytes = new byte[len];
+                out.getBytes(startIndex, bytes);
+                log.debug("downlink encoded, terminalId={}, msgId=0x{}, flowId={}, hex={}",
+                        msg.getTerminalId(), Integer.toHexString(msg.getMsgId()), msg.getFlowId(), HexUtil.toUpperHex(bytes));
             }
         }
     }
@@ -66,35 +70,69 @@ public class EncoderFactory {
         private static final MsgEncoder ENCODER = new MsgEncoder();
     }
 
-    private static void writeHeaderAndBody(ByteBuf buf, PlatformMessage msg) {
-        buf.writeShort(msg.getMsgId());
+    //返回已写入内容的 BCC
+    private static int writeHeaderAndBody(ByteBuf out, PlatformMessage msg) {
         ByteBuf body = msg.getBody();
         int bodyLength = (Objects.isNull(body) ? 0 : body.readableBytes());
         //JT/T808约定消息体长度占10位,单帧最大1023字节
         if (bodyLength > Protocol.MAX_BODY_LENGTH) {
             throw new IllegalArgumentException("body length too large:" + bodyLength);
         }
-        buf.writeShort(bodyLength & Protocol.MAX_BODY_LENGTH);
-        //终端号使用6字节BCD编码
-        buf.writeBytes(BcdUtil.fromString(msg.getTerminalId(), PHONE_LENGTH_BYTES));
-        buf.writeShort(CodecUtil.toUnsignedShort(msg.getFlowId()));
+        int bcc;
+        if (msg.getMsgId() == MsgId.PLATFORM_GENERAL_REPLY && bodyLength == GENERAL_REPLY_BODY_LENGTH) {
+            //通用应答消息头前 4 字节固定,不含需转义字节,BCC 预先算好
+            out.writeInt(GENERAL_REPLY_HEAD);
+            bcc = GENERAL_REPLY_HEAD_BCC;
+        } else {
+            bcc = writeEscapedShort(out, msg.getMsgId(), 0);
+            bcc = writeEscapedShort(out, bodyLength & Protocol.MAX_BODY_LENGTH, bcc);
+        }
+        long terminalKey = msg.getTerminalKey() != 0 ? msg.getTerminalKey() : TerminalKey.fromString(msg.getTerminalId());
+        bcc = writeTerminalKey(out, terminalKey, bcc);
+        bcc = writeEscapedShort(out, CodecUtil.toUnsignedShort(msg.getFlowId()), bcc);
         if (bodyLength > 0) {
-            buf.writeBytes(body.duplicate());
+            bcc = writeEscaped(out, body, bcc);
         }
+        return bcc;
+    }
+
+    //BCD 字节不会出现 0x7E/0x7D,整体写出;非 BCD 终端号(上行原样保留)逐字节转义
+    private static int writeTerminalKey(ByteBuf out, long key, int bcc) {
+        if (TerminalKey.isBcd(key)) {
+            TerminalKey.write(out, key);
+            return bcc ^ TerminalKey.bcc(key);
+        }
+        for (int shift = (TerminalKey.BCD_LENGTH - 1) * 8; shift >= 0; shift -= 8) {
+            byte value = (byte) (key >>> shift);
+            bcc ^= value;
+            writeEscaped(out, value);
+        }
+        return bcc;
+    }
+
+    private static int writeEscapedShort(ByteBuf out, int value, int bcc) {
+        byte high = (byte) (value >>> 8);
+        byte low = (byte) value;
+        writeEscaped(out, high);
+        writeEscaped(out, low);
+        return bcc ^ high ^ low;
     }
 
-    private static void writeEscaped(ByteBuf out, ByteBuf data) {
-        for (int i = data.readerIndex(); i < data.writerIndex(); i++) {
-            writeEscaped(out, data.getByte(i));
+    private static int writeEscaped(ByteBuf out, ByteBuf data, int bcc) {
+        for (int i = data.readerIndex(), end = data.writerIndex(); i < end; i++) {
+            byte value = data.getByte(i);
+            bcc ^= value;
+            writeEscaped(out, value);
         }
+        return bcc;
     }
 
     private static void writeEscaped(ByteBuf out, byte value) {
         //0x7E/0x7D需按协议进行转义
         if (value == Protocol.HEADER) {
-            out.writeByte(Protocol.ESCAPE).writeByte(Protocol.ESCAPE_FOR_HEADER);
+            out.writeShort((Protocol.ESCAPE << 8) | Protocol.ESCAPE_FOR_HEADER);
         } else if (value == Protocol.ESCAPE) {
-            out.writeByte(Protocol.ESCAPE).writeByte(Protocol.ESCAPE_FOR_ESCAPE);
+            out.writeShort((Protocol.ESCAPE << 8) | Protocol.ESCAPE_FOR_ESCAPE);
         } else {
             out.writeByte(value);
         }
@@ -1,25 +1,49 @@
 package cn.jascript.zt808.config;
 
+import cn.jascript.zt808.constants.DecoderMode;
+import cn.jascript.zt808.constants.ExecutorMode;
+import cn.jascript.zt808.constants.ForwardFullPolicy;
+import cn.jascript.zt808.constants.ForwardOutput;
+import cn.jascript.zt808.constants.TextFullPolicy;
+import cn.jascript.zt808.constants.TransportType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 /**
  * 轻量配置装载，仅解析本地 application.yaml 中与 auth/forward 相关的字段。
+ * 当前配置为一份快照，经 volatile 引用发布：热重载时整体解析出新快照再替换引用，已发布的快照不再修改，
+ * 调用方每次经 {@link #get()} 取得当前快照即可读到新值，无需加锁。
  */
 @Slf4j
 public class AppConfig {
 
-    private static final AppConfig INSTANCE = load();
+    /**
+     * 外部配置文件路径(系统属性)，指定时从文件加载并可热重载，否则从 classpath 加载。
+     */
+    public static final String CONFIG_FILE_PROPERTY = "zt808.config";
 
+    private static final List<ConfigListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile AppConfig current = load();
+
+    //解析来源,热重载据此合并出只含可即时生效变更的快照,只读
+    private final ObjectNode source;
     private final Map<String, String> flatValues;
     private final Map<String, Set<String>> flatLists;
 
@@ -35,15 +59,35 @@ public class AppConfig {
     private final DuplicateConfig duplicate;
     @Getter
     private final BusinessExecutorConfig businessExecutor;
+    @Getter
+    private final TextConfig text;
+    @Getter
+    private final ClusterConfig cluster;
+    @Getter
+    private final RedisConfig redis;
+    @Getter
+    private final MetricsConfig metrics;
+    @Getter
+    private final HttpApiConfig httpApi;
+    @Getter
+    private final ReloadConfig reload;
 
-    private AppConfig(Map<String, String> flatValues,
+    private AppConfig(ObjectNode source,
+                      Map<String, String> flatValues,
                       Map<String, Set<String>> flatLists,
                       ServerConfig server,
                       AuthConfig auth,
                       ForwardConfig forward,
                       ParserConfig parser,
                       DuplicateConfig duplicate,
-                      BusinessExecutorConfig businessExecutor) {
+                      BusinessExecutorConfig businessExecutor,
+                      TextConfig text,
+                      ClusterConfig cluster,
+                      RedisConfig redis,
+                      MetricsConfig metrics,
+                      HttpApiConfig httpApi,
+                      ReloadConfig reload) {
+        this.source = source;
         this.flatValues = flatValues;
         this.flatLists = flatLists;
         this.server = server;
@@ -52,14 +96,86 @@ public class AppConfig {
         this.parser = parser;
         this.duplicate = duplicate;
         this.businessExecutor = businessExecutor;
+        this.text = text;
+        this.cluster = cluster;
+        this.redis = redis;
+        this.metrics = metrics;
+        this.httpApi = httpApi;
+        this.reload = reload;
     }
 
     public static AppConfig get() {
-        return INSTANCE;
+        return current;
+    }
+
+    /**
+     * 发布新快照并通知监听器，监听器异常不影响发布与其他监听器。
+     */
+    public static void publish(AppConfig config) {
+        var previous = current;
+        current = config;
+        for (var listener : LISTENERS) {
+            try {
+                listener.onReload(previous, config);
+            } catch (Exception e) {
+                log.error("config listener failed, listener={}", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    public static void addListener(ConfigListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(ConfigListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * @return 系统属性指定的配置文件，未指定时为 null
+     */
+    public static Path configFile() {
+        var file = System.getProperty(CONFIG_FILE_PROPERTY);
+        return StringUtils.isBlank(file) ? null : Paths.get(file.trim()).toAbsolutePath();
     }
 
     private static AppConfig load() {
-        var defaultServer = new ServerConfig(6808, 360, 50000);
+        var file = configFile();
+        try (var resource = Objects.nonNull(file) ? Files.newInputStream(file) : AppConfig.class.getResourceAsStream("/application.yaml")) {
+            if (Objects.isNull(resource)) {
+                log.warn("application.yaml not found, use defaults");
+                return defaults();
+            }
+            if (Objects.nonNull(file))
+                log.info("load config from {}", file);
+            return parse(resource);
+        } catch (Exception e) {
+            log.error("load application.yaml failed, use defaults", e);
+            return defaults();
+        }
+    }
+
+    private static AppConfig defaults() {
+        return new AppConfig(JsonNodeFactory.instance.objectNode(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ServerConfig(6808, 360, 50000, DecoderMode.FUSED),
+                new AuthConfig("123456", Collections.emptySet()), new ForwardConfig(""), new ParserConfig("", ""),
+                new DuplicateConfig(true, 60, 200000), new BusinessExecutorConfig(0), new TextConfig(),
+                new ClusterConfig(), new RedisConfig(), new MetricsConfig(), new HttpApiConfig(), new ReloadConfig());
+    }
+
+    /**
+     * 解析 yaml 为一份新快照，格式错误时抛出异常(热重载据此拒绝)。
+     */
+    public static AppConfig parse(InputStream resource) throws IOException {
+        var mapper = new ObjectMapper(new YAMLFactory());
+        return parse(mapper.readTree(resource));
+    }
+
+    /**
+     * 由已解析的配置树生成快照，调用方之后不得再修改该树。
+     */
+    static AppConfig parse(JsonNode root) throws IOException {
+        var defaultServer = new ServerConfig(6808, 360, 50000, DecoderMode.FUSED);
         var defaultAuth = new AuthConfig("123456", Collections.emptySet());
         var defaultForward = new ForwardConfig("");
         var defaultParser = new ParserConfig("", "");
@@ -69,71 +185,196 @@ public class AppConfig {
         var flatValues = new ConcurrentHashMap<String, String>();
         var flatLists = new ConcurrentHashMap<String, Set<String>>();
 
-        var resource = AppConfig.class.getResourceAsStream("/application.yaml");
-        if (Objects.isNull(resource)) {
-            log.warn("application.yaml not found, use defaults");
-            return new AppConfig(flatValues, flatLists, defaultServer, defaultAuth, defaultForward, defaultParser, defaultDuplicate, defaultBusinessExecutor);
-        }
-
-        var server = new ServerConfig(defaultServer.getPort(), defaultServer.getIdleSeconds(), defaultServer.getMaxConnections());
+        var server = new ServerConfig(defaultServer.getPort(), defaultServer.getIdleSeconds(), defaultServer.getMaxConnections(), defaultServer.getDecoder());
         var auth = new AuthConfig(defaultAuth.getCode(), defaultAuth.getBlackList());
         var forward = new ForwardConfig(defaultForward.getProvider());
         var parser = new ParserConfig(defaultParser.getRegister(), defaultParser.getLocationStatusAndExtension());
         var duplicate = new DuplicateConfig(defaultDuplicate.isEnable(), defaultDuplicate.getTtlSeconds(), defaultDuplicate.getMaximumSize());
         var businessExecutor = new BusinessExecutorConfig(defaultBusinessExecutor.getThreads());
+        var text = new TextConfig();
+        var cluster = new ClusterConfig();
+        var redis = new RedisConfig();
+        var metrics = new MetricsConfig();
+        var httpApi = new HttpApiConfig();
+        var reload = new ReloadConfig();
+
+        //空文件(如编辑器截断后尚未写完)不当作全部取默认值
+        if (Objects.isNull(root) || !root.isObject())
+            throw new IOException("config is empty or not a mapping");
+
+        flattenNode(flatValues, flatLists, "", root);
+
+        var serverNode = root.path("server");
+        server.setPort(serverNode.path("port").asInt(server.getPort()));
+        server.setIdleSeconds(serverNode.path("idleSeconds").asInt(server.getIdleSeconds()));
+        server.setIdleSweepSeconds(serverNode.path("idleSweepSeconds").asInt(server.getIdleSweepSeconds()));
+        server.setIdleBuckets(serverNode.path("idleBuckets").asInt(server.getIdleBuckets()));
+        server.setIdleMaxClosePerTick(serverNode.path("idleMaxClosePerTick").asInt(server.getIdleMaxClosePerTick()));
+        server.setMaxConnections(serverNode.path("maxConnections").asInt(server.getMaxConnections()));
+        if (!serverNode.path("decoder").isMissingNode() && !serverNode.path("decoder").isNull()) {
+            server.setDecoder(parseEnum(DecoderMode.class, "server.decoder", serverNode.path("decoder").asText(), server.getDecoder()));
+        }
+        if (!serverNode.path("transport").isMissingNode() && !serverNode.path("transport").isNull()) {
+            server.setTransport(parseEnum(TransportType.class, "server.transport", serverNode.path("transport").asText(), server.getTransport()));
+        }
+        server.setBossThreads(serverNode.path("bossThreads").asInt(server.getBossThreads()));
+        server.setWorkerThreads(serverNode.path("workerThreads").asInt(server.getWorkerThreads()));
+        server.setBacklog(serverNode.path("backlog").asInt(server.getBacklog()));
+        server.setReusePort(serverNode.path("reusePort").asBoolean(server.isReusePort()));
+        server.setFlushConsolidation(serverNode.path("flushConsolidation").asBoolean(server.isFlushConsolidation()));
+        server.setFlushAfterFlushes(serverNode.path("flushAfterFlushes").asInt(server.getFlushAfterFlushes()));
+        var admissionNode = serverNode.path("admission");
+        var admission = server.getAdmission();
+        admission.setAcceptRatePerSecond(admissionNode.path("acceptRatePerSecond").asInt(admission.getAcceptRatePerSecond()));
+        admission.setAcceptBurst(admissionNode.path("acceptBurst").asInt(admission.getAcceptBurst()));
+        admission.setPerIpRatePerSecond(admissionNode.path("perIpRatePerSecond").asInt(admission.getPerIpRatePerSecond()));
+        admission.setPerIpBurst(admissionNode.path("perIpBurst").asInt(admission.getPerIpBurst()));
+        var splitNode = serverNode.path("split");
+        var split = server.getSplit();
+        split.setEnable(splitNode.path("enable").asBoolean(split.isEnable()));
+        split.setTimeoutSeconds(splitNode.path("timeoutSeconds").asInt(split.getTimeoutSeconds()));
+        split.setMaxRetransmit(splitNode.path("maxRetransmit").asInt(split.getMaxRetransmit()));
+        split.setMaxPackets(splitNode.path("maxPackets").asInt(split.getMaxPackets()));
+        split.setMaxPendingPerTerminal(splitNode.path("maxPendingPerTerminal").asInt(split.getMaxPendingPerTerminal()));
+        split.setMaxBytesPerTerminal(splitNode.path("maxBytesPerTerminal").asInt(split.getMaxBytesPerTerminal()));
+        split.setMaxGlobalBytes(splitNode.path("maxGlobalBytes").asLong(split.getMaxGlobalBytes()));
+        var guardNode = serverNode.path("guard");
+        var guard = server.getGuard();
+        guard.setMaxCorruptFrames(guardNode.path("maxCorruptFrames").asInt(guard.getMaxCorruptFrames()));
+        guard.setCorruptWindowSeconds(guardNode.path("corruptWindowSeconds").asInt(guard.getCorruptWindowSeconds()));
+        guard.setAuthTimeoutSeconds(guardNode.path("authTimeoutSeconds").asInt(guard.getAuthTimeoutSeconds()));
+        guard.setMinBytesPerSecond(guardNode.path("minBytesPerSecond").asInt(guard.getMinBytesPerSecond()));
+        guard.setRateWindowSeconds(guardNode.path("rateWindowSeconds").asInt(guard.getRateWindowSeconds()));
+        guard.setMaxCumulationBytes(guardNode.path("maxCumulationBytes").asLong(guard.getMaxCumulationBytes()));
+
+        var authNode = root.path("auth");
+        if (!authNode.path("code").isMissingNode() && !authNode.path("code").isNull()) {
+            auth.setCode(authNode.path("code").asText(auth.getCode()));
+        }
+        var blackListNode = authNode.path("blackList");
+        if (blackListNode.isArray()) {
+            auth.setBlackList(normalizeTerminalIdSet(toStringSet(blackListNode)));
+        }
 
-        try {
-            var mapper = new ObjectMapper(new YAMLFactory());
-            JsonNode root = mapper.readTree(resource);
-
-            flattenNode(flatValues, flatLists, "", root);
-
-            var serverNode = root.path("server");
-            server.setPort(serverNode.path("port").asInt(server.getPort()));
-            server.setIdleSeconds(serverNode.path("idleSeconds").asInt(server.getIdleSeconds()));
-            server.setMaxConnections(serverNode.path("maxConnections").asInt(server.getMaxConnections()));
+        var forwardNode = root.path("forward");
+        if (!forwardNode.path("provider").isMissingNode() && !forwardNode.path("provider").isNull()) {
+            forward.setProvider(forwardNode.path("provider").asText(forward.getProvider()));
+        }
+        if (!forwardNode.path("output").isMissingNode() && !forwardNode.path("output").isNull()) {
+            forward.setOutput(parseEnum(ForwardOutput.class, "forward.output", forwardNode.path("output").asText(), forward.getOutput()));
+        }
+        forward.setFile(forwardNode.path("file").asText(forward.getFile()));
+        var asyncNode = forwardNode.path("async");
+        var async = forward.getAsync();
+        async.setEnable(asyncNode.path("enable").asBoolean(async.isEnable()));
+        async.setWorkers(asyncNode.path("workers").asInt(async.getWorkers()));
+        async.setCapacity(asyncNode.path("capacity").asInt(async.getCapacity()));
+        async.setBatchSize(asyncNode.path("batchSize").asInt(async.getBatchSize()));
+        async.setLingerMillis(asyncNode.path("lingerMillis").asInt(async.getLingerMillis()));
+        if (!asyncNode.path("fullPolicy").isMissingNode() && !asyncNode.path("fullPolicy").isNull()) {
+            async.setFullPolicy(parseEnum(ForwardFullPolicy.class, "forward.async.fullPolicy", asyncNode.path("fullPolicy").asText(), async.getFullPolicy()));
+        }
+        async.setBlockTimeoutMillis(asyncNode.path("blockTimeoutMillis").asInt(async.getBlockTimeoutMillis()));
+        async.setSpillFile(asyncNode.path("spillFile").asText(async.getSpillFile()));
 
-            var authNode = root.path("auth");
-            if (!authNode.path("code").isMissingNode() && !authNode.path("code").isNull()) {
-                auth.setCode(authNode.path("code").asText(auth.getCode()));
-            }
-            var blackListNode = authNode.path("blackList");
-            if (blackListNode.isArray()) {
-                auth.setBlackList(normalizeTerminalIdSet(toStringSet(blackListNode)));
-            }
+        var parserNode = root.path("parser");
+        if (!parserNode.path("register").isMissingNode() && !parserNode.path("register").isNull()) {
+            parser.setRegister(parserNode.path("register").asText(parser.getRegister()));
+        }
+        if (!parserNode.path("locationStatusAndExtension").isMissingNode() && !parserNode.path("locationStatusAndExtension").isNull()) {
+            parser.setLocationStatusAndExtension(parserNode.path("locationStatusAndExtension").asText(parser.getLocationStatusAndExtension()));
+        }
+        parser.setLocationHexFields(parserNode.path("locationHexFields").asBoolean(parser.isLocationHexFields()));
+        parser.setLocationRecord(parserNode.path("locationRecord").asBoolean(parser.isLocationRecord()));
 
-            var forwardNode = root.path("forward");
-            if (!forwardNode.path("provider").isMissingNode() && !forwardNode.path("provider").isNull()) {
-                forward.setProvider(forwardNode.path("provider").asText(forward.getProvider()));
-            }
+        var duplicateNode = root.path("duplicate");
+        if (!duplicateNode.path("enable").isMissingNode() && !duplicateNode.path("enable").isNull()) {
+            duplicate.setEnable(duplicateNode.path("enable").asBoolean(duplicate.isEnable()));
+        }
+        if (!duplicateNode.path("ttlSeconds").isMissingNode() && !duplicateNode.path("ttlSeconds").isNull()) {
+            duplicate.setTtlSeconds(duplicateNode.path("ttlSeconds").asInt(duplicate.getTtlSeconds()));
+        }
+        if (!duplicateNode.path("maximumSize").isMissingNode() && !duplicateNode.path("maximumSize").isNull()) {
+            duplicate.setMaximumSize(duplicateNode.path("maximumSize").asLong(duplicate.getMaximumSize()));
+        }
 
-            var parserNode = root.path("parser");
-            if (!parserNode.path("register").isMissingNode() && !parserNode.path("register").isNull()) {
-                parser.setRegister(parserNode.path("register").asText(parser.getRegister()));
-            }
-            if (!parserNode.path("locationStatusAndExtension").isMissingNode() && !parserNode.path("locationStatusAndExtension").isNull()) {
-                parser.setLocationStatusAndExtension(parserNode.path("locationStatusAndExtension").asText(parser.getLocationStatusAndExtension()));
-            }
+        var bizNode = root.path("businessExecutor");
+        if (!bizNode.path("threads").isMissingNode() && !bizNode.path("threads").isNull()) {
+            businessExecutor.setThreads(bizNode.path("threads").asInt(businessExecutor.getThreads()));
+        }
+        businessExecutor.setStripes(bizNode.path("stripes").asInt(businessExecutor.getStripes()));
+        businessExecutor.setStripeCapacity(bizNode.path("stripeCapacity").asInt(businessExecutor.getStripeCapacity()));
+        businessExecutor.setDrainBatch(bizNode.path("drainBatch").asInt(businessExecutor.getDrainBatch()));
+        businessExecutor.setMaxInFlight(bizNode.path("maxInFlight").asInt(businessExecutor.getMaxInFlight()));
+        if (!bizNode.path("mode").isMissingNode() && !bizNode.path("mode").isNull()) {
+            businessExecutor.setMode(parseEnum(ExecutorMode.class, "businessExecutor.mode", bizNode.path("mode").asText(), businessExecutor.getMode()));
+        }
 
-            var duplicateNode = root.path("duplicate");
-            if (!duplicateNode.path("enable").isMissingNode() && !duplicateNode.path("enable").isNull()) {
-                duplicate.setEnable(duplicateNode.path("enable").asBoolean(duplicate.isEnable()));
-            }
-            if (!duplicateNode.path("ttlSeconds").isMissingNode() && !duplicateNode.path("ttlSeconds").isNull()) {
-                duplicate.setTtlSeconds(duplicateNode.path("ttlSeconds").asInt(duplicate.getTtlSeconds()));
-            }
-            if (!duplicateNode.path("maximumSize").isMissingNode() && !duplicateNode.path("maximumSize").isNull()) {
-                duplicate.setMaximumSize(duplicateNode.path("maximumSize").asLong(duplicate.getMaximumSize()));
-            }
+        var textNode = root.path("text");
+        text.setGlobalMaxQueue(textNode.path("globalMaxQueue").asInt(text.getGlobalMaxQueue()));
+        text.setPerDeviceMaxQueue(textNode.path("perDeviceMaxQueue").asInt(text.getPerDeviceMaxQueue()));
+        if (!textNode.path("fullPolicy").isMissingNode() && !textNode.path("fullPolicy").isNull()) {
+            text.setFullPolicy(parseEnum(TextFullPolicy.class, "text.fullPolicy", textNode.path("fullPolicy").asText(), text.getFullPolicy()));
+        }
+        text.setExpireHours(textNode.path("expireHours").asInt(text.getExpireHours()));
+        text.setMinSendIntervalSeconds(textNode.path("minSendIntervalSeconds").asInt(text.getMinSendIntervalSeconds()));
+        text.setAckTimeoutSeconds(textNode.path("ackTimeoutSeconds").asInt(text.getAckTimeoutSeconds()));
+        text.setMaxRetries(textNode.path("maxRetries").asInt(text.getMaxRetries()));
+        text.setCallback(textNode.path("callback").asText(text.getCallback()));
+
+        var clusterNode = root.path("cluster");
+        cluster.setEnable(clusterNode.path("enable").asBoolean(cluster.isEnable()));
+        cluster.setNodeId(clusterNode.path("nodeId").asText(cluster.getNodeId()));
+        cluster.setRelayHost(clusterNode.path("relayHost").asText(cluster.getRelayHost()));
+        cluster.setRelayPort(clusterNode.path("relayPort").asInt(cluster.getRelayPort()));
+        cluster.setRelayTimeoutMillis(clusterNode.path("relayTimeoutMillis").asInt(cluster.getRelayTimeoutMillis()));
+        cluster.setRelaySecret(clusterNode.path("relaySecret").asText(cluster.getRelaySecret()));
+        cluster.setDirectory(clusterNode.path("directory").asText(cluster.getDirectory()));
+        cluster.setEntryTtlSeconds(clusterNode.path("entryTtlSeconds").asInt(cluster.getEntryTtlSeconds()));
+        cluster.setNearCacheSeconds(clusterNode.path("nearCacheSeconds").asInt(cluster.getNearCacheSeconds()));
+        cluster.setNearCacheSize(clusterNode.path("nearCacheSize").asLong(cluster.getNearCacheSize()));
+
+        var redisNode = root.path("redis");
+        redis.setHost(redisNode.path("host").asText(redis.getHost()));
+        redis.setPort(redisNode.path("port").asInt(redis.getPort()));
+        redis.setDb(redisNode.path("db").asInt(redis.getDb()));
+        redis.setPassword(redisNode.path("password").asText(redis.getPassword()));
+        redis.setKeyPrefix(redisNode.path("keyPrefix").asText(redis.getKeyPrefix()));
+        redis.setTimeoutMillis(redisNode.path("timeoutMillis").asInt(redis.getTimeoutMillis()));
+
+        var metricsNode = root.path("metrics");
+        metrics.setJmx(metricsNode.path("jmx").asBoolean(metrics.isJmx()));
+
+        var httpApiNode = root.path("httpApi");
+        httpApi.setEnable(httpApiNode.path("enable").asBoolean(httpApi.isEnable()));
+        httpApi.setPort(httpApiNode.path("port").asInt(httpApi.getPort()));
+        httpApi.setBindAddress(httpApiNode.path("bindAddress").asText(httpApi.getBindAddress()));
+        httpApi.setMetrics(httpApiNode.path("metrics").asBoolean(httpApi.isMetrics()));
+        httpApi.setHealth(httpApiNode.path("health").asBoolean(httpApi.isHealth()));
+        httpApi.setSessions(httpApiNode.path("sessions").asBoolean(httpApi.isSessions()));
+        httpApi.setSendText(httpApiNode.path("sendText").asBoolean(httpApi.isSendText()));
+        httpApi.setSendTextMaxBatch(httpApiNode.path("sendTextMaxBatch").asInt(httpApi.getSendTextMaxBatch()));
+        var basicAuthNode = httpApiNode.path("basicAuth");
+        var basicAuth = httpApi.getBasicAuth();
+        basicAuth.setEnable(basicAuthNode.path("enable").asBoolean(basicAuth.isEnable()));
+        basicAuth.setUser(basicAuthNode.path("user").asText(basicAuth.getUser()));
+        basicAuth.setPasswd(basicAuthNode.path("passwd").asText(basicAuth.getPasswd()));
+
+        var reloadNode = root.path("reload");
+        reload.setEnable(reloadNode.path("enable").asBoolean(reload.isEnable()));
+        reload.setDebounceMillis(reloadNode.path("debounceMillis").asInt(reload.getDebounceMillis()));
+        return new AppConfig((ObjectNode) root, flatValues, flatLists, server, auth, forward, parser, duplicate, businessExecutor, text, cluster, redis, metrics, httpApi, reload);
+    }
 
-            var bizNode = root.path("businessExecutor");
-            if (!bizNode.path("threads").isMissingNode() && !bizNode.path("threads").isNull()) {
-                businessExecutor.setThreads(bizNode.path("threads").asInt(businessExecutor.getThreads()));
-            }
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String path, String value, E defaultValue) {
+        if (StringUtils.isBlank(value))
+            return defaultValue;
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
         } catch (Exception e) {
-            log.error("load application.yaml failed, use defaults", e);
+            log.error("unknown {}={}, use {}", path, value, defaultValue);
+            return defaultValue;
         }
-        return new AppConfig(flatValues, flatLists, server, auth, forward, parser, duplicate, businessExecutor);
     }
 
     private static Set<String> normalizeTerminalIdSet(Set<String> ids) {
@@ -261,6 +502,19 @@ public class AppConfig {
         return Objects.isNull(v) ? defaultValue : v;
     }
 
+    // 扁平键值(只读),用于比较两份快照的差异
+    ObjectNode source() {
+        return source;
+    }
+
+    Map<String, String> flatValues() {
+        return Collections.unmodifiableMap(flatValues);
+    }
+
+    Map<String, Set<String>> flatLists() {
+        return Collections.unmodifiableMap(flatLists);
+    }
+
     public Set<String> getList(String path) {
         return flatLists.getOrDefault(path, Collections.emptySet());
     }
@@ -294,16 +548,60 @@ public class AppConfig {
     @Data
     public static class ForwardConfig {
         private String provider;
+        /**
+         * DefaultForwardProvider 输出方式：log | file | none。
+         */
+        private ForwardOutput output = ForwardOutput.LOG;
+        /**
+         * output=file 时的 ND-JSON 输出文件。
+         */
+        private String file = "forward.ndjson";
+        /**
+         * 异步批量转发。
+         */
+        private AsyncForwardConfig async = new AsyncForwardConfig();
 
         public ForwardConfig(String provider) {
             this.provider = provider;
         }
     }
 
+    @Data
+    public static class AsyncForwardConfig {
+        /**
+         * 是否开启异步转发，关闭时在业务线程同步调用 ForwardProvider.forward。
+         */
+        private boolean enable = false;
+        /**
+         * 转发线程数，同一终端固定落在同一线程，保证顺序。
+         */
+        private int workers = 2;
+        /**
+         * 单个转发线程的队列容量(DTO 条数)。
+         */
+        private int capacity = 65536;
+        private int batchSize = 200;
+        /**
+         * 攒批等待时间，未攒满 batchSize 时最多等待该时长。
+         */
+        private int lingerMillis = 20;
+        private ForwardFullPolicy fullPolicy = ForwardFullPolicy.BLOCK;
+        private int blockTimeoutMillis = 1000;
+        private String spillFile = "forward-spill.ndjson";
+    }
+
     @Data
     public static class ParserConfig {
         private String register;
         private String locationStatusAndExtension;
+        /**
+         * 位置 DTO 的 ext 中是否输出 alarmHex/statusHex/extraHex，关闭后扩展解析直接读取原始字节。
+         */
+        private boolean locationHexFields = true;
+        /**
+         * 位置解析是否输出池化的 LocationRecord(原始类型字段)代替 LocationDTO，转发后由 ForwardDispatcher 回收。
+         */
+        private boolean locationRecord = false;
 
         public ParserConfig(String register, String locationStatusAndExtension) {
             this.register = register;
@@ -330,6 +628,26 @@ public class AppConfig {
          * 业务线程数，<=0 时按 2 * CPU 核心。
          */
         private int threads;
+        /**
+         * 条带数(对齐为 2 的幂)，同一终端固定落到一个条带，条带内串行执行；条带数远多于线程数以减少终端间相互阻塞。
+         */
+        private int stripes = 256;
+        /**
+         * 单条带队列容量，满时拒绝该消息(不回包，由终端重传)。
+         */
+        private int stripeCapacity = 1024;
+        /**
+         * 单条带每次最多连续执行的任务数，超过后让出线程。
+         */
+        private int drainBatch = 64;
+        /**
+         * 线程模式，VIRTUAL 需 JDK 21+ 运行，否则回退 PLATFORM。
+         */
+        private ExecutorMode mode = ExecutorMode.PLATFORM;
+        /**
+         * 同时执行中的条带上限(即对下游的最大并发调用数)，<=0 不限；VIRTUAL 模式下应按下游承载能力设置。
+         */
+        private int maxInFlight = 1024;
 
         public BusinessExecutorConfig(int threads) {
             this.threads = threads;
@@ -340,16 +658,277 @@ public class AppConfig {
         }
     }
 
+    @Data
+    public static class TextConfig {
+        /**
+         * 全局待下发(含等待应答)消息上限，超出时拒绝新消息。
+         */
+        private int globalMaxQueue = 50000;
+        /**
+         * 单终端待下发消息上限，超出时按 fullPolicy 淘汰。
+         */
+        private int perDeviceMaxQueue = 100;
+        private TextFullPolicy fullPolicy = TextFullPolicy.DROP_OLD;
+        /**
+         * 消息保存时间，超时未送达回调 onExpired。
+         */
+        private int expireHours = 24;
+        /**
+         * 终端上线后首条延迟及相邻两条的最小发送间隔。
+         */
+        private int minSendIntervalSeconds = 3;
+        /**
+         * 等待终端通用应答(0x0001)超时，第 n 次重试等待 ackTimeoutSeconds * 2^(n-1)。
+         */
+        private int ackTimeoutSeconds = 10;
+        /**
+         * 应答超时后最大重试次数，用尽回调 onFailed。
+         */
+        private int maxRetries = 3;
+        /**
+         * 送达/失败/过期回调实现类，留空使用 DefaultTextCallback。
+         */
+        private String callback = "";
+    }
+
+    @Data
+    public static class ClusterConfig {
+        /**
+         * 是否开启多实例模式：终端->节点目录 + 节点间下行转发。
+         */
+        private boolean enable = false;
+        /**
+         * 本节点标识，即其他节点转发下行时连接的地址 host:relayPort；留空时由 relayHost/relayPort 生成。
+         */
+        private String nodeId = "";
+        /**
+         * 转发服务监听并对其他节点公布的地址，留空取本机地址。
+         */
+        private String relayHost = "";
+        private int relayPort = 6809;
+        private int relayTimeoutMillis = 3000;
+        /**
+         * 节点间共享密钥，转发连接首帧须携带，开启多实例时必填。
+         */
+        private String relaySecret = "";
+        /**
+         * 目录实现：memory | redis | 自定义 SessionDirectory 实现类全名。
+         */
+        private String directory = "memory";
+        /**
+         * 目录条目过期时间，本节点按 1/3 周期续期，节点宕机后条目自动失效。
+         */
+        private int entryTtlSeconds = 600;
+        /**
+         * 查询目录的本地近端缓存，终端迁移时由转发失败/失效通知清除。
+         */
+        private int nearCacheSeconds = 5;
+        private long nearCacheSize = 100000;
+    }
+
+    @Data
+    public static class RedisConfig {
+        private String host = "127.0.0.1";
+        private int port = 6379;
+        private int db = 0;
+        private String password = "";
+        /**
+         * 目录键前缀，键为 keyPrefix + 终端号，值为节点标识。
+         */
+        private String keyPrefix = "zt808:session:";
+        private int timeoutMillis = 2000;
+    }
+
+    @Data
+    public static class MetricsConfig {
+        /**
+         * 是否注册 JMX MBean(cn.jascript.zt808:type=Metrics)。
+         */
+        private boolean jmx = true;
+    }
+
+    @Data
+    public static class HttpApiConfig {
+        private boolean enable = false;
+        private int port = 8808;
+        /**
+         * 绑定地址，留空绑定全部网卡。
+         */
+        private String bindAddress = "";
+        /**
+         * 是否开放 GET /metrics(Prometheus 文本格式)。
+         */
+        private boolean metrics = true;
+        /**
+         * 是否开放 GET /health。
+         */
+        private boolean health = true;
+        /**
+         * 是否开放 GET /sessions(在线会话列表，分块流式输出)。
+         */
+        private boolean sessions = true;
+        /**
+         * 是否开放 POST /text/send(批量文本下发，进入文本下发队列)。
+         */
+        private boolean sendText = true;
+        /**
+         * 单次批量下发的终端数上限。
+         */
+        private int sendTextMaxBatch = 1000;
+        private BasicAuthConfig basicAuth = new BasicAuthConfig();
+    }
+
+    @Data
+    public static class ReloadConfig {
+        /**
+         * 是否监听配置文件变更(仅 -Dzt808.config 指定外部文件时生效)。
+         */
+        private boolean enable = true;
+        /**
+         * 文件变更后等待的静默时间(毫秒)，合并编辑器的多次写入。
+         */
+        private int debounceMillis = 500;
+    }
+
+    @Data
+    public static class BasicAuthConfig {
+        private boolean enable = false;
+        private String user = "";
+        private String passwd = "";
+    }
+
+    @Data
+    public static class AdmissionConfig {
+        /**
+         * 全局 accept 速率(个/秒)，<=0 不限速。
+         */
+        private int acceptRatePerSecond = 2000;
+        private int acceptBurst = 4000;
+        /**
+         * 单 IP accept 速率(个/秒)，<=0 不限速；设备经 NAT 出口时需适当调大。
+         */
+        private int perIpRatePerSecond = 0;
+        private int perIpBurst = 20;
+    }
+
+    @Data
+    public static class SplitConfig {
+        private boolean enable = true;
+        /**
+         * 分包等待超时(秒)，超时未收齐时下发 0x8003 补传请求。
+         */
+        private int timeoutSeconds = 30;
+        /**
+         * 补传请求最大次数，用尽后丢弃已收分包。
+         */
+        private int maxRetransmit = 2;
+        /**
+         * 单个分包消息最大总包数。
+         */
+        private int maxPackets = 1024;
+        /**
+         * 单终端同时重组中的消息数上限。
+         */
+        private int maxPendingPerTerminal = 4;
+        /**
+         * 单终端重组中的分包字节上限。
+         */
+        private int maxBytesPerTerminal = 4 * 1024 * 1024;
+        /**
+         * 全局重组中的分包字节上限，超出时拒绝新分包。
+         */
+        private long maxGlobalBytes = 256L * 1024 * 1024;
+    }
+
+    @Data
+    public static class GuardConfig {
+        /**
+         * 窗口内容忍的错误帧数(BCC 错误、超长、过短等)，超出时断开；<=0 时首个错误帧即断开。
+         */
+        private int maxCorruptFrames = 3;
+        private int corruptWindowSeconds = 60;
+        /**
+         * 连接建立后须在此时间内鉴权成功，否则断开；<=0 不检测。
+         */
+        private int authTimeoutSeconds = 60;
+        /**
+         * 鉴权前有效帧的最低速率(字节/秒)，每 rateWindowSeconds 检查一次；<=0 不检测。
+         */
+        private int minBytesPerSecond = 1;
+        private int rateWindowSeconds = 10;
+        /**
+         * 全部连接未成帧缓冲(解码器累积区)的字节上限，超出时断开仍在累积的连接；<=0 不限制。
+         */
+        private long maxCumulationBytes = 64L * 1024 * 1024;
+    }
+
     @Data
     public static class ServerConfig {
         private int port;
         private int idleSeconds;
         private int maxConnections;
+        /**
+         * 上行解码模式，fused | legacy，默认 fused。
+         */
+        private DecoderMode decoder;
+        /**
+         * 传输类型，auto | nio | epoll | iouring，原生传输不可用时回退 nio。
+         */
+        private TransportType transport = TransportType.AUTO;
+        /**
+         * accept 线程数；开启 reusePort 时同时为 bind 次数。
+         */
+        private int bossThreads = 1;
+        /**
+         * IO 线程数，<=0 时按 Netty 默认(2 * CPU 核心)。
+         */
+        private int workerThreads = 0;
+        /**
+         * 全连接队列长度(SO_BACKLOG)，需覆盖断网恢复后的集中重连。
+         */
+        private int backlog = 8192;
+        /**
+         * 是否开启 SO_REUSEPORT，仅原生传输生效。
+         */
+        private boolean reusePort = false;
+        /**
+         * 连接准入限流。
+         */
+        private AdmissionConfig admission = new AdmissionConfig();
+        /**
+         * 分包重组。
+         */
+        private SplitConfig split = new SplitConfig();
+        /**
+         * 协议健康检查：错误帧容忍、鉴权期限、鉴权前最低速率与全局未成帧缓冲上限。
+         */
+        private GuardConfig guard = new GuardConfig();
+        /**
+         * 是否合并下行 flush：读循环内的回包在 channelReadComplete 时统一 flush，业务线程写入的回包按事件循环批次合并。
+         */
+        private boolean flushConsolidation = true;
+        /**
+         * 合并模式下累计多少次 flush 后强制真正 flush 一次，避免大批量回包滞留。
+         */
+        private int flushAfterFlushes = 256;
+        /**
+         * 空闲扫描：全部连接扫描一轮的周期，空闲连接最迟在 idleSeconds + idleSweepSeconds 后关闭。
+         */
+        private int idleSweepSeconds = 30;
+        /**
+         * 空闲扫描分桶数，每个 tick 只扫描一个桶。
+         */
+        private int idleBuckets = 64;
+        /**
+         * 单个 tick 最多关闭的空闲连接数，剩余的留到下一轮，避免集中断网恢复后大批量同时关闭。
+         */
+        private int idleMaxClosePerTick = 2000;
 
-        public ServerConfig(int port, int idleSeconds, int maxConnections) {
+        public ServerConfig(int port, int idleSeconds, int maxConnections, DecoderMode decoder) {
             this.port = port;
             this.idleSeconds = idleSeconds;
             this.maxConnections = maxConnections;
+            this.decoder = decoder;
         }
     }
 }
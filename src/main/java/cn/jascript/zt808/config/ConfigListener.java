@@ -0,0 +1,10 @@
+package cn.jascript.zt808.config;
+
+/**
+ * 配置快照发布监听，在发布线程(启动线程或 config-watch 线程)回调，应尽快返回。
+ */
+@FunctionalInterface
+public interface ConfigListener {
+
+    void onReload(AppConfig previous, AppConfig current);
+}
@@ -0,0 +1,224 @@
+package cn.jascript.zt808.config;
+
+import cn.jascript.zt808.metrics.Counter;
+import cn.jascript.zt808.metrics.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 配置文件热重载：WatchService 监听文件所在目录，变更后静默 debounceMillis 再整体解析，
+ * 校验通过才发布新快照(AppConfig.publish)；解析或校验失败时保留当前配置。
+ * 发布的快照只取 RELOADABLE_PATHS 中的新值，其余(端口、线程池、解码器、分包等)沿用当前值：这些配置在启动时已装配，
+ * 部分还会在新连接建立时读取，整体发布会让新旧连接按不同配置运行；其变更只记录告警，需重启生效。
+ */
+@Slf4j
+public class ConfigReloader {
+
+    //配置路径,含其下所有子项
+    private static final List<String> RELOADABLE_PATHS = List.of(
+            "auth",
+            "duplicate.enable",
+            "duplicate.ttlSeconds",
+            "message.parser.provider",
+            "message.parser.extProvider",
+            "parser.locationHexFields",
+            "parser.locationRecord",
+            "reload",
+            //新连接建立时读取
+            "server.guard"
+    );
+
+    private static final Counter RELOADED = Metrics.getInstance().counter("zt808_config_reloads_total");
+    private static final Counter REJECTED = Metrics.getInstance().counter("zt808_config_reload_rejected_total");
+
+    private final Path file;
+    private final Function<AppConfig, List<String>> validator;
+    private WatchService watchService;
+    private Thread watcher;
+    private volatile boolean running;
+
+    /**
+     * @param validator 返回错误列表，非空时拒绝本次重载
+     */
+    public ConfigReloader(Path file, Function<AppConfig, List<String>> validator) {
+        this.file = file.toAbsolutePath();
+        this.validator = validator;
+    }
+
+    public void start() throws IOException {
+        watchService = file.getFileSystem().newWatchService();
+        //监听目录而非文件:编辑器保存时常以新文件替换原文件
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        watcher = new Thread(this::watch, "config-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("config reloader started, file={}", file);
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                var key = watchService.take();
+                boolean changed = matches(key);
+                key.reset();
+                if (!changed)
+                    continue;
+                awaitQuiet(Math.max(0, AppConfig.get().getReload().getDebounceMillis()));
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //stop
+        }
+    }
+
+    private boolean matches(WatchKey key) {
+        boolean matched = false;
+        for (var event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context()))
+                matched = true;
+        }
+        return matched;
+    }
+
+    //静默期内再有变更则继续等待,合并一次保存产生的多次写入
+    private void awaitQuiet(long debounceMillis) throws InterruptedException {
+        while (true) {
+            var key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            if (Objects.isNull(key))
+                return;
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    /**
+     * 立即重新加载配置文件。
+     *
+     * @return 是否通过解析与校验(内容无变化或只有需重启的变更时不发布，也返回 true)
+     */
+    public boolean reload() {
+        AppConfig candidate;
+        try (var in = Files.newInputStream(file)) {
+            candidate = AppConfig.parse(in);
+        } catch (Exception e) {
+            REJECTED.increment();
+            log.error("config reload rejected, parse failed, file={}", file, e);
+            return false;
+        }
+        var errors = validator.apply(candidate);
+        if (!errors.isEmpty()) {
+            REJECTED.increment();
+            for (var error : errors) {
+                log.error("config reload rejected: {}", error);
+            }
+            return false;
+        }
+        var current = AppConfig.get();
+        var changed = changedKeys(current, candidate);
+        if (changed.isEmpty()) {
+            log.info("config file touched, no change, file={}", file);
+            return true;
+        }
+        //只记录键,避免把口令等写入日志
+        var restartRequired = changed.stream().filter(k -> !isReloadable(k)).collect(Collectors.toList());
+        if (!restartRequired.isEmpty())
+            log.info("config changed but requires restart, not applied, keys={}", restartRequired);
+        var applied = changed.stream().filter(ConfigReloader::isReloadable).collect(Collectors.toList());
+        if (applied.isEmpty())
+            return true;
+        AppConfig merged;
+        try {
+            merged = merge(current, candidate);
+        } catch (Exception e) {
+            REJECTED.increment();
+            log.error("config reload rejected, merge failed, file={}", file, e);
+            return false;
+        }
+        AppConfig.publish(merged);
+        RELOADED.increment();
+        log.info("config reloaded, changed={}", applied);
+        return true;
+    }
+
+    /**
+     * 以当前配置为底，只替换可即时生效的部分。
+     */
+    static AppConfig merge(AppConfig current, AppConfig candidate) throws IOException {
+        var merged = current.source().deepCopy();
+        for (var path : RELOADABLE_PATHS) {
+            copyPath(candidate.source(), merged, path.split("\\."));
+        }
+        return AppConfig.parse(merged);
+    }
+
+    //候选配置中不存在的路径从结果中删除(取默认值)
+    private static void copyPath(ObjectNode from, ObjectNode to, String[] names) {
+        JsonNode src = from;
+        var dst = to;
+        for (int i = 0; i < names.length - 1; i++) {
+            src = src.path(names[i]);
+            var next = dst.get(names[i]);
+            if (!(next instanceof ObjectNode)) {
+                if (!src.isObject())
+                    return;
+                next = dst.putObject(names[i]);
+            }
+            dst = (ObjectNode) next;
+        }
+        var name = names[names.length - 1];
+        var value = src.path(name);
+        if (value.isMissingNode())
+            dst.remove(name);
+        else
+            dst.set(name, value.deepCopy());
+    }
+
+    static TreeSet<String> changedKeys(AppConfig previous, AppConfig current) {
+        var keys = new TreeSet<String>();
+        keys.addAll(previous.flatValues().keySet());
+        keys.addAll(current.flatValues().keySet());
+        keys.removeIf(k -> Objects.equals(previous.flatValues().get(k), current.flatValues().get(k)));
+        var lists = new TreeSet<String>();
+        lists.addAll(previous.flatLists().keySet());
+        lists.addAll(current.flatLists().keySet());
+        lists.removeIf(k -> Objects.equals(previous.flatLists().get(k), current.flatLists().get(k)));
+        keys.addAll(lists);
+        return keys;
+    }
+
+    private static boolean isReloadable(String key) {
+        for (var path : RELOADABLE_PATHS) {
+            if (key.equals(path) || key.startsWith(path + "."))
+                return true;
+        }
+        return false;
+    }
+
+    public void stop() {
+        running = false;
+        if (Objects.nonNull(watcher))
+            watcher.interrupt();
+        try {
+            if (Objects.nonNull(watchService))
+                watchService.close();
+        } catch (IOException e) {
+            log.debug("close watch service failed", e);
+        }
+    }
+}
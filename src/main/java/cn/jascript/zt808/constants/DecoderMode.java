@@ -0,0 +1,9 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 上行解码模式：FUSED 单 Handler 完成切帧/反转义/BCC/解析；LEGACY 为四段式解码链。
+ */
+public enum DecoderMode {
+    FUSED,
+    LEGACY
+}
@@ -0,0 +1,11 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 业务执行器线程模式。
+ */
+public enum ExecutorMode {
+    //固定数量平台线程
+    PLATFORM,
+    //虚拟线程(JDK 21+),适合 Provider 内有阻塞 JDBC/HTTP 调用;低版本 JDK 自动回退 PLATFORM
+    VIRTUAL
+}
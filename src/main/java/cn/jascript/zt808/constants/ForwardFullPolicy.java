@@ -0,0 +1,13 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 异步转发队列满时的处理策略。
+ */
+public enum ForwardFullPolicy {
+    //阻塞等待(超过 blockTimeoutMillis 后丢弃)
+    BLOCK,
+    //丢弃队列中最旧的数据
+    DROP_OLDEST,
+    //溢写到本地文件(ND-JSON),由运维侧补发
+    SPILL
+}
@@ -0,0 +1,13 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 默认转发实现的输出方式。
+ */
+public enum ForwardOutput {
+    //INFO 日志输出 JSON 数组
+    LOG,
+    //追加写入本地 ND-JSON 文件
+    FILE,
+    //不输出,仅用于压测
+    NONE
+}
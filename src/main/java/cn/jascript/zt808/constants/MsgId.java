@@ -7,6 +7,7 @@ public final class MsgId {
     }
 
     // terminal uplink
+    public static final int TERMINAL_GENERAL_REPLY = 0x0001;
     public static final int HEARTBEAT = 0x0002;
     public static final int REGISTER = 0x0100;
     public static final int AUTH = 0x0102;
@@ -18,6 +19,8 @@ public final class MsgId {
 
     // platform downlink
     public static final int PLATFORM_GENERAL_REPLY = 0x8001;
+    //补传分包请求
+    public static final int RETRANSMIT_REQUEST = 0x8003;
     public static final int REGISTER_REPLY = 0x8100;
     public static final int PUSH_TEXT = 0x8300;
 }
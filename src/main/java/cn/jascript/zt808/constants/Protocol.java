@@ -6,8 +6,11 @@ public class Protocol {
     public static final int ESCAPE = 0x7D;
     public static final int ESCAPE_FOR_HEADER = 0x02;
     public static final int ESCAPE_FOR_ESCAPE = 0x01;
-    public static final int MAX_FRAME_LENGTH = 1024;
     public static final int MAX_BODY_LENGTH = 0x3FF;
+    //单包(转义后)最大长度:分包消息头16 + 消息体1023 + BCC,全部转义时翻倍
+    public static final int MAX_FRAME_LENGTH = (16 + MAX_BODY_LENGTH + 1) * 2;
+    //单包(反转义前,不含头尾 0x7E)最少长度
+    public static final int MIN_FRAME_LENGTH = 12;
 
 
 }
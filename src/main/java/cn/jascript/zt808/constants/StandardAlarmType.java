@@ -1,21 +1,56 @@
 package cn.jascript.zt808.constants;
 
+import java.util.EnumSet;
+
 /**
  * 标准报警类型（基于 0x0200 报警标志常见位）。
  */
 public enum StandardAlarmType implements AlarmType {
-    SOS,                // 紧急报警
-    OVERSPEED,          // 超速报警
-    FATIGUE,            // 疲劳驾驶
-    GNSS_FAULT,         // GNSS 模块故障
-    GNSS_SHORT,         // GNSS 天线短路
-    GNSS_DISCONNECT,    // GNSS 天线未接
-    MAIN_POWER_CUT,     // 主电源掉电
-    MAIN_POWER_UNDER,   // 主电源欠压
-    LCD_FAULT,          // 液晶故障
-    TTS_FAULT,          // TTS 故障
-    CAMERA_FAULT,       // 摄像头故障
-    SPEED_WARNING,      // 超速预警
-    FATIGUE_WARNING,    // 疲劳驾驶预警
-    OTHER               // 其他
+    SOS(0),                 // 紧急报警
+    OVERSPEED(1),           // 超速报警
+    FATIGUE(2),             // 疲劳驾驶
+    GNSS_FAULT(4),          // GNSS 模块故障
+    GNSS_SHORT(6),          // GNSS 天线短路
+    GNSS_DISCONNECT(5),     // GNSS 天线未接
+    MAIN_POWER_CUT(8),      // 主电源掉电
+    MAIN_POWER_UNDER(7),    // 主电源欠压
+    LCD_FAULT(9),           // 液晶故障
+    TTS_FAULT(10),          // TTS 故障
+    CAMERA_FAULT(11),       // 摄像头故障
+    SPEED_WARNING(13),      // 超速预警
+    FATIGUE_WARNING(14),    // 疲劳驾驶预警
+    OTHER(-1);              // 其他
+
+    //values() 每次复制数组,热路径遍历使用该副本
+    private static final StandardAlarmType[] VALUES = values();
+
+    /**
+     * 报警标志位(JT/T 808-2019)，OTHER 为 -1。
+     */
+    private final int bit;
+
+    StandardAlarmType(int bit) {
+        this.bit = bit;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    // 报警标志中是否置位
+    public boolean isSet(int alarm) {
+        return bit >= 0 && (alarm & (1 << bit)) != 0;
+    }
+
+    // 按报警标志生成报警集合,顺序与枚举声明一致
+    public static EnumSet<StandardAlarmType> fromAlarmBits(int alarm) {
+        var set = EnumSet.noneOf(StandardAlarmType.class);
+        if (alarm == 0)
+            return set;
+        for (var type : VALUES) {
+            if (type.isSet(alarm))
+                set.add(type);
+        }
+        return set;
+    }
 }
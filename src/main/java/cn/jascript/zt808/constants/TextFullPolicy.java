@@ -0,0 +1,11 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 单终端文本下发队列满时的淘汰策略。
+ */
+public enum TextFullPolicy {
+    //淘汰最早的一条
+    DROP_OLD,
+    //优先淘汰最早的非紧急消息(标志位 bit0 未置位),全为紧急消息时淘汰最早的一条
+    DROP_NON_URGENT
+}
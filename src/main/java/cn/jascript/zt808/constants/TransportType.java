@@ -0,0 +1,11 @@
+package cn.jascript.zt808.constants;
+
+/**
+ * 服务端传输类型：AUTO 在 Linux 上优先 epoll，不可用时回退 NIO；io_uring(孵化模块)仅显式配置时启用。
+ */
+public enum TransportType {
+    AUTO,
+    NIO,
+    EPOLL,
+    IOURING
+}
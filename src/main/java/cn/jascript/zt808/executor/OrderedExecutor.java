@@ -0,0 +1,19 @@
+package cn.jascript.zt808.executor;
+
+/**
+ * 按 key 保序的执行器：相同 key 的任务按提交顺序串行执行，不同 key 之间并行。
+ */
+public interface OrderedExecutor {
+
+    /**
+     * 提交任务，key 通常为终端号主键(TerminalKey)。
+     *
+     * @return false 表示队列已满被拒绝，任务未执行，由调用方负责释放资源
+     */
+    boolean execute(long key, Runnable task);
+
+    /**
+     * 停止接收新任务，等待已入队任务执行完成。
+     */
+    void shutdown();
+}
@@ -0,0 +1,246 @@
+package cn.jascript.zt808.executor;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.ExecutorMode;
+import cn.jascript.zt808.util.BoundedRingQueue;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分条带保序执行器：key 按哈希固定落到一个条带(stripe)，每个条带是一个有界队列，同一时刻最多由一个工作线程串行排空，保证同 key 先进先出。
+ * 条带数远多于线程数，条带不绑定线程，任一空闲线程都可排空任一条带；每次最多执行 drainBatch 个任务后让出，
+ * 高频终端只会拖慢同条带的少量终端，不会独占线程。
+ * VIRTUAL 模式下每次排空在独立虚拟线程上运行，Provider 内的阻塞调用不占平台线程，并发数由条带数与 maxInFlight 共同限制。
+ */
+@Slf4j
+public class StripedExecutor implements OrderedExecutor {
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final int drainBatch;
+    private final ExecutorService workers;
+    private final boolean virtual;
+    //同时执行中的条带上限,虚拟线程模式下限制对下游的并发阻塞调用;<=0 不限
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private volatile boolean running = true;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public StripedExecutor(String name, AppConfig.BusinessExecutorConfig config) {
+        this(config, newWorkers(name, config));
+        log.info("striped executor started, name={}, mode={}, threads={}, stripes={}, stripeCapacity={}, drainBatch={}, maxInFlight={}",
+                name, virtual ? ExecutorMode.VIRTUAL : ExecutorMode.PLATFORM, virtual ? "-" : config.effectiveThreads(),
+                stripes.length, config.getStripeCapacity(), drainBatch, config.getMaxInFlight());
+    }
+
+    /**
+     * workers 负责运行条带排空任务，每个条带同一时刻最多提交一次，workers 队列长度不超过条带数。
+     */
+    protected StripedExecutor(AppConfig.BusinessExecutorConfig config, ExecutorService workers) {
+        //条带数对齐为 2 的幂,下标用位与计算
+        int size = Integer.highestOneBit(Math.max(2, config.getStripes() - 1)) << 1;
+        this.stripes = new Stripe[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, config.getStripeCapacity()));
+        }
+        this.drainBatch = Math.max(1, config.getDrainBatch());
+        this.workers = workers;
+        this.virtual = config.getMode() == ExecutorMode.VIRTUAL && VirtualThreads.isSupported();
+        this.maxInFlight = config.getMaxInFlight();
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+    }
+
+    private static ExecutorService newWorkers(String name, AppConfig.BusinessExecutorConfig config) {
+        if (config.getMode() == ExecutorMode.VIRTUAL) {
+            var opt = VirtualThreads.newExecutor();
+            if (opt.isPresent())
+                return opt.get();
+            log.info("virtual threads not supported on java {}, fallback to PLATFORM", System.getProperty("java.version"));
+        }
+        return new ThreadPoolExecutor(config.effectiveThreads(), config.effectiveThreads(), 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new DefaultThreadFactory(name));
+    }
+
+    @Override
+    public boolean execute(long key, Runnable task) {
+        var stripe = stripes[stripeIndex(key)];
+        if (!running || !stripe.queue.offer(new Task(task, System.nanoTime()))) {
+            rejected.increment();
+            return false;
+        }
+        stripe.schedule();
+        return true;
+    }
+
+    public int stripeIndex(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public void shutdown() {
+        if (!running)
+            return;
+        running = false;
+        //先等各条带排空,排空过程中条带会重新提交自身,不能提前关闭 workers
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_WAIT_SECONDS);
+        try {
+            while (!idle() && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            workers.shutdown();
+            workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("striped executor stopped, executed={}, rejected={}, failed={}, remain={}",
+                executed(), rejected(), failed(), queueDepth());
+    }
+
+    private boolean idle() {
+        for (var stripe : stripes) {
+            if (stripe.scheduled.get() || !stripe.queue.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // 正在执行的条带数
+    public int inFlight() {
+        return Objects.isNull(inFlight) ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (var stripe : stripes) {
+            depth += stripe.queue.size();
+        }
+        return depth;
+    }
+
+    public int queueDepth(int stripe) {
+        return stripes[stripe].queue.size();
+    }
+
+    // 条带内任务平均排队时间(入队到开始执行),毫秒
+    public double avgQueueMillis(int stripe) {
+        var s = stripes[stripe];
+        long n = s.executed.sum();
+        return n == 0 ? 0 : s.queueNanos.sum() / (double) n / 1_000_000d;
+    }
+
+    public double maxQueueMillis(int stripe) {
+        return stripes[stripe].maxQueueNanos / 1_000_000d;
+    }
+
+    public long executed() {
+        return executed.sum();
+    }
+
+    public long executed(int stripe) {
+        return stripes[stripe].executed.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final long enqueueNanos;
+
+        private Task(Runnable runnable, long enqueueNanos) {
+            this.runnable = runnable;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private final class Stripe implements Runnable {
+        private final BoundedRingQueue<Task> queue;
+        //已提交排空任务,保证同一条带同一时刻只有一个线程执行
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder queueNanos = new LongAdder();
+        //仅排空线程写入
+        private volatile long maxQueueNanos;
+
+        private Stripe(int capacity) {
+            this.queue = new BoundedRingQueue<>(capacity);
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true))
+                return;
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                log.info("striped executor rejected drain, remain={}", queue.size());
+            }
+        }
+
+        @Override
+        public void run() {
+            if (Objects.nonNull(inFlight))
+                inFlight.acquireUninterruptibly();
+            try {
+                drain();
+            } finally {
+                if (Objects.nonNull(inFlight))
+                    inFlight.release();
+            }
+            scheduled.set(false);
+            //排空期间的新任务或本轮未执行完的任务,重新排队让出线程
+            if (!queue.isEmpty())
+                schedule();
+        }
+
+        private void drain() {
+            int n = 0;
+            Task task;
+            while (n < drainBatch && Objects.nonNull(task = queue.poll())) {
+                long waited = System.nanoTime() - task.enqueueNanos;
+                queueNanos.add(waited);
+                if (waited > maxQueueNanos)
+                    maxQueueNanos = waited;
+                try {
+                    task.runnable.run();
+                } catch (Throwable e) {
+                    failed.increment();
+                    log.error("ordered task failed", e);
+                }
+                executed.increment();
+                StripedExecutor.this.executed.increment();
+                n++;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package cn.jascript.zt808.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持：工程按 release 11 编译，运行在 JDK 21+ 时通过反射获取 Executors.newVirtualThreadPerTaskExecutor。
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final MethodHandle NEW_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle lookup() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    public static boolean isSupported() {
+        return Objects.nonNull(NEW_EXECUTOR);
+    }
+
+    /**
+     * 每个任务一个虚拟线程的 ExecutorService，当前 JDK 不支持时返回 empty。
+     */
+    public static Optional<ExecutorService> newExecutor() {
+        if (!isSupported())
+            return Optional.empty();
+        try {
+            return Optional.of((ExecutorService) NEW_EXECUTOR.invoke());
+        } catch (Throwable e) {
+            log.error("create virtual thread executor failed", e);
+            return Optional.empty();
+        }
+    }
+}
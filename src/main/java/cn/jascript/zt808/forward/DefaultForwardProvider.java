@@ -1,32 +1,73 @@
 package cn.jascript.zt808.forward;
 
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.ForwardOutput;
 import cn.jascript.zt808.model.dto.BaseDTO;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 
 /**
- * 默认转发实现：简单输出日志，具体分流交由上游实现。
+ * 默认转发实现：按 forward.output 输出到日志或本地 ND-JSON 文件，具体分流交由上游实现。
+ * 序列化通过 DtoJsonWriter 流式写入池化 buffer，文件输出全程不生成中间 String。
  */
 @Slf4j
 public class DefaultForwardProvider implements ForwardProvider {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final ForwardOutput output;
+    private final NdJsonFileSink fileSink;
+
+    public DefaultForwardProvider() {
+        this(AppConfig.get().getForward().getOutput(), AppConfig.get().getForward().getFile());
+    }
+
+    public DefaultForwardProvider(ForwardOutput output, String file) {
+        this.output = Objects.isNull(output) ? ForwardOutput.LOG : output;
+        this.fileSink = this.output == ForwardOutput.FILE ? new NdJsonFileSink(file) : null;
+    }
 
     @Override
     public void forward(List<BaseDTO> dtos) {
         if (Objects.isNull(dtos) || dtos.isEmpty())
             return;
+        switch (output) {
+            case FILE:
+                try {
+                    fileSink.append(dtos);
+                } catch (Exception e) {
+                    log.error("forward to file failed, file={}, dtoSize={}", fileSink.getFile(), dtos.size(), e);
+                }
+                break;
+            case LOG:
+                if (log.isInfoEnabled())
+                    log.info("forward dtos, dtoSize={}, dtos={}", dtos.size(), toJson(dtos));
+                break;
+            case NONE:
+            default:
+                break;
+        }
+    }
 
-        String dtosJson;
+    //日志与文件输出均在 forward 内同步完成
+    @Override
+    public boolean retainsDtos() {
+        return false;
+    }
+
+    private String toJson(List<BaseDTO> dtos) {
+        var buf = PooledByteBufAllocator.DEFAULT.buffer(INITIAL_BUFFER_SIZE);
         try {
-            dtosJson = OBJECT_MAPPER.writeValueAsString(dtos);
+            DtoJsonWriter.writeArray(buf, dtos);
+            return buf.toString(StandardCharsets.UTF_8);
         } catch (Exception e) {
-            dtosJson = String.valueOf(dtos);
+            return String.valueOf(dtos);
+        } finally {
+            buf.release();
         }
-
-        log.info("forward dtos, dtoSize={}, dtos={}", dtos.size(), dtosJson);
     }
 }
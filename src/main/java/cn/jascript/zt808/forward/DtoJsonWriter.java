@@ -0,0 +1,236 @@
+package cn.jascript.zt808.forward;
+
+import cn.jascript.zt808.constants.StandardAlarmType;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.HeartbeatDTO;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * DTO 流式 JSON 序列化：通过 JsonGenerator 直接写入(池化)ByteBuf，不生成中间 String。
+ * 位置/心跳等高频 DTO 手写字段输出，其余 DTO 交给 ObjectMapper 写入同一个 generator；输出字段与 ObjectMapper 默认序列化一致。
+ */
+public final class DtoJsonWriter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private DtoJsonWriter() {
+    }
+
+    /**
+     * 以 JSON 数组写入 out。
+     */
+    public static void writeArray(ByteBuf out, List<? extends BaseDTO> dtos) throws IOException {
+        try (var gen = generator(out)) {
+            gen.writeStartArray();
+            for (var dto : dtos) {
+                write(gen, dto);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * 以 ND-JSON 写入 out：每行一条 DTO，以 '\n' 结尾。
+     */
+    public static void writeNdJson(ByteBuf out, Collection<? extends BaseDTO> dtos) throws IOException {
+        try (var gen = generator(out)) {
+            for (var dto : dtos) {
+                write(gen, dto);
+                gen.writeRaw('\n');
+            }
+        }
+    }
+
+    public static void writeNdJson(ByteBuf out, BaseDTO dto) throws IOException {
+        writeNdJson(out, List.of(dto));
+    }
+
+    private static JsonGenerator generator(ByteBuf out) throws IOException {
+        var gen = OBJECT_MAPPER.getFactory().createGenerator((OutputStream) new ByteBufOutputStream(out));
+        //根级值之间不插入默认空格,换行由调用方控制
+        gen.setRootValueSeparator(null);
+        return gen;
+    }
+
+    public static void write(JsonGenerator gen, BaseDTO dto) throws IOException {
+        if (Objects.isNull(dto)) {
+            gen.writeNull();
+        } else if (dto instanceof LocationDTO) {
+            writeLocation(gen, (LocationDTO) dto);
+        } else if (dto instanceof LocationRecord) {
+            writeLocationRecord(gen, (LocationRecord) dto);
+        } else if (dto instanceof HeartbeatDTO) {
+            writeHeartbeat(gen, (HeartbeatDTO) dto);
+        } else {
+            OBJECT_MAPPER.writeValue(gen, dto);
+        }
+    }
+
+    private static void writeLocation(JsonGenerator gen, LocationDTO dto) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, "terminalId", dto.getTerminalId());
+        writeDate(gen, "receiveTime", dto.getReceiveTime());
+        writeEnum(gen, "dataType", dto.getDataType());
+        writeDate(gen, "locationTime", dto.getLocationTime());
+        writeDouble(gen, "longitude", dto.getLongitude());
+        writeDouble(gen, "latitude", dto.getLatitude());
+        writeMap(gen, "ext", dto.getExt());
+        writeBoolean(gen, "accState", dto.getAccState());
+        writeBoolean(gen, "located", dto.getLocated());
+        writeInt(gen, "speed", dto.getSpeed());
+        writeInt(gen, "gpsSignal", dto.getGpsSignal());
+        writeInt(gen, "networkSignal", dto.getNetworkSignal());
+        writeInt(gen, "height", dto.getHeight());
+        writeInt(gen, "direction", dto.getDirection());
+        gen.writeFieldName("alarmSet");
+        if (Objects.isNull(dto.getAlarmSet())) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray();
+            for (var alarm : dto.getAlarmSet()) {
+                if (alarm instanceof Enum)
+                    gen.writeString(((Enum<?>) alarm).name());
+                else
+                    OBJECT_MAPPER.writeValue(gen, alarm);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    //与 writeLocation(record.toDTO()) 输出一致,直接读取原始字段,不生成视图
+    private static void writeLocationRecord(JsonGenerator gen, LocationRecord record) throws IOException {
+        boolean parsed = record.isParsed();
+        gen.writeStartObject();
+        writeString(gen, "terminalId", record.getTerminalId());
+        gen.writeNumberField("receiveTime", record.receiveTimeMillis());
+        writeEnum(gen, "dataType", record.getDataType());
+        gen.writeFieldName("locationTime");
+        if (parsed && record.locationTimeMillis() != LocationRecord.UNKNOWN_TIME)
+            gen.writeNumber(record.locationTimeMillis());
+        else
+            gen.writeNull();
+        writeDouble(gen, "longitude", parsed ? record.longitude() : null);
+        writeDouble(gen, "latitude", parsed ? record.latitude() : null);
+        writeRecordExt(gen, record);
+        writeBoolean(gen, "accState", parsed ? record.accState() : null);
+        writeBoolean(gen, "located", parsed ? record.located() : null);
+        gen.writeNumberField("speed", record.speed());
+        gen.writeNumberField("gpsSignal", record.gpsSignal());
+        gen.writeNumberField("networkSignal", record.networkSignal());
+        gen.writeNumberField("height", record.height());
+        gen.writeNumberField("direction", record.direction());
+        gen.writeFieldName("alarmSet");
+        gen.writeStartArray();
+        if (parsed && record.alarm() != 0) {
+            for (var alarm : StandardAlarmType.fromAlarmBits(record.alarm())) {
+                gen.writeString(alarm.name());
+            }
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    //ext 与原始字段合并输出,规则同 LocationRecord.mergeExt
+    private static void writeRecordExt(JsonGenerator gen, LocationRecord record) throws IOException {
+        var ext = record.extOrNull();
+        gen.writeFieldName("ext");
+        gen.writeStartObject();
+        if (Objects.nonNull(ext)) {
+            for (var e : ext.entrySet()) {
+                writeString(gen, e.getKey(), e.getValue());
+            }
+        }
+        if (record.mileage() != LocationRecord.UNKNOWN && (Objects.isNull(ext) || !ext.containsKey("mileage"))) {
+            gen.writeStringField("mileage", String.valueOf(record.mileage()));
+            gen.writeStringField("mileageUnit", "0.1km");
+        }
+        if (record.batchType() != LocationRecord.UNKNOWN && (Objects.isNull(ext) || !ext.containsKey("batchType")))
+            gen.writeStringField("batchType", String.valueOf(record.batchType()));
+        gen.writeEndObject();
+    }
+
+    private static void writeHeartbeat(JsonGenerator gen, HeartbeatDTO dto) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, "terminalId", dto.getTerminalId());
+        writeDate(gen, "receiveTime", dto.getReceiveTime());
+        writeEnum(gen, "dataType", dto.getDataType());
+        writeMap(gen, "ext", dto.getExt());
+        gen.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator gen, String name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeString(value);
+    }
+
+    //Date 与 ObjectMapper 默认一致,输出毫秒时间戳
+    private static void writeDate(JsonGenerator gen, String name, Date value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeNumber(value.getTime());
+    }
+
+    private static void writeEnum(JsonGenerator gen, String name, Enum<?> value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeString(value.name());
+    }
+
+    private static void writeDouble(JsonGenerator gen, String name, Double value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeNumber(value);
+    }
+
+    private static void writeInt(JsonGenerator gen, String name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeNumber(value);
+    }
+
+    private static void writeBoolean(JsonGenerator gen, String name, Boolean value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value))
+            gen.writeNull();
+        else
+            gen.writeBoolean(value);
+    }
+
+    private static void writeMap(JsonGenerator gen, String name, Map<String, String> value) throws IOException {
+        gen.writeFieldName(name);
+        if (Objects.isNull(value)) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        for (var e : value.entrySet()) {
+            writeString(gen, e.getKey(), e.getValue());
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,465 @@
+package cn.jascript.zt808.forward;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.ExecutorMode;
+import cn.jascript.zt808.constants.ForwardFullPolicy;
+import cn.jascript.zt808.executor.StripedExecutor;
+import cn.jascript.zt808.executor.VirtualThreads;
+import cn.jascript.zt808.metrics.LatencyHistogram;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
+import cn.jascript.zt808.util.BoundedRingQueue;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步转发：业务线程只把 DTO 放入有界环形队列即返回，由转发线程按 batchSize/lingerMillis 攒批后调用 ForwardProvider.forwardBatch。
+ * 按终端分片到固定转发线程，同一终端的数据保持上报顺序；队列满时按 fullPolicy 处理，慢下游不会拖住终端回包。
+ * businessExecutor.mode=VIRTUAL 时转发线程只负责攒批，批内按条带拆分后在虚拟线程上调用 forwardBatch(同一终端仍串行)，
+ * 阻塞型下游(JDBC/HTTP)的并发调用数不受 workers 限制，上限为 min(stripes, maxInFlight)。
+ * 池化的 LocationRecord 在被丢弃/溢写后回收，转发实现不持有 DTO(retainsDtos=false)时转发返回后回收。
+ */
+@Slf4j
+public final class ForwardDispatcher {
+
+    //BLOCK 策略下自旋等待队列空位的间隔
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+    //同步模式为单次 forward 耗时,异步模式为批内最早一条从入队到 forwardBatch 返回
+    private static final LatencyHistogram FORWARD_LATENCY = Metrics.getInstance().histogram("zt808_forward_latency_seconds");
+
+    private final ForwardProvider provider;
+    //转发返回后可回收 DTO
+    private final boolean release;
+    private final boolean async;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final ForwardFullPolicy fullPolicy;
+    private final long blockTimeoutNanos;
+    private final NdJsonFileSink spillSink;
+    private final Shard[] shards;
+    //VIRTUAL 模式下执行 forwardBatch 的虚拟线程执行器,为空时在转发线程上直接调用
+    private final StripedExecutor sinkExecutor;
+
+    private volatile boolean running = true;
+    private volatile boolean sinkStopped;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder drainLatencyNanos = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong maxDrainLatencyNanos = new AtomicLong();
+
+    public static ForwardDispatcher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final ForwardDispatcher INSTANCE = new ForwardDispatcher(AppConfig.get().getForward().getAsync(),
+                ForwardProviderFactory.get(), newSinkExecutor(AppConfig.get()));
+
+        private Holder() {
+        }
+    }
+
+    public ForwardDispatcher(AppConfig.AsyncForwardConfig config, ForwardProvider provider) {
+        this(config, provider, null);
+    }
+
+    /**
+     * @param sinkExecutor 执行 forwardBatch 的保序执行器(仅异步模式使用)，为空时在转发线程上直接调用
+     */
+    public ForwardDispatcher(AppConfig.AsyncForwardConfig config, ForwardProvider provider, StripedExecutor sinkExecutor) {
+        this.provider = provider;
+        this.release = !provider.retainsDtos();
+        this.async = config.isEnable();
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getLingerMillis()));
+        this.fullPolicy = Objects.isNull(config.getFullPolicy()) ? ForwardFullPolicy.BLOCK : config.getFullPolicy();
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getBlockTimeoutMillis()));
+        this.spillSink = new NdJsonFileSink(config.getSpillFile());
+        if (!async) {
+            this.shards = new Shard[0];
+            this.sinkExecutor = null;
+            log.info("forward dispatcher sync mode");
+            return;
+        }
+        this.sinkExecutor = sinkExecutor;
+        int workers = Math.max(1, config.getWorkers());
+        this.shards = new Shard[workers];
+        for (int i = 0; i < workers; i++) {
+            shards[i] = new Shard(i, Math.max(batchSize, config.getCapacity()));
+        }
+        log.info("forward dispatcher async mode, workers={}, capacity={}, batchSize={}, lingerMillis={}, fullPolicy={}, sinkStripes={}",
+                workers, shards[0].queue.capacity(), batchSize, config.getLingerMillis(), fullPolicy,
+                Objects.isNull(sinkExecutor) ? "-" : sinkExecutor.stripeCount());
+    }
+
+    //业务执行器为 VIRTUAL 且 JDK 支持虚拟线程时,forwardBatch 同样在虚拟线程上执行,条带数与并发上限沿用 businessExecutor 配置
+    private static StripedExecutor newSinkExecutor(AppConfig config) {
+        var executorConfig = config.getBusinessExecutor();
+        if (!config.getForward().getAsync().isEnable() || executorConfig.getMode() != ExecutorMode.VIRTUAL
+                || !VirtualThreads.isSupported())
+            return null;
+        return new StripedExecutor("forward-sink", executorConfig);
+    }
+
+    /**
+     * 提交一次消息解析出的 DTO，同一条消息的 DTO 属于同一终端，按 terminalKey 固定分片。
+     * 同步模式下直接在调用线程转发，异常由调用方处理。
+     */
+    public void dispatch(long terminalKey, List<BaseDTO> dtos) {
+        if (Objects.isNull(dtos) || dtos.isEmpty())
+            return;
+        if (!async || !running) {
+            long start = System.nanoTime();
+            try {
+                provider.forward(dtos);
+            } finally {
+                if (release)
+                    recycle(dtos);
+            }
+            FORWARD_LATENCY.recordSince(start);
+            return;
+        }
+        var shard = shards[shardIndex(terminalKey)];
+        for (var dto : dtos) {
+            shard.enqueue(new Entry(terminalKey, dto, System.nanoTime()));
+        }
+    }
+
+    private int shardIndex(long terminalKey) {
+        if (shards.length == 1)
+            return 0;
+        long h = terminalKey * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % shards.length);
+    }
+
+    //溢写为 ND-JSON,每行一条 DTO
+    private void spill(BaseDTO dto) {
+        try {
+            //首次溢写提示一次
+            if (spilled.sum() == 0)
+                log.info("forward queue full, spill to {}", spillSink.getFile());
+            spillSink.append(dto);
+            spilled.increment();
+        } catch (IOException e) {
+            dropped.increment();
+            log.error("forward spill failed, file={}, terminalId={}", spillSink.getFile(), dto.getTerminalId(), e);
+        } finally {
+            recycle(dto);
+        }
+    }
+
+    private static void recycle(BaseDTO dto) {
+        if (dto instanceof LocationRecord)
+            ((LocationRecord) dto).recycle();
+    }
+
+    private static void recycle(List<BaseDTO> dtos) {
+        for (int i = 0; i < dtos.size(); i++) {
+            recycle(dtos.get(i));
+        }
+    }
+
+    /**
+     * 停止接收并排空队列，剩余数据在超时前尽量转发完成。
+     */
+    public void shutdown() {
+        if (!running)
+            return;
+        running = false;
+        for (var shard : shards) {
+            LockSupport.unpark(shard.worker);
+        }
+        for (var shard : shards) {
+            try {
+                shard.worker.join(SHUTDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        //转发线程退出后不再提交,等待虚拟线程上的批转发完成
+        sinkStopped = true;
+        if (Objects.nonNull(sinkExecutor))
+            sinkExecutor.shutdown();
+        spillSink.close();
+        log.info("forward dispatcher stopped, forwarded={}, batches={}, failed={}, dropped={}, spilled={}, remain={}",
+                forwarded(), batches(), failed(), dropped(), spilled(), queueDepth());
+    }
+
+    /**
+     * 转发统计登记为 gauge：积压、转发/失败/丢弃/溢写数、批次数、批大小与排空延迟。
+     */
+    public void bindMetrics(Metrics metrics) {
+        metrics.gauge("zt808_forward_queue_depth", this::queueDepth);
+        metrics.gauge("zt808_forward_forwarded_total", this::forwarded);
+        metrics.gauge("zt808_forward_failed_total", this::failed);
+        metrics.gauge("zt808_forward_dropped_total", this::dropped);
+        metrics.gauge("zt808_forward_spilled_total", this::spilled);
+        metrics.gauge("zt808_forward_batches_total", this::batches);
+        metrics.gauge("zt808_forward_batch_size_avg", this::avgBatchSize);
+        metrics.gauge("zt808_forward_batch_size_max", this::maxBatchSize);
+        metrics.gauge("zt808_forward_drain_latency_avg_millis", this::avgDrainLatencyMillis);
+        metrics.gauge("zt808_forward_drain_latency_max_millis", this::maxDrainLatencyMillis);
+        metrics.gauge("zt808_forward_sink_in_flight", this::sinkInFlight);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // 当前各分片队列积压总数
+    public int queueDepth() {
+        int depth = 0;
+        for (var shard : shards) {
+            depth += shard.queue.size();
+        }
+        return depth;
+    }
+
+    public long enqueued() {
+        return enqueued.sum();
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    public long forwarded() {
+        return forwarded.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long spilled() {
+        return spilled.sum();
+    }
+
+    public long maxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    // 平均批大小
+    public double avgBatchSize() {
+        long b = batches.sum();
+        return b == 0 ? 0 : (double) (forwarded.sum() + failed.sum()) / b;
+    }
+
+    // 平均排空延迟(批内最早一条从入队到 forwardBatch 返回),毫秒
+    public double avgDrainLatencyMillis() {
+        long b = batches.sum();
+        return b == 0 ? 0 : drainLatencyNanos.sum() / (double) b / 1_000_000d;
+    }
+
+    public double maxDrainLatencyMillis() {
+        return maxDrainLatencyNanos.get() / 1_000_000d;
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long cur;
+        while (value > (cur = max.get())) {
+            if (max.compareAndSet(cur, value))
+                return;
+        }
+    }
+
+    // 当前正在执行 forwardBatch 的虚拟线程数(仅 VIRTUAL 模式)
+    public int sinkInFlight() {
+        return Objects.isNull(sinkExecutor) ? 0 : sinkExecutor.inFlight();
+    }
+
+    private static final class Entry {
+        private final long terminalKey;
+        private final BaseDTO dto;
+        private final long enqueueNanos;
+
+        private Entry(long terminalKey, BaseDTO dto, long enqueueNanos) {
+            this.terminalKey = terminalKey;
+            this.dto = dto;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    //同一条带的子批,key 为其中任一终端(同条带的终端在执行器内共用一个队列)
+    private static final class SubBatch {
+        private final long terminalKey;
+        private final List<BaseDTO> dtos = new ArrayList<>();
+
+        private SubBatch(long terminalKey) {
+            this.terminalKey = terminalKey;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final BoundedRingQueue<Entry> queue;
+        private final Thread worker;
+        //转发线程空闲等待中,生产者入队后唤醒
+        private volatile boolean parked;
+        //同步调用 forwardBatch 时复用的批列表
+        private List<BaseDTO> dtos = new ArrayList<>();
+
+        private Shard(int index, int capacity) {
+            this.queue = new BoundedRingQueue<>(capacity);
+            this.worker = new Thread(this, "forward-" + index);
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+
+        private void enqueue(Entry entry) {
+            if (!queue.offer(entry) && !offerWhenFull(entry))
+                return;
+            enqueued.increment();
+            if (parked)
+                LockSupport.unpark(worker);
+        }
+
+        private boolean offerWhenFull(Entry entry) {
+            switch (fullPolicy) {
+                case DROP_OLDEST:
+                    while (!queue.offer(entry)) {
+                        var oldest = queue.poll();
+                        if (Objects.nonNull(oldest)) {
+                            dropped.increment();
+                            recycle(oldest.dto);
+                        }
+                    }
+                    return true;
+                case SPILL:
+                    spill(entry.dto);
+                    return false;
+                case BLOCK:
+                default:
+                    long deadline = System.nanoTime() + blockTimeoutNanos;
+                    do {
+                        LockSupport.unpark(worker);
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                        if (queue.offer(entry))
+                            return true;
+                    } while (running && System.nanoTime() < deadline);
+                    dropped.increment();
+                    log.error("forward queue full, block timeout, dto dropped, terminalId={}", entry.dto.getTerminalId());
+                    recycle(entry.dto);
+                    return false;
+            }
+        }
+
+        @Override
+        public void run() {
+            var batch = new ArrayList<Entry>(batchSize);
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll();
+                if (Objects.isNull(first)) {
+                    await(lingerNanos > 0 ? lingerNanos : TimeUnit.MILLISECONDS.toNanos(10));
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueueNanos + lingerNanos;
+                //攒批:未满 batchSize 时在 linger 窗口内继续收集
+                while (batch.size() < batchSize) {
+                    var next = queue.poll();
+                    if (Objects.nonNull(next)) {
+                        batch.add(next);
+                        continue;
+                    }
+                    long remain = deadline - System.nanoTime();
+                    if (remain <= 0 || !running)
+                        break;
+                    await(remain);
+                }
+                if (Objects.nonNull(sinkExecutor))
+                    submit(batch, first.enqueueNanos);
+                else
+                    drain(toDtos(batch), first.enqueueNanos);
+                batch.clear();
+            }
+        }
+
+        private List<BaseDTO> toDtos(List<Entry> entries) {
+            //实现方可能持有批列表,不持有时复用
+            if (!release)
+                dtos = new ArrayList<>(batchSize);
+            dtos.clear();
+            for (int i = 0; i < entries.size(); i++) {
+                dtos.add(entries.get(i).dto);
+            }
+            return dtos;
+        }
+
+        //按执行器条带拆分:同一终端总在同一条带,条带内先进先出,终端内顺序不变;条带队列满时等待(反压到转发队列)
+        private void submit(List<Entry> entries, long oldestEnqueueNanos) {
+            var subBatches = new HashMap<Integer, SubBatch>();
+            var ordered = new ArrayList<SubBatch>();
+            for (int i = 0; i < entries.size(); i++) {
+                var entry = entries.get(i);
+                int stripe = sinkExecutor.stripeIndex(entry.terminalKey);
+                var sub = subBatches.get(stripe);
+                if (Objects.isNull(sub)) {
+                    sub = new SubBatch(entry.terminalKey);
+                    subBatches.put(stripe, sub);
+                    ordered.add(sub);
+                }
+                sub.dtos.add(entry.dto);
+            }
+            for (var sub : ordered) {
+                Runnable task = () -> drain(sub.dtos, oldestEnqueueNanos);
+                while (!sinkExecutor.execute(sub.terminalKey, task)) {
+                    //执行器已停止(关闭超时),在当前线程转发
+                    if (sinkStopped) {
+                        task.run();
+                        break;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+        }
+
+        private void await(long nanos) {
+            parked = true;
+            //park 前再检查一次,避免错过入队唤醒
+            if (queue.isEmpty() && running)
+                LockSupport.parkNanos(this, nanos);
+            parked = false;
+        }
+
+        private void drain(List<BaseDTO> batch, long oldestEnqueueNanos) {
+            try {
+                provider.forwardBatch(batch);
+                forwarded.add(batch.size());
+            } catch (Exception e) {
+                failed.add(batch.size());
+                log.error("forward batch failed, batchSize={}", batch.size(), e);
+            } finally {
+                if (release)
+                    recycle(batch);
+            }
+            long latency = System.nanoTime() - oldestEnqueueNanos;
+            batches.increment();
+            drainLatencyNanos.add(latency);
+            FORWARD_LATENCY.record(latency);
+            updateMax(maxBatchSize, batch.size());
+            updateMax(maxDrainLatencyNanos, latency);
+        }
+    }
+}
@@ -13,4 +13,20 @@ public interface ForwardProvider {
      * 结果转发，按 BaseDTO 携带的 dataType 由实现方自行分流。
      */
     void forward(List<BaseDTO> dtos);
+
+    /**
+     * 批量转发，异步转发开启时由转发线程按 batchSize/lingerMillis 攒批后调用；
+     * 批内可能包含多个终端的数据，同一终端的数据保持上报顺序；不同批可能被多个线程并发调用(businessExecutor.mode=VIRTUAL 时在虚拟线程上)。默认逐批委托 forward。
+     */
+    default void forwardBatch(List<BaseDTO> dtos) {
+        forward(dtos);
+    }
+
+    /**
+     * forward/forwardBatch 返回后是否仍持有传入的 DTO(如交给其他线程异步发送)。
+     * 返回 false 时 ForwardDispatcher 在调用返回后回收池化的 LocationRecord 并复用批列表；默认 true，不回收。
+     */
+    default boolean retainsDtos() {
+        return true;
+    }
 }
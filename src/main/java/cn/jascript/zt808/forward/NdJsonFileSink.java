@@ -0,0 +1,68 @@
+package cn.jascript.zt808.forward;
+
+import cn.jascript.zt808.model.dto.BaseDTO;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ND-JSON 文件追加输出：DTO 经 DtoJsonWriter 写入池化 buffer 后直接写 FileChannel，不经过 String/char[]。
+ * 多个转发线程共用时串行写入，文件在首次写入时打开。
+ */
+@Slf4j
+public final class NdJsonFileSink implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final String file;
+    private FileChannel channel;
+
+    public NdJsonFileSink(String file) {
+        this.file = file;
+    }
+
+    public void append(BaseDTO dto) throws IOException {
+        append(List.of(dto));
+    }
+
+    public synchronized void append(Collection<? extends BaseDTO> dtos) throws IOException {
+        if (Objects.isNull(dtos) || dtos.isEmpty())
+            return;
+        var buf = PooledByteBufAllocator.DEFAULT.buffer(INITIAL_BUFFER_SIZE);
+        try {
+            DtoJsonWriter.writeNdJson(buf, dtos);
+            if (Objects.isNull(channel)) {
+                channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                log.info("ndjson sink opened, file={}", file);
+            }
+            while (buf.isReadable()) {
+                buf.readBytes(channel, buf.readableBytes());
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (Objects.isNull(channel))
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.error("ndjson sink close failed, file={}", file, e);
+        }
+        channel = null;
+    }
+}
@@ -1,21 +1,38 @@
 package cn.jascript.zt808.handler;
 
+import cn.jascript.zt808.cluster.ClusterManager;
+import cn.jascript.zt808.session.Session;
 import cn.jascript.zt808.session.SessionManager;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Objects;
+
 /**
- * 处理连接建立/断开的事件：注册/清理会话并输出日志。
+ * 处理连接建立/断开的事件：注册/清理会话、登记到 IdleReaper 并输出日志；活跃时间由解码器之后的 IdleActivityHandler 刷新。
  */
 @Slf4j
 public class ConnectionEventHandler extends ChannelInboundHandlerAdapter {
 
     private final SessionManager sessionManager = SessionManager.getInstance();
+    private final ClusterManager clusterManager = ClusterManager.getInstance();
+    private final IdleReaper idleReaper;
+    //每个连接一个实例,缓存会话供断开时注销
+    private Session session;
+
+    public ConnectionEventHandler() {
+        this(IdleHandlerFactory.getIdleReaper());
+    }
+
+    public ConnectionEventHandler(IdleReaper idleReaper) {
+        this.idleReaper = idleReaper;
+    }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) {
-        var session = sessionManager.register(ctx.channel());
+        session = sessionManager.register(ctx.channel());
+        idleReaper.track(session);
         log.info("channel active, remote={}", session.getRemoteAddress());
         ctx.fireChannelActive();
     }
@@ -23,7 +40,7 @@ public class ConnectionEventHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) {
         var remote = ctx.channel().remoteAddress();
-        sessionManager.unregister(ctx.channel());
+        release(ctx);
         log.info("channel inactive, remote={}, online={}", remote, sessionManager.onlineCount());
         ctx.fireChannelInactive();
     }
@@ -31,8 +48,19 @@ public class ConnectionEventHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         var remote = ctx.channel().remoteAddress();
-        sessionManager.unregister(ctx.channel());
+        release(ctx);
         log.error("channel exception, remote={}, online={}", remote, sessionManager.onlineCount(), cause);
         ctx.close();
     }
+
+    private void release(ChannelHandlerContext ctx) {
+        if (Objects.nonNull(session))
+            idleReaper.untrack(session);
+        sessionManager.unregister(ctx.channel());
+        //本节点已无该终端的会话时从会话目录注销(同节点重连时索引已指向新会话)
+        if (Objects.nonNull(session) && Objects.nonNull(session.getTerminalId())
+                && sessionManager.findByTerminal(session.getTerminalKey()).isEmpty())
+            clusterManager.onUnbound(session.getTerminalId());
+        session = null;
+    }
 }
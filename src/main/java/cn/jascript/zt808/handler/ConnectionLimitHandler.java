@@ -0,0 +1,120 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接准入：挂在服务端(accept) Channel 上，在子连接注册到 IO 线程前做判定。
+ * 依次检查全局 accept 速率、单 IP accept 速率与最大连接数，拒绝的连接直接关闭，避免集中重连耗尽文件句柄与堆内存。
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class ConnectionLimitHandler extends ChannelInboundHandlerAdapter {
+
+    //单 IP 令牌桶在无新连接一段时间后回收
+    private static final Duration IP_BUCKET_EXPIRE = Duration.ofMinutes(5);
+    private static final long IP_BUCKET_MAX_SIZE = 200_000;
+
+    private final int maxConnections;
+    private final TokenBucket acceptBucket;
+    private final double perIpRatePerSecond;
+    private final double perIpBurst;
+    private final Cache<InetAddress, TokenBucket> ipBuckets;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedByMaxConnections = new LongAdder();
+    private final LongAdder rejectedByAcceptRate = new LongAdder();
+    private final LongAdder rejectedByIpRate = new LongAdder();
+
+    public ConnectionLimitHandler(AppConfig.ServerConfig serverConfig) {
+        var admission = serverConfig.getAdmission();
+        this.maxConnections = serverConfig.getMaxConnections();
+        this.acceptBucket = new TokenBucket(admission.getAcceptRatePerSecond(), admission.getAcceptBurst());
+        this.perIpRatePerSecond = admission.getPerIpRatePerSecond();
+        this.perIpBurst = admission.getPerIpBurst();
+        this.ipBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(IP_BUCKET_EXPIRE)
+                .maximumSize(IP_BUCKET_MAX_SIZE)
+                .build();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        //服务端 Channel 的 channelRead 传入的是新 accept 的子连接
+        if (!(msg instanceof Channel)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        var child = (Channel) msg;
+        if (!acceptBucket.tryAcquire()) {
+            reject(child, rejectedByAcceptRate, "accept_rate");
+            return;
+        }
+        if (!tryAcquireIp(child)) {
+            reject(child, rejectedByIpRate, "ip_rate");
+            return;
+        }
+        if (maxConnections > 0 && activeConnections.incrementAndGet() > maxConnections) {
+            activeConnections.decrementAndGet();
+            reject(child, rejectedByMaxConnections, "max_connections");
+            return;
+        }
+        if (maxConnections <= 0)
+            activeConnections.incrementAndGet();
+        accepted.increment();
+        child.closeFuture().addListener(f -> activeConnections.decrementAndGet());
+        ctx.fireChannelRead(child);
+    }
+
+    private boolean tryAcquireIp(Channel child) {
+        if (perIpRatePerSecond <= 0)
+            return true;
+        var addr = child.remoteAddress();
+        if (!(addr instanceof InetSocketAddress) || Objects.isNull(((InetSocketAddress) addr).getAddress()))
+            return true;
+        var ip = ((InetSocketAddress) addr).getAddress();
+        return ipBuckets.get(ip, k -> new TokenBucket(perIpRatePerSecond, perIpBurst)).tryAcquire();
+    }
+
+    //子连接尚未注册到 EventLoop,直接强制关闭
+    private void reject(Channel child, LongAdder counter, String reason) {
+        counter.increment();
+        log.debug("connection rejected, reason={}, remote={}, active={}", reason, child.remoteAddress(), activeConnections.get());
+        child.unsafe().closeForcibly();
+    }
+
+    public int activeConnections() {
+        return activeConnections.get();
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejectedByMaxConnections() {
+        return rejectedByMaxConnections.sum();
+    }
+
+    public long rejectedByAcceptRate() {
+        return rejectedByAcceptRate.sum();
+    }
+
+    public long rejectedByIpRate() {
+        return rejectedByIpRate.sum();
+    }
+}
@@ -1,24 +1,28 @@
 package cn.jascript.zt808.handler;
 
 import cn.jascript.zt808.config.AppConfig;
-import cn.jascript.zt808.constants.MsgId;
 import cn.jascript.zt808.constants.MsgReplyMode;
-import cn.jascript.zt808.forward.ForwardProviderFactory;
+import cn.jascript.zt808.executor.OrderedExecutor;
+import cn.jascript.zt808.forward.ForwardDispatcher;
 import cn.jascript.zt808.message.helper.ReplyHelper;
-import cn.jascript.zt808.message.parser.MsgExtParserProviderFactory;
-import cn.jascript.zt808.message.parser.MsgParserProviderFactory;
+import cn.jascript.zt808.message.parser.MsgDispatchTable;
+import cn.jascript.zt808.metrics.Counter;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.metrics.MsgIdLatency;
 import cn.jascript.zt808.model.TerminalMessage;
 import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
 import cn.jascript.zt808.session.SessionManager;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 业务分发：根据 MessageType 调用对应 Service。
@@ -26,13 +30,29 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class DataEventHandler extends ChannelInboundHandlerAdapter {
 
-    private final AppConfig.DuplicateConfig duplicateConfig = AppConfig.get().getDuplicate();
-    private final DuplicateCache duplicateCache = new DuplicateCache(duplicateConfig.getMaximumSize(), duplicateConfig.getTtlSeconds());
+    //全局共享排重表,所有连接共用
+    private final DuplicateCache duplicateCache = DuplicateCache.getInstance();
 
     private final SessionManager sessionManager = SessionManager.getInstance();
 
-    private final MsgParserProviderFactory msgParserProviderFactory = MsgParserProviderFactory.getInstance();
-    private final MsgExtParserProviderFactory msgExtParserProviderFactory = MsgExtParserProviderFactory.get();
+    //转发:异步开启时仅入队,由转发线程攒批调用 ForwardProvider
+    private final ForwardDispatcher forwardDispatcher = ForwardDispatcher.getInstance();
+    //按终端保序的业务执行器,为空时在当前线程直接处理
+    private final OrderedExecutor executor;
+
+    private static final MsgIdLatency PARSE_LATENCY = Metrics.getInstance().msgIdLatency("zt808_parse_latency_seconds");
+    private static final Counter PARSE_ERRORS = Metrics.getInstance().counter("zt808_parse_errors_total");
+    private static final Counter DUPLICATES = Metrics.getInstance().counter("zt808_dedup_hits_total");
+    private static final Counter UNAUTHORIZED = Metrics.getInstance().counter("zt808_unauthorized_dropped_total");
+    private static final Counter BUSINESS_REJECTED = Metrics.getInstance().counter("zt808_business_rejected_total");
+
+    public DataEventHandler() {
+        this(null);
+    }
+
+    public DataEventHandler(OrderedExecutor executor) {
+        this.executor = executor;
+    }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
@@ -41,12 +61,27 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
             return;
         }
         TerminalMessage message = (TerminalMessage) msg;
+        if (Objects.isNull(executor)) {
+            handle(ctx, message);
+            return;
+        }
+        //同一终端的消息落到同一条带,按上报顺序处理
+        if (!executor.execute(message.getTerminalKey(), () -> handle(ctx, message))) {
+            BUSINESS_REJECTED.increment();
+            log.error("business queue full, message dropped, remote={}, terminalId={}, msgId={}, flowId={}",
+                    ctx.channel().remoteAddress(), message.getTerminalId(), message.getMsgId(), message.getFlowId());
+            ReferenceCountUtil.release(message.getBody());
+        }
+    }
+
+    private void handle(ChannelHandlerContext ctx, TerminalMessage message) {
         //配置MDC上下文
         setupMdc(ctx, message);
         try{
            doChannel(ctx,message);
         }finally {
-            sessionManager.refreshActiveTime(message.getTerminalId());
+            //消息体来自解码器的池化 buffer,处理完成后释放
+            ReferenceCountUtil.release(message.getBody());
             MDC.clear();
         }
     }
@@ -54,15 +89,15 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
     //具体业务处理
     private void doChannel(ChannelHandlerContext ctx, TerminalMessage message){
         int msgId = message.getMsgId();
-        var msgParserProviderOpt = msgParserProviderFactory.getProvider(message.getMsgId());
+        //一次查表取得解析器、扩展解析器、应答模式与鉴权策略
+        var dispatch = MsgDispatchTable.get().entry(msgId);
+        var msgParserProvider = dispatch.getProvider();
         //判断是否已鉴权
-        boolean authorized = sessionManager.findByTerminal(message.getTerminalId())
-                .map(s -> Boolean.TRUE.equals(s.isAuthorized()))
-                .orElse(false);
+        boolean authorized = sessionManager.isAuthorized(message.getTerminalKey());
         //默认使用能用回复
         var replyMode = MsgReplyMode.GENERAL;
         //如果没有配置解析代理,已鉴权回复通用成功回复,未鉴权回复能用失败回复
-        if(msgParserProviderOpt.isEmpty()){
+        if(Objects.isNull(msgParserProvider)){
             log.debug("no msgProvider configured, replay GENERAL. terminalId={}, msgId={}, flowId={}",
                     message.getTerminalId(), message.getMsgId(), message.getFlowId());
             if(authorized) {
@@ -71,16 +106,16 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
                 ReplyHelper.sendGeneralReply(ctx.channel(), message, false);
             }
         }else {
-            var msgParserProvider = msgParserProviderOpt.get();
             // 决定是否回复通用应答：由配置 message.parser.provider[*].replyMode 决定，未配置默认 GENERAL
-            replyMode = msgParserProviderFactory.getReplyMode(msgId);
+            replyMode = dispatch.getReplyMode();
 
             // 未鉴权拦截：
             // - 默认仅允许注册(0x0100)/鉴权(0x0102)
             // - 若存在 Provider，可由 Provider 进一步放行（allowWhenUnauthorized=true）
             // - 被拦截时默认回平台通用应答 0x8001(result=1)
-            boolean allowWhenUnauthorized = MsgId.ALLOW_UNAUTHED_MSGIDS.contains(msgId);
+            boolean allowWhenUnauthorized = dispatch.isAllowUnauthorized();
             if (!authorized && !allowWhenUnauthorized) {
+                UNAUTHORIZED.increment();
                 log.info("unauthorized message dropped, terminalId={}, msgId={}, flowId={}, reply=0x8001(result=1)",
                         message.getTerminalId(), message.getMsgId(), message.getFlowId());
                 if (replyMode != MsgReplyMode.NONE) {
@@ -92,30 +127,34 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
                 ReplyHelper.sendGeneralReply(ctx.channel(), message);
             }
 
-            // 基于 terminalId + msgId + flowId 的短窗口排重：命中则只回包不处理
-            if (duplicateConfig.isEnable()) {
-                var key = buildDuplicateKey(message);
-                if (duplicateCache.seen(key)) {
+            // 基于 连接 + terminalId + msgId + flowId 的短窗口排重：命中则只回包不处理
+            if (AppConfig.get().getDuplicate().isEnable()) {
+                if (duplicateCache.seen(System.identityHashCode(ctx.channel()), message.getTerminalKey(), message.getMsgId(), message.getFlowId())) {
+                    DUPLICATES.increment();
                     log.debug("dup message ignored, terminalId={}, msgId={}, flowId={}",
                             message.getTerminalId(), message.getMsgId(), message.getFlowId());
                     return;
                 }
             }
             List<BaseDTO> dtos;
-
+            //解析耗时:主解析 + 扩展解析
+            long parseStart = System.nanoTime();
             try {
                 dtos = msgParserProvider.parse(ctx.channel(), message);
             } catch (Exception e) {
+                PARSE_ERRORS.increment();
                 log.error("msgProvider parse failed, terminalId={}, msgId={}, flowId={}",
                         message.getTerminalId(), message.getMsgId(), message.getFlowId(), e);
                 return;
             }
-            if (Objects.isNull(dtos) || dtos.isEmpty())
+            if (Objects.isNull(dtos) || dtos.isEmpty()) {
+                PARSE_LATENCY.record(msgId, System.nanoTime() - parseStart);
                 return;
-            var extOpt = msgExtParserProviderFactory.find(message.getMsgId());
-            if (extOpt.isPresent()) {
+            }
+            var ext = dispatch.getExtProvider();
+            if (Objects.nonNull(ext)) {
                 try {
-                    extOpt.get().apply(message, dtos);
+                    ext.apply(message, dtos);
                 } catch (Exception e) {
                     log.error("msgExtProvider apply failed, terminalId={}, msgId={}, flowId={}",
                             message.getTerminalId(), message.getMsgId(), message.getFlowId(), e);
@@ -123,11 +162,16 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
                     //return;
                 }
             }
-            if (Objects.isNull(dtos) || dtos.isEmpty()) {
-                return;
+            PARSE_LATENCY.record(msgId, System.nanoTime() - parseStart);
+            //位置附加信息区间指向消息体,消息体在本次处理结束后释放,转发前清空
+            for (var dto : dtos) {
+                if (dto instanceof LocationDTO)
+                    ((LocationDTO) dto).setExtra(null);
+                else if (dto instanceof LocationRecord)
+                    ((LocationRecord) dto).extra(null);
             }
             try {
-                ForwardProviderFactory.get().forward(dtos);
+                forwardDispatcher.dispatch(message.getTerminalKey(), dtos);
             } catch (Exception e) {
                 log.error("forward failed, terminalId={}, msgId={}, flowId={}, dtoSize={}",
                         message.getTerminalId(), message.getMsgId(), message.getFlowId(), dtos.size(), e);
@@ -146,57 +190,4 @@ public class DataEventHandler extends ChannelInboundHandlerAdapter {
             MDC.put("Port", String.valueOf(inet.getPort()));
         }
     }
-
-    private String buildDuplicateKey(TerminalMessage message) {
-        return message.getTerminalId() + '-' + message.getMsgId() + '-' + message.getFlowId();
-    }
-
-    private static final class DuplicateCache {
-        private final long maxSize;
-        private final long ttlMillis;
-        private final ConcurrentHashMap<String, Long> expireAtMillisByKey = new ConcurrentHashMap<>();
-
-        private DuplicateCache(long maxSize, long ttlSeconds) {
-            this.maxSize = Math.max(1, maxSize);
-            this.ttlMillis = Math.max(1, ttlSeconds) * 1000L;
-        }
-
-        private boolean seen(String key) {
-            if (Objects.isNull(key) || key.isEmpty()) {
-                return false;
-            }
-            long now = System.currentTimeMillis();
-            Long expireAt = expireAtMillisByKey.get(key);
-            if (Objects.nonNull(expireAt)) {
-                if (expireAt > now) {
-                    return true;
-                }
-                expireAtMillisByKey.remove(key, expireAt);
-            }
-            expireAtMillisByKey.put(key, now + ttlMillis);
-            cleanupIfNeeded(now);
-            return false;
-        }
-
-        private void cleanupIfNeeded(long now) {
-            if (expireAtMillisByKey.size() <= maxSize) {
-                return;
-            }
-            for (var it = expireAtMillisByKey.entrySet().iterator(); it.hasNext(); ) {
-                var e = it.next();
-                if (e.getValue() <= now) {
-                    it.remove();
-                }
-            }
-            if (expireAtMillisByKey.size() <= maxSize) {
-                return;
-            }
-            long overflow = expireAtMillisByKey.size() - maxSize;
-            for (var it = expireAtMillisByKey.keySet().iterator(); it.hasNext() && overflow > 0; ) {
-                it.next();
-                it.remove();
-                overflow--;
-            }
-        }
-    }
 }
@@ -0,0 +1,143 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.config.AppConfig;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 上行排重表（全局单例）：连接标识 + terminalId + msgId + flowId 打包为 long 后做 64 位散列，
+ * 存入开放寻址数组，每个槽位为 40 位指纹 | 24 位过期时间(秒)，读写均为单个 long 的 CAS，无锁且单条消息零分配。
+ * 探测窗口内优先复用空槽/过期槽，窗口已满时覆盖最早过期的槽位，淘汰为 O(1)，不会在热路径上扫描全表。
+ * key 中包含连接标识，保持“同一连接内排重”的语义：终端重连后 flowId 归零重发注册/鉴权不会被误判为重复。
+ */
+public final class DuplicateCache {
+
+    //探测窗口长度,窗口内找不到空槽时淘汰最早过期的槽位
+    private static final int MAX_PROBES = 8;
+    private static final int EXPIRE_BITS = 24;
+    private static final long EXPIRE_MASK = (1L << EXPIRE_BITS) - 1;
+    //过期时间按 24 位回绕比较,ttl 需小于半个回绕周期(约 97 天)
+    private static final long HALF_RANGE = 1L << (EXPIRE_BITS - 1);
+    private static final long FINGERPRINT_MASK = (1L << (64 - EXPIRE_BITS)) - 1;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    //支持热重载,已写入的槽位保持原过期时间
+    private volatile long ttlSeconds;
+
+    public DuplicateCache(long maxSize, long ttlSeconds) {
+        // 容量取 2 倍上限后向上对齐到 2 的幂,保证装载率不超过 50%
+        var capacity = (int) Math.min(MAX_CAPACITY, Long.highestOneBit(Math.max(16, maxSize * 2 - 1)) << 1);
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        setTtlSeconds(ttlSeconds);
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = Math.max(1, Math.min(ttlSeconds, HALF_RANGE - 1));
+    }
+
+    public static DuplicateCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final DuplicateCache INSTANCE = create(AppConfig.get().getDuplicate());
+
+        static {
+            AppConfig.addListener((previous, current) -> INSTANCE.setTtlSeconds(current.getDuplicate().getTtlSeconds()));
+        }
+
+        private Holder() {
+        }
+    }
+
+    private static DuplicateCache create(AppConfig.DuplicateConfig config) {
+        return new DuplicateCache(config.getMaximumSize(), config.getTtlSeconds());
+    }
+
+    /**
+     * 判断消息是否在 ttl 内出现过；未出现过则记录并返回 false。
+     */
+    public boolean seen(int scope, long terminalKey, int msgId, int flowId) {
+        return seen(key(scope, terminalKey, msgId, flowId));
+    }
+
+    /**
+     * 按打包后的 key 排重，key 由 {@link #key(int, long, int, int)} 生成。
+     */
+    public boolean seen(long key) {
+        long hash = mix(key);
+        long fingerprint = (hash >>> EXPIRE_BITS) & FINGERPRINT_MASK;
+        //指纹 0 保留给空槽
+        if (fingerprint == 0)
+            fingerprint = 1;
+        long now = nowSeconds();
+        long slotValue = (fingerprint << EXPIRE_BITS) | ((now + ttlSeconds) & EXPIRE_MASK);
+        int start = (int) hash & mask;
+
+        int victim = -1;
+        long victimValue = 0;
+        long victimRemain = Long.MAX_VALUE;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int index = (start + probe) & mask;
+            long current = slots.get(index);
+            //空槽之后不会再有同指纹记录(槽位只覆盖不清空)
+            if (current == 0) {
+                if (slots.compareAndSet(index, 0, slotValue))
+                    return false;
+                current = slots.get(index);
+            }
+            long remain = remainSeconds(current, now);
+            if ((current >>> EXPIRE_BITS) == fingerprint) {
+                if (remain > 0)
+                    return true;
+                //同 key 已过期,原地续期
+                slots.compareAndSet(index, current, slotValue);
+                return false;
+            }
+            if (remain < victimRemain) {
+                victim = index;
+                victimValue = current;
+                victimRemain = remain;
+            }
+        }
+        //窗口内无空槽:复用已过期或最早过期的槽位;CAS 失败说明被并发写入,放弃记录不影响正确性
+        slots.compareAndSet(victim, victimValue, slotValue);
+        return false;
+    }
+
+    /**
+     * 将连接标识、终端号主键(TerminalKey)、msgId、flowId 打包为排重 key：低 32 位为 msgId|flowId，
+     * 高位混入终端号与连接标识。
+     */
+    public static long key(int scope, long terminal, int msgId, int flowId) {
+        long ids = ((long) (msgId & 0xFFFF) << 16) | (flowId & 0xFFFF);
+        return (terminal * 0x9E3779B97F4A7C15L) ^ ((long) scope << 32) ^ ids;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    //剩余有效秒数,<=0 表示已过期
+    private static long remainSeconds(long slotValue, long now) {
+        long diff = ((slotValue & EXPIRE_MASK) - now) & EXPIRE_MASK;
+        return (diff >= HALF_RANGE ? diff - (EXPIRE_MASK + 1) : diff);
+    }
+
+    private static long nowSeconds() {
+        return (System.currentTimeMillis() / 1000) & EXPIRE_MASK;
+    }
+
+    // 64 位散列混淆(murmur3 fmix64)
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.session.Session;
+import cn.jascript.zt808.session.SessionManager;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.util.Objects;
+
+/**
+ * 刷新会话活跃时间：紧随解码器，每个完整帧(含分包重组前的中间分包、鉴权前被丢弃的帧)都计为活跃，由 IdleReaper 统一检测空闲。
+ */
+public class IdleActivityHandler extends ChannelInboundHandlerAdapter {
+
+    //每个连接一个实例,缓存会话避免每次读取查属性
+    private Session session;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (Objects.isNull(session))
+            session = ctx.channel().attr(SessionManager.SESSION).get();
+        if (Objects.nonNull(session))
+            session.setLastActiveTime(System.currentTimeMillis());
+        ctx.fireChannelRead(msg);
+    }
+}
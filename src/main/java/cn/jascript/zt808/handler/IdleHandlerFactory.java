@@ -1,16 +1,17 @@
 package cn.jascript.zt808.handler;
 
-import io.netty.handler.timeout.IdleStateHandler;
-
-import java.util.concurrent.TimeUnit;
-
+/**
+ * 空闲检测装配工厂：全局 IdleReaper(分桶扫描关闭空闲连接)与每个连接的活跃时间刷新处理器。
+ */
 public class IdleHandlerFactory {
-    public static IdleStateHandler getDefaultIdleHandler(){
-        return new IdleStateHandler(300,300,300, TimeUnit.SECONDS);
+
+    public static IdleReaper getIdleReaper() {
+        return IdleReaper.getInstance();
     }
 
-    public static IdleStateHandler getIdleHandler(int idleSeconds){
-        return new IdleStateHandler(idleSeconds,idleSeconds,idleSeconds, TimeUnit.SECONDS);
+    // 需位于解码器之后、分包重组之前
+    public static IdleActivityHandler getIdleHandler() {
+        return new IdleActivityHandler();
     }
 
 }
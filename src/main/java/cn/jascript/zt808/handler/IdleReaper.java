@@ -0,0 +1,157 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.session.Session;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 全局空闲连接回收：替代每个连接的 IdleStateHandler(每连接多个定时任务且频繁重置)。
+ * 会话按通道哈希分桶，HashedWheelTimer 每个 tick 只扫描一个桶，比较 Session.lastActiveTime，超过 idleSeconds 未收到数据的连接批量关闭。
+ */
+@Slf4j
+public final class IdleReaper {
+
+    private final long idleMillis;
+    private final int maxClosePerTick;
+    private final long tickMillis;
+    private final Bucket[] buckets;
+    private final Timer timer;
+    private final LongSupplier clock;
+    private volatile boolean running;
+    private int cursor;
+
+    private final LongAdder reaped = new LongAdder();
+    private final LongAdder sweeps = new LongAdder();
+
+    public static IdleReaper getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final IdleReaper INSTANCE = new IdleReaper(AppConfig.get().getServer(),
+                new HashedWheelTimer(new DefaultThreadFactory("idle-reaper", true), 100, TimeUnit.MILLISECONDS, 512),
+                System::currentTimeMillis);
+
+        private Holder() {
+        }
+    }
+
+    public IdleReaper(AppConfig.ServerConfig config, Timer timer, LongSupplier clock) {
+        this.idleMillis = TimeUnit.SECONDS.toMillis(config.getIdleSeconds());
+        this.maxClosePerTick = Math.max(1, config.getIdleMaxClosePerTick());
+        int bucketCount = Math.max(1, config.getIdleBuckets());
+        this.tickMillis = Math.max(10, TimeUnit.SECONDS.toMillis(Math.max(1, config.getIdleSweepSeconds())) / bucketCount);
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.timer = timer;
+        this.clock = clock;
+        this.running = idleMillis > 0;
+        if (running) {
+            timer.newTimeout(t -> tick(), tickMillis, TimeUnit.MILLISECONDS);
+            log.info("idle reaper started, idleSeconds={}, sweepSeconds={}, buckets={}",
+                    config.getIdleSeconds(), config.getIdleSweepSeconds(), bucketCount);
+        } else {
+            log.info("idle reaper disabled, idleSeconds={}", config.getIdleSeconds());
+        }
+    }
+
+    public void track(Session session) {
+        if (running && Objects.nonNull(session) && Objects.nonNull(session.getChannel()))
+            bucketOf(session.getChannel()).put(session.getChannel(), session);
+    }
+
+    public void untrack(Session session) {
+        if (Objects.nonNull(session) && Objects.nonNull(session.getChannel()))
+            bucketOf(session.getChannel()).remove(session.getChannel(), session);
+    }
+
+    private Map<Channel, Session> bucketOf(Channel channel) {
+        return buckets[(channel.hashCode() & 0x7FFF_FFFF) % buckets.length].sessions;
+    }
+
+    private void tick() {
+        if (!running)
+            return;
+        try {
+            sweep(buckets[cursor].sessions);
+            cursor = (cursor + 1) % buckets.length;
+        } catch (Exception e) {
+            log.error("idle sweep failed", e);
+        } finally {
+            timer.newTimeout(t -> tick(), tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sweep(Map<Channel, Session> bucket) {
+        sweeps.increment();
+        long deadline = clock.getAsLong() - idleMillis;
+        var idle = new ArrayList<Session>();
+        for (var session : bucket.values()) {
+            var channel = session.getChannel();
+            //已关闭但未走到 channelInactive 的会话一并移除
+            if (!channel.isOpen()) {
+                bucket.remove(channel, session);
+                continue;
+            }
+            if (session.getLastActiveTime() <= deadline) {
+                idle.add(session);
+                if (idle.size() >= maxClosePerTick)
+                    break;
+            }
+        }
+        if (idle.isEmpty())
+            return;
+        for (var session : idle) {
+            bucket.remove(session.getChannel(), session);
+            session.getChannel().close();
+        }
+        reaped.add(idle.size());
+        log.info("idle channels reaped, count={}, total={}", idle.size(), reaped.sum());
+    }
+
+    public void stop() {
+        running = false;
+        timer.stop();
+    }
+
+    public boolean isEnabled() {
+        return idleMillis > 0;
+    }
+
+    // 跟踪中的连接数
+    public int tracked() {
+        int n = 0;
+        for (var bucket : buckets) {
+            n += bucket.sessions.size();
+        }
+        return n;
+    }
+
+    // 累计关闭的空闲连接数
+    public long reaped() {
+        return reaped.sum();
+    }
+
+    public long sweeps() {
+        return sweeps.sum();
+    }
+
+    //Session 为 @Data(按字段计算哈希),以通道作为键
+    private static final class Bucket {
+        private final Map<Channel, Session> sessions = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,149 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.metrics.Counter;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.session.SessionManager;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接协议健康检查，位于解码器之后、每个连接一个实例：
+ * 窗口内容忍少量错误帧(解码异常)而不立即断开；鉴权前按固定周期检查有效帧速率与鉴权期限，
+ * 不达标的慢速/垃圾数据连接直接关闭。鉴权成功后不再检查，后续由 IdleReaper 负责空闲回收。
+ * 定时检查为事件循环上的单个任务，不随读事件重置。
+ */
+@Slf4j
+public class ProtocolHealthHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Counter CLOSED_CORRUPT = closed("corrupt_frames");
+    private static final Counter CLOSED_AUTH_TIMEOUT = closed("auth_timeout");
+    private static final Counter CLOSED_SLOW = closed("slow_rate");
+    private static final Counter TOLERATED = Metrics.getInstance().counter("zt808_corrupt_frames_tolerated_total");
+
+    private static Counter closed(String reason) {
+        return Metrics.getInstance().counter("zt808_connections_closed_total", "reason", reason);
+    }
+
+    private final int maxCorruptFrames;
+    private final long corruptWindowNanos;
+    private final long authTimeoutMillis;
+    private final int minBytesPerSecond;
+    private final long rateWindowMillis;
+
+    private int corruptFrames;
+    private long corruptWindowStart;
+    //鉴权前收到的有效帧字节数与已经过的检查时长
+    private long bytes;
+    private long elapsedMillis;
+    private ScheduledFuture<?> check;
+
+    public ProtocolHealthHandler() {
+        this(AppConfig.get().getServer().getGuard());
+    }
+
+    public ProtocolHealthHandler(AppConfig.GuardConfig config) {
+        this.maxCorruptFrames = config.getMaxCorruptFrames();
+        this.corruptWindowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getCorruptWindowSeconds()));
+        this.authTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, config.getAuthTimeoutSeconds()));
+        this.minBytesPerSecond = Math.max(0, config.getMinBytesPerSecond());
+        this.rateWindowMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getRateWindowSeconds()));
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        schedule(ctx);
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (Objects.nonNull(check) && msg instanceof TerminalMessage)
+            bytes += Protocol.MIN_FRAME_LENGTH + ((TerminalMessage) msg).getBodyLen();
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        cancel();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        //解码异常只丢弃当前帧,窗口内未超限时保持连接
+        if (cause instanceof DecoderException && tolerate()) {
+            TOLERATED.increment();
+            log.info("corrupt frame tolerated, remote={}, count={}/{}, cause={}",
+                    ctx.channel().remoteAddress(), corruptFrames, maxCorruptFrames, cause.getMessage());
+            return;
+        }
+        if (cause instanceof DecoderException)
+            CLOSED_CORRUPT.increment();
+        ctx.fireExceptionCaught(cause);
+    }
+
+    private boolean tolerate() {
+        if (maxCorruptFrames <= 0)
+            return false;
+        long now = System.nanoTime();
+        if (corruptFrames == 0 || now - corruptWindowStart > corruptWindowNanos) {
+            corruptWindowStart = now;
+            corruptFrames = 0;
+        }
+        return ++corruptFrames <= maxCorruptFrames;
+    }
+
+    private void schedule(ChannelHandlerContext ctx) {
+        long delay = nextDelay();
+        if (delay > 0)
+            check = ctx.executor().schedule(() -> check(ctx, delay), delay, TimeUnit.MILLISECONDS);
+    }
+
+    //下次检查:速率检测开启时每个周期一次,否则直接到鉴权期限
+    private long nextDelay() {
+        long delay = minBytesPerSecond > 0 ? rateWindowMillis : Long.MAX_VALUE;
+        if (authTimeoutMillis > 0)
+            delay = Math.min(delay, authTimeoutMillis - elapsedMillis);
+        return delay == Long.MAX_VALUE ? 0 : delay;
+    }
+
+    private void check(ChannelHandlerContext ctx, long delay) {
+        check = null;
+        if (!ctx.channel().isActive())
+            return;
+        var session = ctx.channel().attr(SessionManager.SESSION).get();
+        if (Objects.nonNull(session) && session.isAuthorized())
+            return;
+        elapsedMillis += delay;
+        if (authTimeoutMillis > 0 && elapsedMillis >= authTimeoutMillis) {
+            CLOSED_AUTH_TIMEOUT.increment();
+            log.info("auth timeout, closing, remote={}, elapsedMillis={}", ctx.channel().remoteAddress(), elapsedMillis);
+            ctx.close();
+            return;
+        }
+        if (minBytesPerSecond > 0 && bytes * 1000 < minBytesPerSecond * elapsedMillis) {
+            CLOSED_SLOW.increment();
+            log.info("byte rate too low before auth, closing, remote={}, bytes={}, elapsedMillis={}",
+                    ctx.channel().remoteAddress(), bytes, elapsedMillis);
+            ctx.close();
+            return;
+        }
+        schedule(ctx);
+    }
+
+    private void cancel() {
+        if (Objects.nonNull(check)) {
+            check.cancel(false);
+            check = null;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package cn.jascript.zt808.handler;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.message.helper.ReplyHelper;
+import cn.jascript.zt808.message.parser.MsgDispatchTable;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.session.FlowIdGenerator;
+import cn.jascript.zt808.session.SessionManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分包重组：按 终端 + msgId + 首包流水号 收集分包，收齐后以 CompositeByteBuf 拼接(不拷贝)为一条完整消息向后传递。
+ * 中间分包逐包回通用应答，最后一包的应答交给业务处理；超时未收齐时下发 0x8003 补传缺失分包，补传次数用尽后丢弃。
+ * 每个连接一个实例，运行在 IO 线程；单终端(按连接)与全局重组字节均有上限，超限的分包直接拒绝。
+ */
+@Slf4j
+public class SplitPacketHandler extends ChannelInboundHandlerAdapter {
+
+    //底层 buffer 比分包大出该值时拷贝为独立 buffer,避免长时间持有整块累积缓冲区
+    private static final int DETACH_THRESHOLD = 1024;
+
+    private static final AtomicLong GLOBAL_BYTES = new AtomicLong();
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder TIMED_OUT = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder RETRANSMIT_REQUESTS = new LongAdder();
+    private static final FlowIdGenerator FLOW_ID_GENERATOR = new FlowIdGenerator();
+
+    private final AppConfig.SplitConfig config;
+    private final SessionManager sessionManager = SessionManager.getInstance();
+    private final Map<PendingKey, Pending> pendings = new HashMap<>(4);
+    private int pendingBytes;
+
+    public SplitPacketHandler() {
+        this(AppConfig.get().getServer().getSplit());
+    }
+
+    public SplitPacketHandler(AppConfig.SplitConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof TerminalMessage) || !config.isEnable() || !((TerminalMessage) msg).isSplit()) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        var message = (TerminalMessage) msg;
+        int total = message.getTotalPackets();
+        int seq = message.getPacketSeq();
+        //总包数为 1 时即为完整消息
+        if (total == 1 && seq == 1) {
+            ctx.fireChannelRead(message);
+            return;
+        }
+        if (seq < 1 || seq > total || total > config.getMaxPackets()) {
+            log.info("split packet invalid, terminalId={}, msgId=0x{}, flowId={}, total={}, seq={}",
+                    message.getTerminalId(), Integer.toHexString(message.getMsgId()), message.getFlowId(), total, seq);
+            reject(ctx, message, 2);
+            return;
+        }
+        //未鉴权终端仅允许注册/鉴权消息,与业务处理保持一致
+        if (!MsgDispatchTable.get().entry(message.getMsgId()).isAllowUnauthorized() && !isAuthorized(message)) {
+            reject(ctx, message, 1);
+            return;
+        }
+
+        int firstFlowId = (message.getFlowId() - (seq - 1)) & 0xFFFF;
+        var key = new PendingKey(message.getTerminalKey(), message.getMsgId(), firstFlowId);
+        var pending = pendings.get(key);
+        if (Objects.isNull(pending)) {
+            if (pendings.size() >= config.getMaxPendingPerTerminal()) {
+                log.info("split pending limit reached, terminalId={}, msgId=0x{}, pending={}",
+                        message.getTerminalId(), Integer.toHexString(message.getMsgId()), pendings.size());
+                reject(ctx, message, 1);
+                return;
+            }
+            pending = new Pending(key, message.getTerminalId(), total);
+            pendings.put(key, pending);
+            schedule(ctx, pending);
+        } else if (pending.total != total) {
+            log.info("split total mismatch, terminalId={}, msgId=0x{}, firstFlowId={}, total={}/{}",
+                    message.getTerminalId(), Integer.toHexString(message.getMsgId()), firstFlowId, pending.total, total);
+            reject(ctx, message, 2);
+            return;
+        }
+
+        //重复分包(终端重传)只回包
+        if (Objects.nonNull(pending.parts[seq - 1])) {
+            ReferenceCountUtil.release(message.getBody());
+            ReplyHelper.sendGeneralReply(ctx.channel(), message, true);
+            return;
+        }
+
+        int bytes = message.getBody().readableBytes();
+        if (pendingBytes + bytes > config.getMaxBytesPerTerminal() || GLOBAL_BYTES.get() + bytes > config.getMaxGlobalBytes()) {
+            log.info("split bytes limit reached, discard, terminalId={}, msgId=0x{}, terminalBytes={}, globalBytes={}",
+                    message.getTerminalId(), Integer.toHexString(message.getMsgId()), pendingBytes, GLOBAL_BYTES.get());
+            discard(pending);
+            reject(ctx, message, 1);
+            return;
+        }
+        pending.parts[seq - 1] = detach(ctx, message.getBody());
+        pending.received++;
+        pending.bytes += bytes;
+        pendingBytes += bytes;
+        GLOBAL_BYTES.addAndGet(bytes);
+
+        if (pending.received < pending.total) {
+            ReplyHelper.sendGeneralReply(ctx.channel(), message, true);
+            return;
+        }
+        complete(ctx, pending, message);
+    }
+
+    private void complete(ChannelHandlerContext ctx, Pending pending, TerminalMessage last) {
+        remove(pending);
+        var body = ctx.alloc().compositeBuffer(pending.total);
+        //分包所有权转移给 CompositeByteBuf,随完整消息体一起释放
+        body.addComponents(true, pending.parts);
+        COMPLETED.increment();
+        log.debug("split packet assembled, terminalId={}, msgId=0x{}, firstFlowId={}, total={}, bytes={}",
+                last.getTerminalId(), Integer.toHexString(last.getMsgId()), pending.key.firstFlowId, pending.total, body.readableBytes());
+        //流水号取最后一包,业务层对其应答
+        ctx.fireChannelRead(new TerminalMessage(last.getTerminalId(), last.getTerminalKey(), last.getMsgId(), last.getFlowId(),
+                body.readableBytes(), body, 0, 0));
+    }
+
+    private void schedule(ChannelHandlerContext ctx, Pending pending) {
+        pending.timeout = ctx.executor().schedule(() -> onTimeout(ctx, pending), config.getTimeoutSeconds(), TimeUnit.SECONDS);
+    }
+
+    private void onTimeout(ChannelHandlerContext ctx, Pending pending) {
+        if (pendings.get(pending.key) != pending)
+            return;
+        if (pending.retransmits >= config.getMaxRetransmit() || !ctx.channel().isActive()) {
+            TIMED_OUT.increment();
+            log.info("split packet timeout, discard, terminalId={}, msgId=0x{}, firstFlowId={}, received={}/{}",
+                    pending.terminalId, Integer.toHexString(pending.key.msgId), pending.key.firstFlowId, pending.received, pending.total);
+            discard(pending);
+            return;
+        }
+        pending.retransmits++;
+        var missing = new int[pending.total - pending.received];
+        int n = 0;
+        for (int i = 0; i < pending.total; i++) {
+            if (Objects.isNull(pending.parts[i]))
+                missing[n++] = i + 1;
+        }
+        RETRANSMIT_REQUESTS.increment();
+        log.info("split packet retransmit request, terminalId={}, msgId=0x{}, firstFlowId={}, missing={}, retry={}",
+                pending.terminalId, Integer.toHexString(pending.key.msgId), pending.key.firstFlowId, n, pending.retransmits);
+        ReplyHelper.sendRetransmitRequest(ctx.channel(), pending.terminalId, FLOW_ID_GENERATOR.nextFlowId(pending.terminalId),
+                pending.key.firstFlowId, missing, n);
+        schedule(ctx, pending);
+    }
+
+    // 拒绝分包:释放消息体并回通用应答
+    private static void reject(ChannelHandlerContext ctx, TerminalMessage message, int result) {
+        REJECTED.increment();
+        ReferenceCountUtil.release(message.getBody());
+        ReplyHelper.sendGeneralReply(ctx.channel(), message, result);
+    }
+
+    private void discard(Pending pending) {
+        remove(pending);
+        for (var part : pending.parts) {
+            ReferenceCountUtil.release(part);
+        }
+    }
+
+    private void remove(Pending pending) {
+        pendings.remove(pending.key);
+        if (Objects.nonNull(pending.timeout))
+            pending.timeout.cancel(false);
+        pendingBytes -= pending.bytes;
+        GLOBAL_BYTES.addAndGet(-pending.bytes);
+    }
+
+    // 分包若只是大块缓冲区中的一小段,拷贝出来,重组期间只占用分包本身大小
+    private static ByteBuf detach(ChannelHandlerContext ctx, ByteBuf body) {
+        var parent = body.unwrap();
+        if (Objects.isNull(parent) || parent.capacity() - body.readableBytes() <= DETACH_THRESHOLD)
+            return body;
+        var copy = ctx.alloc().buffer(body.readableBytes());
+        copy.writeBytes(body);
+        body.release();
+        return copy;
+    }
+
+    private boolean isAuthorized(TerminalMessage message) {
+        return sessionManager.isAuthorized(message.getTerminalKey());
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        for (var pending : pendings.values().toArray(new Pending[0])) {
+            discard(pending);
+        }
+    }
+
+    public int pendingCount() {
+        return pendings.size();
+    }
+
+    public static long globalPendingBytes() {
+        return GLOBAL_BYTES.get();
+    }
+
+    public static long completed() {
+        return COMPLETED.sum();
+    }
+
+    public static long timedOut() {
+        return TIMED_OUT.sum();
+    }
+
+    public static long rejected() {
+        return REJECTED.sum();
+    }
+
+    public static long retransmitRequests() {
+        return RETRANSMIT_REQUESTS.sum();
+    }
+
+    private static final class PendingKey {
+        private final long terminalKey;
+        private final int msgId;
+        private final int firstFlowId;
+
+        private PendingKey(long terminalKey, int msgId, int firstFlowId) {
+            this.terminalKey = terminalKey;
+            this.msgId = msgId;
+            this.firstFlowId = firstFlowId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof PendingKey))
+                return false;
+            var other = (PendingKey) o;
+            return terminalKey == other.terminalKey && msgId == other.msgId && firstFlowId == other.firstFlowId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(terminalKey) * 31 * 31 + msgId * 31 + firstFlowId;
+        }
+    }
+
+    private static final class Pending {
+        private final PendingKey key;
+        private final String terminalId;
+        private final int total;
+        private final ByteBuf[] parts;
+        private int received;
+        private int bytes;
+        private int retransmits;
+        private ScheduledFuture<?> timeout;
+
+        private Pending(PendingKey key, String terminalId, int total) {
+            this.key = key;
+            this.terminalId = terminalId;
+            this.total = total;
+            this.parts = new ByteBuf[total];
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package cn.jascript.zt808.http;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.message.sender.queue.TextMessage;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.session.SessionManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 管理接口：健康检查、在线会话、指标与批量文本下发。
+ * 均为内存操作(文本下发只入队，由 TextQueueManager 经 MsgSenderProvider 发送)，在 HTTP IO 线程内完成，不阻塞终端接入。
+ */
+@Slf4j
+public class AdminRoutes {
+
+    private static final Charset GBK = Charset.forName("GBK");
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final SessionManager sessionManager;
+    private final TextQueueManager textQueueManager;
+    private final Metrics metrics;
+
+    public AdminRoutes(SessionManager sessionManager, TextQueueManager textQueueManager, Metrics metrics) {
+        this.sessionManager = sessionManager;
+        this.textQueueManager = textQueueManager;
+        this.metrics = metrics;
+    }
+
+    public void register(HttpApiServer server, AppConfig.HttpApiConfig config) {
+        if (config.isHealth())
+            server.route("/health", request -> health());
+        if (config.isMetrics())
+            server.route("/metrics", request -> HttpApiServer.text(HttpResponseStatus.OK, PROMETHEUS_TEXT, metrics.scrape()));
+        if (config.isSessions())
+            server.route("/sessions", this::sessions);
+        if (config.isSendText())
+            server.route("/text/send", request -> sendText(request, Math.max(1, config.getSendTextMaxBatch())));
+    }
+
+    private FullHttpResponse health() throws JsonProcessingException {
+        var body = new LinkedHashMap<String, Object>();
+        body.put("status", "UP");
+        body.put("uptimeMillis", ManagementFactory.getRuntimeMXBean().getUptime());
+        body.put("sessions", sessionManager.onlineCount());
+        body.put("channels", sessionManager.channelCount());
+        body.put("textQueued", textQueueManager.queued());
+        return json(HttpResponseStatus.OK, body);
+    }
+
+    /**
+     * GET /sessions[?limit=n]：分块流式输出，不在内存中拼接完整列表。
+     */
+    private HttpResponse sessions(FullHttpRequest request) {
+        var params = new QueryStringDecoder(request.uri()).parameters();
+        int limit = Integer.MAX_VALUE;
+        var limitParam = params.get("limit");
+        if (Objects.nonNull(limitParam) && !limitParam.isEmpty()) {
+            try {
+                limit = Integer.parseInt(limitParam.get(0));
+            } catch (NumberFormatException e) {
+                return HttpApiServer.text(HttpResponseStatus.BAD_REQUEST, HttpApiServer.TEXT_PLAIN, "invalid limit\n");
+            }
+        }
+        return new ChunkedResponse(HttpResponseStatus.OK, HttpApiServer.APPLICATION_JSON,
+                new SessionJsonInput(sessionManager.terminalSessions().iterator(), limit));
+    }
+
+    /**
+     * POST /text/send：{"terminalIds":["..."],"text":"...","urgent":false}，逐个终端入文本下发队列。
+     */
+    private FullHttpResponse sendText(FullHttpRequest request, int maxBatch) throws IOException {
+        if (!HttpMethod.POST.equals(request.method()))
+            return HttpApiServer.text(HttpResponseStatus.METHOD_NOT_ALLOWED, HttpApiServer.TEXT_PLAIN, "POST required\n");
+        SendTextRequest send;
+        try (var in = new ByteBufInputStream(request.content())) {
+            send = OBJECT_MAPPER.readValue((InputStream) in, SendTextRequest.class);
+        } catch (JsonProcessingException e) {
+            return HttpApiServer.text(HttpResponseStatus.BAD_REQUEST, HttpApiServer.TEXT_PLAIN, "invalid json\n");
+        }
+        var error = validate(send, maxBatch);
+        if (Objects.nonNull(error))
+            return HttpApiServer.text(HttpResponseStatus.BAD_REQUEST, HttpApiServer.TEXT_PLAIN, error + "\n");
+
+        int flag = send.getFlag() | (send.isUrgent() ? TextMessage.FLAG_URGENT : 0);
+        var results = new ArrayList<Map<String, Object>>(send.getTerminalIds().size());
+        int accepted = 0;
+        for (var terminalId : send.getTerminalIds()) {
+            var result = new LinkedHashMap<String, Object>();
+            result.put("terminalId", terminalId);
+            var message = textQueueManager.submit(terminalId, flag, send.getText());
+            if (message.isPresent()) {
+                result.put("id", message.get().getId());
+                accepted++;
+            } else {
+                result.put("error", "rejected");
+            }
+            results.add(result);
+        }
+        var body = new LinkedHashMap<String, Object>();
+        body.put("accepted", accepted);
+        body.put("rejected", results.size() - accepted);
+        body.put("results", results);
+        log.info("http send text, terminals={}, accepted={}", results.size(), accepted);
+        return json(HttpResponseStatus.OK, body);
+    }
+
+    private static String validate(SendTextRequest send, int maxBatch) {
+        if (Objects.isNull(send) || Objects.isNull(send.getTerminalIds()) || send.getTerminalIds().isEmpty())
+            return "terminalIds required";
+        if (send.getTerminalIds().size() > maxBatch)
+            return "too many terminalIds, max=" + maxBatch;
+        for (var terminalId : send.getTerminalIds()) {
+            if (StringUtils.isBlank(terminalId) || !StringUtils.isNumeric(terminalId) || terminalId.length() > 12)
+                return "invalid terminalId: " + terminalId;
+        }
+        if (StringUtils.isEmpty(send.getText()))
+            return "text required";
+        //消息体 = 标志(1) + GBK 文本
+        if (send.getText().getBytes(GBK).length + 1 > Protocol.MAX_BODY_LENGTH)
+            return "text too long";
+        return null;
+    }
+
+    private static FullHttpResponse json(HttpResponseStatus status, Object body) throws JsonProcessingException {
+        var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.wrappedBuffer(OBJECT_MAPPER.writeValueAsBytes(body)));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpApiServer.APPLICATION_JSON);
+        return response;
+    }
+
+    @Data
+    public static class SendTextRequest {
+        private List<String> terminalIds;
+        private String text;
+        /**
+         * 0x8300 文本标志位，urgent 为 true 时附加 bit0
+         */
+        private int flag;
+        private boolean urgent;
+    }
+}
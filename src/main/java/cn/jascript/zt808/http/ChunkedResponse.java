@@ -0,0 +1,29 @@
+package cn.jascript.zt808.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedInput;
+
+/**
+ * 分块响应：响应头之后由 ChunkedWriteHandler 逐块拉取 body，通道不可写时暂停，大列表不会整体驻留内存。
+ */
+public class ChunkedResponse extends DefaultHttpResponse {
+
+    private final HttpChunkedInput body;
+
+    public ChunkedResponse(HttpResponseStatus status, String contentType, ChunkedInput<ByteBuf> body) {
+        super(HttpVersion.HTTP_1_1, status);
+        this.body = new HttpChunkedInput(body);
+        headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+    }
+
+    public HttpChunkedInput getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,166 @@
+package cn.jascript.zt808.http;
+
+import cn.jascript.zt808.config.AppConfig;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内置 HTTP 接口：独立的单线程事件循环，与终端接入的 IO 线程隔离；按路径精确匹配已注册的 HttpRoute。
+ * 开启 basicAuth 时所有路径先校验 Authorization 头。
+ */
+@Slf4j
+public class HttpApiServer {
+
+    public static final String TEXT_PLAIN = "text/plain; charset=utf-8";
+    public static final String APPLICATION_JSON = "application/json; charset=utf-8";
+
+    private static final int MAX_CONTENT_LENGTH = 1024 * 1024;
+
+    private final AppConfig.HttpApiConfig config;
+    private final Map<String, HttpRoute> routes = new ConcurrentHashMap<>();
+    //期望的 Authorization 头,未开启认证时为空
+    private final byte[] authorization;
+    private EventLoopGroup group;
+    private Channel serverChannel;
+
+    public HttpApiServer(AppConfig.HttpApiConfig config) {
+        this.config = config;
+        var basicAuth = config.getBasicAuth();
+        this.authorization = Objects.nonNull(basicAuth) && basicAuth.isEnable()
+                ? ("Basic " + Base64.getEncoder().encodeToString((basicAuth.getUser() + ":" + basicAuth.getPasswd())
+                .getBytes(StandardCharsets.UTF_8))).getBytes(StandardCharsets.UTF_8)
+                : null;
+    }
+
+    public HttpApiServer route(String path, HttpRoute route) {
+        routes.put(path, route);
+        return this;
+    }
+
+    /**
+     * @return 实际监听端口(配置为 0 时由系统分配)
+     */
+    public int start() throws InterruptedException {
+        group = new NioEventLoopGroup(1, new DefaultThreadFactory("http-api", true));
+        var dispatcher = new Dispatcher();
+        var bootstrap = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                                .addLast(new ChunkedWriteHandler())
+                                .addLast(dispatcher);
+                    }
+                });
+        var address = StringUtils.isBlank(config.getBindAddress())
+                ? new InetSocketAddress(config.getPort())
+                : new InetSocketAddress(config.getBindAddress().trim(), config.getPort());
+        serverChannel = bootstrap.bind(address).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        log.info("http api listening on {}, routes={}, basicAuth={}", serverChannel.localAddress(), routes.keySet(),
+                Objects.nonNull(authorization));
+        return port;
+    }
+
+    public void stop() {
+        if (Objects.nonNull(serverChannel))
+            serverChannel.close();
+        if (Objects.nonNull(group))
+            group.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    public static FullHttpResponse text(HttpResponseStatus status, String contentType, String body) {
+        var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        return response;
+    }
+
+    private boolean authorized(FullHttpRequest request) {
+        if (Objects.isNull(authorization))
+            return true;
+        var header = request.headers().get(HttpHeaderNames.AUTHORIZATION);
+        return Objects.nonNull(header) && MessageDigest.isEqual(authorization, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ChannelHandler.Sharable
+    private final class Dispatcher extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            var path = new QueryStringDecoder(request.uri()).path();
+            var route = routes.get(path);
+            HttpResponse response;
+            if (!authorized(request)) {
+                response = text(HttpResponseStatus.UNAUTHORIZED, TEXT_PLAIN, "unauthorized\n");
+                response.headers().set(HttpHeaderNames.WWW_AUTHENTICATE, "Basic realm=\"zt808\"");
+            } else if (Objects.isNull(route)) {
+                response = text(HttpResponseStatus.NOT_FOUND, TEXT_PLAIN, "not found\n");
+            } else {
+                try {
+                    response = route.handle(request);
+                } catch (Exception e) {
+                    log.error("http api failed, path={}", path, e);
+                    response = text(HttpResponseStatus.INTERNAL_SERVER_ERROR, TEXT_PLAIN, "internal error\n");
+                }
+            }
+            boolean keepAlive = HttpUtil.isKeepAlive(request);
+            HttpUtil.setKeepAlive(response, keepAlive);
+            ChannelFuture future;
+            if (response instanceof ChunkedResponse) {
+                ctx.write(response);
+                future = ctx.writeAndFlush(((ChunkedResponse) response).getBody());
+            } else {
+                var full = (FullHttpResponse) response;
+                HttpUtil.setContentLength(full, full.content().readableBytes());
+                future = ctx.writeAndFlush(full);
+            }
+            if (!keepAlive)
+                future.addListener(ChannelFutureListener.CLOSE);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("http api channel exception, remote={}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package cn.jascript.zt808.http;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * HTTP 接口处理，在 HTTP IO 线程调用，不可长时间阻塞。
+ * 返回 FullHttpResponse 一次写出；返回 ChunkedResponse 时按分块编码流式写出，受通道可写性控制。
+ */
+@FunctionalInterface
+public interface HttpRoute {
+
+    HttpResponse handle(FullHttpRequest request) throws Exception;
+}
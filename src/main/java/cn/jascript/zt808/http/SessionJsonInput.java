@@ -0,0 +1,105 @@
+package cn.jascript.zt808.http;
+
+import cn.jascript.zt808.session.Session;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * 在线会话列表的流式 JSON：每次拉取时从会话迭代器取一批写入一个分块，整体输出
+ * {"sessions":[{...},...],"count":n}。迭代器为弱一致视图，不复制会话表。
+ */
+public class SessionJsonInput implements ChunkedInput<ByteBuf> {
+
+    private static final int SESSIONS_PER_CHUNK = 256;
+    private static final int CHUNK_INITIAL_CAPACITY = 32 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Iterator<Session> sessions;
+    private final int limit;
+    private int written;
+    private boolean started;
+    private boolean ended;
+
+    public SessionJsonInput(Iterator<Session> sessions, int limit) {
+        this.sessions = sessions;
+        this.limit = Math.max(0, limit);
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return ended;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (ended)
+            return null;
+        var buf = allocator.buffer(CHUNK_INITIAL_CAPACITY);
+        try (var gen = JSON_FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(buf))) {
+            //分块间手动写分隔符,根级值之间不插入空格
+            gen.setRootValueSeparator(null);
+            if (!started) {
+                gen.writeRaw("{\"sessions\":[");
+                started = true;
+            }
+            int n = 0;
+            while (n < SESSIONS_PER_CHUNK && written < limit && sessions.hasNext()) {
+                var session = sessions.next();
+                if (written > 0)
+                    gen.writeRaw(',');
+                write(gen, session);
+                written++;
+                n++;
+            }
+            if (written >= limit || !sessions.hasNext()) {
+                gen.writeRaw("],\"count\":" + written + "}\n");
+                ended = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return buf;
+    }
+
+    private static void write(JsonGenerator gen, Session session) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("terminalId", session.getTerminalId());
+        if (Objects.nonNull(session.getRemoteAddress()))
+            gen.writeStringField("remoteAddress", session.getRemoteAddress().toString());
+        gen.writeBooleanField("authorized", session.isAuthorized());
+        gen.writeNumberField("lastActiveTime", session.getLastActiveTime());
+        gen.writeEndObject();
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return written;
+    }
+}
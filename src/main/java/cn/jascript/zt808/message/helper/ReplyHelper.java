@@ -1,10 +1,11 @@
 package cn.jascript.zt808.message.helper;
 
 import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.metrics.LatencyHistogram;
+import cn.jascript.zt808.metrics.Metrics;
 import cn.jascript.zt808.model.PlatformMessage;
 import cn.jascript.zt808.model.TerminalMessage;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 
 import java.util.Objects;
@@ -14,6 +15,9 @@ import java.util.Objects;
  */
 public class ReplyHelper {
 
+    //从提交写入到写出完成(含切换到 IO 线程、编码与 flush)
+    private static final LatencyHistogram REPLY_WRITE_LATENCY = Metrics.getInstance().histogram("zt808_reply_write_latency_seconds");
+
     private ReplyHelper() {
     }
 
@@ -32,16 +36,42 @@ public class ReplyHelper {
         if (Objects.isNull(channel) || !channel.isActive())
             return;
 
-        ByteBuf body = Unpooled.buffer(5);
+        //池化消息体,编码后由编码器释放
+        ByteBuf body = channel.alloc().buffer(5);
         body.writeShort(message.getFlowId());
         body.writeShort(message.getMsgId());
         body.writeByte(result & 0xFF); // 0:成功, 1:失败, 2:消息有误, 3:不支持
 
         var reply = new PlatformMessage();
         reply.setTerminalId(message.getTerminalId());
+        reply.setTerminalKey(message.getTerminalKey());
         reply.setMsgId(MsgId.PLATFORM_GENERAL_REPLY);
         reply.setFlowId(message.getFlowId());
         reply.setBody(body);
-        channel.writeAndFlush(reply);
+        long start = System.nanoTime();
+        channel.writeAndFlush(reply).addListener(f -> REPLY_WRITE_LATENCY.recordSince(start));
+    }
+
+    /**
+     * 发送补传分包请求 (0x8003)：原始消息流水号(首包) + 重传包总数 + 重传包 ID 列表。
+     */
+    public static void sendRetransmitRequest(Channel channel, String terminalId, int flowId, int firstFlowId, int[] packetIds, int count) {
+        if (Objects.isNull(channel) || !channel.isActive() || count <= 0)
+            return;
+        //重传包总数为 BYTE,单次最多请求 255 个
+        int n = Math.min(count, 0xFF);
+        ByteBuf body = channel.alloc().buffer(3 + n * 2);
+        body.writeShort(firstFlowId);
+        body.writeByte(n);
+        for (int i = 0; i < n; i++) {
+            body.writeShort(packetIds[i]);
+        }
+
+        var request = new PlatformMessage();
+        request.setTerminalId(terminalId);
+        request.setMsgId(MsgId.RETRANSMIT_REQUEST);
+        request.setFlowId(flowId);
+        request.setBody(body);
+        channel.writeAndFlush(request);
     }
 }
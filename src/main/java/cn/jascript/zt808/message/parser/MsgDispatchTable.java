@@ -0,0 +1,190 @@
+package cn.jascript.zt808.message.parser;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.constants.MsgReplyMode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * msgId 分发表：长度 65536 的数组，下标即 msgId，每项为该 msgId 的解析器、扩展解析器、应答模式与鉴权策略。
+ * 启动时按配置一次性反射创建全部 Provider，配置重载时整体重建并替换引用；热路径为一次 volatile 读 + 一次数组读，无分配。
+ * 未配置的 msgId 指向共享的 UNMAPPED 项，不会重复反射。
+ */
+@Slf4j
+public final class MsgDispatchTable {
+
+    public static final int SIZE = 1 << 16;
+
+    private static final String PROVIDER_PREFIX = "message.parser.provider";
+    private static final String EXT_PROVIDER_PREFIX = "message.parser.extProvider";
+    private static final Entry UNMAPPED = new Entry(null, null, MsgReplyMode.GENERAL, false);
+
+    private static volatile MsgDispatchTable current = build(AppConfig.get(), null);
+
+    static {
+        log.info("msg dispatch table built, mapped={}", current.mappedCount);
+        AppConfig.addListener((previous, config) -> reload(config));
+    }
+
+    private final Entry[] entries;
+    //FQCN -> 实例,重建时复用未变化的实现,同一实现类只创建一个实例
+    private final Map<String, Object> instances;
+    private final Map<String, String> providerConfig;
+    private final Map<String, String> extProviderConfig;
+    private final int mappedCount;
+
+    private MsgDispatchTable(Entry[] entries, Map<String, Object> instances,
+                             Map<String, String> providerConfig, Map<String, String> extProviderConfig, int mappedCount) {
+        this.entries = entries;
+        this.instances = instances;
+        this.providerConfig = providerConfig;
+        this.extProviderConfig = extProviderConfig;
+        this.mappedCount = mappedCount;
+    }
+
+    public static MsgDispatchTable get() {
+        return current;
+    }
+
+    private static synchronized void reload(AppConfig config) {
+        var previous = current;
+        var providerConfig = config.getFlatValuesByPrefix(PROVIDER_PREFIX);
+        var extProviderConfig = config.getFlatValuesByPrefix(EXT_PROVIDER_PREFIX);
+        if (providerConfig.equals(previous.providerConfig) && extProviderConfig.equals(previous.extProviderConfig))
+            return;
+        current = build(config, previous);
+        log.info("msg dispatch table rebuilt, mapped={}", current.mappedCount);
+    }
+
+    /**
+     * 按配置构建分发表，previous 非空时复用其中同类名的实例。
+     */
+    public static MsgDispatchTable build(AppConfig config, MsgDispatchTable previous) {
+        var providerConfig = config.getFlatValuesByPrefix(PROVIDER_PREFIX);
+        var extProviderConfig = config.getFlatValuesByPrefix(EXT_PROVIDER_PREFIX);
+        var reuse = Objects.isNull(previous) ? Map.<String, Object>of() : previous.instances;
+        var instances = new HashMap<String, Object>();
+
+        var providers = new MsgParserProvider[SIZE];
+        for (var e : MsgParserProviderFactory.buildProviderByMsgId(providerConfig).entrySet()) {
+            int msgId = parseMsgId(e.getKey());
+            if (msgId >= 0)
+                providers[msgId] = instantiate(e.getValue(), MsgParserProvider.class, msgId, reuse, instances);
+        }
+        var extProviders = new MsgExtParserProvider[SIZE];
+        for (var e : MsgExtParserProviderFactory.buildProviderByMsgId(extProviderConfig).entrySet()) {
+            int msgId = parseMsgId(e.getKey());
+            if (msgId >= 0)
+                extProviders[msgId] = instantiate(e.getValue(), MsgExtParserProvider.class, msgId, reuse, instances);
+        }
+        var replyModes = new MsgReplyMode[SIZE];
+        for (var e : MsgParserProviderFactory.buildReplyModeByMsgId(providerConfig).entrySet()) {
+            int msgId = parseMsgId(e.getKey());
+            if (msgId >= 0)
+                replyModes[msgId] = e.getValue();
+        }
+
+        var entries = new Entry[SIZE];
+        int mapped = 0;
+        for (int msgId = 0; msgId < SIZE; msgId++) {
+            var allowUnauthorized = MsgId.ALLOW_UNAUTHED_MSGIDS.contains(msgId);
+            if (Objects.isNull(providers[msgId]) && Objects.isNull(extProviders[msgId])
+                    && Objects.isNull(replyModes[msgId]) && !allowUnauthorized) {
+                entries[msgId] = UNMAPPED;
+                continue;
+            }
+            var replyMode = Objects.isNull(replyModes[msgId]) ? MsgReplyMode.GENERAL : replyModes[msgId];
+            entries[msgId] = new Entry(providers[msgId], extProviders[msgId], replyMode, allowUnauthorized);
+            if (Objects.nonNull(providers[msgId]))
+                mapped++;
+        }
+        return new MsgDispatchTable(entries, instances, providerConfig, extProviderConfig, mapped);
+    }
+
+    public Entry entry(int msgId) {
+        return entries[msgId & 0xFFFF];
+    }
+
+    public int mappedCount() {
+        return mappedCount;
+    }
+
+    // "0x0200" 或十进制 "512",无效时返回 -1
+    static int parseMsgId(String key) {
+        if (Objects.isNull(key))
+            return -1;
+        var k = key.trim();
+        try {
+            int msgId = k.startsWith("0x") || k.startsWith("0X") ? Integer.parseInt(k.substring(2), 16) : Integer.parseInt(k);
+            if (msgId >= 0 && msgId < SIZE)
+                return msgId;
+        } catch (NumberFormatException e) {
+            //fall through
+        }
+        log.error("invalid msgId in provider mapping, ignored, key={}", key);
+        return -1;
+    }
+
+    private static <T> T instantiate(String fqcn, Class<T> type, int msgId, Map<String, Object> reuse, Map<String, Object> instances) {
+        if (Objects.isNull(fqcn) || fqcn.isBlank())
+            return null;
+        var name = fqcn.trim();
+        var instance = instances.get(name);
+        if (Objects.isNull(instance))
+            instance = reuse.get(name);
+        if (Objects.isNull(instance)) {
+            try {
+                instance = Class.forName(name).getDeclaredConstructor().newInstance();
+                log.info("{} loaded, msgId=0x{}, class={}", type.getSimpleName(), String.format("%04X", msgId), name);
+            } catch (Exception e) {
+                log.error("load {} failed, msgId=0x{}, class={}", type.getSimpleName(), String.format("%04X", msgId), name, e);
+                return null;
+            }
+        }
+        if (!type.isInstance(instance)) {
+            log.error("class {} does not implement {}, msgId=0x{}", name, type.getSimpleName(), String.format("%04X", msgId));
+            return null;
+        }
+        instances.put(name, instance);
+        return type.cast(instance);
+    }
+
+    /**
+     * 单个 msgId 的分发信息，不可变。
+     */
+    public static final class Entry {
+        private final MsgParserProvider provider;
+        private final MsgExtParserProvider extProvider;
+        private final MsgReplyMode replyMode;
+        private final boolean allowUnauthorized;
+
+        private Entry(MsgParserProvider provider, MsgExtParserProvider extProvider, MsgReplyMode replyMode, boolean allowUnauthorized) {
+            this.provider = provider;
+            this.extProvider = extProvider;
+            this.replyMode = replyMode;
+            this.allowUnauthorized = allowUnauthorized;
+        }
+
+        // 未配置时为 null
+        public MsgParserProvider getProvider() {
+            return provider;
+        }
+
+        public MsgExtParserProvider getExtProvider() {
+            return extProvider;
+        }
+
+        public MsgReplyMode getReplyMode() {
+            return replyMode;
+        }
+
+        // 未鉴权时是否放行(注册/鉴权)
+        public boolean isAllowUnauthorized() {
+            return allowUnauthorized;
+        }
+    }
+}
@@ -1,32 +1,19 @@
 package cn.jascript.zt808.message.parser;
 
-import cn.jascript.zt808.config.AppConfig;
-import lombok.extern.slf4j.Slf4j;
-
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * msgId -> MsgExtProvider 工厂（单个覆盖）。
+ * 实例由 MsgDispatchTable 统一创建，见 MsgParserProviderFactory。
  */
-@Slf4j
 public class MsgExtParserProviderFactory {
 
     private static final MsgExtParserProviderFactory INSTANCE = new MsgExtParserProviderFactory();
 
-    private final Map<Integer, MsgExtParserProvider> cache = new ConcurrentHashMap<>();
-    private final Map<String, String> configMap;
-    private final Map<String, String> providerByMsgId;
-
     private MsgExtParserProviderFactory() {
-        this.configMap = AppConfig.get().getFlatValuesByPrefix("message.parser.extProvider");
-        this.providerByMsgId = buildProviderByMsgId(configMap);
-        if (!configMap.isEmpty()) {
-            log.info("msgExtParserProvider mappings loaded, size={}", configMap.size());
-        }
     }
 
     public static MsgExtParserProviderFactory get() {
@@ -34,41 +21,10 @@ public class MsgExtParserProviderFactory {
     }
 
     public Optional<MsgExtParserProvider> find(int msgId) {
-        var key = msgId;
-        var cached = cache.get(key);
-        if (Objects.nonNull(cached)) {
-            return Optional.of(cached);
-        }
-
-        var fqcn = providerByMsgId.get(toHexKey(msgId));
-        if (Objects.isNull(fqcn)) {
-            fqcn = providerByMsgId.get(String.valueOf(msgId));
-        }
-        if (Objects.isNull(fqcn)) {
-            return Optional.empty();
-        }
-
-        try {
-            var clazz = Class.forName(fqcn);
-            var instance = clazz.getDeclaredConstructor().newInstance();
-            if (instance instanceof MsgExtParserProvider) {
-                MsgExtParserProvider provider = (MsgExtParserProvider) instance;
-                cache.put(key, provider);
-                log.info("msgExtParserProvider loaded, msgId={}, class={}", toHexKey(msgId), fqcn);
-                return Optional.of(provider);
-            }
-            log.error("msgExtParserProvider class {} does not implement MsgExtParserProvider, msgId={}", fqcn, toHexKey(msgId));
-        } catch (Exception e) {
-            log.error("load msgExtParserProvider failed, msgId={}, class={}", toHexKey(msgId), fqcn, e);
-        }
-        return Optional.empty();
-    }
-
-    private String toHexKey(int msgId) {
-        return String.format("0x%04X", msgId);
+        return Optional.ofNullable(MsgDispatchTable.get().entry(msgId).getExtProvider());
     }
 
-    private static Map<String, String> buildProviderByMsgId(Map<String, String> flat) {
+    static Map<String, String> buildProviderByMsgId(Map<String, String> flat) {
         if (Objects.isNull(flat) || flat.isEmpty()) {
             return Map.of();
         }
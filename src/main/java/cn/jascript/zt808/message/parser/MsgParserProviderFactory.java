@@ -1,36 +1,21 @@
 package cn.jascript.zt808.message.parser;
 
-import cn.jascript.zt808.config.AppConfig;
 import cn.jascript.zt808.constants.MsgReplyMode;
-import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * msgId -> MsgProvider 工厂（按配置反射加载并缓存）。
+ * msgId -> MsgProvider 工厂。
+ * 实例由 MsgDispatchTable 在启动/配置重载时统一反射创建，这里只做查表；本类保留映射配置的解析。
  */
-@Slf4j
 public class MsgParserProviderFactory {
 
     private static final MsgParserProviderFactory INSTANCE = new MsgParserProviderFactory();
 
-    private final Map<Integer, MsgParserProvider> cache = new ConcurrentHashMap<>();
-    private final Map<String, String> configMap;
-    private final Map<String, String> providerByMsgId;
-    private final Map<String, MsgReplyMode> replyModeByMsgId;
-
     private MsgParserProviderFactory() {
-        // key: "0x0200" or "512" (string)
-        this.configMap = AppConfig.get().getFlatValuesByPrefix("message.parser.provider");
-        this.providerByMsgId = buildProviderByMsgId(configMap);
-        this.replyModeByMsgId = buildReplyModeByMsgId(configMap);
-        if (!configMap.isEmpty()) {
-            log.info("msgParserProvider mappings loaded, size={}", configMap.size());
-        }
     }
 
     public static MsgParserProviderFactory getInstance() {
@@ -38,49 +23,14 @@ public class MsgParserProviderFactory {
     }
 
     public MsgReplyMode getReplyMode(int msgId) {
-        var v = replyModeByMsgId.get(toHexKey(msgId));
-        if (Objects.nonNull(v)) 
-            return v;
-        v = replyModeByMsgId.get(String.valueOf(msgId));
-        if (Objects.nonNull(v)) 
-            return v;
-        return MsgReplyMode.GENERAL;
+        return MsgDispatchTable.get().entry(msgId).getReplyMode();
     }
 
     public Optional<MsgParserProvider> getProvider(int msgId) {
-        var key = msgId;
-        var cached = cache.get(key);
-        if (Objects.nonNull(cached)) {
-            return Optional.of(cached);
-        }
-        //从配置里获取全类名
-        var fqcn = providerByMsgId.get(toHexKey(msgId));
-        if (Objects.isNull(fqcn))
-            fqcn = providerByMsgId.get(String.valueOf(msgId));
-        if (Objects.isNull(fqcn))
-            return Optional.empty();
-        Objects.nonNull(fqcn);
-        try {
-            var clazz = Class.forName(fqcn);
-            var instance = clazz.getDeclaredConstructor().newInstance();
-            if (instance instanceof MsgParserProvider) {
-                MsgParserProvider provider = (MsgParserProvider) instance;
-                cache.put(key, provider);
-                log.info("msgParserProvider loaded, msgId={}, class={}", toHexKey(msgId), fqcn);
-                return Optional.of(provider);
-            }
-            log.error("msgParserProvider class {} does not implement MsgParserProvider, msgId={}", fqcn, toHexKey(msgId));
-        } catch (Exception e) {
-            log.error("load msgParserProvider failed, msgId={}, class={}", toHexKey(msgId), fqcn, e);
-        }
-        return Optional.empty();
-    }
-
-    private String toHexKey(int msgId) {
-        return String.format("0x%04X", msgId);
+        return Optional.ofNullable(MsgDispatchTable.get().entry(msgId).getProvider());
     }
 
-    private static Map<String, String> buildProviderByMsgId(Map<String, String> flat) {
+    static Map<String, String> buildProviderByMsgId(Map<String, String> flat) {
         if (Objects.isNull(flat) || flat.isEmpty()) 
             return Map.of();
 
@@ -88,7 +38,7 @@ public class MsgParserProviderFactory {
         var result = new HashMap<String, String>();
         for (var e : flat.entrySet()) {
             var k = e.getKey();
-            if (!k.contains("[")) {
+            if (!k.contains("[") && !k.endsWith(".replyMode")) {
                 result.put(k, e.getValue());
             }
         }
@@ -118,7 +68,7 @@ public class MsgParserProviderFactory {
         return result;
     }
 
-    private static Map<String, MsgReplyMode> buildReplyModeByMsgId(Map<String, String> flat) {
+    static Map<String, MsgReplyMode> buildReplyModeByMsgId(Map<String, String> flat) {
         if (Objects.isNull(flat) || flat.isEmpty()) 
             return Map.of();
 
@@ -1,81 +1,84 @@
 package cn.jascript.zt808.message.parser.extprovider;
 
 import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
 import cn.jascript.zt808.util.CodecUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 /**
- * 默认实现：解析 extra 扩展字段里的常用 TLV（如 0x30/0x31）。
+ * 默认实现：解析 extra 扩展字段里的常用 TLV（如 0x01/0x30/0x31），直接在消息体上遍历，不经过 hex。
  */
 public class DefaultLocationExtParserProvider implements LocationExtParserProvider {
 
-    @Override
-    public void parse(LocationDTO dto, String statusHex,String alarmHex, String extraHex, ByteBuf body) {
-        if (Objects.isNull(dto) || Objects.isNull(extraHex) || extraHex.isBlank())
-            return;
+    private static final int EXT_MILEAGE = 0x01;
+    private static final int EXT_GPS_SIGNAL = 0x30;
+    private static final int EXT_NETWORK_SIGNAL = 0x31;
 
-        var map = getExtIdHexMap(extraHex);
-        if (map.isEmpty())
+    @Override
+    public void parse(LocationDTO dto, TlvCursor extras, ByteBuf body) {
+        if (Objects.isNull(dto) || Objects.isNull(extras))
             return;
-
-        var mileageBytes = map.get(0x01);
-        if (Objects.nonNull(mileageBytes) && mileageBytes.length >= 4) {
-            try {
-                long mileage = CodecUtil.readUnsignedInt32BE(mileageBytes, 0);
-                dto.getExt().put("mileage", String.valueOf(mileage));
-                dto.getExt().put("mileageUnit", "0.1km");
-            } catch (Exception ignore) {
-            }
-        }
-
-        var gpsBytes = map.get(0x30);
-        if (Objects.nonNull(gpsBytes) && gpsBytes.length >= 1) {
-            try {
-                dto.setGpsSignal(CodecUtil.toUnsignedByte(gpsBytes[0]));
-            } catch (Exception ignore) {
+        //同一 id 出现多次时以最后一项为准
+        while (extras.next()) {
+            switch (extras.id()) {
+                case EXT_MILEAGE:
+                    if (extras.length() >= 4) {
+                        dto.getExt().put("mileage", String.valueOf(extras.getUnsignedInt(0)));
+                        dto.getExt().put("mileageUnit", "0.1km");
+                    }
+                    break;
+                case EXT_GPS_SIGNAL:
+                    if (extras.length() >= 1)
+                        dto.setGpsSignal(extras.getUnsignedByte(0));
+                    break;
+                case EXT_NETWORK_SIGNAL:
+                    if (extras.length() >= 1)
+                        dto.setNetworkSignal(extras.getUnsignedByte(0));
+                    break;
+                default:
+                    break;
             }
         }
+    }
 
-        var netBytes = map.get(0x31);
-        if (Objects.nonNull(netBytes) && netBytes.length >= 1) {
-            try {
-                dto.setNetworkSignal(CodecUtil.toUnsignedByte(netBytes[0]));
-            } catch (Exception ignore) {
+    @Override
+    public void parse(LocationRecord record, TlvCursor extras, ByteBuf body) {
+        if (Objects.isNull(record) || Objects.isNull(extras))
+            return;
+        while (extras.next()) {
+            switch (extras.id()) {
+                case EXT_MILEAGE:
+                    if (extras.length() >= 4)
+                        record.mileage(extras.getUnsignedInt(0));
+                    break;
+                case EXT_GPS_SIGNAL:
+                    if (extras.length() >= 1)
+                        record.gpsSignal(extras.getUnsignedByte(0));
+                    break;
+                case EXT_NETWORK_SIGNAL:
+                    if (extras.length() >= 1)
+                        record.networkSignal(extras.getUnsignedByte(0));
+                    break;
+                default:
+                    break;
             }
         }
     }
-    //从扩展中拆出扩展id和具体数据,TLV拆分
-    private Map<Integer, byte[]> getExtIdHexMap(String extraHex){
-        if (Objects.isNull(extraHex) || extraHex.isBlank()) {
-            return Map.of();
-        }
 
+    //hex 版本:兼容直接以 hex 调用的场景,还原字节后走 TLV 遍历
+    @Override
+    public void parse(LocationDTO dto, String statusHex,String alarmHex, String extraHex, ByteBuf body) {
+        if (Objects.isNull(dto) || Objects.isNull(extraHex) || extraHex.isBlank())
+            return;
         final byte[] bytes;
         try {
             bytes = CodecUtil.hexToBytes(extraHex);
         } catch (Exception e) {
-            return Map.of();
-        }
-
-        var map = new HashMap<Integer, byte[]>();
-        int i = 0;
-        while (i + 2 <= bytes.length) {
-            int id = CodecUtil.toUnsignedByte(bytes[i++]);
-            int len = CodecUtil.toUnsignedByte(bytes[i++]);
-            if (i + len > bytes.length) {
-                break;
-            }
-
-            map.put(id, Arrays.copyOfRange(bytes, i, i + len));
-            i += len;
+            return;
         }
-
-        return map;
+        parse(dto, new TlvCursor(Unpooled.wrappedBuffer(bytes)), body);
     }
-
 }
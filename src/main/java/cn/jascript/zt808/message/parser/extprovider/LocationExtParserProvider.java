@@ -4,6 +4,8 @@ import cn.jascript.zt808.message.parser.MsgExtParserProvider;
 import cn.jascript.zt808.model.TerminalMessage;
 import cn.jascript.zt808.model.dto.BaseDTO;
 import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
+import cn.jascript.zt808.util.CodecUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
@@ -14,20 +16,57 @@ public interface LocationExtParserProvider extends MsgExtParserProvider {
 
     void parse(LocationDTO dto, String statusHex, String alarmHex, String extraHex, ByteBuf body);
 
+    /**
+     * 零拷贝版本：extras 直接指向消息体中该条位置的附加信息 TLV，原始报警/状态位通过 dto.getAlarmRaw()/getStatusRaw() 读取。
+     * 默认回退到 hex 版本，hex 按需由原始字节生成；实现方覆盖该方法即可避免 hex 往返。
+     */
+    default void parse(LocationDTO dto, TlvCursor extras, ByteBuf body) {
+        parse(dto, dto.statusHex(), dto.alarmHex(), dto.extraHex(), body);
+    }
+
+    /**
+     * LocationRecord 版本：默认经 toDTO() 视图回退到 DTO 版本，再把 gpsSignal/networkSignal 与 ext 写回记录；
+     * 实现方覆盖该方法可直接写入原始字段，避免生成视图。
+     */
+    default void parse(LocationRecord record, TlvCursor extras, ByteBuf body) {
+        var dto = record.toDTO();
+        parse(dto, extras, body);
+        record.gpsSignal(dto.getGpsSignal());
+        record.networkSignal(dto.getNetworkSignal());
+        if (Objects.nonNull(dto.getExt()) && !dto.getExt().isEmpty()) {
+            record.getExt().clear();
+            record.getExt().putAll(dto.getExt());
+        }
+    }
+
     @Override
     default void apply(TerminalMessage message, List<BaseDTO> dtos) {
         if (Objects.isNull(dtos) || dtos.isEmpty())
             return;
+        ByteBuf body = (Objects.isNull(message) || Objects.isNull(message.getBody())) ? Unpooled.EMPTY_BUFFER : message.getBody();
+        var cursor = new TlvCursor();
         for (var dto : dtos) {
             if (dto instanceof LocationDTO) {
                 LocationDTO locationDTO = (LocationDTO) dto;
-                var ext = locationDTO.getExt();
-                var statusHex = (Objects.isNull(ext) ? null : ext.get("statusHex"));
-                var extraHex = (Objects.isNull(ext) ? null : ext.get("extraHex"));
-                var alarmHex = (Objects.isNull(ext) ? null : ext.get("alarmHex"));
-                ByteBuf body = (Objects.isNull(message) || Objects.isNull(message.getBody())) ? Unpooled.EMPTY_BUFFER : message.getBody().duplicate();
-                parse(locationDTO, statusHex, alarmHex, extraHex, body);
+                parse(locationDTO, extrasOf(locationDTO, cursor), body.duplicate());
+            } else if (dto instanceof LocationRecord) {
+                LocationRecord record = (LocationRecord) dto;
+                parse(record, cursor.reset(record.extra()), body.duplicate());
             }
         }
     }
+
+    // 优先使用解析期记录的附加信息区间,缺失时(如上游只给了 extraHex)由 hex 还原
+    private static TlvCursor extrasOf(LocationDTO dto, TlvCursor cursor) {
+        if (Objects.nonNull(dto.getExtra()))
+            return cursor.reset(dto.getExtra());
+        var extraHex = dto.extraHex();
+        if (Objects.isNull(extraHex) || extraHex.isBlank())
+            return cursor.reset(null);
+        try {
+            return cursor.reset(Unpooled.wrappedBuffer(CodecUtil.hexToBytes(extraHex)));
+        } catch (Exception e) {
+            return cursor.reset(null);
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package cn.jascript.zt808.message.parser.extprovider;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Objects;
+
+/**
+ * 位置附加信息 TLV 游标(flyweight)：直接在消息体 ByteBuf 上按 id(1)+len(1)+value 遍历，不拷贝、不转 hex。
+ * 每次 next() 后 id/offset/length 指向当前项，value 通过 getXxx(相对偏移)读取；长度越界的尾项视为结束。
+ * 非线程安全，单次解析内复用。
+ */
+public final class TlvCursor {
+
+    private ByteBuf buf;
+    private int start;
+    private int position;
+    private int end;
+
+    private int id;
+    private int offset;
+    private int length;
+
+    public TlvCursor() {
+    }
+
+    public TlvCursor(ByteBuf buf) {
+        reset(buf);
+    }
+
+    // 覆盖 buf 的可读区间,不移动 buf 读指针
+    public TlvCursor reset(ByteBuf buf) {
+        if (Objects.isNull(buf))
+            return reset(null, 0, 0);
+        return reset(buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    public TlvCursor reset(ByteBuf buf, int index, int length) {
+        this.buf = buf;
+        this.start = index;
+        this.position = index;
+        this.end = index + length;
+        this.id = -1;
+        this.offset = index;
+        this.length = 0;
+        return this;
+    }
+
+    // 回到起点重新遍历
+    public TlvCursor rewind() {
+        return reset(buf, start, end - start);
+    }
+
+    public boolean next() {
+        if (Objects.isNull(buf) || position + 2 > end)
+            return false;
+        int itemId = buf.getUnsignedByte(position);
+        int itemLength = buf.getUnsignedByte(position + 1);
+        if (position + 2 + itemLength > end) {
+            position = end;
+            return false;
+        }
+        this.id = itemId;
+        this.offset = position + 2;
+        this.length = itemLength;
+        this.position = offset + itemLength;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return Objects.isNull(buf) || end - start < 2;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    // value 在 buf 中的绝对下标
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public ByteBuf buf() {
+        return buf;
+    }
+
+    public int getUnsignedByte(int index) {
+        return buf.getUnsignedByte(offset + index);
+    }
+
+    public int getUnsignedShort(int index) {
+        return buf.getUnsignedShort(offset + index);
+    }
+
+    public long getUnsignedInt(int index) {
+        return buf.getUnsignedInt(offset + index);
+    }
+
+    // 当前 value 的只读视图(共享内存,不增加引用计数)
+    public ByteBuf value() {
+        return buf.slice(offset, length);
+    }
+}
@@ -1,8 +1,10 @@
 package cn.jascript.zt808.message.parser.provider;
 
+import cn.jascript.zt808.cluster.ClusterManager;
 import cn.jascript.zt808.config.AppConfig;
 import cn.jascript.zt808.message.helper.ReplyHelper;
 import cn.jascript.zt808.message.parser.MsgParserProvider;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
 import cn.jascript.zt808.model.TerminalMessage;
 import cn.jascript.zt808.model.dto.AuthDTO;
 import cn.jascript.zt808.model.dto.BaseDTO;
@@ -16,7 +18,8 @@ import java.util.Objects;
 public class AuthMsgParserProvider implements MsgParserProvider {
 
     private final SessionManager sessionManager = SessionManager.getInstance();
-    private final AppConfig.AuthConfig authConfig = AppConfig.get().getAuth();
+    private final TextQueueManager textQueueManager = TextQueueManager.getInstance();
+    private final ClusterManager clusterManager = ClusterManager.getInstance();
 
     @Override
     public List<BaseDTO> parse(Channel channel, TerminalMessage message) {
@@ -27,6 +30,8 @@ public class AuthMsgParserProvider implements MsgParserProvider {
         // JT/T 808 protocol uses GBK encoding for strings
         var authCode = Objects.nonNull(body) ? body.toString(java.nio.charset.Charset.forName("GBK")).trim() : "";
 
+        //每次读取当前配置快照,黑名单/鉴权码支持热重载
+        var authConfig = AppConfig.get().getAuth();
         var blackList = authConfig.getBlackList();
         var inBlackList = Objects.nonNull(blackList) && blackList.contains(terminalId);
         var success = authConfig.getCode().equals(authCode) && !inBlackList;
@@ -35,11 +40,17 @@ public class AuthMsgParserProvider implements MsgParserProvider {
         // JT/T 808: use platform general reply (0x8001) result code to indicate auth success/failure
         // 0:成功, 1:失败
         ReplyHelper.sendGeneralReply(channel, message, success ? 0 : 1);
-        //鉴权成功绑定设备id和channel
-        if (success) {
-            sessionManager.bindTerminal(terminalId, channel);
+        //鉴权成功绑定设备id和channel,连接已断开时绑定失败,不再登记上线
+        var bound = success && sessionManager.bindTerminal(message.getTerminalKey(), terminalId, channel);
+        if (bound)
+            sessionManager.authorize(terminalId, true);
+        else
+            sessionManager.findByChannel(channel).ifPresent(session -> session.setAuthorized(false));
+        //上线后登记到会话目录(多实例模式),并开始下发该终端排队中的文本消息
+        if (bound) {
+            clusterManager.onBound(terminalId);
+            textQueueManager.onOnline(terminalId);
         }
-        sessionManager.authorize(terminalId, success);
         var dto = new AuthDTO();
         dto.setTerminalId(terminalId);
         dto.setReceiveTime(new Date());
@@ -1,5 +1,6 @@
 package cn.jascript.zt808.message.parser.provider;
 
+import cn.jascript.zt808.config.AppConfig;
 import cn.jascript.zt808.message.parser.MsgParserProvider;
 import cn.jascript.zt808.model.TerminalMessage;
 import cn.jascript.zt808.model.dto.BaseDTO;
@@ -31,12 +32,20 @@ public class BatchLocationMsgMsgParserProvider extends LocationMsgParserProvider
         int count = buf.readUnsignedShort();
         int type = buf.readUnsignedByte();
         var list = new ArrayList<BaseDTO>();
+        var record = AppConfig.get().getParser().isLocationRecord();
+        long now = System.currentTimeMillis();
         for (int i = 0; i < count && buf.isReadable(2); i++) {
             int len = buf.readUnsignedShort();
             if (buf.readableBytes() < len)
                 break;
             ByteBuf slice = buf.readSlice(len);
             //复用LocationMsgParserProvider解析位置
+            if (record) {
+                var locationRecord = parseSingleRecord(slice, terminalId, now);
+                locationRecord.batchType(type);
+                list.add(locationRecord);
+                continue;
+            }
             LocationDTO dto = parseSingleLocation(slice, terminalId);
             dto.setReceiveTime(new Date());
             dto.getExt().put("batchType", String.valueOf(type));
@@ -1,18 +1,22 @@
 package cn.jascript.zt808.message.parser.provider;
 
+import cn.jascript.zt808.config.AppConfig;
 import cn.jascript.zt808.constants.AlarmType;
 import cn.jascript.zt808.constants.StandardAlarmType;
 import cn.jascript.zt808.message.parser.MsgParserProvider;
 import cn.jascript.zt808.model.TerminalMessage;
 import cn.jascript.zt808.model.dto.BaseDTO;
 import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
 import cn.jascript.zt808.util.BcdUtil;
 import cn.jascript.zt808.util.CodecUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.zone.ZoneRules;
 import java.util.*;
 
 public class LocationMsgParserProvider implements MsgParserProvider {
@@ -21,27 +25,18 @@ public class LocationMsgParserProvider implements MsgParserProvider {
     
     private static final int TIME_LEN = 6;
     private static final double LAT_LON_FACTOR = 1_000_000.0;
+
+    //是否在 ext 中输出 alarmHex/statusHex/extraHex
     
     // Status Bit Positions
     private static final int BIT_ACC = 0;
     private static final int BIT_LOCATED = 1;
 
-    // Alarm Bit Positions (JT/T 808-2019)
-    private static final int BIT_SOS = 0;
-    private static final int BIT_OVERSPEED = 1;
-    private static final int BIT_FATIGUE = 2;
-    private static final int BIT_DANGER_WARNING = 3;
-    private static final int BIT_GNSS_FAULT = 4;
-    private static final int BIT_GNSS_DISCONNECT = 5;
-    private static final int BIT_GNSS_SHORT = 6;
-    private static final int BIT_MAIN_POWER_UNDER = 7;
-    private static final int BIT_MAIN_POWER_CUT = 8;
-    private static final int BIT_LCD_FAULT = 9;
-    private static final int BIT_TTS_FAULT = 10;
-    private static final int BIT_CAMERA_FAULT = 11;
-    private static final int BIT_IC_CARD_FAULT = 12;
-    private static final int BIT_SPEED_WARNING = 13;
-    private static final int BIT_FATIGUE_WARNING = 14;
+    //BCD 时间按系统时区换算,固定偏移时区直接使用缓存的偏移量
+    private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+    private static final long FIXED_OFFSET_SECONDS = ZONE_RULES.isFixedOffset()
+            ? ZONE_RULES.getOffset(Instant.EPOCH).getTotalSeconds() : Long.MIN_VALUE;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
 
     @Override
     public List<BaseDTO> parse(Channel channel, TerminalMessage message) {
@@ -53,6 +48,8 @@ public class LocationMsgParserProvider implements MsgParserProvider {
 
         var terminalId = message.getTerminalId();
 
+        if (AppConfig.get().getParser().isLocationRecord())
+            return List.of(parseSingleRecord(body.duplicate(), terminalId, System.currentTimeMillis()));
         var dto = parseSingleLocation(body.duplicate(), terminalId);
         dto.setReceiveTime(new Date());
         return List.of(dto);
@@ -65,13 +62,11 @@ public class LocationMsgParserProvider implements MsgParserProvider {
             return dto;
 
         int alarm = buf.readInt();
-        dto.getExt().put("alarmHex", String.format("%08X", alarm));
+        dto.setAlarmRaw(alarm);
         dto.setAlarmSet(parseAlarm(alarm));
 
-        var statusBytes = new byte[4];
-        buf.readBytes(statusBytes);
-        int status = CodecUtil.toInt(statusBytes);
-        dto.getExt().put("statusHex", CodecUtil.bytesToHex(statusBytes));
+        int status = buf.readInt();
+        dto.setStatusRaw(status);
 
         int lat = buf.readInt();
         int lon = buf.readInt();
@@ -82,65 +77,74 @@ public class LocationMsgParserProvider implements MsgParserProvider {
         dto.setSpeed((int) buf.readUnsignedShort());
         dto.setDirection((int) buf.readUnsignedShort());
 
-        var timeBytes = new byte[TIME_LEN];
-        buf.readBytes(timeBytes);
-        dto.setLocationTime(parseBcdTime(timeBytes));
+        dto.setLocationTime(parseBcdTime(buf, buf.readerIndex()));
+        buf.skipBytes(TIME_LEN);
 
         dto.setAccState(CodecUtil.checkBit(status, BIT_ACC));
         dto.setLocated(CodecUtil.checkBit(status, BIT_LOCATED));
 
-        if (buf.isReadable()) {
-            var extra = new byte[buf.readableBytes()];
-            buf.readBytes(extra);
-            dto.getExt().put("extraHex", CodecUtil.bytesToHex(extra));
+        //附加信息不拷贝,记录在消息体上的区间,由扩展解析按 TLV 直接读取
+        if (buf.isReadable())
+            dto.setExtra(buf.readSlice(buf.readableBytes()));
+
+        if (AppConfig.get().getParser().isLocationHexFields()) {
+            dto.getExt().put("alarmHex", dto.alarmHex());
+            dto.getExt().put("statusHex", dto.statusHex());
+            var extraHex = dto.extraHex();
+            if (Objects.nonNull(extraHex))
+                dto.getExt().put("extraHex", extraHex);
         }
 
         return dto;
     }
+
+    /**
+     * 原始类型版本：字段直接写入池化的 LocationRecord，时间换算为毫秒时间戳，除 hex 字段外不产生中间对象。
+     */
+    protected LocationRecord parseSingleRecord(ByteBuf buf, String terminalId, long receiveTimeMillis) {
+        var record = LocationRecord.newInstance(terminalId, receiveTimeMillis);
+        if (buf.readableBytes() < LOCATION_MIN_LEN)
+            return record;
+
+        int alarm = buf.readInt();
+        int status = buf.readInt();
+        int lat = buf.readInt();
+        int lon = buf.readInt();
+        int height = buf.readUnsignedShort();
+        int speed = buf.readUnsignedShort();
+        int direction = buf.readUnsignedShort();
+        long locationTime = parseBcdTimeMillis(buf, buf.readerIndex());
+        buf.skipBytes(TIME_LEN);
+        record.setBasic(alarm, status, lat, lon, height, speed, direction, locationTime);
+
+        if (buf.isReadable())
+            record.extra(buf.readSlice(buf.readableBytes()));
+
+        if (AppConfig.get().getParser().isLocationHexFields()) {
+            record.getExt().put("alarmHex", record.alarmHex());
+            record.getExt().put("statusHex", record.statusHex());
+            var extraHex = record.extraHex();
+            if (Objects.nonNull(extraHex))
+                record.getExt().put("extraHex", extraHex);
+        }
+        return record;
+    }
+
     //默认对标准协议的报警处理,特殊需求可以走ext处理
     private Set<AlarmType> parseAlarm(int alarm) {
-        var set = EnumSet.noneOf(StandardAlarmType.class);
-        if (CodecUtil.checkBit(alarm, BIT_SOS)) 
-            set.add(StandardAlarmType.SOS);
-        if (CodecUtil.checkBit(alarm, BIT_OVERSPEED)) 
-            set.add(StandardAlarmType.OVERSPEED);
-        if (CodecUtil.checkBit(alarm, BIT_FATIGUE)) 
-            set.add(StandardAlarmType.FATIGUE);
-        if (CodecUtil.checkBit(alarm, BIT_GNSS_FAULT)) 
-            set.add(StandardAlarmType.GNSS_FAULT);
-        if (CodecUtil.checkBit(alarm, BIT_GNSS_SHORT)) 
-            set.add(StandardAlarmType.GNSS_SHORT);
-        if (CodecUtil.checkBit(alarm, BIT_GNSS_DISCONNECT)) 
-            set.add(StandardAlarmType.GNSS_DISCONNECT);
-        if (CodecUtil.checkBit(alarm, BIT_MAIN_POWER_CUT)) 
-            set.add(StandardAlarmType.MAIN_POWER_CUT);
-        if (CodecUtil.checkBit(alarm, BIT_MAIN_POWER_UNDER)) 
-            set.add(StandardAlarmType.MAIN_POWER_UNDER);
-        if (CodecUtil.checkBit(alarm, BIT_LCD_FAULT)) 
-            set.add(StandardAlarmType.LCD_FAULT);
-        if (CodecUtil.checkBit(alarm, BIT_TTS_FAULT)) 
-            set.add(StandardAlarmType.TTS_FAULT);
-        if (CodecUtil.checkBit(alarm, BIT_CAMERA_FAULT)) 
-            set.add(StandardAlarmType.CAMERA_FAULT);
-        
-        // Extended bits
-        // if (CodecUtil.checkBit(alarm, BIT_DANGER_WARNING)) ...
-        if (CodecUtil.checkBit(alarm, BIT_SPEED_WARNING)) 
-            set.add(StandardAlarmType.SPEED_WARNING);
-        if (CodecUtil.checkBit(alarm, BIT_FATIGUE_WARNING)) 
-            set.add(StandardAlarmType.FATIGUE_WARNING);
-        return new HashSet<>(set);
+        return new HashSet<>(StandardAlarmType.fromAlarmBits(alarm));
     }
 
-    private Date parseBcdTime(byte[] bytes) {
-        if (Objects.isNull(bytes) || bytes.length < 6)
+    //BCD 时间 YYMMDDhhmmss,直接按下标读取
+    private Date parseBcdTime(ByteBuf buf, int index) {
+        if (buf.writerIndex() - index < TIME_LEN)
             return null;
-        int year = BcdUtil.bcdToInt(bytes[0]) + 2000;
-        int month = BcdUtil.bcdToInt(bytes[1]);
-        int day = BcdUtil.bcdToInt(bytes[2]);
-        int hour = BcdUtil.bcdToInt(bytes[3]);
-        int minute = BcdUtil.bcdToInt(bytes[4]);
-        int second = BcdUtil.bcdToInt(bytes[5]);
+        int year = BcdUtil.bcdToInt(buf.getByte(index)) + 2000;
+        int month = BcdUtil.bcdToInt(buf.getByte(index + 1));
+        int day = BcdUtil.bcdToInt(buf.getByte(index + 2));
+        int hour = BcdUtil.bcdToInt(buf.getByte(index + 3));
+        int minute = BcdUtil.bcdToInt(buf.getByte(index + 4));
+        int second = BcdUtil.bcdToInt(buf.getByte(index + 5));
         try {
             var ldt = LocalDateTime.of(year, month, day, hour, minute, second);
             return Date.from(ldt.atZone(ZoneId.systemDefault()).toInstant());
@@ -148,4 +152,38 @@ public class LocationMsgParserProvider implements MsgParserProvider {
             return null;
         }
     }
+
+    //BCD 时间转毫秒时间戳,按日历直接计算,无效时间返回 LocationRecord.UNKNOWN_TIME
+    private static long parseBcdTimeMillis(ByteBuf buf, int index) {
+        if (buf.writerIndex() - index < TIME_LEN)
+            return LocationRecord.UNKNOWN_TIME;
+        int year = BcdUtil.bcdToInt(buf.getByte(index)) + 2000;
+        int month = BcdUtil.bcdToInt(buf.getByte(index + 1));
+        int day = BcdUtil.bcdToInt(buf.getByte(index + 2));
+        int hour = BcdUtil.bcdToInt(buf.getByte(index + 3));
+        int minute = BcdUtil.bcdToInt(buf.getByte(index + 4));
+        int second = BcdUtil.bcdToInt(buf.getByte(index + 5));
+        if (month < 1 || month > 12 || day < 1 || hour > 23 || minute > 59 || second > 59)
+            return LocationRecord.UNKNOWN_TIME;
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (day > DAYS_IN_MONTH[month - 1] + (month == 2 && leap ? 1 : 0))
+            return LocationRecord.UNKNOWN_TIME;
+        long localSeconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+        if (FIXED_OFFSET_SECONDS != Long.MIN_VALUE)
+            return (localSeconds - FIXED_OFFSET_SECONDS) * 1000L;
+        //夏令时区:先按本地秒估算偏移,再按换算后的时刻校正一次
+        long offset = ZONE_RULES.getOffset(Instant.ofEpochSecond(localSeconds)).getTotalSeconds();
+        offset = ZONE_RULES.getOffset(Instant.ofEpochSecond(localSeconds - offset)).getTotalSeconds();
+        return (localSeconds - offset) * 1000L;
+    }
+
+    //公历日期距 1970-01-01 的天数(同 LocalDate.toEpochDay)
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
 }
@@ -9,7 +9,6 @@ import cn.jascript.zt808.model.dto.BaseDTO;
 import cn.jascript.zt808.model.dto.RegisterDTO;
 import cn.jascript.zt808.util.CodecUtil;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 
 import java.util.Date;
@@ -61,7 +60,7 @@ public class RegisterMsgParserProvider implements MsgParserProvider {
         if (Objects.isNull(channel) || !channel.isActive())
             return;
 
-        ByteBuf body = Unpooled.buffer();
+        ByteBuf body = channel.alloc().buffer();
         body.writeShort(message.getFlowId());
         body.writeByte(0); // 0:成功, 1:车辆已被注册, 2:数据库中无该车辆, 3:终端已被注册, 4:数据库中无该终端
         if (Objects.nonNull(authCode) && !authCode.isBlank()) {
@@ -70,6 +69,7 @@ public class RegisterMsgParserProvider implements MsgParserProvider {
 
         var reply = new PlatformMessage();
         reply.setTerminalId(message.getTerminalId());
+        reply.setTerminalKey(message.getTerminalKey());
         reply.setMsgId(MsgId.REGISTER_REPLY);
         reply.setFlowId(message.getFlowId());
         reply.setBody(body);
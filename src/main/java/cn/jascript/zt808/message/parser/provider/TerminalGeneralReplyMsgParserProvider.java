@@ -0,0 +1,39 @@
+package cn.jascript.zt808.message.parser.provider;
+
+import cn.jascript.zt808.message.parser.MsgParserProvider;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 终端通用应答(0x0001)：应答流水号(2) + 应答 ID(2) + 结果(1)，交给文本下发队列确认送达，不产生 DTO。
+ */
+@Slf4j
+public class TerminalGeneralReplyMsgParserProvider implements MsgParserProvider {
+
+    private static final int BODY_LENGTH = 5;
+
+    private final TextQueueManager textQueueManager = TextQueueManager.getInstance();
+
+    @Override
+    public List<BaseDTO> parse(Channel channel, TerminalMessage message) {
+        if (Objects.isNull(message))
+            return List.of();
+        var body = message.getBody();
+        if (Objects.isNull(body) || body.readableBytes() < BODY_LENGTH)
+            return List.of();
+        int index = body.readerIndex();
+        int replyFlowId = body.getUnsignedShort(index);
+        int replyMsgId = body.getUnsignedShort(index + 2);
+        int result = body.getUnsignedByte(index + 4);
+        boolean matched = textQueueManager.onTerminalReply(message.getTerminalKey(), replyFlowId, replyMsgId, result);
+        log.debug("terminal reply, terminalId={}, replyFlowId={}, replyMsgId=0x{}, result={}, matched={}",
+                message.getTerminalId(), replyFlowId, Integer.toHexString(replyMsgId), result, matched);
+        return List.of();
+    }
+}
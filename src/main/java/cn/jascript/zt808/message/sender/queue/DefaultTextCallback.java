@@ -0,0 +1,27 @@
+package cn.jascript.zt808.message.sender.queue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 默认回调：打印日志。
+ */
+@Slf4j
+public class DefaultTextCallback implements TextCallback {
+
+    @Override
+    public void onDelivered(TextMessage message) {
+        log.info("text delivered, terminalId={}, id={}, flowId={}, attempts={}",
+                message.getTerminalId(), message.getId(), message.getFlowId(), message.getAttempts());
+    }
+
+    @Override
+    public void onExpired(TextMessage message) {
+        log.info("text expired, terminalId={}, id={}, attempts={}", message.getTerminalId(), message.getId(), message.getAttempts());
+    }
+
+    @Override
+    public void onFailed(TextMessage message, String reason) {
+        log.info("text failed, terminalId={}, id={}, attempts={}, reason={}",
+                message.getTerminalId(), message.getId(), message.getAttempts(), reason);
+    }
+}
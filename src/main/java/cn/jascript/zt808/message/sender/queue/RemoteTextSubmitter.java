@@ -0,0 +1,14 @@
+package cn.jascript.zt808.message.sender.queue;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 终端不在本节点时把文本转交其所在节点的下发队列(多实例模式下由 ClusterManager 实现)，实现不应阻塞调用线程。
+ */
+public interface RemoteTextSubmitter {
+
+    /**
+     * @return 已由其他节点入队时为 true；终端不在其他节点、未开启多实例或转交失败为 false，由本节点排队等待上线
+     */
+    CompletableFuture<Boolean> submit(String terminalId, int flag, String text);
+}
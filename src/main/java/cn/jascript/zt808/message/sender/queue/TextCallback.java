@@ -0,0 +1,23 @@
+package cn.jascript.zt808.message.sender.queue;
+
+/**
+ * 文本下发结果回调，在下发队列的定时线程或业务线程中调用，实现不应阻塞。
+ */
+public interface TextCallback {
+
+    /**
+     * 终端通用应答(0x0001)结果为成功。
+     */
+    void onDelivered(TextMessage message);
+
+    /**
+     * 超过保存时间仍未送达。
+     */
+    void onExpired(TextMessage message);
+
+    /**
+     * 下发失败：终端应答失败/不支持、重试用尽或队列满被淘汰。
+     */
+    default void onFailed(TextMessage message, String reason) {
+    }
+}
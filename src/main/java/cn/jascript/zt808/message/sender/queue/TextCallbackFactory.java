@@ -0,0 +1,42 @@
+package cn.jascript.zt808.message.sender.queue;
+
+import cn.jascript.zt808.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * TextCallback 工厂：从配置 text.callback 加载自定义实现，缺省使用 DefaultTextCallback。
+ */
+@Slf4j
+public class TextCallbackFactory {
+
+    private static final TextCallback INSTANCE = init();
+
+    private TextCallbackFactory() {
+    }
+
+    public static TextCallback get() {
+        return INSTANCE;
+    }
+
+    private static TextCallback init() {
+        var callbackFqcn = AppConfig.get().getText().getCallback();
+        if (StringUtils.isBlank(callbackFqcn)) {
+            log.info("text callback not configured, use DefaultTextCallback");
+            return new DefaultTextCallback();
+        }
+        try {
+            var clazz = Class.forName(callbackFqcn);
+            var instance = clazz.getDeclaredConstructor().newInstance();
+            if (instance instanceof TextCallback) {
+                TextCallback callback = (TextCallback) instance;
+                log.info("text callback loaded: {}", callbackFqcn);
+                return callback;
+            }
+            log.error("text callback {} does not implement TextCallback, fallback to default", callbackFqcn);
+        } catch (Exception e) {
+            log.error("load text callback {} failed, fallback to default", callbackFqcn, e);
+        }
+        return new DefaultTextCallback();
+    }
+}
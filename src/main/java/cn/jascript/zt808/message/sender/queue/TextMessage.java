@@ -0,0 +1,67 @@
+package cn.jascript.zt808.message.sender.queue;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 待下发文本消息(0x8300)，发送状态由 TextQueueManager 在终端队列锁内维护。
+ */
+@Getter
+@ToString
+public class TextMessage {
+
+    //文本标志位 bit0:紧急
+    public static final int FLAG_URGENT = 0x01;
+
+    private final long id;
+    private final String terminalId;
+    private final long terminalKey;
+    private final int flag;
+    private final String text;
+    private final long createTime;
+    private final long expireTime;
+
+    /**
+     * 消息体：标志(1) + 文本(GBK)
+     */
+    @ToString.Exclude
+    private final byte[] body;
+
+    /**
+     * 已发送次数
+     */
+    private int attempts;
+    /**
+     * 最近一次发送使用的流水号，用于匹配终端通用应答
+     */
+    private int flowId = -1;
+    /**
+     * 最近一次发送的应答截止时间
+     */
+    private long ackDeadline;
+
+    TextMessage(long id, String terminalId, long terminalKey, int flag, String text, byte[] body, long createTime, long expireTime) {
+        this.id = id;
+        this.terminalId = terminalId;
+        this.terminalKey = terminalKey;
+        this.flag = flag;
+        this.text = text;
+        this.body = body;
+        this.createTime = createTime;
+        this.expireTime = expireTime;
+    }
+
+    public boolean isUrgent() {
+        return (flag & FLAG_URGENT) != 0;
+    }
+
+    boolean isExpired(long now) {
+        return now >= expireTime;
+    }
+
+    void markSent(int flowId, long ackDeadline) {
+        this.attempts++;
+        this.flowId = flowId;
+        this.ackDeadline = ackDeadline;
+    }
+}
@@ -0,0 +1,530 @@
+package cn.jascript.zt808.message.sender.queue;
+
+import cn.jascript.zt808.cluster.ClusterManager;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.constants.TextFullPolicy;
+import cn.jascript.zt808.message.sender.DefaultPlatformMsgSenderProvider;
+import cn.jascript.zt808.message.sender.MsgSenderProvider;
+import cn.jascript.zt808.message.sender.MsgSenderProviderFactory;
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.session.FlowIdGenerator;
+import cn.jascript.zt808.session.Session;
+import cn.jascript.zt808.session.SessionRouter;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 文本下发队列：每个终端一个有界队列，同一终端同一时刻只有一条消息等待应答(0x0001)，收到应答后按最小间隔发送下一条。
+ * 终端鉴权上线后开始排空；应答超时按指数退避重发，重试用尽或超过保存时间回调 TextCallback。
+ * 所有定时(发送间隔、应答超时、过期扫描)共用一个 HashedWheelTimer，每个终端最多挂一个定时任务。
+ * 多实例模式下终端不在本节点时，经 RemoteTextSubmitter 转交其所在节点的队列，应答跟踪与回调在该节点进行。
+ */
+@Slf4j
+public class TextQueueManager {
+
+    private static final Charset GBK = Charset.forName("GBK");
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Map<String, Object> SEND_PARAMS = Map.of(DefaultPlatformMsgSenderProvider.PARAM_MSG_ID, MsgId.PUSH_TEXT);
+
+    private final MsgSenderProvider sender;
+    private final TextCallback callback;
+    private final RemoteTextSubmitter remote;
+    private final SessionRouter sessionRouter;
+    private final FlowIdGenerator flowIdGenerator;
+    private final Timer timer;
+    private final LongSupplier clock;
+
+    private final int globalMaxQueue;
+    private final int perDeviceMaxQueue;
+    private final TextFullPolicy fullPolicy;
+    private final long expireMillis;
+    private final long minIntervalMillis;
+    private final long ackTimeoutMillis;
+    private final int maxRetries;
+
+    private final Map<Long, DeviceQueue> queues = new ConcurrentHashMap<>();
+    //全局待下发数(含等待应答)
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong idGenerator = new AtomicLong();
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public static TextQueueManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final TextQueueManager INSTANCE = new TextQueueManager(AppConfig.get().getText(),
+                MsgSenderProviderFactory.get(), TextCallbackFactory.get(), new SessionRouter(),
+                new HashedWheelTimer(new DefaultThreadFactory("text-queue", true), 100, TimeUnit.MILLISECONDS, 512),
+                System::currentTimeMillis, ClusterManager.getInstance());
+
+        private Holder() {
+        }
+    }
+
+    public TextQueueManager(AppConfig.TextConfig config, MsgSenderProvider sender, TextCallback callback,
+                            SessionRouter sessionRouter, Timer timer, LongSupplier clock) {
+        this(config, sender, callback, sessionRouter, timer, clock, null);
+    }
+
+    public TextQueueManager(AppConfig.TextConfig config, MsgSenderProvider sender, TextCallback callback,
+                            SessionRouter sessionRouter, Timer timer, LongSupplier clock, RemoteTextSubmitter remote) {
+        this.sender = sender;
+        this.callback = callback;
+        this.remote = remote;
+        this.sessionRouter = sessionRouter;
+        this.flowIdGenerator = new FlowIdGenerator(sessionRouter);
+        this.timer = timer;
+        this.clock = clock;
+        this.globalMaxQueue = config.getGlobalMaxQueue();
+        this.perDeviceMaxQueue = Math.max(1, config.getPerDeviceMaxQueue());
+        this.fullPolicy = Objects.isNull(config.getFullPolicy()) ? TextFullPolicy.DROP_OLD : config.getFullPolicy();
+        this.expireMillis = TimeUnit.HOURS.toMillis(Math.max(1, config.getExpireHours()));
+        this.minIntervalMillis = TimeUnit.SECONDS.toMillis(Math.max(0, config.getMinSendIntervalSeconds()));
+        this.ackTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getAckTimeoutSeconds()));
+        this.maxRetries = Math.max(0, config.getMaxRetries());
+        timer.newTimeout(t -> sweep(), SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一条文本消息，终端在线时按发送间隔尽快下发，离线时等待上线；终端连接在其他节点时转交该节点。
+     *
+     * @param flag 0x8300 文本标志位，bit0 紧急
+     * @return 被拒绝(消息体超长、全局队列满、单终端队列满且无可淘汰消息)时返回 empty；转交其他节点的结果异步确定，
+     * 转交失败后本地排队仍被拒绝时回调 onFailed
+     */
+    public Optional<TextMessage> submit(String terminalId, int flag, String text) {
+        return submit(terminalId, flag, text, true);
+    }
+
+    /**
+     * 只放入本节点队列，不转交其他节点(其他节点转交过来的消息)。
+     */
+    public Optional<TextMessage> submitLocal(String terminalId, int flag, String text) {
+        return submit(terminalId, flag, text, false);
+    }
+
+    private Optional<TextMessage> submit(String terminalId, int flag, String text, boolean relay) {
+        if (!running || Objects.isNull(terminalId) || terminalId.isBlank() || Objects.isNull(text))
+            return Optional.empty();
+        var textBytes = text.getBytes(GBK);
+        //消息体 = 标志(1) + GBK 文本,超长时编码器无法写出
+        if (1 + textBytes.length > Protocol.MAX_BODY_LENGTH) {
+            rejected.increment();
+            log.info("text too long, rejected, terminalId={}, bytes={}", terminalId, textBytes.length);
+            return Optional.empty();
+        }
+        if (queued.incrementAndGet() > globalMaxQueue && globalMaxQueue > 0) {
+            queued.decrementAndGet();
+            rejected.increment();
+            log.info("text queue full, rejected, terminalId={}, queued={}", terminalId, globalMaxQueue);
+            return Optional.empty();
+        }
+        long key = TerminalKey.fromString(terminalId);
+        var body = new byte[1 + textBytes.length];
+        body[0] = (byte) flag;
+        System.arraycopy(textBytes, 0, body, 1, textBytes.length);
+        long now = clock.getAsLong();
+        var message = new TextMessage(idGenerator.incrementAndGet(), TerminalKey.toTerminalId(key), key, flag & 0xFF, text,
+                body, now, now + expireMillis);
+
+        //终端不在本节点:先转交所在节点,不在其他节点或转交失败时本地排队等待上线
+        if (relay && Objects.nonNull(remote) && Objects.isNull(route(message.getTerminalId()))) {
+            var forwarded = remote.submit(message.getTerminalId(), message.getFlag(), text);
+            if (!forwarded.isDone()) {
+                forwarded.whenComplete((ok, e) -> {
+                    if (Boolean.TRUE.equals(ok))
+                        relayed(message);
+                    else if (!enqueue(message))
+                        fail(message, "queue full");
+                });
+                return Optional.of(message);
+            }
+            if (forwarded.handle((ok, e) -> Boolean.TRUE.equals(ok)).join()) {
+                relayed(message);
+                return Optional.of(message);
+            }
+        }
+        return enqueue(message) ? Optional.of(message) : Optional.empty();
+    }
+
+    //放入终端队列,单终端队列满且无可淘汰消息时返回 false
+    private boolean enqueue(TextMessage message) {
+        var events = new Events();
+        while (true) {
+            var queue = queues.computeIfAbsent(message.getTerminalKey(), DeviceQueue::new);
+            synchronized (queue) {
+                //已被过期扫描移除,重新获取
+                if (queue.removed)
+                    continue;
+                if (queue.size() >= perDeviceMaxQueue) {
+                    var evicted = queue.evict(message.isUrgent());
+                    if (Objects.isNull(evicted)) {
+                        queued.decrementAndGet();
+                        rejected.increment();
+                        log.info("text device queue full, rejected, terminalId={}, size={}", message.getTerminalId(), queue.size());
+                        return false;
+                    }
+                    events.failed(evicted, "queue full");
+                }
+                queue.pending.addLast(message);
+                submitted.increment();
+                trySend(queue, events);
+            }
+            break;
+        }
+        events.fire();
+        return true;
+    }
+
+    private void relayed(TextMessage message) {
+        queued.decrementAndGet();
+        relayed.increment();
+        log.debug("text relayed to owner node, terminalId={}, id={}", message.getTerminalId(), message.getId());
+    }
+
+    private void fail(TextMessage message, String reason) {
+        try {
+            callback.onFailed(message, reason);
+        } catch (Exception e) {
+            log.error("text callback failed", e);
+        }
+    }
+
+    /**
+     * 终端通用应答(0x0001)：按 流水号 + 应答 msgId 匹配等待应答的消息。
+     *
+     * @return 是否匹配到下发队列中的消息
+     */
+    public boolean onTerminalReply(long terminalKey, int replyFlowId, int replyMsgId, int result) {
+        if (replyMsgId != MsgId.PUSH_TEXT)
+            return false;
+        var queue = queues.get(terminalKey);
+        if (Objects.isNull(queue))
+            return false;
+        var events = new Events();
+        synchronized (queue) {
+            var message = queue.inflight;
+            if (Objects.isNull(message) || message.getFlowId() != replyFlowId)
+                return false;
+            queue.inflight = null;
+            queue.cancelTimeout();
+            // 0:成功, 1:失败, 2:消息有误, 3:不支持
+            if (result == 0)
+                events.delivered(message);
+            else
+                events.failed(message, "terminal reply result=" + result);
+            trySend(queue, events);
+        }
+        events.fire();
+        return true;
+    }
+
+    /**
+     * 终端鉴权上线：间隔 minSendInterval 后开始排空该终端的队列。
+     */
+    public void onOnline(String terminalId) {
+        if (Objects.isNull(terminalId))
+            return;
+        var queue = queues.get(TerminalKey.fromString(terminalId));
+        if (Objects.isNull(queue))
+            return;
+        var events = new Events();
+        synchronized (queue) {
+            queue.nextSendTime = Math.max(queue.nextSendTime, clock.getAsLong() + minIntervalMillis);
+            //上一连接发出未应答的消息,按原应答超时处理
+            if (Objects.isNull(queue.inflight))
+                trySend(queue, events);
+        }
+        events.fire();
+    }
+
+    //需持有 queue 锁;锁内选出消息并登记为等待应答,写出由 events 在释放锁后执行
+    private void trySend(DeviceQueue queue, Events events) {
+        if (!running || Objects.nonNull(queue.inflight))
+            return;
+        long now = clock.getAsLong();
+        //队首已过期的直接回调,不占用发送间隔
+        while (!queue.pending.isEmpty() && queue.pending.peekFirst().isExpired(now)) {
+            events.expired(queue.pending.pollFirst());
+        }
+        if (queue.pending.isEmpty())
+            return;
+        if (now < queue.nextSendTime) {
+            queue.schedule(queue.nextSendTime - now);
+            return;
+        }
+        var channel = route(queue.terminalId);
+        //离线或未鉴权,等待 onOnline
+        if (Objects.isNull(channel))
+            return;
+        var message = queue.pending.pollFirst();
+        int flowId = flowIdGenerator.nextFlowId(queue.terminalId);
+        //第 n 次发送等待 ackTimeout * 2^(n-1)
+        long ackTimeout = ackTimeoutMillis << Math.min(message.getAttempts(), 10);
+        message.markSent(flowId, now + ackTimeout);
+        queue.inflight = message;
+        queue.nextSendTime = now + minIntervalMillis;
+        //发送失败同样等待应答超时后重试
+        queue.schedule(ackTimeout);
+        events.send(channel, message, flowId, message.getAttempts() > 1);
+    }
+
+    private void send(Channel channel, TextMessage message, int flowId, boolean retry) {
+        boolean ok;
+        try {
+            ok = sender.sendMessage(channel, message.getTerminalId(), flowId, message.getBody(), SEND_PARAMS);
+        } catch (Exception e) {
+            log.error("text send failed, terminalId={}, id={}", message.getTerminalId(), message.getId(), e);
+            ok = false;
+        }
+        if (ok) {
+            sent.increment();
+            if (retry)
+                retried.increment();
+        }
+    }
+
+    private Channel route(String terminalId) {
+        return sessionRouter.routeSession(terminalId)
+                .filter(Session::isAuthorized)
+                .map(Session::getChannel)
+                .filter(ch -> Objects.nonNull(ch) && ch.isActive())
+                .orElse(null);
+    }
+
+    private void onTimeout(DeviceQueue queue) {
+        var events = new Events();
+        synchronized (queue) {
+            queue.timeout = null;
+            var message = queue.inflight;
+            if (Objects.nonNull(message)) {
+                long now = clock.getAsLong();
+                if (now < message.getAckDeadline()) {
+                    queue.schedule(message.getAckDeadline() - now);
+                    return;
+                }
+                queue.inflight = null;
+                if (message.isExpired(now))
+                    events.expired(message);
+                else if (message.getAttempts() > maxRetries)
+                    events.failed(message, "ack timeout");
+                else
+                    queue.pending.addFirst(message);
+            }
+            trySend(queue, events);
+        }
+        events.fire();
+    }
+
+    //周期清理过期消息与空队列
+    private void sweep() {
+        if (!running)
+            return;
+        long now = clock.getAsLong();
+        var events = new Events();
+        for (var queue : queues.values()) {
+            synchronized (queue) {
+                queue.pending.removeIf(message -> {
+                    if (!message.isExpired(now))
+                        return false;
+                    events.expired(message);
+                    return true;
+                });
+                if (queue.pending.isEmpty() && Objects.isNull(queue.inflight)) {
+                    queue.removed = true;
+                    queue.cancelTimeout();
+                    queues.remove(queue.terminalKey, queue);
+                }
+            }
+        }
+        events.fire();
+        timer.newTimeout(t -> sweep(), SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (!running)
+            return;
+        running = false;
+        timer.stop();
+        log.info("text queue stopped, queued={}, sent={}, delivered={}, failed={}, expired={}",
+                queued(), sent(), delivered(), failed(), expired());
+    }
+
+    // 待下发(含等待应答)消息数
+    public int queued() {
+        return queued.get();
+    }
+
+    // 单终端待下发(含等待应答)消息数
+    public int queued(String terminalId) {
+        var queue = queues.get(TerminalKey.fromString(terminalId));
+        if (Objects.isNull(queue))
+            return 0;
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int devices() {
+        return queues.size();
+    }
+
+    public long submitted() {
+        return submitted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    // 转交其他节点下发的消息数
+    public long relayed() {
+        return relayed.sum();
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long retried() {
+        return retried.sum();
+    }
+
+    public long delivered() {
+        return delivered.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long expired() {
+        return expired.sum();
+    }
+
+    private final class DeviceQueue {
+        private final long terminalKey;
+        private final String terminalId;
+        private final ArrayDeque<TextMessage> pending = new ArrayDeque<>();
+        //已发送等待应答
+        private TextMessage inflight;
+        private long nextSendTime;
+        private Timeout timeout;
+        private boolean removed;
+
+        private DeviceQueue(long terminalKey) {
+            this.terminalKey = terminalKey;
+            this.terminalId = TerminalKey.toTerminalId(terminalKey);
+        }
+
+        private int size() {
+            return pending.size() + (Objects.isNull(inflight) ? 0 : 1);
+        }
+
+        //按策略淘汰一条待发送消息,无可淘汰时返回 null
+        private TextMessage evict(boolean urgent) {
+            if (fullPolicy == TextFullPolicy.DROP_NON_URGENT) {
+                Iterator<TextMessage> it = pending.iterator();
+                while (it.hasNext()) {
+                    var message = it.next();
+                    if (!message.isUrgent()) {
+                        it.remove();
+                        return message;
+                    }
+                }
+                //全部为紧急消息,新消息非紧急时拒绝
+                if (!urgent)
+                    return null;
+            }
+            return pending.pollFirst();
+        }
+
+        private void schedule(long delayMillis) {
+            cancelTimeout();
+            timeout = timer.newTimeout(t -> onTimeout(this), Math.max(1, delayMillis), TimeUnit.MILLISECONDS);
+        }
+
+        private void cancelTimeout() {
+            if (Objects.nonNull(timeout)) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+    }
+
+    //锁内收集写出与结果,释放锁后再执行
+    private final class Events {
+        private List<Runnable> actions;
+
+        private void send(Channel channel, TextMessage message, int flowId, boolean retry) {
+            add(() -> TextQueueManager.this.send(channel, message, flowId, retry));
+        }
+
+        private void delivered(TextMessage message) {
+            queued.decrementAndGet();
+            delivered.increment();
+            add(() -> callback.onDelivered(message));
+        }
+
+        private void failed(TextMessage message, String reason) {
+            queued.decrementAndGet();
+            failed.increment();
+            add(() -> callback.onFailed(message, reason));
+        }
+
+        private void expired(TextMessage message) {
+            queued.decrementAndGet();
+            expired.increment();
+            add(() -> callback.onExpired(message));
+        }
+
+        private void add(Runnable action) {
+            if (Objects.isNull(actions))
+                actions = new ArrayList<>(2);
+            actions.add(action);
+        }
+
+        private void fire() {
+            if (Objects.isNull(actions))
+                return;
+            for (var action : actions) {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.error("text callback failed", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cn.jascript.zt808.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单调递增计数器。
+ */
+public final class Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long n) {
+        adder.add(n);
+    }
+
+    public long count() {
+        return adder.sum();
+    }
+}
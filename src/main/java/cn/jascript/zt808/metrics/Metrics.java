@@ -0,0 +1,141 @@
+package cn.jascript.zt808.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 轻量指标注册表：计数器(LongAdder)、延迟直方图、按需取值的 gauge。
+ * 指标名与标签遵循 Prometheus 文本格式，{@link #scrape()} 输出文本，{@link #snapshot()} 供 JMX 扁平读取。
+ * 热路径应在初始化时取得 Counter/LatencyHistogram 引用并持有，避免每次按名称查表。
+ */
+public final class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_SUFFIXES = {".p50", ".p90", ".p99", ".p999"};
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, MsgIdLatency> msgIdLatencies = new ConcurrentHashMap<>();
+
+    public static Metrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final Metrics INSTANCE = new Metrics();
+
+        private Holder() {
+        }
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public Counter counter(String name, String label, String value) {
+        return counter(key(name, label, value));
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    public LatencyHistogram histogram(String name, String label, String value) {
+        return histogram(key(name, label, value));
+    }
+
+    public MsgIdLatency msgIdLatency(String name) {
+        return msgIdLatencies.computeIfAbsent(name, k -> new MsgIdLatency(this, k));
+    }
+
+    /**
+     * 注册 gauge，同名重复注册时覆盖(如重启组件后重新绑定)。
+     */
+    public void gauge(String name, DoubleSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public void gauge(String name, String label, String value, DoubleSupplier supplier) {
+        gauge(key(name, label, value), supplier);
+    }
+
+    private static String key(String name, String label, String value) {
+        return name + "{" + label + "=\"" + value + "\"}";
+    }
+
+    /**
+     * Prometheus 文本格式，直方图输出为 summary(分位数/count/sum，单位秒)并附 _max。
+     */
+    public String scrape() {
+        var sb = new StringBuilder(4096);
+        new TreeMap<>(counters).forEach((k, c) -> line(sb, k, c.count()));
+        new TreeMap<>(gauges).forEach((k, g) -> line(sb, k, read(g)));
+        new TreeMap<>(histograms).forEach((k, h) -> {
+            var name = baseName(k);
+            var labels = labels(k);
+            for (var q : QUANTILES) {
+                line(sb, name + "{" + labels + (labels.isEmpty() ? "" : ",") + "quantile=\"" + q + "\"}", seconds(h.quantileNanos(q)));
+            }
+            var suffixLabels = labels.isEmpty() ? "" : "{" + labels + "}";
+            line(sb, name + "_count" + suffixLabels, h.count());
+            line(sb, name + "_sum" + suffixLabels, seconds(h.sumNanos()));
+            line(sb, name + "_max" + suffixLabels, seconds(h.maxNanos()));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * 扁平快照：计数器与 gauge 原值，直方图展开为 .p50/.p90/.p99/.p999/.max(毫秒)与 .count。
+     */
+    public Map<String, Double> snapshot() {
+        var result = new TreeMap<String, Double>();
+        counters.forEach((k, c) -> result.put(k, (double) c.count()));
+        gauges.forEach((k, g) -> result.put(k, read(g)));
+        histograms.forEach((k, h) -> {
+            for (int i = 0; i < QUANTILES.length; i++) {
+                result.put(k + QUANTILE_SUFFIXES[i], millis(h.quantileNanos(QUANTILES[i])));
+            }
+            result.put(k + ".max", millis(h.maxNanos()));
+            result.put(k + ".count", (double) h.count());
+        });
+        return result;
+    }
+
+    private static double read(DoubleSupplier gauge) {
+        try {
+            return gauge.getAsDouble();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String baseName(String key) {
+        int i = key.indexOf('{');
+        return i < 0 ? key : key.substring(0, i);
+    }
+
+    private static String labels(String key) {
+        int i = key.indexOf('{');
+        return i < 0 ? "" : key.substring(i + 1, key.length() - 1);
+    }
+
+    private static void line(StringBuilder sb, String key, double value) {
+        sb.append(key).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value))
+            sb.append((long) value);
+        else
+            sb.append(value);
+        sb.append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000d;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
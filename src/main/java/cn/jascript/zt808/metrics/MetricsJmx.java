@@ -0,0 +1,91 @@
+package cn.jascript.zt808.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+
+/**
+ * 以 DynamicMBean 暴露 Metrics.snapshot()：每个指标一个只读属性，另有 scrape 操作返回文本格式。
+ */
+@Slf4j
+public class MetricsJmx implements DynamicMBean {
+
+    public static final String OBJECT_NAME = "cn.jascript.zt808:type=Metrics";
+
+    private final Metrics metrics;
+
+    public MetricsJmx(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static void register(Metrics metrics) {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(new MetricsJmx(metrics), name);
+            log.info("metrics mbean registered, name={}", OBJECT_NAME);
+        } catch (Exception e) {
+            log.error("register metrics mbean failed", e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        var value = metrics.snapshot().get(attribute);
+        if (Objects.isNull(value))
+            throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        var snapshot = metrics.snapshot();
+        var list = new AttributeList();
+        for (var attribute : attributes) {
+            var value = snapshot.get(attribute);
+            if (Objects.nonNull(value))
+                list.add(new Attribute(attribute, value));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if ("scrape".equals(actionName))
+            return metrics.scrape();
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        var names = metrics.snapshot().keySet();
+        var attributes = new MBeanAttributeInfo[names.size()];
+        int i = 0;
+        for (var name : names) {
+            attributes[i++] = new MBeanAttributeInfo(name, "java.lang.Double", name, true, false, false);
+        }
+        var scrape = new MBeanOperationInfo("scrape", "Prometheus text format", null, "java.lang.String", MBeanOperationInfo.INFO);
+        return new MBeanInfo(getClass().getName(), "zt808 metrics", attributes, null, new MBeanOperationInfo[]{scrape}, null);
+    }
+}
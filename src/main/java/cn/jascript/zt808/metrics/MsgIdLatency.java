@@ -0,0 +1,33 @@
+package cn.jascript.zt808.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按 msgId 区分的延迟直方图：msgId 直接索引数组，首次出现时创建并注册，记录路径不查表、不装箱。
+ */
+public final class MsgIdLatency {
+
+    private final Metrics metrics;
+    private final String name;
+    private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(0x10000);
+
+    MsgIdLatency(Metrics metrics, String name) {
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    public void record(int msgId, long nanos) {
+        get(msgId).record(nanos);
+    }
+
+    public LatencyHistogram get(int msgId) {
+        int index = msgId & 0xFFFF;
+        var histogram = histograms.get(index);
+        if (Objects.nonNull(histogram))
+            return histogram;
+        histogram = metrics.histogram(name, "msgId", String.format("0x%04X", index));
+        histograms.compareAndSet(index, null, histogram);
+        return histograms.get(index);
+    }
+}
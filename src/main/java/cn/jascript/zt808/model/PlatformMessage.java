@@ -1,15 +1,26 @@
 package cn.jascript.zt808.model;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 import lombok.Data;
 
+import java.util.Objects;
+
+/**
+ * 平台下行消息，引用计数委托给消息体：编码完成或写出失败时由 Netty 释放，消息体可使用池化 buffer。
+ */
 @Data
-public class PlatformMessage {
+public class PlatformMessage implements ReferenceCounted {
     /**
      * 终端号
      */
     private String terminalId;
 
+    /**
+     * 终端号主键(可选)，非 0 时编码直接写入 BCD，无需解析 terminalId
+     */
+    private long terminalKey;
+
     /**
      * 平台消息ID(协议头msgId)
      */
@@ -24,4 +35,47 @@ public class PlatformMessage {
      * 具体消息体
      */
     private ByteBuf body;
+
+    @Override
+    public int refCnt() {
+        return Objects.isNull(body) ? 1 : body.refCnt();
+    }
+
+    @Override
+    public PlatformMessage retain() {
+        if (Objects.nonNull(body))
+            body.retain();
+        return this;
+    }
+
+    @Override
+    public PlatformMessage retain(int increment) {
+        if (Objects.nonNull(body))
+            body.retain(increment);
+        return this;
+    }
+
+    @Override
+    public PlatformMessage touch() {
+        if (Objects.nonNull(body))
+            body.touch();
+        return this;
+    }
+
+    @Override
+    public PlatformMessage touch(Object hint) {
+        if (Objects.nonNull(body))
+            body.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return Objects.nonNull(body) && body.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return Objects.nonNull(body) && body.release(decrement);
+    }
 }
@@ -0,0 +1,114 @@
+package cn.jascript.zt808.model;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Objects;
+
+/**
+ * 终端号主键：消息头中 6 字节 BCD 终端号按原样打包为 long(低 48 位)，用于排重、会话索引等热路径的散列与比较；
+ * 仅在需要时通过 {@link #toTerminalId(long)} 取规范化字符串(去前导 0)，解码侧缓存 long -> String，同一终端复用同一 String 实例。
+ */
+public final class TerminalKey {
+
+    public static final int BCD_LENGTH = 6;
+    private static final int DIGITS = BCD_LENGTH * 2;
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    //直接映射缓存,冲突时覆盖;容量按 5 万级终端在线规模取值
+    private static final int CACHE_SIZE = 1 << 17;
+    private static final Entry[] CACHE = new Entry[CACHE_SIZE];
+
+    private TerminalKey() {
+    }
+
+    // 从 ByteBuf 读取 6 字节 BCD 终端号
+    public static long read(ByteBuf in) {
+        return ((long) in.readUnsignedShort() << 32) | in.readUnsignedInt();
+    }
+
+    // 主键按 6 字节 BCD 写入 ByteBuf
+    public static void write(ByteBuf out, long key) {
+        out.writeShort((int) (key >>> 32));
+        out.writeInt((int) key);
+    }
+
+    // 12 个半字节均为 0-9;解码侧按原样保留终端号,非 BCD 时可能含 0x7E/0x7D
+    public static boolean isBcd(long key) {
+        //任一半字节 >= 10 时加 6 向高位进位
+        long carries = (key + 0x6666_6666_6666L) ^ key ^ 0x6666_6666_6666L;
+        return (key >>> 48) == 0 && (carries & 0x1_1111_1111_1110L) == 0;
+    }
+
+    // 6 字节 BCD 的按字节异或,用于下行编码累计 BCC
+    public static int bcc(long key) {
+        long x = (key ^ (key >>> 24)) & 0xFF_FFFF;
+        x ^= x >>> 8;
+        x ^= x >>> 16;
+        return (int) x & 0xFF;
+    }
+
+    // 6 字节 BCD 数组转为主键
+    public static long of(byte[] bcd) {
+        long key = 0;
+        for (int i = 0; i < BCD_LENGTH && i < bcd.length; i++) {
+            key = (key << 8) | (bcd[i] & 0xFF);
+        }
+        return key;
+    }
+
+    // 终端号字符串转为主键：仅取数字，超过 12 位时保留右侧 12 位(与 BcdUtil.fromString 一致)
+    public static long fromString(String terminalId) {
+        if (Objects.isNull(terminalId))
+            return 0;
+        long key = 0;
+        for (int i = 0; i < terminalId.length(); i++) {
+            int digit = terminalId.charAt(i) - '0';
+            if (digit >= 0 && digit <= 9)
+                key = (key << 4) | digit;
+        }
+        return key & 0xFFFF_FFFF_FFFFL;
+    }
+
+    // 主键转为规范化终端号(去前导 0,全 0 时保留 12 位 0),命中缓存时不分配
+    public static String toTerminalId(long key) {
+        int index = (int) (mix(key) & (CACHE_SIZE - 1));
+        var entry = CACHE[index];
+        if (Objects.nonNull(entry) && entry.key == key)
+            return entry.terminalId;
+        var terminalId = format(key);
+        //Entry 不可变,并发下覆盖写入是安全的
+        CACHE[index] = new Entry(key, terminalId);
+        return terminalId;
+    }
+
+    private static String format(long key) {
+        var chars = new char[DIGITS];
+        for (int i = 0; i < DIGITS; i++) {
+            chars[i] = HEX_UPPER[(int) (key >>> ((DIGITS - 1 - i) * 4)) & 0x0F];
+        }
+        int start = 0;
+        while (start < DIGITS && chars[start] == '0') {
+            start++;
+        }
+        if (start == DIGITS)
+            return new String(chars);
+        return new String(chars, start, DIGITS - start);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static final class Entry {
+        private final long key;
+        private final String terminalId;
+
+        private Entry(long key, String terminalId) {
+            this.key = key;
+            this.terminalId = terminalId;
+        }
+    }
+}
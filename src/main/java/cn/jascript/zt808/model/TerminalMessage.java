@@ -12,6 +12,8 @@ import lombok.NoArgsConstructor;
 public class TerminalMessage {
     //设备号
     private String terminalId;
+    //设备号主键(6字节BCD打包),用于排重/会话索引等热路径
+    private long terminalKey;
     //消息ID(协议头msgId)
     private int msgId;
     //流水号
@@ -20,4 +22,13 @@ public class TerminalMessage {
     private int bodyLen;
     //具体消息体
     private ByteBuf body;
+    //分包总数,未分包为 0
+    private int totalPackets;
+    //包序号,从 1 开始,未分包为 0
+    private int packetSeq;
+
+    // 是否为分包消息(消息体属性 bit13)
+    public boolean isSplit() {
+        return totalPackets > 0;
+    }
 }
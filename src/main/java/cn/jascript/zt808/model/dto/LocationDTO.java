@@ -2,11 +2,17 @@ package cn.jascript.zt808.model.dto;
 
 import cn.jascript.zt808.constants.AlarmType;
 import cn.jascript.zt808.constants.DataType;
+import cn.jascript.zt808.util.HexUtil;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.netty.buffer.ByteBuf;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 @Data
@@ -49,4 +55,41 @@ public class LocationDTO implements BaseDTO {
 
     //携带报警数据
     private Set<AlarmType> alarmSet = Set.of();
-}
\ No newline at end of file
+
+    //原始报警标志位,仅解析期使用,不参与序列化
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int alarmRaw;
+
+    //原始状态位,仅解析期使用,不参与序列化
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int statusRaw;
+
+    //附加信息 TLV 区间,指向消息体(不持有引用计数),扩展解析完成后由 DataEventHandler 清空
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ByteBuf extra;
+
+    // 报警位 hex,ext 中已有则直接返回,否则按原始值生成
+    public String alarmHex() {
+        var hex = Objects.isNull(ext) ? null : ext.get("alarmHex");
+        return Objects.nonNull(hex) ? hex : HexUtil.toUpperHex(alarmRaw);
+    }
+
+    public String statusHex() {
+        var hex = Objects.isNull(ext) ? null : ext.get("statusHex");
+        return Objects.nonNull(hex) ? hex : HexUtil.toUpperHex(statusRaw);
+    }
+
+    // 附加信息 hex,无附加信息返回 null
+    public String extraHex() {
+        var hex = Objects.isNull(ext) ? null : ext.get("extraHex");
+        if (Objects.nonNull(hex) || Objects.isNull(extra) || !extra.isReadable())
+            return hex;
+        return HexUtil.toUpperHex(extra, extra.readerIndex(), extra.readableBytes());
+    }
+}
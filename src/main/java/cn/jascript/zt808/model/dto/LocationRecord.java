@@ -0,0 +1,297 @@
+package cn.jascript.zt808.model.dto;
+
+import cn.jascript.zt808.constants.AlarmType;
+import cn.jascript.zt808.constants.DataType;
+import cn.jascript.zt808.constants.StandardAlarmType;
+import cn.jascript.zt808.util.HexUtil;
+import com.fasterxml.jackson.annotation.JsonValue;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 位置记录：LocationDTO 的原始类型版本(parser.locationRecord=true 时由位置解析输出)。
+ * 时间为毫秒时间戳、报警/状态为原始位、经纬度为 1e-6 度整数，ext 按需创建；里程与批量类型以原始字段保存，输出时并入 ext。
+ * 实例经 Netty Recycler 池化：转发实现声明不持有 DTO(ForwardProvider.retainsDtos=false)时，由 ForwardDispatcher 在转发后回收，
+ * 之后不得再访问。JSON 由 DtoJsonWriter 直接按原始字段输出，ObjectMapper/其他需要 Bean 的场景通过 toDTO() 按需生成视图。
+ */
+public final class LocationRecord implements BaseDTO {
+
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+    public static final int UNKNOWN = -1;
+
+    private static final double LAT_LON_FACTOR = 1_000_000.0;
+    private static final int BIT_ACC = 0;
+    private static final int BIT_LOCATED = 1;
+
+    private static final Recycler<LocationRecord> RECYCLER = new Recycler<>() {
+        @Override
+        protected LocationRecord newObject(Handle<LocationRecord> handle) {
+            return new LocationRecord(handle);
+        }
+    };
+
+    private final Recycler.Handle<LocationRecord> handle;
+
+    private String terminalId;
+    private long receiveTimeMillis;
+    private long locationTimeMillis = UNKNOWN_TIME;
+    //基本信息是否完整,消息体不足时仅有终端号与接收时间
+    private boolean parsed;
+    private int alarm;
+    private int status;
+    private int latitude;
+    private int longitude;
+    private int height = UNKNOWN;
+    private int speed = UNKNOWN;
+    private int direction = UNKNOWN;
+    private int gpsSignal = UNKNOWN;
+    private int networkSignal = UNKNOWN;
+    //0x01 里程,1/10 km
+    private long mileage = UNKNOWN;
+    //0x0704 位置数据类型
+    private int batchType = UNKNOWN;
+    private Map<String, String> ext;
+    //附加信息 TLV 区间,同 LocationDTO.extra
+    private ByteBuf extra;
+
+    private LocationRecord(Recycler.Handle<LocationRecord> handle) {
+        this.handle = handle;
+    }
+
+    public static LocationRecord newInstance(String terminalId, long receiveTimeMillis) {
+        var record = RECYCLER.get();
+        record.terminalId = terminalId;
+        record.receiveTimeMillis = receiveTimeMillis;
+        return record;
+    }
+
+    /**
+     * 重置并放回对象池，调用后不得再访问该实例。
+     */
+    public void recycle() {
+        terminalId = null;
+        receiveTimeMillis = 0;
+        locationTimeMillis = UNKNOWN_TIME;
+        parsed = false;
+        alarm = 0;
+        status = 0;
+        latitude = 0;
+        longitude = 0;
+        height = UNKNOWN;
+        speed = UNKNOWN;
+        direction = UNKNOWN;
+        gpsSignal = UNKNOWN;
+        networkSignal = UNKNOWN;
+        mileage = UNKNOWN;
+        batchType = UNKNOWN;
+        //保留 map 随实例复用
+        if (Objects.nonNull(ext))
+            ext.clear();
+        extra = null;
+        handle.recycle(this);
+    }
+
+    /**
+     * 写入 0x0200 基本信息。
+     */
+    public void setBasic(int alarm, int status, int latitude, int longitude, int height, int speed, int direction, long locationTimeMillis) {
+        this.parsed = true;
+        this.alarm = alarm;
+        this.status = status;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.height = height;
+        this.speed = speed;
+        this.direction = direction;
+        this.locationTimeMillis = locationTimeMillis;
+    }
+
+    @Override
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    // 每次调用创建新的 Date,热路径使用 receiveTimeMillis()
+    @Override
+    public Date getReceiveTime() {
+        return new Date(receiveTimeMillis);
+    }
+
+    @Override
+    public DataType getDataType() {
+        return DataType.LOCATION;
+    }
+
+    // 自由扩展字段,首次访问时创建;不含 mileage/batchType(见 toDTO)
+    @Override
+    public Map<String, String> getExt() {
+        if (Objects.isNull(ext))
+            ext = new HashMap<>();
+        return ext;
+    }
+
+    // ext 未创建时返回 null,不分配
+    public Map<String, String> extOrNull() {
+        return ext;
+    }
+
+    public long receiveTimeMillis() {
+        return receiveTimeMillis;
+    }
+
+    public long locationTimeMillis() {
+        return locationTimeMillis;
+    }
+
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    public int alarm() {
+        return alarm;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public double latitude() {
+        return latitude / LAT_LON_FACTOR;
+    }
+
+    public double longitude() {
+        return longitude / LAT_LON_FACTOR;
+    }
+
+    public boolean accState() {
+        return (status & (1 << BIT_ACC)) != 0;
+    }
+
+    public boolean located() {
+        return (status & (1 << BIT_LOCATED)) != 0;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int speed() {
+        return speed;
+    }
+
+    public int direction() {
+        return direction;
+    }
+
+    public int gpsSignal() {
+        return gpsSignal;
+    }
+
+    public void gpsSignal(int gpsSignal) {
+        this.gpsSignal = gpsSignal;
+    }
+
+    public int networkSignal() {
+        return networkSignal;
+    }
+
+    public void networkSignal(int networkSignal) {
+        this.networkSignal = networkSignal;
+    }
+
+    public long mileage() {
+        return mileage;
+    }
+
+    public void mileage(long mileage) {
+        this.mileage = mileage;
+    }
+
+    public int batchType() {
+        return batchType;
+    }
+
+    public void batchType(int batchType) {
+        this.batchType = batchType;
+    }
+
+    public ByteBuf extra() {
+        return extra;
+    }
+
+    public void extra(ByteBuf extra) {
+        this.extra = extra;
+    }
+
+    public String alarmHex() {
+        return HexUtil.toUpperHex(alarm);
+    }
+
+    public String statusHex() {
+        return HexUtil.toUpperHex(status);
+    }
+
+    // 附加信息 hex,无附加信息返回 null
+    public String extraHex() {
+        if (Objects.isNull(extra) || !extra.isReadable())
+            return null;
+        return HexUtil.toUpperHex(extra, extra.readerIndex(), extra.readableBytes());
+    }
+
+    /**
+     * 按需生成等价的 LocationDTO(ObjectMapper 序列化亦经此视图)，原始字段并入 ext；视图与记录互不影响。
+     */
+    @JsonValue
+    public LocationDTO toDTO() {
+        var dto = new LocationDTO();
+        dto.setTerminalId(terminalId);
+        dto.setReceiveTime(new Date(receiveTimeMillis));
+        var ext = new HashMap<String, String>();
+        mergeExt(ext);
+        dto.setExt(ext);
+        dto.setSpeed(speed);
+        dto.setGpsSignal(gpsSignal);
+        dto.setNetworkSignal(networkSignal);
+        dto.setHeight(height);
+        dto.setDirection(direction);
+        dto.setAlarmRaw(alarm);
+        dto.setStatusRaw(status);
+        dto.setExtra(extra);
+        if (!parsed)
+            return dto;
+        dto.setLocationTime(locationTimeMillis == UNKNOWN_TIME ? null : new Date(locationTimeMillis));
+        dto.setLatitude(latitude());
+        dto.setLongitude(longitude());
+        dto.setAccState(accState());
+        dto.setLocated(located());
+        dto.setAlarmSet(new LinkedHashSet<AlarmType>(StandardAlarmType.fromAlarmBits(alarm)));
+        return dto;
+    }
+
+    /**
+     * 把 ext 与原始字段(里程、批量类型)合并写入 target，ext 中已有同名键时以 ext 为准。
+     */
+    public void mergeExt(Map<String, String> target) {
+        if (Objects.nonNull(ext))
+            target.putAll(ext);
+        if (mileage != UNKNOWN && !target.containsKey("mileage")) {
+            target.put("mileage", String.valueOf(mileage));
+            target.put("mileageUnit", "0.1km");
+        }
+        if (batchType != UNKNOWN)
+            target.putIfAbsent("batchType", String.valueOf(batchType));
+    }
+
+    @Override
+    public String toString() {
+        return "LocationRecord(terminalId=" + terminalId + ", receiveTimeMillis=" + receiveTimeMillis
+                + ", locationTimeMillis=" + locationTimeMillis + ", latitude=" + latitude() + ", longitude=" + longitude()
+                + ", speed=" + speed + ", direction=" + direction + ", alarm=" + alarmHex() + ", status=" + statusHex() + ")";
+    }
+}
@@ -7,7 +7,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.net.SocketAddress;
-import java.util.Date;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -24,6 +23,11 @@ public class Session {
      */
     private String terminalId;
 
+    /**
+     * 终端号主键(见 TerminalKey)，会话索引的键
+     */
+    private long terminalKey;
+
     /**
      * Netty 通道
      */
@@ -35,19 +39,15 @@ public class Session {
     private SocketAddress remoteAddress;
 
     /**
-     * 鉴权状态
+     * 鉴权状态，鉴权线程写入、IO/业务线程读取
      */
-    private boolean authorized;
+    private volatile boolean authorized;
 
     /**
-     * 最后活跃时间
+     * 最后活跃(收到数据)时间，毫秒，IO 线程写入、空闲扫描读取
      */
-    private Date lastActiveTime;
+    private volatile long lastActiveTime;
 
-    /**
-     * 通道唯一标识，便于根据 channelId 快速移除。
-     */
-    private String channelId;
 
     @Builder.Default
     private AtomicInteger flowIdCounter = new AtomicInteger(0);
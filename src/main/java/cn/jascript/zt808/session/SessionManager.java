@@ -1,24 +1,31 @@
 package cn.jascript.zt808.session;
 
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.util.ConcurrentLongMap;
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Date;
-import java.util.Map;
+import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 管理终端会话：注册、鉴权标记、心跳刷新与统计。
+ * 管理终端会话：注册、鉴权标记与统计。
+ * 会话挂在通道属性上(按通道查找无需查表)，终端索引只有一张以 TerminalKey 为键的表；
+ * 绑定/解绑按会话实例做条件更新，旧连接晚于新连接断开时不会误删新会话。
  */
 @Slf4j
 public class SessionManager {
 
+    public static final AttributeKey<Session> SESSION = AttributeKey.valueOf("zt808.session");
+
     private static final SessionManager INSTANCE = new SessionManager();
 
-    private final Map<String, Session> terminalSessions = new ConcurrentHashMap<>();
-    private final Map<String, Session> channelSessions = new ConcurrentHashMap<>();
+    //long 键,查找不装箱
+    private final ConcurrentLongMap<Session> terminalSessions = new ConcurrentLongMap<>(1024);
+    private final AtomicInteger channelCount = new AtomicInteger();
 
     private SessionManager() {
     }
@@ -28,65 +35,113 @@ public class SessionManager {
     }
 
     public Session register(Channel channel) {
-        var channelId = channel.id().asLongText();
         var session = Session.builder()
                 .channel(channel)
                 .remoteAddress(channel.remoteAddress())
-                .channelId(channelId)
                 .authorized(false)
-                .lastActiveTime(new Date())
+                .lastActiveTime(System.currentTimeMillis())
                 .build();
-        channelSessions.put(channelId, session);
+        var existing = channel.attr(SESSION).setIfAbsent(session);
+        if (Objects.nonNull(existing))
+            return existing;
+        channelCount.incrementAndGet();
         log.info("channel registered, remote={}", session.getRemoteAddress());
         return session;
     }
 
-    public void bindTerminal(String terminalId, Channel channel) {
-        var session = findByChannel(channel).orElseGet(() -> register(channel));
-        session.setTerminalId(terminalId);
-        session.setLastActiveTime(new Date());
-        terminalSessions.put(terminalId, session);
-        log.info("terminal bound, terminalId={}, remote={}", terminalId, session.getRemoteAddress());
+    public boolean bindTerminal(String terminalId, Channel channel) {
+        return bindTerminal(TerminalKey.fromString(terminalId), terminalId, channel);
     }
 
-    public void authorize(String terminalId, boolean authorized) {
-        Optional.ofNullable(terminalSessions.get(terminalId)).ifPresent(session -> {
-            session.setAuthorized(authorized);
-            log.info("terminal auth update, terminalId={}, authorized={}", terminalId, authorized);
-        });
+    /**
+     * 把连接的会话绑定到终端号，连接已断开(会话已注销)时返回 false，不会为已关闭的连接新建会话。
+     * 鉴权在业务线程执行，可能晚于 channelInactive，索引按实例 CAS 更新后再确认会话仍挂在连接上。
+     */
+    public boolean bindTerminal(long terminalKey, String terminalId, Channel channel) {
+        var session = channel.attr(SESSION).get();
+        if (Objects.isNull(session) || !channel.isActive()) {
+            log.info("bind terminal on closed channel ignored, terminalId={}, remote={}", terminalId, channel.remoteAddress());
+            return false;
+        }
+        //同一连接改绑其他终端号时先解除旧索引
+        if (Objects.nonNull(session.getTerminalId()) && session.getTerminalKey() != terminalKey)
+            remove(session.getTerminalKey(), session);
+        session.setTerminalId(terminalId);
+        session.setTerminalKey(terminalKey);
+        session.setLastActiveTime(System.currentTimeMillis());
+        Session previous;
+        while (true) {
+            previous = terminalSessions.putIfAbsent(terminalKey, session);
+            if (Objects.isNull(previous) || previous == session || terminalSessions.replace(terminalKey, previous, session))
+                break;
+        }
+        //unregister 先清属性再删索引,这里先写索引再检查属性,两者交错时总有一方完成清理
+        if (channel.attr(SESSION).get() != session) {
+            remove(terminalKey, session);
+            log.info("channel closed during bind, terminalId={}, remote={}", terminalId, session.getRemoteAddress());
+            return false;
+        }
+        if (Objects.nonNull(previous) && previous != session)
+            log.info("terminal rebound, terminalId={}, remote={}, previousRemote={}",
+                    terminalId, session.getRemoteAddress(), previous.getRemoteAddress());
+        else
+            log.info("terminal bound, terminalId={}, remote={}", terminalId, session.getRemoteAddress());
+        return true;
     }
 
-    public void refreshActiveTime(String terminalId) {
-        if (Objects.isNull(terminalId) || terminalId.isEmpty())
+    public void authorize(String terminalId, boolean authorized) {
+        var session = terminalSessions.get(TerminalKey.fromString(terminalId));
+        if (Objects.isNull(session))
             return;
-        var sessionOpt =  Optional.ofNullable(terminalSessions.get(terminalId));
-        sessionOpt.ifPresent(
-                session -> session.setLastActiveTime(new Date())
-        );
+        session.setAuthorized(authorized);
+        log.info("terminal auth update, terminalId={}, authorized={}", terminalId, authorized);
     }
 
     public void unregister(Channel channel) {
-        var channelId = channel.id().asLongText();
-        var session = channelSessions.remove(channelId);
-        if (Objects.isNull(session)) {
+        var session = channel.attr(SESSION).getAndSet(null);
+        if (Objects.isNull(session))
             return;
-        }
+        channelCount.decrementAndGet();
         var terminalId = session.getTerminalId();
-        if (Objects.nonNull(terminalId)) {
-            terminalSessions.remove(terminalId);
-        }
+        if (Objects.nonNull(terminalId))
+            remove(session.getTerminalKey(), session);
         log.info("channel removed, terminalId={}, remote={}", terminalId, session.getRemoteAddress());
     }
 
+    //仅当索引仍指向该会话实例时移除(Session 的 equals 按字段比较,这里按实例比较)
+    private void remove(long terminalKey, Session session) {
+        terminalSessions.remove(terminalKey, session);
+    }
+
     public Optional<Session> findByTerminal(String terminalId) {
-        return Optional.ofNullable(terminalSessions.get(terminalId));
+        return findByTerminal(TerminalKey.fromString(terminalId));
+    }
+
+    public Optional<Session> findByTerminal(long terminalKey) {
+        return Optional.ofNullable(terminalSessions.get(terminalKey));
     }
 
     public Optional<Session> findByChannel(Channel channel) {
-        return Optional.ofNullable(channelSessions.get(channel.id().asLongText()));
+        return Optional.ofNullable(channel.attr(SESSION).get());
+    }
+
+    // 热路径鉴权判断,不分配 Optional
+    public boolean isAuthorized(long terminalKey) {
+        var session = terminalSessions.get(terminalKey);
+        return Objects.nonNull(session) && session.isAuthorized();
+    }
+
+    // 本节点已绑定终端的会话(弱一致只读视图)
+    public Collection<Session> terminalSessions() {
+        return terminalSessions.values();
     }
 
     public int onlineCount() {
         return terminalSessions.size();
     }
+
+    // 已建立的连接数(含未鉴权)
+    public int channelCount() {
+        return channelCount.get();
+    }
 }
@@ -8,11 +8,7 @@ public class BcdUtil {
     public static String toString(byte[] bcd) {
         if (Objects.isNull(bcd) || bcd.length == 0)
             return "";
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bcd) {
-            sb.append(String.format("%02X", b));
-        }
-        return sb.toString();
+        return HexUtil.toUpperHex(bcd);
     }
 
     // 将 BCD 字符串左侧补 0 的终端号去掉前导 0
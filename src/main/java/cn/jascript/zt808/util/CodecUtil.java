@@ -18,6 +18,15 @@ public final class CodecUtil {
         return bcc;
     }
 
+    // 计算 ByteBuf 指定区间的 BCC（按字节异或，不改变读写索引）
+    public static byte calculateBcc(ByteBuf buf, int index, int length) {
+        byte bcc = 0;
+        for (int i = index; i < index + length; i++) {
+            bcc ^= buf.getByte(i);
+        }
+        return bcc;
+    }
+
     // 转换为无符号 short（0~65535）
     public static int toUnsignedShort(int value) {
         return value & 0xFFFF;
@@ -50,11 +59,7 @@ public final class CodecUtil {
 
     // 将字节数组转为大写 HEX 字符串
     public static String bytesToHex(byte[] data) {
-        if (Objects.isNull(data) || data.length == 0)
-            return "";
-        var sb = new StringBuilder();
-        for (byte b : data) sb.append(String.format("%02X", b));
-        return sb.toString();
+        return HexUtil.toUpperHex(data);
     }
 
     // 判断某个 bit 位是否为 1
@@ -0,0 +1,182 @@
+package cn.jascript.zt808.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * long 键并发映射：读无锁、不装箱、不分配，写操作串行(加锁)，适合读远多于写的索引(如终端会话表)。
+ * 桶内为不可变链表，删除时复制前缀、扩容时复制节点，读线程持有的旧链始终完整；节点值为 volatile，删除时置空。
+ * 迭代为弱一致视图，不复制表。
+ */
+public final class ConcurrentLongMap<V> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private volatile AtomicReferenceArray<Node<V>> table;
+    private volatile int size;
+
+    public ConcurrentLongMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(MAX_CAPACITY, initialCapacity) - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+    }
+
+    public V get(long key) {
+        var tab = table;
+        for (var node = tab.get(index(key, tab.length())); Objects.nonNull(node); node = node.next) {
+            if (node.key == key)
+                return node.value;
+        }
+        return null;
+    }
+
+    // 无映射时写入,返回写入前的值(写入成功为 null)
+    public synchronized V putIfAbsent(long key, V value) {
+        Objects.requireNonNull(value);
+        var node = find(key);
+        if (Objects.nonNull(node))
+            return node.value;
+        var tab = table;
+        int i = index(key, tab.length());
+        tab.set(i, new Node<>(key, value, tab.get(i)));
+        size++;
+        if (size > tab.length() - (tab.length() >>> 2))
+            resize();
+        return null;
+    }
+
+    // 当前值与 expected 为同一实例时替换
+    public synchronized boolean replace(long key, V expected, V value) {
+        Objects.requireNonNull(value);
+        var node = find(key);
+        if (Objects.isNull(node) || node.value != expected)
+            return false;
+        node.value = value;
+        return true;
+    }
+
+    // 当前值与 expected 为同一实例时删除
+    public synchronized boolean remove(long key, V expected) {
+        var tab = table;
+        int i = index(key, tab.length());
+        var head = tab.get(i);
+        var node = head;
+        while (Objects.nonNull(node) && node.key != key) {
+            node = node.next;
+        }
+        if (Objects.isNull(node) || node.value != expected)
+            return false;
+        //复制被删节点之前的部分,之后的部分共享
+        var rebuilt = node.next;
+        for (var p = head; p != node; p = p.next) {
+            rebuilt = new Node<>(p.key, p.value, rebuilt);
+        }
+        tab.set(i, rebuilt);
+        node.value = null;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(table);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private Node<V> find(long key) {
+        var tab = table;
+        for (var node = tab.get(index(key, tab.length())); Objects.nonNull(node); node = node.next) {
+            if (node.key == key)
+                return node;
+        }
+        return null;
+    }
+
+    //容量翻倍,节点复制到新表后整体替换,旧表上的读不受影响
+    private void resize() {
+        var old = table;
+        if (old.length() >= MAX_CAPACITY)
+            return;
+        var tab = new AtomicReferenceArray<Node<V>>(old.length() << 1);
+        for (int i = 0; i < old.length(); i++) {
+            for (var node = old.get(i); Objects.nonNull(node); node = node.next) {
+                int j = index(node.key, tab.length());
+                tab.set(j, new Node<>(node.key, node.value, tab.get(j)));
+            }
+        }
+        table = tab;
+    }
+
+    private static int index(long key, int length) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (length - 1);
+    }
+
+    private static final class Node<V> {
+        private final long key;
+        private volatile V value;
+        private final Node<V> next;
+
+        private Node(long key, V value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class ValueIterator<V> implements Iterator<V> {
+        private final AtomicReferenceArray<Node<V>> tab;
+        private int bucket;
+        private Node<V> node;
+        private V next;
+
+        private ValueIterator(AtomicReferenceArray<Node<V>> tab) {
+            this.tab = tab;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return Objects.nonNull(next);
+        }
+
+        @Override
+        public V next() {
+            if (Objects.isNull(next))
+                throw new NoSuchElementException();
+            var value = next;
+            advance();
+            return value;
+        }
+
+        //跳过已删除(值为 null)的节点
+        private void advance() {
+            next = null;
+            while (Objects.isNull(next)) {
+                if (Objects.nonNull(node))
+                    node = node.next;
+                while (Objects.isNull(node) && bucket < tab.length()) {
+                    node = tab.get(bucket++);
+                }
+                if (Objects.isNull(node))
+                    return;
+                next = node.value;
+            }
+        }
+    }
+}
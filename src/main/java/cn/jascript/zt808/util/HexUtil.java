@@ -1,5 +1,7 @@
 package cn.jascript.zt808.util;
 
+import io.netty.buffer.ByteBuf;
+
 import java.util.Objects;
 
 public class HexUtil {
@@ -22,4 +24,28 @@ public class HexUtil {
         }
         return new String(out);
     }
+
+    // 将 buf 中 [index, index+length) 转为大写 HEX 字符串,不移动读写指针
+    public static String toUpperHex(ByteBuf buf, int index, int length) {
+        if (Objects.isNull(buf) || length <= 0)
+            return "";
+        char[] out = new char[length * 2];
+        int i = 0;
+        for (int end = index + length; index < end; index++) {
+            int v = buf.getUnsignedByte(index);
+            out[i++] = HEX_UPPER[v >>> 4];
+            out[i++] = HEX_UPPER[v & 0x0F];
+        }
+        return new String(out);
+    }
+
+    // int 转 8 位大写 HEX,等价于 String.format("%08X", value)
+    public static String toUpperHex(int value) {
+        char[] out = new char[8];
+        for (int i = 7; i >= 0; i--) {
+            out[i] = HEX_UPPER[value & 0x0F];
+            value >>>= 4;
+        }
+        return new String(out);
+    }
 }
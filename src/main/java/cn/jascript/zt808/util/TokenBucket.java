@@ -0,0 +1,34 @@
+package cn.jascript.zt808.util;
+
+/**
+ * 令牌桶：按固定速率补充令牌，容量为突发上限；ratePerSecond<=0 表示不限速。
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // 尝试获取一个令牌，获取失败返回 false
+    public synchronized boolean tryAcquire() {
+        if (ratePerNano <= 0)
+            return true;
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerNano);
+        lastRefillNanos = now;
+        if (tokens < 1)
+            return false;
+        tokens -= 1;
+        return true;
+    }
+}
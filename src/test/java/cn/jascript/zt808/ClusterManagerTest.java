@@ -0,0 +1,217 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.cluster.ClusterManager;
+import cn.jascript.zt808.cluster.InMemorySessionDirectory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.message.sender.MsgSenderProvider;
+import cn.jascript.zt808.message.sender.queue.TextCallback;
+import cn.jascript.zt808.message.sender.queue.TextMessage;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.session.Session;
+import cn.jascript.zt808.session.SessionRouter;
+import cn.jascript.zt808.testkit.ManualTimer;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterManagerTest {
+
+    private static final String TERMINAL_ID = "13800138000";
+    private static final String SECRET = "relay-secret";
+
+    private final InMemorySessionDirectory directory = new InMemorySessionDirectory();
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (var node : nodes) {
+            node.manager.shutdown();
+            node.textQueue.shutdown();
+            node.channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void send_shouldRelayToOwnerNode() throws Exception {
+        var a = node();
+        var b = node();
+        b.online(TERMINAL_ID);
+        directory.register(TERMINAL_ID, b.manager.getNodeId());
+
+        assertTrue(a.manager.send(TERMINAL_ID, MsgId.PUSH_TEXT, new byte[]{0x01, 0x41}).get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, b.sent.size());
+        assertTrue(a.sent.isEmpty());
+        assertEquals(1, a.manager.relayed());
+        assertEquals(1, b.manager.received());
+    }
+
+    @Test
+    void send_offlineEverywhere_shouldReturnFalse() throws Exception {
+        var a = node();
+        assertFalse(a.manager.send(TERMINAL_ID, MsgId.PUSH_TEXT, new byte[]{0x01}).get(5, TimeUnit.SECONDS));
+        assertEquals(0, a.manager.relayed());
+    }
+
+    @Test
+    void send_staleNearCache_shouldRetryWithDirectory() throws Exception {
+        var a = node();
+        var b = node();
+        var c = node();
+        b.online(TERMINAL_ID);
+        directory.register(TERMINAL_ID, b.manager.getNodeId());
+        assertTrue(a.manager.send(TERMINAL_ID, MsgId.PUSH_TEXT, new byte[]{0x01}).get(5, TimeUnit.SECONDS));
+
+        // 终端迁移到 c,a 的近端缓存仍指向 b
+        b.offline(TERMINAL_ID);
+        c.online(TERMINAL_ID);
+        directory.register(TERMINAL_ID, c.manager.getNodeId());
+
+        assertTrue(a.manager.send(TERMINAL_ID, MsgId.PUSH_TEXT, new byte[]{0x01}).get(5, TimeUnit.SECONDS));
+        assertEquals(1, c.sent.size());
+        assertEquals(Optional.of(c.manager.getNodeId()), a.manager.lookup(TERMINAL_ID));
+    }
+
+    @Test
+    void onBound_shouldInvalidatePreviousNode() throws Exception {
+        var b = node();
+        var c = node();
+        b.online(TERMINAL_ID);
+        b.manager.onBound(TERMINAL_ID);
+        waitUntil(() -> directory.lookup(TERMINAL_ID).isPresent());
+
+        c.online(TERMINAL_ID);
+        c.manager.onBound(TERMINAL_ID);
+
+        // b 上残留的旧连接被关闭
+        waitUntil(() -> !b.channel.isOpen());
+        assertEquals(Optional.of(c.manager.getNodeId()), directory.lookup(TERMINAL_ID));
+
+        c.manager.onUnbound(TERMINAL_ID);
+        waitUntil(() -> directory.lookup(TERMINAL_ID).isEmpty());
+    }
+
+    @Test
+    void submitText_shouldQueueOnOwnerNode() throws Exception {
+        var a = node();
+        var b = node();
+        b.online(TERMINAL_ID);
+        directory.register(TERMINAL_ID, b.manager.getNodeId());
+
+        assertTrue(a.textQueue.submit(TERMINAL_ID, 0, "A").isPresent());
+
+        // 由 b 的队列下发并等待应答,a 不保留
+        waitUntil(() -> b.sent.size() == 1);
+        assertEquals(1, b.textQueue.queued(TERMINAL_ID));
+        waitUntil(() -> a.textQueue.relayed() == 1);
+        assertEquals(0, a.textQueue.queued());
+        assertTrue(a.sent.isEmpty());
+    }
+
+    @Test
+    void submitText_offlineEverywhere_shouldQueueLocally() throws Exception {
+        var a = node();
+        var b = node();
+        // 目录指向 b 但 b 上已无会话
+        directory.register(TERMINAL_ID, b.manager.getNodeId());
+
+        assertTrue(a.textQueue.submit(TERMINAL_ID, 0, "A").isPresent());
+
+        waitUntil(() -> a.textQueue.queued(TERMINAL_ID) == 1);
+        assertEquals(0, a.textQueue.relayed());
+        assertEquals(0, b.textQueue.queued());
+    }
+
+    @Test
+    void relay_wrongSecret_shouldBeRejected() throws Exception {
+        var a = node("other-secret");
+        var b = node();
+        b.online(TERMINAL_ID);
+        directory.register(TERMINAL_ID, b.manager.getNodeId());
+
+        assertFalse(a.manager.send(TERMINAL_ID, MsgId.PUSH_TEXT, new byte[]{0x01}).get(5, TimeUnit.SECONDS));
+        assertTrue(b.sent.isEmpty());
+        waitUntil(() -> b.manager.relayAuthRejected() == 1);
+    }
+
+    private Node node() throws Exception {
+        return node(SECRET);
+    }
+
+    private Node node(String secret) throws Exception {
+        var config = new AppConfig.ClusterConfig();
+        config.setEnable(true);
+        config.setRelayHost("127.0.0.1");
+        config.setRelayPort(0);
+        config.setRelayTimeoutMillis(2000);
+        config.setRelaySecret(secret);
+        var node = new Node(config);
+        node.manager.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    // 模拟一个节点:本地会话表 + 记录下发的 MsgSenderProvider
+    private final class Node {
+        private final EmbeddedChannel channel = new EmbeddedChannel();
+        private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+        private final List<byte[]> sent = Collections.synchronizedList(new ArrayList<>());
+        private final ClusterManager manager;
+        private TextQueueManager textQueue;
+
+        private Node(AppConfig.ClusterConfig config) {
+            var router = new SessionRouter() {
+                @Override
+                public Optional<Session> routeSession(String terminalId) {
+                    return Optional.ofNullable(sessions.get(terminalId));
+                }
+            };
+            MsgSenderProvider sender = (ch, terminalId, flowId, message, params) -> {
+                if (Objects.isNull(ch) || !ch.isActive())
+                    return false;
+                sent.add(message);
+                return true;
+            };
+            this.manager = new ClusterManager(config, directory, router, sender, () -> this.textQueue);
+            var timer = new ManualTimer(1_000_000L);
+            TextCallback callback = new TextCallback() {
+                @Override
+                public void onDelivered(TextMessage message) {
+                }
+
+                @Override
+                public void onExpired(TextMessage message) {
+                }
+            };
+            this.textQueue = new TextQueueManager(new AppConfig.TextConfig(), sender, callback, router, timer, timer::now, manager);
+        }
+
+        private void online(String terminalId) {
+            sessions.put(terminalId, Session.builder().terminalId(terminalId).channel(channel).authorized(true).build());
+        }
+
+        private void offline(String terminalId) {
+            sessions.remove(terminalId);
+        }
+    }
+}
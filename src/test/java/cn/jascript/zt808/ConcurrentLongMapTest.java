@@ -0,0 +1,45 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.util.ConcurrentLongMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentLongMapTest {
+
+    @Test
+    void putReplaceRemove_shouldCompareByInstance() {
+        var map = new ConcurrentLongMap<String>(16);
+        var a = new String("a");
+        var b = new String("a");
+        assertNull(map.putIfAbsent(1L, a));
+        assertSame(a, map.putIfAbsent(1L, b));
+        // 值相等但实例不同,不替换/不删除
+        assertFalse(map.replace(1L, b, b));
+        assertFalse(map.remove(1L, b));
+        assertTrue(map.replace(1L, a, b));
+        assertSame(b, map.get(1L));
+        assertTrue(map.remove(1L, b));
+        assertNull(map.get(1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void resize_shouldKeepAllEntries() {
+        var map = new ConcurrentLongMap<Long>(16);
+        for (long key = 0; key < 10_000; key++) {
+            assertNull(map.putIfAbsent(key * 31, key));
+        }
+        for (long key = 0; key < 10_000; key += 2) {
+            assertTrue(map.remove(key * 31, map.get(key * 31)));
+        }
+        assertEquals(5_000, map.size());
+        var values = new HashSet<Long>(map.values());
+        assertEquals(5_000, values.size());
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(key % 2 == 1 ? Long.valueOf(key) : null, map.get(key * 31));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.boot.StartupValidator;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.config.ConfigListener;
+import cn.jascript.zt808.config.ConfigReloader;
+import cn.jascript.zt808.message.parser.MsgParserProviderFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigReloaderTest {
+
+    @TempDir
+    Path dir;
+
+    private AppConfig original;
+    private String baseYaml;
+    private Path file;
+    private ConfigReloader reloader;
+    private final List<AppConfig> published = new ArrayList<>();
+    private final ConfigListener listener = (previous, current) -> published.add(current);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        original = AppConfig.get();
+        try (InputStream in = Objects.requireNonNull(AppConfig.class.getResourceAsStream("/application.yaml"))) {
+            baseYaml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        file = dir.resolve("application.yaml");
+        Files.writeString(file, baseYaml);
+        reloader = new ConfigReloader(file, StartupValidator::validate);
+        AppConfig.addListener(listener);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reloader.stop();
+        AppConfig.removeListener(listener);
+        AppConfig.publish(original);
+    }
+
+    @Test
+    void reload_shouldPublishNewSnapshot() throws IOException {
+        var before = AppConfig.get();
+        Files.writeString(file, baseYaml
+                .replace("blackList: []", "blackList: [\"013800138000\"]")
+                .replace("ttlSeconds: 60", "ttlSeconds: 120"));
+
+        assertTrue(reloader.reload());
+        var current = AppConfig.get();
+        assertNotSame(before, current);
+        assertTrue(current.getAuth().getBlackList().contains("13800138000"));
+        assertEquals(120, current.getDuplicate().getTtlSeconds());
+        assertEquals(1, published.size());
+        // 旧快照保持不变
+        assertFalse(before.getAuth().getBlackList().contains("13800138000"));
+        // 重载后解析器映射仍可用
+        assertTrue(MsgParserProviderFactory.getInstance().getProvider(0x0102).isPresent());
+    }
+
+    @Test
+    void reload_restartRequiredKeys_shouldKeepCurrentValues() throws IOException {
+        var before = AppConfig.get();
+        Files.writeString(file, baseYaml
+                .replace("flushConsolidation: true", "flushConsolidation: false")
+                .replace("timeoutSeconds: 30", "timeoutSeconds: 5")
+                .replace("code: 123456", "code: 654321"));
+
+        assertTrue(reloader.reload());
+        var current = AppConfig.get();
+        assertEquals("654321", current.getAuth().getCode());
+        // 新连接装配时读取的非热更新配置不随重载变化
+        assertEquals(before.getServer().isFlushConsolidation(), current.getServer().isFlushConsolidation());
+        assertEquals(before.getServer().getSplit().getTimeoutSeconds(), current.getServer().getSplit().getTimeoutSeconds());
+        assertEquals(before.getString("server.flushConsolidation", ""), current.getString("server.flushConsolidation", ""));
+    }
+
+    @Test
+    void reload_onlyRestartRequiredKeys_shouldNotPublish() throws IOException {
+        Files.writeString(file, baseYaml.replace("flushConsolidation: true", "flushConsolidation: false"));
+        assertTrue(reloader.reload());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void reload_unchangedFile_shouldNotPublish() {
+        assertTrue(reloader.reload());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void reload_invalidConfig_shouldKeepCurrent() throws IOException {
+        var before = AppConfig.get();
+        // 必需的鉴权解析器映射指向不存在的类
+        Files.writeString(file, baseYaml.replace("cn.jascript.zt808.message.parser.provider.AuthMsgParserProvider",
+                "cn.jascript.zt808.NoSuchProvider"));
+        assertFalse(reloader.reload());
+        assertSame(before, AppConfig.get());
+
+        Files.writeString(file, "");
+        assertFalse(reloader.reload());
+        Files.writeString(file, "auth: [unclosed");
+        assertFalse(reloader.reload());
+        assertSame(before, AppConfig.get());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void watch_shouldReloadOnFileChange() throws Exception {
+        Files.writeString(file, baseYaml.replace("debounceMillis: 500", "debounceMillis: 50"));
+        assertTrue(reloader.reload());
+        reloader.start();
+
+        Files.writeString(file, baseYaml
+                .replace("debounceMillis: 500", "debounceMillis: 50")
+                .replace("code: 123456", "code: 654321"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"654321".equals(AppConfig.get().getAuth().getCode()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("654321", AppConfig.get().getAuth().getCode());
+    }
+}
@@ -0,0 +1,118 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.DecoderMode;
+import cn.jascript.zt808.handler.ConnectionLimitHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionLimitHandlerTest {
+
+    private final List<EmbeddedChannel> children = new ArrayList<>();
+    private EmbeddedChannel server;
+
+    @AfterEach
+    void tearDown() {
+        children.forEach(EmbeddedChannel::finishAndReleaseAll);
+        if (Objects.nonNull(server))
+            server.finishAndReleaseAll();
+    }
+
+    @Test
+    void maxConnections_shouldRejectAndReleaseOnClose() {
+        var handler = handler(2, 0, 0, 0, 0);
+        var first = accept("10.0.0.1");
+        var second = accept("10.0.0.2");
+        var third = accept("10.0.0.3");
+
+        assertTrue(first.isOpen());
+        assertTrue(second.isOpen());
+        // 超出最大连接数的子连接直接关闭,不交给后续处理器
+        assertFalse(third.isOpen());
+        assertSame(first, server.readInbound());
+        assertSame(second, server.readInbound());
+        assertNull(server.readInbound());
+        assertEquals(2, handler.activeConnections());
+        assertEquals(2, handler.accepted());
+        assertEquals(1, handler.rejectedByMaxConnections());
+
+        // 子连接关闭后释放名额
+        first.close();
+        assertEquals(1, handler.activeConnections());
+        var fourth = accept("10.0.0.4");
+        assertTrue(fourth.isOpen());
+        assertEquals(2, handler.activeConnections());
+        assertEquals(1, handler.rejectedByMaxConnections());
+    }
+
+    @Test
+    void acceptRate_shouldRejectBeyondBurst() {
+        // 1 个/秒,突发 2:测试期间不足以补充一个令牌
+        var handler = handler(0, 1, 2, 0, 0);
+        assertTrue(accept("10.0.0.1").isOpen());
+        assertTrue(accept("10.0.0.2").isOpen());
+        assertFalse(accept("10.0.0.3").isOpen());
+
+        assertEquals(2, handler.accepted());
+        assertEquals(1, handler.rejectedByAcceptRate());
+        assertEquals(0, handler.rejectedByIpRate());
+        assertEquals(2, handler.activeConnections());
+    }
+
+    @Test
+    void perIpRate_shouldLimitEachAddressSeparately() {
+        var handler = handler(0, 0, 0, 1, 1);
+        assertTrue(accept("10.0.0.1").isOpen());
+        assertFalse(accept("10.0.0.1").isOpen());
+        // 其他 IP 不受影响
+        assertTrue(accept("10.0.0.2").isOpen());
+
+        assertEquals(2, handler.accepted());
+        assertEquals(1, handler.rejectedByIpRate());
+        assertEquals(0, handler.rejectedByAcceptRate());
+        assertEquals(0, handler.rejectedByMaxConnections());
+    }
+
+    @Test
+    void nonChannelMessage_shouldPassThrough() {
+        handler(1, 0, 0, 0, 0);
+        server.writeInbound("not a channel");
+        assertEquals("not a channel", server.readInbound());
+    }
+
+    private ConnectionLimitHandler handler(int maxConnections, int acceptRate, int acceptBurst, int perIpRate, int perIpBurst) {
+        var config = new AppConfig.ServerConfig(0, 360, maxConnections, DecoderMode.FUSED);
+        var admission = config.getAdmission();
+        admission.setAcceptRatePerSecond(acceptRate);
+        admission.setAcceptBurst(acceptBurst);
+        admission.setPerIpRatePerSecond(perIpRate);
+        admission.setPerIpBurst(perIpBurst);
+        var handler = new ConnectionLimitHandler(config);
+        server = new EmbeddedChannel(handler);
+        return handler;
+    }
+
+    // 模拟服务端 accept 到一个来自 ip 的子连接
+    private EmbeddedChannel accept(String ip) {
+        var remote = new InetSocketAddress(ip, 40000);
+        var child = new EmbeddedChannel() {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return remote;
+            }
+        };
+        children.add(child);
+        server.writeInbound((Channel) child);
+        return child;
+    }
+}
@@ -32,6 +32,7 @@ public class DownlinkIntegrationTest {
     @AfterEach
     void tearDown() {
         if (Objects.nonNull(channel)) {
+            SessionManager.getInstance().unregister(channel);
             channel.finishAndReleaseAll();
         }
     }
@@ -46,6 +47,8 @@ public class DownlinkIntegrationTest {
                 new DataEventHandler(),
                 EncoderFactory.getMsgEncoder()
         );
+        //生产环境由 ConnectionEventHandler 在连接建立时注册会话
+        SessionManager.getInstance().register(channel);
 
         // register + auth
         var terminalId = "14540756282";
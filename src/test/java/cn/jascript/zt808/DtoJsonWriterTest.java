@@ -0,0 +1,104 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.constants.StandardAlarmType;
+import cn.jascript.zt808.forward.DtoJsonWriter;
+import cn.jascript.zt808.forward.NdJsonFileSink;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.HeartbeatDTO;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.RegisterDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DtoJsonWriterTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void writeArray_shouldMatchObjectMapper() throws Exception {
+        List<BaseDTO> dtos = List.of(location(), emptyLocation(), heartbeat(), register());
+        var buf = Unpooled.buffer();
+        DtoJsonWriter.writeArray(buf, dtos);
+        // 手写字段输出与 ObjectMapper 默认序列化逐字节一致
+        assertEquals(OBJECT_MAPPER.writeValueAsString(dtos), buf.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeNdJson_shouldWriteOneLinePerDto() throws Exception {
+        List<BaseDTO> dtos = List.of(location(), heartbeat(), register());
+        var buf = Unpooled.buffer();
+        DtoJsonWriter.writeNdJson(buf, dtos);
+        var lines = buf.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(4, lines.length);
+        assertEquals("", lines[3]);
+        for (int i = 0; i < dtos.size(); i++) {
+            assertEquals(OBJECT_MAPPER.writeValueAsString(dtos.get(i)), lines[i]);
+        }
+    }
+
+    @Test
+    void fileSink_shouldAppend(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("forward.ndjson");
+        try (var sink = new NdJsonFileSink(file.toString())) {
+            sink.append(List.of(location(), heartbeat()));
+            sink.append(register());
+        }
+        var lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertEquals(OBJECT_MAPPER.writeValueAsString(register()), lines.get(2));
+    }
+
+    private static LocationDTO location() {
+        var dto = new LocationDTO();
+        dto.setTerminalId("14540756282");
+        dto.setReceiveTime(new Date(1765792813123L));
+        dto.setLocationTime(new Date(1765792813000L));
+        dto.setLongitude(121.654321);
+        dto.setLatitude(31.123456);
+        dto.setAccState(true);
+        dto.setLocated(true);
+        dto.setSpeed(800);
+        dto.setHeight(12);
+        dto.setDirection(307);
+        dto.getExt().put("statusHex", "000C0043");
+        dto.getExt().put("mileage", "33\"195");
+        dto.setAlarmSet(Set.of(StandardAlarmType.SOS));
+        return dto;
+    }
+
+    // 可空字段全部为 null
+    private static LocationDTO emptyLocation() {
+        var dto = new LocationDTO();
+        dto.setExt(null);
+        dto.setSpeed(null);
+        dto.setAlarmSet(null);
+        return dto;
+    }
+
+    private static HeartbeatDTO heartbeat() {
+        var dto = new HeartbeatDTO();
+        dto.setTerminalId("14540756282");
+        dto.setReceiveTime(new Date(1765792813123L));
+        return dto;
+    }
+
+    private static RegisterDTO register() {
+        var dto = new RegisterDTO();
+        dto.setTerminalId("14540756282");
+        dto.setManufacturerId("70111");
+        dto.setDeviceModel("KM-02R");
+        dto.setReceiveTime(new Date(1765792813123L));
+        return dto;
+    }
+}
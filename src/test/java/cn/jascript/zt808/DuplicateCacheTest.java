@@ -0,0 +1,46 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.handler.DuplicateCache;
+import cn.jascript.zt808.model.TerminalKey;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateCacheTest {
+
+    @Test
+    void seen_shouldHitWithinTtlAndMissForOtherKeys() {
+        var cache = new DuplicateCache(1000, 60);
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 0x00CD));
+        assertTrue(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 0x00CD));
+
+        // flowId/msgId/终端号/连接任一不同均不算重复
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 0x00CE));
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0002, 0x00CD));
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756283"), 0x0200, 0x00CD));
+        assertFalse(cache.seen(2, TerminalKey.fromString("14540756282"), 0x0200, 0x00CD));
+    }
+
+    @Test
+    void seen_shouldExpireAfterTtl() throws InterruptedException {
+        var cache = new DuplicateCache(1000, 1);
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 1));
+        assertTrue(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 1));
+        Thread.sleep(2100);
+        assertFalse(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 1));
+        assertTrue(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, 1));
+    }
+
+    @Test
+    void seen_shouldStayBoundedWhenFull() {
+        var cache = new DuplicateCache(64, 60);
+        int capacity = cache.capacity();
+        // 写入远超容量的 key,满时覆盖旧槽位,不扩容不抛异常
+        for (int flowId = 0; flowId < capacity * 20; flowId++) {
+            cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, flowId);
+        }
+        assertEquals(capacity, cache.capacity());
+        // 最近写入的 key 仍可命中
+        assertTrue(cache.seen(1, TerminalKey.fromString("14540756282"), 0x0200, capacity * 20 - 1));
+    }
+}
@@ -0,0 +1,222 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.ForwardFullPolicy;
+import cn.jascript.zt808.executor.StripedExecutor;
+import cn.jascript.zt808.forward.ForwardDispatcher;
+import cn.jascript.zt808.forward.ForwardProvider;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.HeartbeatDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForwardDispatcherTest {
+
+    @Test
+    void dispatch_shouldBatchAndKeepOrderPerTerminal() {
+        var batches = Collections.synchronizedList(new ArrayList<List<BaseDTO>>());
+        var config = config(ForwardFullPolicy.BLOCK, 1024, 50);
+        var dispatcher = new ForwardDispatcher(config, recording(batches));
+        for (int i = 0; i < 500; i++) {
+            var terminalId = "1454075628" + (i % 3);
+            dispatcher.dispatch(TerminalKey.fromString(terminalId), List.of(dto(terminalId, i)));
+        }
+        dispatcher.shutdown();
+
+        assertEquals(500, dispatcher.forwarded());
+        assertTrue(dispatcher.maxBatchSize() <= 50);
+        assertTrue(dispatcher.batches() >= 10);
+        assertEquals(0, dispatcher.queueDepth());
+        // 同一终端的数据保持入队顺序
+        var lastSeq = new long[3];
+        Arrays.fill(lastSeq, -1);
+        for (var batch : batches) {
+            for (var dto : batch) {
+                int t = dto.getTerminalId().charAt(dto.getTerminalId().length() - 1) - '0';
+                long seq = dto.getReceiveTime().getTime();
+                assertTrue(seq > lastSeq[t]);
+                lastSeq[t] = seq;
+            }
+        }
+    }
+
+    @Test
+    void bindMetrics_shouldExportBatchStats() {
+        var config = config(ForwardFullPolicy.BLOCK, 1024, 10);
+        var dispatcher = new ForwardDispatcher(config, dtos -> { });
+        var metrics = new Metrics();
+        dispatcher.bindMetrics(metrics);
+        var key = TerminalKey.fromString("14540756282");
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(key, List.of(dto("14540756282", i)));
+        }
+        dispatcher.shutdown();
+
+        var snapshot = metrics.snapshot();
+        assertEquals(100d, snapshot.get("zt808_forward_forwarded_total"));
+        assertEquals((double) dispatcher.batches(), snapshot.get("zt808_forward_batches_total"));
+        assertTrue(snapshot.get("zt808_forward_batches_total") >= 10);
+        assertEquals(100d / dispatcher.batches(), snapshot.get("zt808_forward_batch_size_avg"), 0.001);
+        assertTrue(snapshot.get("zt808_forward_batch_size_max") <= 10);
+        assertTrue(snapshot.get("zt808_forward_drain_latency_max_millis") >= snapshot.get("zt808_forward_drain_latency_avg_millis"));
+        assertTrue(metrics.scrape().contains("zt808_forward_batch_size_max "));
+    }
+
+        @Test
+    void sinkExecutor_shouldRunBlockingBatchesConcurrently() throws InterruptedException {
+        var executorConfig = new AppConfig.BusinessExecutorConfig(0);
+        executorConfig.setStripes(16);
+        executorConfig.setMaxInFlight(4);
+        // 每次排空一个线程,与虚拟线程模式的执行方式一致(JDK 21 以下用普通线程代替)
+        var sinkExecutor = new StripedExecutor(executorConfig, Executors.newCachedThreadPool()) {
+        };
+        var running = new AtomicInteger();
+        var peak = new AtomicInteger();
+        var reached = new CountDownLatch(4);
+        var gate = new CountDownLatch(1);
+        var seen = Collections.synchronizedList(new ArrayList<BaseDTO>());
+        var config = config(ForwardFullPolicy.BLOCK, 1024, 50);
+        config.setWorkers(1);
+        var dispatcher = new ForwardDispatcher(config, dtos -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            reached.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            seen.addAll(dtos);
+            running.decrementAndGet();
+        }, sinkExecutor);
+        // 8 个终端落在不同条带
+        var keys = new ArrayList<Long>();
+        var stripes = new HashSet<Integer>();
+        for (long key = 1; keys.size() < 8; key++) {
+            if (stripes.add(sinkExecutor.stripeIndex(key)))
+                keys.add(key);
+        }
+        for (int i = 0; i < 40; i++) {
+            long key = keys.get(i % keys.size());
+            dispatcher.dispatch(key, List.of(dto(String.valueOf(key), i)));
+        }
+
+        // 单个转发线程,阻塞的 forwardBatch 同时有 maxInFlight 个在执行
+        assertTrue(reached.await(5, TimeUnit.SECONDS));
+        assertEquals(4, dispatcher.sinkInFlight());
+        gate.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(4, peak.get());
+        assertEquals(40, dispatcher.forwarded());
+        // 同一终端的数据保持入队顺序
+        var last = new HashMap<String, Long>();
+        for (var dto : seen) {
+            long seq = dto.getReceiveTime().getTime();
+            assertTrue(seq > last.getOrDefault(dto.getTerminalId(), -1L));
+            last.put(dto.getTerminalId(), seq);
+        }
+    }
+
+        @Test
+    void dispatch_dropOldestWhenFull() throws InterruptedException {
+        var gate = new CountDownLatch(1);
+        var config = config(ForwardFullPolicy.DROP_OLDEST, 16, 1);
+        var dispatcher = new ForwardDispatcher(config, dtos -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var key = TerminalKey.fromString("14540756282");
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(key, List.of(dto("14540756282", i)));
+        }
+        // 下游卡住时业务线程不阻塞,超出容量的最旧数据被丢弃
+        assertTrue(dispatcher.dropped() > 0);
+        gate.countDown();
+        dispatcher.shutdown();
+        assertEquals(100, dispatcher.forwarded() + dispatcher.dropped());
+    }
+
+    @Test
+    void dispatch_spillWhenFull(@TempDir Path dir) throws Exception {
+        var gate = new CountDownLatch(1);
+        var spillFile = dir.resolve("spill.ndjson");
+        var config = config(ForwardFullPolicy.SPILL, 16, 1);
+        config.setSpillFile(spillFile.toString());
+        var dispatcher = new ForwardDispatcher(config, dtos -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var key = TerminalKey.fromString("14540756282");
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(key, List.of(dto("14540756282", i)));
+        }
+        gate.countDown();
+        dispatcher.shutdown();
+
+        assertTrue(dispatcher.spilled() > 0);
+        assertEquals(100, dispatcher.forwarded() + dispatcher.spilled());
+        var lines = Files.readAllLines(spillFile);
+        assertEquals(dispatcher.spilled(), lines.size());
+        assertTrue(lines.get(0).contains("\"terminalId\":\"14540756282\""));
+    }
+
+    @Test
+    void dispatch_syncWhenDisabled() {
+        var batches = new ArrayList<List<BaseDTO>>();
+        var config = config(ForwardFullPolicy.BLOCK, 16, 10);
+        config.setEnable(false);
+        var dispatcher = new ForwardDispatcher(config, recording(batches));
+        dispatcher.dispatch(1L, List.of(dto("1", 1)));
+        // 同步模式在调用线程直接转发
+        assertEquals(1, batches.size());
+        assertFalse(dispatcher.isAsync());
+    }
+
+    private static AppConfig.AsyncForwardConfig config(ForwardFullPolicy policy, int capacity, int batchSize) {
+        var config = new AppConfig.AsyncForwardConfig();
+        config.setEnable(true);
+        config.setWorkers(2);
+        config.setCapacity(capacity);
+        config.setBatchSize(batchSize);
+        config.setLingerMillis(5);
+        config.setFullPolicy(policy);
+        config.setBlockTimeoutMillis(100);
+        return config;
+    }
+
+    private static ForwardProvider recording(List<List<BaseDTO>> batches) {
+        return batches::add;
+    }
+
+    // receiveTime 复用为序号,便于校验顺序
+    private static HeartbeatDTO dto(String terminalId, long seq) {
+        var dto = new HeartbeatDTO();
+        dto.setTerminalId(terminalId);
+        dto.setReceiveTime(new Date(seq));
+        return dto;
+    }
+}
@@ -0,0 +1,175 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import cn.jascript.zt808.util.CodecUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FusedFrameDecoderTest {
+
+    private static final String LOCATION_FRAME_HEX = "7E0200005C06180802758701F800000000000C004302630C1106BF05540417005001332512181148420104000081AB30011C31011D6102058CF7020000EB2A000C00B2898604D91623D122154900060089FFFFFFFE000400CE058C000600C5FFFFFFFF000400B71C1D647E";
+
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (var ch : channels) {
+            ch.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void fusedDecoder_shouldMatchLegacyChain() {
+        var frames = List.of(
+                CodecUtil.hexToBytes(LOCATION_FRAME_HEX),
+                JT808TestKit.heartbeatFrame("14540756282", 0x00CA),
+                // flowId/body 中包含 0x7E/0x7D,编码后带转义序列
+                JT808TestKit.heartbeatFrame("14540756282", 0x7E7D),
+                JT808TestKit.authFrame("14540756282", 0x007D, "~}~}"),
+                JT808TestKit.locationFrame("14540756282", 0x00CD, 0, 0, 31.123456, 121.654321, 0, 80, 0,
+                        LocalDateTime.of(2025, 12, 15, 10, 0, 13))
+        );
+        for (var frame : frames) {
+            var legacy = decodeAll(newLegacyChannel(), frame);
+            var fused = decodeAll(newFusedChannel(), frame);
+            try {
+                assertEquals(1, legacy.size());
+                assertEquals(1, fused.size());
+                assertSameMessage(legacy.get(0), fused.get(0));
+            } finally {
+                releaseAll(legacy);
+                releaseAll(fused);
+            }
+        }
+    }
+
+    @Test
+    void fusedDecoder_shouldHandleStickyAndHalfFrames() {
+        var first = JT808TestKit.heartbeatFrame("14540756282", 0x0001);
+        var second = JT808TestKit.authFrame("14540756282", 0x7E02, "123456");
+        var joined = new byte[first.length + second.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+
+        var channel = newFusedChannel();
+        int half = first.length + second.length / 2;
+        channel.writeInbound(Unpooled.wrappedBuffer(joined, 0, half));
+        channel.writeInbound(Unpooled.wrappedBuffer(joined, half, joined.length - half));
+        channel.checkException();
+
+        TerminalMessage m1 = channel.readInbound();
+        TerminalMessage m2 = channel.readInbound();
+        try {
+            assertNotNull(m1);
+            assertNotNull(m2);
+            assertEquals(0x0002, m1.getMsgId());
+            assertEquals(0x0102, m2.getMsgId());
+            assertEquals(0x7E02, m2.getFlowId() & 0xFFFF);
+            assertEquals("123456", m2.getBody().toString(java.nio.charset.Charset.forName("GBK")));
+            assertNull(channel.readInbound());
+        } finally {
+            ReferenceCountUtil.release(Objects.isNull(m1) ? null : m1.getBody());
+            ReferenceCountUtil.release(Objects.isNull(m2) ? null : m2.getBody());
+        }
+    }
+
+    @Test
+    void fusedDecoder_shouldRejectBadBcc() {
+        var frame = JT808TestKit.heartbeatFrame("14540756282", 0x00CA);
+        // 篡改校验位
+        frame[frame.length - 2] ^= 0x01;
+        var channel = newFusedChannel();
+        assertThrows(DecoderException.class, () -> {
+            channel.writeInbound(Unpooled.wrappedBuffer(frame));
+            channel.checkException();
+        });
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    void fusedDecoder_shouldNotPinLargeCumulation() {
+        var frame = JT808TestKit.authFrame("14540756282", 0x0001, "123456");
+        // 单帧独占缓冲区:消息体保持切片
+        var channel = newFusedChannel();
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+        TerminalMessage small = channel.readInbound();
+        // 同一帧位于 8KB 缓冲区中:消息体拷贝为独立 buffer,不再引用整块缓冲区
+        var large = Unpooled.buffer(8192);
+        large.writeBytes(frame);
+        channel.writeInbound(large);
+        TerminalMessage detached = channel.readInbound();
+        try {
+            assertNotNull(small.getBody().unwrap());
+            assertNull(detached.getBody().unwrap());
+            assertEquals(detached.getBodyLen(), detached.getBody().capacity());
+            assertEquals(0, large.refCnt());
+            assertArrayEquals(toBytes(small.getBody()), toBytes(detached.getBody()));
+        } finally {
+            releaseAll(List.of(small, detached));
+        }
+    }
+
+        private EmbeddedChannel newLegacyChannel() {
+        var channel = new EmbeddedChannel(
+                DecoderFactory.getDelimiterDecoder(),
+                DecoderFactory.getEscapeDecoder(),
+                DecoderFactory.getBccValidDecoder(),
+                DecoderFactory.getMsgDecoder()
+        );
+        channels.add(channel);
+        return channel;
+    }
+
+    private EmbeddedChannel newFusedChannel() {
+        var channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder());
+        channels.add(channel);
+        return channel;
+    }
+
+    private static List<TerminalMessage> decodeAll(EmbeddedChannel channel, byte[] frame) {
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+        channel.checkException();
+        var result = new ArrayList<TerminalMessage>();
+        TerminalMessage message;
+        while (Objects.nonNull(message = channel.readInbound())) {
+            result.add(message);
+        }
+        return result;
+    }
+
+    private static void assertSameMessage(TerminalMessage expected, TerminalMessage actual) {
+        assertEquals(expected.getTerminalId(), actual.getTerminalId());
+        assertEquals(expected.getTerminalKey(), actual.getTerminalKey());
+        assertEquals(TerminalKey.fromString(actual.getTerminalId()), actual.getTerminalKey());
+        assertEquals(expected.getMsgId(), actual.getMsgId());
+        assertEquals(expected.getFlowId(), actual.getFlowId());
+        assertEquals(expected.getBodyLen(), actual.getBodyLen());
+        assertArrayEquals(toBytes(expected.getBody()), toBytes(actual.getBody()));
+    }
+
+    private static byte[] toBytes(ByteBuf buf) {
+        return ByteBufUtil.getBytes(buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    private static void releaseAll(List<TerminalMessage> messages) {
+        for (var m : messages) {
+            ReferenceCountUtil.release(m.getBody());
+        }
+    }
+}
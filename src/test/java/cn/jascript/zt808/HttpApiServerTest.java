@@ -0,0 +1,164 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.http.AdminRoutes;
+import cn.jascript.zt808.http.HttpApiServer;
+import cn.jascript.zt808.message.sender.MsgSenderProvider;
+import cn.jascript.zt808.message.sender.queue.DefaultTextCallback;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.session.SessionRouter;
+import cn.jascript.zt808.testkit.ManualTimer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpApiServerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final SessionManager sessionManager = SessionManager.getInstance();
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TextQueueManager textQueueManager;
+    private HttpApiServer server;
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        var textConfig = new AppConfig.TextConfig();
+        textConfig.setGlobalMaxQueue(2);
+        var timer = new ManualTimer(0);
+        MsgSenderProvider sender = new MsgSenderProvider() {
+            @Override
+            public boolean sendMessage(Channel ch, String terminalId, Integer flowId, byte[] message, Map<String, Object> params) {
+                return true;
+            }
+        };
+        textQueueManager = new TextQueueManager(textConfig, sender, new DefaultTextCallback(), new SessionRouter(), timer, timer::now);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null)
+            server.stop();
+        for (var channel : channels) {
+            sessionManager.unregister(channel);
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void sessions_shouldStreamAllOnlineSessions() throws Exception {
+        // 超过单个分块的会话数,验证分块拼接
+        for (int i = 0; i < 600; i++) {
+            var channel = new EmbeddedChannel();
+            channels.add(channel);
+            sessionManager.register(channel);
+            sessionManager.bindTerminal(String.valueOf(13800000000L + i), channel);
+        }
+        start(new AppConfig.HttpApiConfig());
+
+        var response = get("/sessions", null);
+        assertEquals(200, response.statusCode());
+        assertEquals("chunked", response.headers().firstValue("transfer-encoding").orElse(null));
+        var body = OBJECT_MAPPER.readTree(response.body());
+        assertEquals(600, body.get("count").asInt());
+        var terminalIds = new HashSet<String>();
+        body.get("sessions").forEach(node -> terminalIds.add(node.get("terminalId").asText()));
+        assertEquals(600, terminalIds.size());
+        assertTrue(terminalIds.contains("13800000599"));
+
+        var limited = OBJECT_MAPPER.readTree(get("/sessions?limit=10", null).body());
+        assertEquals(10, limited.get("count").asInt());
+        assertEquals(10, limited.get("sessions").size());
+    }
+
+    @Test
+    void health_shouldReportCounts() throws Exception {
+        start(new AppConfig.HttpApiConfig());
+        var response = get("/health", null);
+        assertEquals(200, response.statusCode());
+        var body = OBJECT_MAPPER.readTree(response.body());
+        assertEquals("UP", body.get("status").asText());
+        assertTrue(body.has("sessions"));
+    }
+
+    @Test
+    void sendText_shouldEnqueueAndReportRejected() throws Exception {
+        start(new AppConfig.HttpApiConfig());
+        var json = "{\"terminalIds\":[\"13800000001\",\"13800000002\",\"13800000003\"],\"text\":\"hello\",\"urgent\":true}";
+        var response = post("/text/send", json);
+        assertEquals(200, response.statusCode());
+        var body = OBJECT_MAPPER.readTree(response.body());
+        // 全局队列上限 2,第三条被拒绝
+        assertEquals(2, body.get("accepted").asInt());
+        assertEquals(1, body.get("rejected").asInt());
+        assertEquals("rejected", body.get("results").get(2).get("error").asText());
+        assertEquals(2, textQueueManager.queued());
+
+        assertEquals(400, post("/text/send", "{\"terminalIds\":[],\"text\":\"x\"}").statusCode());
+        assertEquals(400, post("/text/send", "{\"terminalIds\":[\"abc\"],\"text\":\"x\"}").statusCode());
+        assertEquals(400, post("/text/send", "not json").statusCode());
+        assertEquals(405, get("/text/send", null).statusCode());
+    }
+
+    @Test
+    void basicAuth_shouldRejectMissingOrWrongCredentials() throws Exception {
+        var config = new AppConfig.HttpApiConfig();
+        config.getBasicAuth().setEnable(true);
+        config.getBasicAuth().setUser("admin");
+        config.getBasicAuth().setPasswd("secret");
+        start(config);
+
+        var missing = get("/health", null);
+        assertEquals(401, missing.statusCode());
+        assertTrue(missing.headers().firstValue("www-authenticate").orElse("").startsWith("Basic"));
+        assertEquals(401, get("/health", basic("admin", "wrong")).statusCode());
+        assertEquals(200, get("/health", basic("admin", "secret")).statusCode());
+    }
+
+    private void start(AppConfig.HttpApiConfig config) throws InterruptedException {
+        config.setPort(0);
+        config.setBindAddress("127.0.0.1");
+        server = new HttpApiServer(config);
+        new AdminRoutes(sessionManager, textQueueManager, new Metrics()).register(server, config);
+        port = server.start();
+    }
+
+    private HttpResponse<String> get(String path, String authorization) throws Exception {
+        var builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path));
+        if (authorization != null)
+            builder.header("Authorization", authorization);
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String basic(String user, String passwd) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ":" + passwd).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,102 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.DecoderMode;
+import cn.jascript.zt808.handler.IdleHandlerFactory;
+import cn.jascript.zt808.handler.IdleReaper;
+import cn.jascript.zt808.handler.SplitPacketHandler;
+import cn.jascript.zt808.session.Session;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import cn.jascript.zt808.testkit.ManualTimer;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdleReaperTest {
+
+    @Test
+    void sweep_shouldCloseIdleAndKeepActive() {
+        var timer = new ManualTimer(1_000_000L);
+        var reaper = new IdleReaper(config(10, 4), timer, timer::now);
+        var idle = session(new EmbeddedChannel(), timer.now());
+        var active = session(new EmbeddedChannel(), timer.now());
+        reaper.track(idle);
+        reaper.track(active);
+        assertEquals(2, reaper.tracked());
+
+        // 每 250ms 扫一个桶,1s 覆盖全部连接
+        for (int i = 0; i < 12; i++) {
+            timer.advance(1_000);
+            active.setLastActiveTime(timer.now());
+        }
+
+        assertFalse(idle.getChannel().isOpen());
+        assertTrue(active.getChannel().isOpen());
+        assertEquals(1, reaper.reaped());
+        assertEquals(1, reaper.tracked());
+        reaper.stop();
+    }
+
+    @Test
+    void sweep_shouldLimitClosePerTick() {
+        var timer = new ManualTimer(1_000_000L);
+        var config = config(1, 1);
+        config.setIdleMaxClosePerTick(2);
+        var reaper = new IdleReaper(config, timer, timer::now);
+        for (int i = 0; i < 5; i++) {
+            reaper.track(session(new EmbeddedChannel(), timer.now()));
+        }
+
+        timer.advance(2_000);
+        // 单桶,两次扫描各关闭 2 个
+        assertEquals(4, reaper.reaped());
+        timer.advance(1_000);
+        assertEquals(5, reaper.reaped());
+        assertEquals(0, reaper.tracked());
+        reaper.stop();
+    }
+
+    @Test
+    void disabled_shouldNotTrack() {
+        var timer = new ManualTimer(0);
+        var reaper = new IdleReaper(config(0, 4), timer, timer::now);
+        reaper.track(session(new EmbeddedChannel(), 0));
+        assertFalse(reaper.isEnabled());
+        assertEquals(0, reaper.tracked());
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void splitFragment_shouldRefreshActivityBeforeReassembly() {
+        var channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder(), IdleHandlerFactory.getIdleHandler(),
+                new SplitPacketHandler(new AppConfig.SplitConfig()));
+        var session = SessionManager.getInstance().register(channel);
+        try {
+            session.setLastActiveTime(0);
+            var frames = JT808TestKit.splitFrames(0x0801, "14540756282", 1, new byte[2500], 1000);
+            channel.writeInbound(Unpooled.wrappedBuffer(frames.get(0)));
+            // 中间分包未交给后续处理器,活跃时间已刷新
+            assertNull(channel.readInbound());
+            assertTrue(session.getLastActiveTime() > 0);
+        } finally {
+            SessionManager.getInstance().unregister(channel);
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static AppConfig.ServerConfig config(int idleSeconds, int buckets) {
+        var config = new AppConfig.ServerConfig(0, idleSeconds, 100, DecoderMode.FUSED);
+        config.setIdleSweepSeconds(1);
+        config.setIdleBuckets(buckets);
+        config.setIdleMaxClosePerTick(100);
+        return config;
+    }
+
+    private static Session session(EmbeddedChannel channel, long now) {
+        return Session.builder().channel(channel).lastActiveTime(now).build();
+    }
+}
@@ -0,0 +1,232 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.forward.DtoJsonWriter;
+import cn.jascript.zt808.forward.ForwardDispatcher;
+import cn.jascript.zt808.forward.ForwardProvider;
+import cn.jascript.zt808.message.parser.extprovider.DefaultLocationExtParserProvider;
+import cn.jascript.zt808.message.parser.extprovider.LocationExtParserProvider;
+import cn.jascript.zt808.message.parser.provider.BatchLocationMsgMsgParserProvider;
+import cn.jascript.zt808.message.parser.provider.LocationMsgParserProvider;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.model.dto.BaseDTO;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.model.dto.LocationRecord;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import cn.jascript.zt808.util.CodecUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocationRecordTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String FRAME_HEX = "7E0200005C06180802758701F800000000000C004302630C1106BF05540417005001332512181148420104000081AB30011C31011D6102058CF7020000EB2A000C00B2898604D91623D122154900060089FFFFFFFE000400CE058C000600C5FFFFFFFF000400B71C1D647E";
+
+    private AppConfig original;
+    private EmbeddedChannel channel;
+    private TerminalMessage message;
+
+    @BeforeEach
+    void setUp() {
+        original = AppConfig.get();
+        channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder());
+    }
+
+    @AfterEach
+    void tearDown() {
+        AppConfig.publish(original);
+        if (Objects.nonNull(message))
+            ReferenceCountUtil.release(message.getBody());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void realFrame_recordJson_shouldMatchDto() throws Exception {
+        message = decode(CodecUtil.hexToBytes(FRAME_HEX));
+        var ext = new DefaultLocationExtParserProvider();
+
+        List<BaseDTO> dtos = new LocationMsgParserProvider().parse(channel, message);
+        ext.apply(message, dtos);
+        var dto = (LocationDTO) dtos.get(0);
+
+        publish(true);
+        List<BaseDTO> records = new LocationMsgParserProvider().parse(channel, message);
+        ext.apply(message, records);
+        var record = (LocationRecord) records.get(0);
+        dto.setReceiveTime(record.getReceiveTime());
+
+        assertEquals(dto.getLocationTime().getTime(), record.locationTimeMillis());
+        assertEquals(dto.getGpsSignal(), record.gpsSignal());
+        assertEquals(0x81AB, record.mileage());
+        // 手写输出、ObjectMapper(@JsonValue 视图)与 DTO 序列化内容一致
+        var expected = normalize(OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(dto)));
+        assertEquals(expected, normalize(writerJson(record)));
+        assertEquals(expected, normalize(OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(record))));
+        assertEquals(dto.getAlarmSet(), record.toDTO().getAlarmSet());
+        record.recycle();
+    }
+
+    @Test
+    void batchAndShortBody_recordJson_shouldMatchDto() throws Exception {
+        //0x0704 两条位置:第一条完整(闰日时间),第二条不足 28 字节
+        var body = Unpooled.buffer();
+        body.writeShort(2).writeByte(1);
+        body.writeShort(28);
+        body.writeInt((1 << 0) | (1 << 13)).writeInt(0x03);
+        body.writeInt(31_200_000).writeInt(121_500_000);
+        body.writeShort(10).writeShort(600).writeShort(90);
+        body.writeBytes(new byte[]{0x24, 0x02, 0x29, 0x23, 0x59, 0x58});
+        body.writeShort(4).writeInt(0);
+        var bytes = new byte[body.readableBytes()];
+        body.readBytes(bytes);
+        body.release();
+        message = decode(JT808TestKit.buildFrame(0x0704, "14540756282", 8, bytes));
+
+        List<BaseDTO> dtos = new BatchLocationMsgMsgParserProvider().parse(channel, message);
+        publish(true);
+        List<BaseDTO> records = new BatchLocationMsgMsgParserProvider().parse(channel, message);
+        assertEquals(2, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            var record = (LocationRecord) records.get(i);
+            ((LocationDTO) dtos.get(i)).setReceiveTime(record.getReceiveTime());
+            assertEquals(normalize(OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(dtos.get(i)))),
+                    normalize(writerJson(record)));
+        }
+        assertTrue(((LocationRecord) records.get(0)).isParsed());
+        assertFalse(((LocationRecord) records.get(1)).isParsed());
+    }
+
+    @Test
+    void defaultExtParse_shouldFallBackThroughDtoView() {
+        message = decode(CodecUtil.hexToBytes(FRAME_HEX));
+        publish(true);
+        List<BaseDTO> records = new LocationMsgParserProvider().parse(channel, message);
+        // 仅实现 DTO 版本的扩展解析,经 toDTO 视图写回记录
+        LocationExtParserProvider custom = (dto, statusHex, alarmHex, extraHex, body) -> {
+            dto.setGpsSignal(9);
+            dto.getExt().put("custom", alarmHex);
+        };
+        custom.apply(message, records);
+        var record = (LocationRecord) records.get(0);
+        assertEquals(9, record.gpsSignal());
+        assertEquals(record.alarmHex(), record.getExt().get("custom"));
+        record.recycle();
+    }
+
+    @Test
+    void recycle_shouldResetAndReuse() {
+        var first = new ArrayList<LocationRecord>();
+        for (int i = 0; i < 16; i++) {
+            var record = LocationRecord.newInstance("t" + i, i);
+            record.setBasic(1, 2, 3, 4, 5, 6, 7, 8);
+            record.mileage(100);
+            record.getExt().put("k", "v");
+            first.add(record);
+        }
+        Set<LocationRecord> pooled = Collections.newSetFromMap(new IdentityHashMap<>());
+        pooled.addAll(first);
+        first.forEach(LocationRecord::recycle);
+
+        var reused = 0;
+        for (int i = 0; i < 16; i++) {
+            var record = LocationRecord.newInstance("n", 0);
+            if (pooled.contains(record))
+                reused++;
+            assertFalse(record.isParsed());
+            assertEquals(LocationRecord.UNKNOWN, record.mileage());
+            assertEquals(LocationRecord.UNKNOWN, record.speed());
+            assertEquals(LocationRecord.UNKNOWN_TIME, record.locationTimeMillis());
+            assertTrue(Objects.isNull(record.extOrNull()) || record.extOrNull().isEmpty());
+        }
+        assertTrue(reused > 0);
+    }
+
+    @Test
+    void dispatcher_shouldRecycleOnlyWhenProviderReleases() {
+        var config = new AppConfig.AsyncForwardConfig();
+        config.setEnable(false);
+        var json = new ArrayList<JsonNode>();
+        var releasing = new ForwardProvider() {
+            @Override
+            public void forward(List<BaseDTO> dtos) {
+                json.add(writerJson((LocationRecord) dtos.get(0)));
+            }
+
+            @Override
+            public boolean retainsDtos() {
+                return false;
+            }
+        };
+        var record = LocationRecord.newInstance("14540756282", 1);
+        new ForwardDispatcher(config, releasing).dispatch(1L, List.of(record));
+        assertEquals("14540756282", json.get(0).get("terminalId").asText());
+        assertNull(record.getTerminalId());
+
+        List<List<BaseDTO>> retained = new ArrayList<>();
+        var kept = LocationRecord.newInstance("14540756282", 1);
+        new ForwardDispatcher(config, retained::add).dispatch(1L, List.of(kept));
+        assertEquals("14540756282", kept.getTerminalId());
+    }
+
+    private TerminalMessage decode(byte[] frame) {
+        channel.writeInbound(Unpooled.wrappedBuffer(frame));
+        channel.checkException();
+        TerminalMessage decoded = channel.readInbound();
+        assertNotNull(decoded);
+        return decoded;
+    }
+
+    private static JsonNode writerJson(LocationRecord record) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            DtoJsonWriter.writeNdJson(buf, record);
+            return OBJECT_MAPPER.readTree(buf.toString(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            buf.release();
+        }
+    }
+
+    //DTO 的 alarmSet 为 HashSet,顺序不固定,按名称排序后比较
+    private static JsonNode normalize(JsonNode node) {
+        var names = new ArrayList<String>();
+        node.get("alarmSet").forEach(alarm -> names.add(alarm.asText()));
+        Collections.sort(names);
+        var sorted = OBJECT_MAPPER.createArrayNode();
+        names.forEach(sorted::add);
+        ((ObjectNode) node).set("alarmSet", sorted);
+        return node;
+    }
+
+    private static void publish(boolean locationRecord) {
+        AppConfig config;
+        try (InputStream in = Objects.requireNonNull(AppConfig.class.getResourceAsStream("/application.yaml"))) {
+            config = AppConfig.parse(in);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        config.getParser().setLocationRecord(locationRecord);
+        AppConfig.publish(config);
+    }
+}
@@ -0,0 +1,153 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.http.HttpApiServer;
+import cn.jascript.zt808.metrics.LatencyHistogram;
+import cn.jascript.zt808.metrics.Metrics;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @Test
+    void histogram_quantilesWithinBucketError() {
+        var histogram = new LatencyHistogram();
+        // 1us ~ 10ms 均匀分布
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000L, histogram.maxNanos());
+        assertWithin(5_000_000L, histogram.quantileNanos(0.5), 0.04);
+        assertWithin(9_900_000L, histogram.quantileNanos(0.99), 0.04);
+        assertEquals(10_000_000L, histogram.quantileNanos(1.0));
+    }
+
+    @Test
+    void histogram_randomValuesStayInBucket() {
+        var random = new Random(808);
+        for (int i = 0; i < 10_000; i++) {
+            var histogram = new LatencyHistogram();
+            long value = random.nextLong() >>> (1 + random.nextInt(62));
+            histogram.record(value);
+            assertWithin(value, histogram.quantileNanos(0.5), 0.04);
+        }
+    }
+
+    @Test
+    void scrape_shouldRenderPrometheusText() {
+        var metrics = new Metrics();
+        metrics.counter("test_frames_total").add(3);
+        metrics.counter("test_rejected_total", "reason", "bcc").increment();
+        metrics.gauge("test_sessions_online", () -> 42);
+        metrics.histogram("test_latency_seconds").record(2_000_000L);
+        metrics.msgIdLatency("test_parse_seconds").record(0x0200, 1_000_000L);
+
+        var text = metrics.scrape();
+        assertTrue(text.contains("test_frames_total 3\n"));
+        assertTrue(text.contains("test_rejected_total{reason=\"bcc\"} 1\n"));
+        assertTrue(text.contains("test_sessions_online 42\n"));
+        assertTrue(text.contains("test_latency_seconds{quantile=\"0.99\"} "));
+        assertTrue(text.contains("test_latency_seconds_count 1\n"));
+        assertTrue(text.contains("test_parse_seconds{msgId=\"0x0200\",quantile=\"0.5\"} "));
+        assertTrue(text.contains("test_parse_seconds_count{msgId=\"0x0200\"} 1\n"));
+
+        var snapshot = metrics.snapshot();
+        assertEquals(3d, snapshot.get("test_frames_total"));
+        assertEquals(2d, snapshot.get("test_latency_seconds.max"), 0.001);
+    }
+
+    @Test
+    void decoder_shouldCountRejectedFrames() {
+        var rejected = Metrics.getInstance().counter("zt808_frames_rejected_total", "reason", "bcc");
+        var decoded = Metrics.getInstance().counter("zt808_frames_decoded_total");
+        long rejectedBefore = rejected.count();
+        long decodedBefore = decoded.count();
+
+        var channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder());
+        try {
+            assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(JT808TestKit.heartbeatFrame("14540756282", 1))));
+            ReferenceCountUtil.release(channel.readInbound());
+            // 改动消息 ID 使校验码不匹配
+            var bad = JT808TestKit.heartbeatFrame("14540756282", 2);
+            bad[2] ^= 0x01;
+            assertThrows(DecoderException.class, () -> {
+                channel.writeInbound(Unpooled.wrappedBuffer(bad));
+                channel.checkException();
+            });
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+        assertEquals(rejectedBefore + 1, rejected.count());
+        assertEquals(decodedBefore + 1, decoded.count());
+    }
+
+    @Test
+    void decoders_shouldCountTooLongFrames() {
+        var tooLong = Metrics.getInstance().counter("zt808_frames_rejected_total", "reason", "too_long");
+        // 两条解码链对超长帧的计数口径一致
+        for (var decoder : new ByteToMessageDecoder[]{DecoderFactory.getFusedDecoder(), DecoderFactory.getDelimiterDecoder()}) {
+            long before = tooLong.count();
+            var channel = new EmbeddedChannel(decoder);
+            try {
+                var frame = new byte[Protocol.MAX_FRAME_LENGTH + 16];
+                frame[0] = 0x7E;
+                Arrays.fill(frame, 1, frame.length, (byte) 0x01);
+                assertThrows(DecoderException.class, () -> {
+                    channel.writeInbound(Unpooled.wrappedBuffer(frame));
+                    channel.checkException();
+                });
+            } finally {
+                channel.finishAndReleaseAll();
+            }
+            assertEquals(before + 1, tooLong.count(), decoder.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void httpApi_shouldServeMetrics() throws Exception {
+        var metrics = new Metrics();
+        metrics.counter("test_http_total").increment();
+        var config = new AppConfig.HttpApiConfig();
+        config.setPort(0);
+        config.setBindAddress("127.0.0.1");
+        var server = new HttpApiServer(config)
+                .route("/metrics", request -> HttpApiServer.text(HttpResponseStatus.OK, "text/plain; charset=utf-8", metrics.scrape()));
+        int port = server.start();
+        try {
+            var client = HttpClient.newHttpClient();
+            var ok = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, ok.statusCode());
+            assertTrue(ok.body().contains("test_http_total 1"));
+
+            var missing = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/nope")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue(Math.abs(actual - expected) <= Math.max(1, expected * relativeError),
+                "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,74 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgReplyMode;
+import cn.jascript.zt808.message.parser.MsgDispatchTable;
+import cn.jascript.zt808.message.parser.provider.HeartbeatMsgParserProvider;
+import cn.jascript.zt808.message.parser.provider.LocationMsgParserProvider;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MsgDispatchTableTest {
+
+    @Test
+    void entry_shouldResolveConfiguredProviders() {
+        var table = MsgDispatchTable.get();
+        var location = table.entry(0x0200);
+        assertInstanceOf(LocationMsgParserProvider.class, location.getProvider());
+        assertNotNull(location.getExtProvider());
+        assertEquals(MsgReplyMode.GENERAL, location.getReplyMode());
+        assertFalse(location.isAllowUnauthorized());
+        // 0x0200 与 0x0704 共用同一扩展解析器实例
+        assertSame(location.getExtProvider(), table.entry(0x0704).getExtProvider());
+
+        assertEquals(MsgReplyMode.NONE, table.entry(0x0001).getReplyMode());
+        assertEquals(MsgReplyMode.PROVIDER, table.entry(0x0102).getReplyMode());
+        assertTrue(table.entry(0x0100).isAllowUnauthorized());
+        assertTrue(table.entry(0x0102).isAllowUnauthorized());
+    }
+
+    @Test
+    void entry_unmapped_shouldShareDefaultEntry() {
+        var table = MsgDispatchTable.get();
+        var unknown = table.entry(0x0F00);
+        assertNull(unknown.getProvider());
+        assertNull(unknown.getExtProvider());
+        assertEquals(MsgReplyMode.GENERAL, unknown.getReplyMode());
+        assertFalse(unknown.isAllowUnauthorized());
+        assertSame(unknown, table.entry(0xFFFF));
+    }
+
+    @Test
+    void build_shouldAcceptDecimalKeysAndReuseInstances() throws IOException {
+        var yaml = "message:\n"
+                + "  parser:\n"
+                + "    provider:\n"
+                + "      - msgId: \"2\"\n"
+                + "        provider: \"cn.jascript.zt808.message.parser.provider.HeartbeatMsgParserProvider\"\n"
+                + "      - msgId: \"0x0200\"\n"
+                + "        replyMode: \"none\"\n"
+                + "        provider: \"cn.jascript.zt808.message.parser.provider.LocationMsgParserProvider\"\n"
+                + "      - msgId: \"0x10000\"\n"
+                + "        provider: \"cn.jascript.zt808.message.parser.provider.HeartbeatMsgParserProvider\"\n"
+                + "      - msgId: \"0x0300\"\n"
+                + "        provider: \"cn.jascript.zt808.NoSuchProvider\"\n";
+        var config = AppConfig.parse(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)));
+        var previous = MsgDispatchTable.get();
+        var table = MsgDispatchTable.build(config, previous);
+
+        assertEquals(2, table.mappedCount());
+        assertInstanceOf(HeartbeatMsgParserProvider.class, table.entry(0x0002).getProvider());
+        assertEquals(MsgReplyMode.NONE, table.entry(0x0200).getReplyMode());
+        // 未变化的实现类复用旧实例,不重复反射
+        assertSame(previous.entry(0x0200).getProvider(), table.entry(0x0200).getProvider());
+        assertNull(table.entry(0x0300).getProvider());
+        assertNull(table.entry(0x0704).getProvider());
+        // 鉴权策略不依赖映射
+        assertTrue(table.entry(0x0102).isAllowUnauthorized());
+    }
+}
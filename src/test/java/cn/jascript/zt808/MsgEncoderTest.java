@@ -0,0 +1,119 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.codec.EncoderFactory;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.model.PlatformMessage;
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import cn.jascript.zt808.util.BcdUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MsgEncoderTest {
+
+    @Test
+    void encode_generalReply_shouldMatchReferenceFrame() {
+        // 流水号与应答 msgId 含 0x7E/0x7D,需转义
+        assertEncoded(MsgId.PLATFORM_GENERAL_REPLY, "14540756282", 0x7E7D, new byte[]{0x7E, 0x7D, 0x02, 0x00, 0x00}, true);
+        assertEncoded(MsgId.PLATFORM_GENERAL_REPLY, "14540756282", 0x0001, new byte[]{0x00, 0x01, 0x02, 0x00, 0x01}, false);
+    }
+
+    @Test
+    void encode_randomMessages_shouldMatchReferenceFrame() {
+        var random = new Random(808);
+        for (int i = 0; i < 500; i++) {
+            int msgId = random.nextBoolean() ? 0x8000 | random.nextInt(0x200) : 0x7E7D;
+            var terminalId = String.valueOf(10_000_000_000L + (random.nextLong() & 0xFFFFFFFFFL) % 89_999_999_999L);
+            var body = new byte[random.nextInt(64)];
+            for (int j = 0; j < body.length; j++) {
+                //提高 0x7E/0x7D 出现概率
+                body[j] = (byte) (random.nextInt(4) == 0 ? 0x7D + random.nextInt(2) : random.nextInt(256));
+            }
+            assertEncoded(msgId, terminalId, random.nextInt(0x10000), body, random.nextBoolean());
+        }
+    }
+
+    @Test
+    void terminalKey_writeAndBcc_shouldMatchBcd() {
+        var bcd = BcdUtil.fromString("014540756282", TerminalKey.BCD_LENGTH);
+        long key = TerminalKey.of(bcd);
+        ByteBuf buf = Unpooled.buffer();
+        TerminalKey.write(buf, key);
+        assertArrayEquals(bcd, ByteBufUtil.getBytes(buf));
+        int bcc = 0;
+        for (byte b : bcd) {
+            bcc ^= b & 0xFF;
+        }
+        assertEquals(bcc, TerminalKey.bcc(key));
+        buf.release();
+    }
+
+    @Test
+    void encode_nonBcdTerminalKey_shouldEscapeAndRoundTrip() {
+        //上行终端号按原样保留,非 BCD 时可能含 0x7E/0x7D
+        long key = 0x01_7E_7D_56_7D_7EL;
+        assertFalse(TerminalKey.isBcd(key));
+        assertTrue(TerminalKey.isBcd(TerminalKey.fromString("014540756282")));
+        assertTrue(TerminalKey.isBcd(0x99_99_99_99_99_99L));
+        assertFalse(TerminalKey.isBcd(0x0A_00_00_00_00_00L));
+
+        var encoder = new EmbeddedChannel(EncoderFactory.getMsgEncoder());
+        var decoder = new EmbeddedChannel(DecoderFactory.getFusedDecoder());
+        var msg = new PlatformMessage();
+        msg.setTerminalId(TerminalKey.toTerminalId(key));
+        msg.setTerminalKey(key);
+        msg.setMsgId(MsgId.PUSH_TEXT);
+        msg.setFlowId(1);
+        msg.setBody(Unpooled.wrappedBuffer(new byte[]{0x00, 0x41}));
+        assertTrue(encoder.writeOutbound(msg));
+        ByteBuf out = encoder.readOutbound();
+        var frame = ByteBufUtil.getBytes(out);
+        // 首尾之外不出现 0x7E
+        for (int i = 1; i < frame.length - 1; i++) {
+            assertNotEquals(0x7E, frame[i] & 0xFF);
+        }
+        decoder.writeInbound(out);
+        TerminalMessage decoded = decoder.readInbound();
+        try {
+            assertEquals(key, decoded.getTerminalKey());
+            assertEquals(MsgId.PUSH_TEXT, decoded.getMsgId() & 0xFFFF);
+        } finally {
+            ReferenceCountUtil.release(decoded.getBody());
+            encoder.finishAndReleaseAll();
+            decoder.finishAndReleaseAll();
+        }
+    }
+
+    private static void assertEncoded(int msgId, String terminalId, int flowId, byte[] body, boolean withKey) {
+        var channel = new EmbeddedChannel(EncoderFactory.getMsgEncoder());
+        var msg = new PlatformMessage();
+        msg.setTerminalId(terminalId);
+        // 未设置主键时按 terminalId 计算
+        if (withKey)
+            msg.setTerminalKey(TerminalKey.fromString(terminalId));
+        msg.setMsgId(msgId);
+        msg.setFlowId(flowId);
+        msg.setBody(Unpooled.copiedBuffer(body));
+        assertTrue(channel.writeOutbound(msg));
+        ByteBuf out = channel.readOutbound();
+        try {
+            assertArrayEquals(JT808TestKit.buildFrame(msgId, terminalId, flowId, body), ByteBufUtil.getBytes(out));
+            // 消息体编码后已释放(空消息体为 EMPTY_BUFFER,不计数)
+            if (body.length > 0)
+                assertEquals(0, msg.getBody().refCnt());
+        } finally {
+            out.release();
+            channel.finishAndReleaseAll();
+        }
+    }
+}
@@ -10,13 +10,17 @@ import cn.jascript.zt808.session.SessionManager;
 import cn.jascript.zt808.testkit.JT808TestKit;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +48,8 @@ public class PipelineSmokeTest {
                 new DataEventHandler(),
                 EncoderFactory.getMsgEncoder()
         );
+        //生产环境由 ConnectionEventHandler 在连接建立时注册会话
+        SessionManager.getInstance().register(channel);
 
         String terminalId = "14540756282";
         String authCode = AppConfig.get().getAuth().getCode();
@@ -97,6 +103,43 @@ public class PipelineSmokeTest {
         assertOutboundGeneralReply(0x00D8, MsgId.LOCATION, 0);
     }
 
+    @Test
+    @DisplayName("Flush consolidation: replies to frames read together should be flushed once")
+    void flushConsolidation_shouldFlushOncePerRead() {
+        var flushes = new AtomicInteger();
+        channel = new EmbeddedChannel(
+                new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void flush(ChannelHandlerContext ctx) throws Exception {
+                        flushes.incrementAndGet();
+                        super.flush(ctx);
+                    }
+                },
+                new FlushConsolidationHandler(256, true),
+                DecoderFactory.getFusedDecoder(),
+                new DataEventHandler(),
+                EncoderFactory.getMsgEncoder()
+        );
+        //生产环境由 ConnectionEventHandler 在连接建立时注册会话
+        SessionManager.getInstance().register(channel);
+        int before = flushes.get();
+        // 同一个 TCP 段内的 3 帧心跳
+        String terminalId = "14540756283";
+        ByteBuf segment = Unpooled.wrappedBuffer(
+                JT808TestKit.heartbeatFrame(terminalId, 0x0101),
+                JT808TestKit.heartbeatFrame(terminalId, 0x0102),
+                JT808TestKit.heartbeatFrame(terminalId, 0x0103));
+        channel.writeInbound(segment);
+        channel.runPendingTasks();
+        channel.checkException();
+
+        assertEquals(1, flushes.get() - before);
+        // 未鉴权心跳回通用应答 result=1,回包消息体为池化 buffer,编码后已释放
+        assertOutboundGeneralReply(0x0101, MsgId.HEARTBEAT, 1);
+        assertOutboundGeneralReply(0x0102, MsgId.HEARTBEAT, 1);
+        assertOutboundGeneralReply(0x0103, MsgId.HEARTBEAT, 1);
+    }
+
     private void writeInboundAndAssertNoError(byte[] bytes) {
         assertDoesNotThrow(() -> {
             ByteBuf buf = Unpooled.wrappedBuffer(bytes);
@@ -0,0 +1,166 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.handler.ProtocolHealthHandler;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtocolHealthHandlerTest {
+
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (var channel : channels) {
+            SessionManager.getInstance().unregister(channel);
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void corruptFrames_shouldBeToleratedWithinWindow() {
+        var channel = newChannel(guard(3, 0, 0));
+        var bad = badBccFrame();
+        var good = JT808TestKit.heartbeatFrame("14540756282", 0x00CB);
+
+        // 错误帧与正常帧在同一批数据中,错误帧被丢弃,后续帧照常解码
+        var batch = new byte[bad.length + good.length];
+        System.arraycopy(bad, 0, batch, 0, bad.length);
+        System.arraycopy(good, 0, batch, bad.length, good.length);
+        channel.writeInbound(Unpooled.wrappedBuffer(batch));
+        channel.checkException();
+        TerminalMessage message = channel.readInbound();
+        assertNotNull(message);
+        assertEquals(0x00CB, message.getFlowId());
+        ReferenceCountUtil.release(message.getBody());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(bad));
+        channel.writeInbound(Unpooled.wrappedBuffer(bad));
+        channel.checkException();
+        assertTrue(channel.isOpen());
+        // 第 4 个错误帧超出容忍数,异常继续传播(由 ConnectionEventHandler 关闭连接)
+        assertThrows(DecoderException.class, () -> {
+            channel.writeInbound(Unpooled.wrappedBuffer(bad));
+            channel.checkException();
+        });
+    }
+
+    @Test
+    void corruptFrames_zeroTolerance_shouldPropagateFirst() {
+        var channel = newChannel(guard(0, 0, 0));
+        assertThrows(DecoderException.class, () -> {
+            channel.writeInbound(Unpooled.wrappedBuffer(badBccFrame()));
+            channel.checkException();
+        });
+    }
+
+    @Test
+    void authTimeout_shouldCloseUnauthenticated() {
+        var unauthenticated = newChannel(guard(3, 5, 0));
+        var authenticated = newChannel(guard(3, 5, 0));
+        SessionManager.getInstance().register(authenticated).setAuthorized(true);
+
+        advance(unauthenticated, 4);
+        advance(authenticated, 4);
+        assertTrue(unauthenticated.isOpen());
+
+        advance(unauthenticated, 1);
+        advance(authenticated, 1);
+        assertFalse(unauthenticated.isOpen());
+        assertTrue(authenticated.isOpen());
+    }
+
+    @Test
+    void slowRate_shouldCloseBeforeAuth() {
+        // 每秒至少 10 字节有效帧,心跳帧计 12 字节
+        var channel = newChannel(guard(3, 60, 10));
+        channel.writeInbound(Unpooled.wrappedBuffer(JT808TestKit.heartbeatFrame("14540756282", 1)));
+        TerminalMessage message = channel.readInbound();
+        ReferenceCountUtil.release(message.getBody());
+
+        advance(channel, 1);
+        assertTrue(channel.isOpen());
+        advance(channel, 1);
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void cumulation_shouldCloseWhenGlobalBudgetExceeded() throws Exception {
+        var original = AppConfig.get();
+        AppConfig config;
+        try (InputStream in = Objects.requireNonNull(AppConfig.class.getResourceAsStream("/application.yaml"))) {
+            config = AppConfig.parse(in);
+        }
+        config.getServer().getGuard().setMaxCumulationBytes(DecoderFactory.cumulatedBytes() + 100);
+        AppConfig.publish(config);
+        try {
+            var first = newChannel(guard(3, 0, 0));
+            var second = newChannel(guard(3, 0, 0));
+            long before = DecoderFactory.cumulatedBytes();
+            // 帧头后持续发送不含分隔符的数据,停留在解码器累积区
+            first.writeInbound(Unpooled.wrappedBuffer(halfFrame(80)));
+            assertTrue(first.isOpen());
+            assertEquals(before + 80, DecoderFactory.cumulatedBytes());
+
+            second.writeInbound(Unpooled.wrappedBuffer(halfFrame(80)));
+            assertFalse(second.isOpen());
+            assertTrue(first.isOpen());
+            assertEquals(before + 80, DecoderFactory.cumulatedBytes());
+
+            first.finishAndReleaseAll();
+            assertEquals(before, DecoderFactory.cumulatedBytes());
+        } finally {
+            AppConfig.publish(original);
+        }
+    }
+
+    private EmbeddedChannel newChannel(AppConfig.GuardConfig guard) {
+        var channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder(), new ProtocolHealthHandler(guard));
+        channels.add(channel);
+        return channel;
+    }
+
+    private static void advance(EmbeddedChannel channel, int seconds) {
+        channel.advanceTimeBy(seconds, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+    }
+
+    private static AppConfig.GuardConfig guard(int maxCorruptFrames, int authTimeoutSeconds, int minBytesPerSecond) {
+        var guard = new AppConfig.GuardConfig();
+        guard.setMaxCorruptFrames(maxCorruptFrames);
+        guard.setAuthTimeoutSeconds(authTimeoutSeconds);
+        guard.setMinBytesPerSecond(minBytesPerSecond);
+        guard.setRateWindowSeconds(1);
+        return guard;
+    }
+
+    private static byte[] badBccFrame() {
+        var frame = JT808TestKit.heartbeatFrame("14540756282", 0x00CA);
+        frame[frame.length - 2] ^= 0x01;
+        return frame;
+    }
+
+    private static byte[] halfFrame(int length) {
+        var bytes = new byte[length + 1];
+        Arrays.fill(bytes, (byte) 0x01);
+        bytes[0] = 0x7E;
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.cluster.RedisSessionDirectory;
+import cn.jascript.zt808.cluster.RespClient;
+import cn.jascript.zt808.testkit.FakeRedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionDirectoryTest {
+
+    private static final String PREFIX = "zt808:session:";
+
+    private FakeRedisServer server;
+    private RedisSessionDirectory directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeRedisServer();
+        directory = new RedisSessionDirectory(new RespClient("127.0.0.1", server.port(), 1, "secret", 2000), PREFIX, 600);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        directory.close();
+        server.close();
+    }
+
+    @Test
+    void register_shouldReturnPreviousOwnerAndSetTtl() {
+        assertEquals(Optional.empty(), directory.register("13800138000", "10.0.0.1:6809"));
+        assertEquals(Optional.of("10.0.0.1:6809"), directory.register("13800138000", "10.0.0.2:6809"));
+
+        assertEquals(Optional.of("10.0.0.2:6809"), directory.lookup("13800138000"));
+        assertEquals(600L, server.ttl(PREFIX + "13800138000"));
+    }
+
+    @Test
+    void unregister_shouldOnlyDeleteOwnEntry() {
+        directory.register("13800138000", "10.0.0.2:6809");
+        // 终端已迁移到 .2,旧节点 .1 下线不影响目录
+        directory.unregister("13800138000", "10.0.0.1:6809");
+        assertEquals(Optional.of("10.0.0.2:6809"), directory.lookup("13800138000"));
+
+        directory.unregister("13800138000", "10.0.0.2:6809");
+        assertEquals(Optional.empty(), directory.lookup("13800138000"));
+    }
+
+    @Test
+    void renew_shouldRewriteExpiredEntries() {
+        directory.register("13800138000", "10.0.0.1:6809");
+        directory.register("13800138001", "10.0.0.1:6809");
+        server.expire(PREFIX + "13800138001");
+
+        directory.renew(List.of("13800138000", "13800138001"), "10.0.0.1:6809");
+
+        assertEquals("10.0.0.1:6809", server.get(PREFIX + "13800138001"));
+        assertEquals(600L, server.ttl(PREFIX + "13800138001"));
+    }
+}
@@ -0,0 +1,88 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.session.SessionManager;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerTest {
+
+    private static final String TERMINAL_ID = "13800138000";
+    private static final long TERMINAL_KEY = TerminalKey.fromString(TERMINAL_ID);
+
+    private final SessionManager sessionManager = SessionManager.getInstance();
+    private final EmbeddedChannel oldChannel = new EmbeddedChannel();
+    private final EmbeddedChannel newChannel = new EmbeddedChannel();
+
+    @AfterEach
+    void tearDown() {
+        sessionManager.unregister(oldChannel);
+        sessionManager.unregister(newChannel);
+        oldChannel.finishAndReleaseAll();
+        newChannel.finishAndReleaseAll();
+    }
+
+    @Test
+    void register_shouldAttachSessionToChannel() {
+        var session = sessionManager.register(oldChannel);
+        assertSame(session, oldChannel.attr(SessionManager.SESSION).get());
+        // 重复注册返回同一会话
+        assertSame(session, sessionManager.register(oldChannel));
+        assertSame(session, sessionManager.findByChannel(oldChannel).orElseThrow());
+    }
+
+    @Test
+    void unregister_oldChannelAfterReconnect_shouldKeepNewSession() {
+        sessionManager.register(oldChannel);
+        sessionManager.bindTerminal(TERMINAL_KEY, TERMINAL_ID, oldChannel);
+        sessionManager.register(newChannel);
+        sessionManager.bindTerminal(TERMINAL_KEY, TERMINAL_ID, newChannel);
+        sessionManager.authorize(TERMINAL_ID, true);
+
+        // 旧连接晚于新连接断开
+        sessionManager.unregister(oldChannel);
+
+        var session = sessionManager.findByTerminal(TERMINAL_KEY).orElseThrow();
+        assertSame(newChannel, session.getChannel());
+        assertTrue(sessionManager.isAuthorized(TERMINAL_KEY));
+        assertTrue(sessionManager.findByChannel(oldChannel).isEmpty());
+
+        sessionManager.unregister(newChannel);
+        assertTrue(sessionManager.findByTerminal(TERMINAL_ID).isEmpty());
+        assertFalse(sessionManager.isAuthorized(TERMINAL_KEY));
+    }
+
+    @Test
+    void bindTerminal_rebindOnSameChannel_shouldDropOldIndex() {
+        sessionManager.register(oldChannel);
+        sessionManager.bindTerminal(TERMINAL_ID, oldChannel);
+        sessionManager.bindTerminal("13800138001", oldChannel);
+
+        assertTrue(sessionManager.findByTerminal(TERMINAL_ID).isEmpty());
+        assertSame(oldChannel, sessionManager.findByTerminal("13800138001").orElseThrow().getChannel());
+    }
+
+    @Test
+    void bindTerminal_afterUnregister_shouldNotCreateSession() {
+        sessionManager.register(oldChannel);
+        int channels = sessionManager.channelCount();
+        // 鉴权在业务线程完成前连接已断开并注销
+        sessionManager.unregister(oldChannel);
+        assertFalse(sessionManager.bindTerminal(TERMINAL_KEY, TERMINAL_ID, oldChannel));
+
+        assertEquals(channels - 1, sessionManager.channelCount());
+        assertTrue(sessionManager.findByChannel(oldChannel).isEmpty());
+        assertTrue(sessionManager.findByTerminal(TERMINAL_KEY).isEmpty());
+    }
+
+    @Test
+    void bindTerminal_inactiveChannel_shouldFail() {
+        sessionManager.register(oldChannel);
+        oldChannel.close();
+        assertFalse(sessionManager.bindTerminal(TERMINAL_KEY, TERMINAL_ID, oldChannel));
+        assertTrue(sessionManager.findByTerminal(TERMINAL_KEY).isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.codec.DecoderFactory;
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.handler.SplitPacketHandler;
+import cn.jascript.zt808.model.PlatformMessage;
+import cn.jascript.zt808.model.TerminalMessage;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.testkit.JT808TestKit;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplitPacketHandlerTest {
+
+    private static final String TERMINAL_ID = "14540756282";
+    private static final int MULTIMEDIA_UPLOAD = 0x0801;
+
+    private EmbeddedChannel channel;
+    private SplitPacketHandler handler;
+
+    @AfterEach
+    void tearDown() {
+        if (Objects.nonNull(channel)) {
+            SessionManager.getInstance().unregister(channel);
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void fragmentsOutOfOrder_shouldAssembleIntoOneMessage() {
+        setup(new AppConfig.SplitConfig());
+        var body = randomBody(2500);
+        var frames = JT808TestKit.splitFrames(MULTIMEDIA_UPLOAD, TERMINAL_ID, 0xFFFE, body, 1000);
+        assertEquals(3, frames.size());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(2)));
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(0)));
+        assertNull(channel.readInbound());
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(1)));
+
+        TerminalMessage message = channel.readInbound();
+        assertNotNull(message);
+        try {
+            assertFalse(message.isSplit());
+            assertEquals(MULTIMEDIA_UPLOAD, message.getMsgId());
+            // 流水号跨 0xFFFF 回绕,取最后收到的分包
+            assertEquals(0xFFFF, message.getFlowId());
+            assertTrue(message.getBody() instanceof CompositeByteBuf);
+            assertArrayEquals(body, ByteBufUtil.getBytes(message.getBody()));
+            assertEquals(body.length, message.getBodyLen());
+        } finally {
+            ReferenceCountUtil.release(message.getBody());
+        }
+        // 中间分包逐包通用应答,最后一包交给业务处理
+        assertReply(channel.readOutbound(), 0x0000);
+        assertReply(channel.readOutbound(), 0xFFFE);
+        assertNull(channel.readOutbound());
+        assertEquals(0, handler.pendingCount());
+    }
+
+    @Test
+    void missingFragment_shouldRequestRetransmitThenAssemble() {
+        var config = new AppConfig.SplitConfig();
+        config.setTimeoutSeconds(5);
+        setup(config);
+        var body = randomBody(3000);
+        var frames = JT808TestKit.splitFrames(MULTIMEDIA_UPLOAD, TERMINAL_ID, 100, body, 1000);
+
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(0)));
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(2)));
+        releaseOutbound();
+
+        channel.advanceTimeBy(5, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        PlatformMessage request = channel.readOutbound();
+        assertNotNull(request);
+        assertEquals(MsgId.RETRANSMIT_REQUEST, request.getMsgId());
+        var requestBody = request.getBody();
+        assertEquals(100, requestBody.readUnsignedShort());
+        assertEquals(1, requestBody.readUnsignedByte());
+        assertEquals(2, requestBody.readUnsignedShort());
+        requestBody.release();
+
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(1)));
+        TerminalMessage message = channel.readInbound();
+        assertNotNull(message);
+        assertArrayEquals(body, ByteBufUtil.getBytes(message.getBody()));
+        message.getBody().release();
+    }
+
+    @Test
+    void retransmitExhausted_shouldDiscard() {
+        var config = new AppConfig.SplitConfig();
+        config.setTimeoutSeconds(1);
+        config.setMaxRetransmit(1);
+        setup(config);
+        var frames = JT808TestKit.splitFrames(MULTIMEDIA_UPLOAD, TERMINAL_ID, 1, randomBody(2000), 1000);
+
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(0)));
+        assertEquals(1, handler.pendingCount());
+        for (int i = 0; i < 2; i++) {
+            channel.advanceTimeBy(1, TimeUnit.SECONDS);
+            channel.runScheduledPendingTasks();
+        }
+        assertEquals(0, handler.pendingCount());
+        releaseOutbound();
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    void overTerminalByteLimit_shouldReject() {
+        var config = new AppConfig.SplitConfig();
+        config.setMaxBytesPerTerminal(1500);
+        setup(config);
+        var frames = JT808TestKit.splitFrames(MULTIMEDIA_UPLOAD, TERMINAL_ID, 1, randomBody(3000), 1000);
+
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(0)));
+        channel.writeInbound(Unpooled.wrappedBuffer(frames.get(1)));
+        assertEquals(0, handler.pendingCount());
+        assertReply(channel.readOutbound(), 1);
+        PlatformMessage rejected = channel.readOutbound();
+        // 通用应答结果 1:失败
+        assertEquals(1, rejected.getBody().getUnsignedByte(4));
+        rejected.getBody().release();
+    }
+
+    private void setup(AppConfig.SplitConfig config) {
+        handler = new SplitPacketHandler(config);
+        channel = new EmbeddedChannel(DecoderFactory.getFusedDecoder(), handler);
+        var sessionManager = SessionManager.getInstance();
+        sessionManager.register(channel);
+        sessionManager.bindTerminal(TERMINAL_ID, channel);
+        sessionManager.authorize(TERMINAL_ID, true);
+    }
+
+    private void releaseOutbound() {
+        Object out;
+        while (Objects.nonNull(out = channel.readOutbound())) {
+            if (out instanceof PlatformMessage)
+                ReferenceCountUtil.release(((PlatformMessage) out).getBody());
+        }
+    }
+
+    private static void assertReply(PlatformMessage reply, int flowId) {
+        assertNotNull(reply);
+        assertEquals(MsgId.PLATFORM_GENERAL_REPLY, reply.getMsgId());
+        assertEquals(flowId, reply.getBody().getUnsignedShort(0));
+        reply.getBody().release();
+    }
+
+    private static byte[] randomBody(int length) {
+        var body = new byte[length];
+        new Random(length).nextBytes(body);
+        return body;
+    }
+}
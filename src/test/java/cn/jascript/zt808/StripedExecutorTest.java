@@ -0,0 +1,173 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.ExecutorMode;
+import cn.jascript.zt808.executor.StripedExecutor;
+import cn.jascript.zt808.executor.VirtualThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedExecutorTest {
+
+    @Test
+    void execute_shouldKeepOrderPerKey() throws InterruptedException {
+        var executor = new StripedExecutor("test-biz", config(4, 16, 1024, 8));
+        int keys = 50;
+        int perKey = 200;
+        var seen = new ArrayList<List<Integer>>();
+        for (int k = 0; k < keys; k++) {
+            seen.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        var producers = new ArrayList<Thread>();
+        // 每个终端由一个生产者按序提交,模拟单连接 IO 线程
+        for (int k = 0; k < keys; k++) {
+            final int key = k;
+            var t = new Thread(() -> {
+                for (int i = 0; i < perKey; i++) {
+                    final int seq = i;
+                    assertTrue(executor.execute(key, () -> seen.get(key).add(seq)));
+                }
+            });
+            producers.add(t);
+            t.start();
+        }
+        for (var t : producers) {
+            t.join();
+        }
+        executor.shutdown();
+
+        assertEquals((long) keys * perKey, executor.executed());
+        for (var list : seen) {
+            assertEquals(perKey, list.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, list.get(i));
+            }
+        }
+    }
+
+    @Test
+    void execute_rejectWhenStripeFull() throws InterruptedException {
+        var gate = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var executor = new StripedExecutor("test-biz", config(2, 2, 4, 64));
+        // 第一个任务卡住条带,后续任务只能排队
+        assertTrue(executor.execute(1L, () -> {
+            started.countDown();
+            await(gate);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (executor.execute(1L, () -> {
+            }))
+                accepted++;
+        }
+        assertEquals(4, accepted);
+        assertEquals(6, executor.rejected());
+        int stripe = executor.stripeIndex(1L);
+        assertEquals(4, executor.queueDepth(stripe));
+        // 同条带被卡住时,其他条带不受影响
+        long other = 2L;
+        while (executor.stripeIndex(other) == stripe)
+            other++;
+        var otherDone = new CountDownLatch(1);
+        assertTrue(executor.execute(other, otherDone::countDown));
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+
+        gate.countDown();
+        executor.shutdown();
+        assertEquals(0, executor.queueDepth());
+        assertEquals(6, executor.executed());
+        assertTrue(executor.maxQueueMillis(stripe) > 0);
+        assertTrue(executor.avgQueueMillis(stripe) > 0);
+    }
+
+    @Test
+    void execute_taskFailureShouldNotStopStripe() throws InterruptedException {
+        var executor = new StripedExecutor("test-biz", config(1, 2, 16, 64));
+        var done = new CountDownLatch(1);
+        executor.execute(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute(1L, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(1, executor.failed());
+        assertEquals(2, executor.executed());
+    }
+
+    @Test
+    void execute_maxInFlightShouldLimitConcurrentStripes() throws InterruptedException {
+        var config = config(8, 64, 64, 64);
+        config.setMaxInFlight(2);
+        var executor = new StripedExecutor("test-biz", config);
+        var running = new AtomicInteger();
+        var peak = new AtomicInteger();
+        var done = new CountDownLatch(32);
+        // 模拟阻塞下游调用,不同终端并发执行
+        for (int k = 0; k < 32; k++) {
+            executor.execute(k, () -> {
+                int cur = running.incrementAndGet();
+                peak.accumulateAndGet(cur, Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(peak.get() <= 2);
+        assertEquals(0, executor.inFlight());
+    }
+
+    @Test
+    void virtualMode_shouldKeepOrderOrFallback() throws InterruptedException {
+        var config = config(2, 16, 1024, 8);
+        config.setMode(ExecutorMode.VIRTUAL);
+        var executor = new StripedExecutor("test-vt", config);
+        // JDK 21+ 使用虚拟线程,低版本回退平台线程
+        assertEquals(VirtualThreads.isSupported(), executor.isVirtual());
+        var seen = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 500; i++) {
+            final int seq = i;
+            assertTrue(executor.execute(7L, () -> seen.add(seq)));
+        }
+        executor.shutdown();
+        assertEquals(500, seen.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    private static AppConfig.BusinessExecutorConfig config(int threads, int stripes, int capacity, int drainBatch) {
+        var config = new AppConfig.BusinessExecutorConfig(threads);
+        config.setStripes(stripes);
+        config.setStripeCapacity(capacity);
+        config.setDrainBatch(drainBatch);
+        return config;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
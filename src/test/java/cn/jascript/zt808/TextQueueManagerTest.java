@@ -0,0 +1,216 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.config.AppConfig;
+import cn.jascript.zt808.constants.MsgId;
+import cn.jascript.zt808.constants.Protocol;
+import cn.jascript.zt808.constants.TextFullPolicy;
+import cn.jascript.zt808.message.sender.MsgSenderProvider;
+import cn.jascript.zt808.message.sender.queue.TextCallback;
+import cn.jascript.zt808.message.sender.queue.TextMessage;
+import cn.jascript.zt808.message.sender.queue.TextQueueManager;
+import cn.jascript.zt808.model.TerminalKey;
+import cn.jascript.zt808.session.SessionManager;
+import cn.jascript.zt808.session.SessionRouter;
+import cn.jascript.zt808.testkit.ManualTimer;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextQueueManagerTest {
+
+    private static final String TERMINAL_ID = "13800138000";
+    private static final long TERMINAL_KEY = TerminalKey.fromString(TERMINAL_ID);
+
+    private final SessionManager sessionManager = SessionManager.getInstance();
+    private final List<Integer> sentFlowIds = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private Runnable duringSend = () -> {
+    };
+    private ManualTimer timer;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        timer = new ManualTimer(1_000_000L);
+        channel = new EmbeddedChannel();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionManager.unregister(channel);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void submit_offline_shouldDrainAfterOnlineOneByOne() {
+        var manager = manager(config());
+        manager.submit(TERMINAL_ID, 0, "A");
+        manager.submit(TERMINAL_ID, 0, "B");
+        timer.advance(10_000);
+        // 离线时不下发
+        assertTrue(sentFlowIds.isEmpty());
+        assertEquals(2, manager.queued(TERMINAL_ID));
+
+        online(manager);
+        timer.advance(2_999);
+        assertTrue(sentFlowIds.isEmpty());
+        // 上线延迟 minSendInterval 后发送第一条
+        timer.advance(1);
+        assertEquals(1, sentFlowIds.size());
+        // 未应答时不发送下一条
+        timer.advance(5_000);
+        assertEquals(1, sentFlowIds.size());
+
+        assertTrue(manager.onTerminalReply(TERMINAL_KEY, sentFlowIds.get(0), MsgId.PUSH_TEXT, 0));
+        assertEquals(List.of("delivered:A"), events);
+        // 应答后下一条仍需满足最小发送间隔(距上次发送已超过间隔,立即发送)
+        assertEquals(2, sentFlowIds.size());
+        assertFalse(manager.onTerminalReply(TERMINAL_KEY, sentFlowIds.get(0), MsgId.PUSH_TEXT, 0));
+        assertTrue(manager.onTerminalReply(TERMINAL_KEY, sentFlowIds.get(1), MsgId.PUSH_TEXT, 3));
+        assertEquals(List.of("delivered:A", "failed:B"), events);
+        assertEquals(0, manager.queued());
+        assertEquals(1, manager.delivered());
+        assertEquals(1, manager.failed());
+    }
+
+    @Test
+    void ackTimeout_shouldRetryWithBackoffThenFail() {
+        var manager = manager(config());
+        online(manager);
+        // 已在线且无待应答消息时立即发送
+        manager.submit(TERMINAL_ID, 0, "A");
+        assertEquals(1, sentFlowIds.size());
+        // 第 1 次等待 10s,第 2 次 20s,第 3 次 40s,共重试 3 次
+        timer.advance(10_000);
+        assertEquals(2, sentFlowIds.size());
+        timer.advance(19_999);
+        assertEquals(2, sentFlowIds.size());
+        timer.advance(1);
+        assertEquals(3, sentFlowIds.size());
+        timer.advance(40_000);
+        assertEquals(4, sentFlowIds.size());
+        assertTrue(events.isEmpty());
+        timer.advance(80_000);
+        assertEquals(4, sentFlowIds.size());
+        assertEquals(List.of("failed:A"), events);
+        assertEquals(3, manager.retried());
+        // 每次重发使用新流水号
+        assertEquals(4, sentFlowIds.stream().distinct().count());
+    }
+
+    @Test
+    void expired_shouldCallbackWithoutSending() {
+        var manager = manager(config());
+        manager.submit(TERMINAL_ID, 0, "A");
+        timer.advance(3_600_000L + 60_000);
+        assertEquals(List.of("expired:A"), events);
+        assertEquals(0, manager.queued());
+        // 空队列在扫描时移除
+        timer.advance(60_000);
+        assertEquals(0, manager.devices());
+    }
+
+    @Test
+    void deviceQueueFull_dropNonUrgentFirst() {
+        var config = config();
+        config.setPerDeviceMaxQueue(2);
+        config.setFullPolicy(TextFullPolicy.DROP_NON_URGENT);
+        var manager = manager(config);
+        assertTrue(manager.submit(TERMINAL_ID, TextMessage.FLAG_URGENT, "U1").isPresent());
+        assertTrue(manager.submit(TERMINAL_ID, 0, "N1").isPresent());
+        // 淘汰非紧急 N1
+        assertTrue(manager.submit(TERMINAL_ID, TextMessage.FLAG_URGENT, "U2").isPresent());
+        assertEquals(List.of("failed:N1"), events);
+        // 全为紧急消息时拒绝非紧急消息
+        assertTrue(manager.submit(TERMINAL_ID, 0, "N2").isEmpty());
+        assertEquals(2, manager.queued());
+        assertEquals(1, manager.rejected());
+    }
+
+    @Test
+    void globalQueueFull_shouldReject() {
+        var config = config();
+        config.setGlobalMaxQueue(1);
+        var manager = manager(config);
+        assertTrue(manager.submit(TERMINAL_ID, 0, "A").isPresent());
+        assertTrue(manager.submit("13800138001", 0, "B").isEmpty());
+        assertEquals(1, manager.queued());
+    }
+
+    @Test
+    void textTooLong_shouldReject() {
+        var manager = manager(config());
+        // 消息体 = 标志(1) + GBK 文本,汉字 2 字节
+        assertTrue(manager.submit(TERMINAL_ID, 0, "中".repeat(Protocol.MAX_BODY_LENGTH / 2 + 1)).isEmpty());
+        assertTrue(manager.submit(TERMINAL_ID, 0, "a".repeat(Protocol.MAX_BODY_LENGTH - 1)).isPresent());
+        assertEquals(1, manager.rejected());
+        assertEquals(1, manager.queued());
+    }
+
+    @Test
+    void send_shouldNotHoldQueueLock() {
+        var manager = manager(config());
+        var probed = new ArrayList<Integer>();
+        // 写出时由其他线程读取同一终端队列,持有队列锁时会阻塞到超时
+        duringSend = () -> probed.add(assertDoesNotThrow(() ->
+                CompletableFuture.supplyAsync(() -> manager.queued(TERMINAL_ID)).get(2, TimeUnit.SECONDS)));
+        online(manager);
+        manager.submit(TERMINAL_ID, 0, "A");
+        assertEquals(List.of(1), probed);
+    }
+
+    private void online(TextQueueManager manager) {
+        sessionManager.register(channel);
+        sessionManager.bindTerminal(TERMINAL_ID, channel);
+        sessionManager.authorize(TERMINAL_ID, true);
+        manager.onOnline(TERMINAL_ID);
+    }
+
+    private TextQueueManager manager(AppConfig.TextConfig config) {
+        MsgSenderProvider sender = new MsgSenderProvider() {
+            @Override
+            public boolean sendMessage(Channel ch, String terminalId, Integer flowId, byte[] message, Map<String, Object> params) {
+                assertEquals(MsgId.PUSH_TEXT, params.get("msgId"));
+                sentFlowIds.add(flowId);
+                duringSend.run();
+                return true;
+            }
+        };
+        TextCallback callback = new TextCallback() {
+            @Override
+            public void onDelivered(TextMessage message) {
+                events.add("delivered:" + message.getText());
+            }
+
+            @Override
+            public void onExpired(TextMessage message) {
+                events.add("expired:" + message.getText());
+            }
+
+            @Override
+            public void onFailed(TextMessage message, String reason) {
+                events.add("failed:" + message.getText());
+            }
+        };
+        return new TextQueueManager(config, sender, callback, new SessionRouter(), timer, timer::now);
+    }
+
+    private static AppConfig.TextConfig config() {
+        var config = new AppConfig.TextConfig();
+        config.setExpireHours(1);
+        config.setMinSendIntervalSeconds(3);
+        config.setAckTimeoutSeconds(10);
+        config.setMaxRetries(3);
+        return config;
+    }
+}
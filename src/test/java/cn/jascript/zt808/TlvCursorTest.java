@@ -0,0 +1,82 @@
+package cn.jascript.zt808;
+
+import cn.jascript.zt808.message.parser.extprovider.DefaultLocationExtParserProvider;
+import cn.jascript.zt808.message.parser.extprovider.TlvCursor;
+import cn.jascript.zt808.model.dto.LocationDTO;
+import cn.jascript.zt808.util.CodecUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TlvCursorTest {
+
+    //真实设备附加信息:0x01 里程,0x30/0x31 信号,其后为厂商自定义项
+    private static final String REAL_EXTRA_HEX = "0104000081AB30011C31011D6102058CF7020000EB2A000C00B2898604D91623D122154900060089FFFFFFFE000400CE058C000600C5FFFFFFFF000400B71C1D";
+
+    @Test
+    void next_shouldWalkItemsInPlace() {
+        var buf = Unpooled.wrappedBuffer(CodecUtil.hexToBytes("0104000081AB30011C0000"));
+        var cursor = new TlvCursor(buf);
+
+        assertTrue(cursor.next());
+        assertEquals(0x01, cursor.id());
+        assertEquals(4, cursor.length());
+        assertEquals(0x81AB, cursor.getUnsignedInt(0));
+
+        assertTrue(cursor.next());
+        assertEquals(0x30, cursor.id());
+        assertEquals(0x1C, cursor.getUnsignedByte(0));
+
+        // 零长度项
+        assertTrue(cursor.next());
+        assertEquals(0x00, cursor.id());
+        assertEquals(0, cursor.length());
+        assertFalse(cursor.next());
+        // 游标不移动 buf 读指针
+        assertEquals(0, buf.readerIndex());
+
+        cursor.rewind();
+        assertTrue(cursor.next());
+        assertEquals(0x01, cursor.id());
+    }
+
+    @Test
+    void next_shouldStopAtTruncatedItem() {
+        var cursor = new TlvCursor(Unpooled.wrappedBuffer(CodecUtil.hexToBytes("30011C3104AABB")));
+        assertTrue(cursor.next());
+        assertFalse(cursor.next());
+        assertFalse(cursor.next());
+        assertFalse(new TlvCursor(null).next());
+    }
+
+    @Test
+    void parse_cursorAndHexShouldAgree() {
+        var provider = new DefaultLocationExtParserProvider();
+
+        var viaCursor = new LocationDTO();
+        provider.parse(viaCursor, new TlvCursor(Unpooled.wrappedBuffer(CodecUtil.hexToBytes(REAL_EXTRA_HEX))), Unpooled.EMPTY_BUFFER);
+
+        var viaHex = new LocationDTO();
+        provider.parse(viaHex, null, null, REAL_EXTRA_HEX, Unpooled.EMPTY_BUFFER);
+
+        assertEquals("33195", viaCursor.getExt().get("mileage"));
+        assertEquals("0.1km", viaCursor.getExt().get("mileageUnit"));
+        assertEquals(28, viaCursor.getGpsSignal());
+        assertEquals(29, viaCursor.getNetworkSignal());
+        assertEquals(viaHex, viaCursor);
+    }
+
+    @Test
+    void locationDto_hexShouldBeDerivedFromRaw() {
+        var dto = new LocationDTO();
+        dto.setAlarmRaw(0x80000001);
+        dto.setStatusRaw(0x000C0043);
+        dto.setExtra(Unpooled.wrappedBuffer(CodecUtil.hexToBytes("30011C")));
+        assertEquals("80000001", dto.alarmHex());
+        assertEquals("000C0043", dto.statusHex());
+        assertEquals("30011C", dto.extraHex());
+        dto.setExtra(null);
+        assertNull(dto.extraHex());
+    }
+}
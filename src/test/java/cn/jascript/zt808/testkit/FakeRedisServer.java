@@ -0,0 +1,172 @@
+package cn.jascript.zt808.testkit;
+
+import cn.jascript.zt808.cluster.RedisSessionDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 测试用 Redis 协议替身：内存 KV，只实现目录用到的命令(EVAL 仅识别目录的比较删除脚本)，过期时间只记录不生效。
+ */
+public final class FakeRedisServer implements Closeable {
+
+    private static final Object OK = new Object();
+
+    private final ServerSocket serverSocket;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+    public FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        var acceptor = new Thread(this::accept, "fake-redis");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public Long ttl(String key) {
+        return ttls.get(key);
+    }
+
+    // 模拟条目过期
+    public void expire(String key) {
+        values.remove(key);
+        ttls.remove(key);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = serverSocket.accept();
+                var worker = new Thread(() -> serve(socket), "fake-redis-conn");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            var in = new BufferedInputStream(socket.getInputStream());
+            var out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                var command = readCommand(in);
+                if (command == null)
+                    return;
+                write(out, handle(command));
+                if (in.available() == 0)
+                    out.flush();
+            }
+        } catch (IOException ignore) {
+        }
+    }
+
+    private Object handle(List<String> c) {
+        var name = c.get(0).toUpperCase();
+        switch (name) {
+            case "PING":
+            case "AUTH":
+            case "SELECT":
+                return OK;
+            case "GET":
+                return values.get(c.get(1));
+            case "SET":
+                values.put(c.get(1), c.get(2));
+                if (c.size() >= 5 && "EX".equalsIgnoreCase(c.get(3)))
+                    ttls.put(c.get(1), Long.parseLong(c.get(4)));
+                return OK;
+            case "GETSET":
+                ttls.remove(c.get(1));
+                return values.put(c.get(1), c.get(2));
+            case "EXPIRE":
+                if (!values.containsKey(c.get(1)))
+                    return 0L;
+                ttls.put(c.get(1), Long.parseLong(c.get(2)));
+                return 1L;
+            case "DEL":
+                return values.remove(c.get(1)) == null ? 0L : 1L;
+            case "EVAL":
+                if (!RedisSessionDirectory.UNREGISTER_SCRIPT.equals(c.get(1)))
+                    return new IllegalStateException("unsupported script");
+                if (values.remove(c.get(3), c.get(4))) {
+                    ttls.remove(c.get(3));
+                    return 1L;
+                }
+                return 0L;
+            default:
+                return new IllegalStateException("unknown command '" + name + "'");
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0)
+            return null;
+        int count = Integer.parseInt(readLine(in));
+        var args = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            in.read();
+            int len = Integer.parseInt(readLine(in));
+            args.add(new String(in.readNBytes(len), StandardCharsets.UTF_8));
+            readLine(in);
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        var sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0)
+                throw new IOException("closed");
+            sb.append((char) c);
+        }
+        in.read();
+        return sb.toString();
+    }
+
+    private static void write(OutputStream out, Object reply) throws IOException {
+        String text;
+        if (reply == null) {
+            text = "$-1\r\n";
+        } else if (reply instanceof Long) {
+            text = ":" + reply + "\r\n";
+        } else if (reply instanceof IllegalStateException) {
+            text = "-ERR " + ((IllegalStateException) reply).getMessage() + "\r\n";
+        } else if (reply == OK) {
+            text = "+OK\r\n";
+        } else {
+            var bytes = ((String) reply).getBytes(StandardCharsets.UTF_8);
+            out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            text = "\r\n";
+        }
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
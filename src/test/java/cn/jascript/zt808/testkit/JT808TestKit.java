@@ -8,26 +8,42 @@ import io.netty.buffer.Unpooled;
 
 import java.nio.charset.Charset;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 public final class JT808TestKit {
 
     private static final int PHONE_LENGTH_BYTES = 6;
+    private static final int SPLIT_BIT = 1 << 13;
 
     private JT808TestKit() {
     }
 
     public static byte[] buildFrame(int msgId, String terminalId, int flowId, byte[] body) {
+        return buildFrame(msgId, terminalId, flowId, body, 0, 0);
+    }
+
+    /**
+     * totalPackets > 0 时置消息体属性 bit13 并写入分包项(总包数 + 包序号)。
+     */
+    public static byte[] buildFrame(int msgId, String terminalId, int flowId, byte[] body, int totalPackets, int packetSeq) {
         ByteBuf payload = Unpooled.buffer();
         ByteBuf out = Unpooled.buffer();
         try {
             payload.writeShort(msgId);
             int bodyLength = Objects.isNull(body) ? 0 : body.length;
             int attr = bodyLength & Protocol.MAX_BODY_LENGTH;
+            if (totalPackets > 0)
+                attr |= SPLIT_BIT;
             payload.writeShort(attr);
             payload.writeBytes(BcdUtil.fromString(terminalId, PHONE_LENGTH_BYTES));
             payload.writeShort(CodecUtil.toUnsignedShort(flowId));
+            if (totalPackets > 0) {
+                payload.writeShort(totalPackets);
+                payload.writeShort(packetSeq);
+            }
             if (bodyLength > 0) {
                 payload.writeBytes(body);
             }
@@ -48,6 +64,19 @@ public final class JT808TestKit {
         }
     }
 
+    /**
+     * 按 packetSize 将 body 拆为分包帧,流水号从 firstFlowId 起逐包递增。
+     */
+    public static List<byte[]> splitFrames(int msgId, String terminalId, int firstFlowId, byte[] body, int packetSize) {
+        int total = (body.length + packetSize - 1) / packetSize;
+        var frames = new ArrayList<byte[]>(total);
+        for (int i = 0; i < total; i++) {
+            var part = Arrays.copyOfRange(body, i * packetSize, Math.min(body.length, (i + 1) * packetSize));
+            frames.add(buildFrame(msgId, terminalId, (firstFlowId + i) & 0xFFFF, part, total, i + 1));
+        }
+        return frames;
+    }
+
     public static byte[] authFrame(String terminalId, int flowId, String authCode) {
         String code = Objects.isNull(authCode) ? "" : authCode;
         byte[] body = code.getBytes(Charset.forName("GBK"));
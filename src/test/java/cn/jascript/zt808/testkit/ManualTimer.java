@@ -0,0 +1,117 @@
+package cn.jascript.zt808.testkit;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 手动推进的 Timer + 时钟，测试中替代 HashedWheelTimer。
+ */
+public final class ManualTimer implements Timer {
+
+    private final List<ManualTimeout> timeouts = new ArrayList<>();
+    private long now;
+
+    public ManualTimer(long startMillis) {
+        this.now = startMillis;
+    }
+
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public synchronized Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        var timeout = new ManualTimeout(task, now + unit.toMillis(delay));
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 推进时钟并按到期时间顺序执行到期任务(含执行中新建且已到期的任务)。
+     */
+    public void advance(long millis) {
+        long target = now + millis;
+        while (true) {
+            ManualTimeout next;
+            synchronized (this) {
+                next = timeouts.stream()
+                        .filter(t -> t.deadline <= target)
+                        .min(Comparator.comparingLong(t -> t.deadline))
+                        .orElse(null);
+                if (next == null)
+                    break;
+                timeouts.remove(next);
+                now = Math.max(now, next.deadline);
+            }
+            next.run();
+        }
+        now = target;
+    }
+
+    public synchronized int pending() {
+        return timeouts.size();
+    }
+
+    @Override
+    public synchronized Set<Timeout> stop() {
+        var remain = Set.<Timeout>copyOf(timeouts);
+        timeouts.clear();
+        return remain;
+    }
+
+    private final class ManualTimeout implements Timeout {
+        private final TimerTask task;
+        private final long deadline;
+        private volatile boolean cancelled;
+        private volatile boolean expired;
+
+        private ManualTimeout(TimerTask task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void run() {
+            expired = true;
+            try {
+                task.run(this);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Timer timer() {
+            return ManualTimer.this;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expired;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (ManualTimer.this) {
+                cancelled = true;
+                return timeouts.remove(this);
+            }
+        }
+    }
+}